@@ -1,6 +1,6 @@
 import { Injectable, inject, signal } from '@angular/core';
 import { HttpClient } from '@angular/common/http';
-import { Observable, tap, forkJoin } from 'rxjs';
+import { Observable, tap, forkJoin, EMPTY, expand, map, reduce } from 'rxjs';
 import { environment } from '../../../environments/environment';
 import { validateFile, validateFiles, ValidationPresets } from '../validators/file-upload.validator';
 
@@ -10,12 +10,29 @@ export interface Media {
   originalFilename: string;
   size: number;
   contentType: string;
+  width?: number;
+  height?: number;
+  format?: string;
+  orientation?: number;
+  placeholder?: string; // BlurHash, set shortly after upload
   userId?: string;
   productId?: string;
   createdAt: string;
   updatedAt: string;
 }
 
+export interface MediaPage {
+  items: Media[];
+  nextCursor?: string; // Absent on the last page
+}
+
+export interface MediaPageQuery {
+  productId?: string;
+  unassociated?: boolean;
+  cursor?: string;
+  limit?: number;
+}
+
 @Injectable({
   providedIn: 'root'
 })
@@ -30,9 +47,14 @@ export class MediaService {
     if (!validation.valid) {
       throw new Error(validation.errors[0]);
     }
-    const formData = new FormData();
-    formData.append('file', file);
-    return this.http.post<Media>(`${this.API_URL}/images`, formData).pipe(
+    // Raw body: the server streams it straight into storage, with no multipart temp file
+    return this.http.put<Media>(`${this.API_URL}/images`, file, {
+      headers: {
+        'Content-Type': 'application/octet-stream',
+        'X-Upload-Filename': encodeURIComponent(file.name),
+        'X-Upload-Content-Type': file.type
+      }
+    }).pipe(
       tap(media => this.mediaSignal.update(mediaList => [...mediaList, media]))
     );
   }
@@ -59,8 +81,22 @@ export class MediaService {
     return `${this.API_URL}/images/${id}`;
   }
 
+  getMediaPage(query: MediaPageQuery = {}): Observable<MediaPage> {
+    const params: Record<string, string> = {};
+    Object.entries(query).forEach(([key, value]) => {
+      if (value !== undefined && value !== null) {
+        params[key] = String(value);
+      }
+    });
+    return this.http.get<MediaPage>(`${this.API_URL}/images`, { params });
+  }
+
+  // Follows the cursors until the last page
   getAllMedia(): Observable<Media[]> {
-    return this.http.get<Media[]>(`${this.API_URL}/images`).pipe(
+    return this.getMediaPage().pipe(
+      expand(page => page.nextCursor ? this.getMediaPage({ cursor: page.nextCursor }) : EMPTY),
+      map(page => page.items),
+      reduce((all, items) => all.concat(items), [] as Media[]),
       tap(media => this.mediaSignal.set(media))
     );
   }
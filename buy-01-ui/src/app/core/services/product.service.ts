@@ -13,6 +13,7 @@ export interface Product {
   sellerId?: string;
   mediaIds?: string[];
   imageUrls?: string[];
+  imagePlaceholders?: (string | null)[]; // BlurHash per image URL
   createdAt?: string;
   updatedAt?: string;
 }
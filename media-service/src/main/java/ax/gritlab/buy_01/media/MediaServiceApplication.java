@@ -1,12 +1,15 @@
 package ax.gritlab.buy_01.media;
 
 import ax.gritlab.buy_01.media.config.StorageProperties;
+import ax.gritlab.buy_01.media.config.UploadProperties;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
-@EnableConfigurationProperties(StorageProperties.class)
+@EnableConfigurationProperties({StorageProperties.class, UploadProperties.class})
+@EnableScheduling
 public class MediaServiceApplication {
     public static void main(String[] args) {
         SpringApplication.run(MediaServiceApplication.class, args);
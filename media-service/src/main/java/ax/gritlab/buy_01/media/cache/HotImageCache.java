@@ -0,0 +1,309 @@
+package ax.gritlab.buy_01.media.cache;
+
+import ax.gritlab.buy_01.media.service.MediaContent;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Off-heap cache of the bytes and response metadata of the most requested
+ * images, keyed by media id. Bytes live in a {@link SlabArena} of direct
+ * buffers; Caffeine only holds small descriptors, so the heap does not grow
+ * with the cache. Caffeine's W-TinyLFU policy decides admission and eviction:
+ * an image seen once does not push out one requested all day.
+ *
+ * <p>{@link #get} hands out a lease. Chunks of an evicted or invalidated entry
+ * are returned to the arena only after the last lease is closed, so a response
+ * in flight never reads bytes that were reused for another image.
+ *
+ * <p>A miss is only copied in when the same image missed recently too
+ * ({@link #admitOnMiss}), so one-off requests keep being sent from the file and
+ * cost no copy. Each fill carries a {@link #stamp()} taken before its caller saw
+ * the image live; {@link #invalidate} leaves a short-lived marker, and a fill
+ * that started before it is dropped instead of publishing a deleted image.
+ */
+@Slf4j
+public class HotImageCache implements MeterBinder {
+
+    private static final String METRIC_PREFIX = "media.hot-images";
+    // Longer than any fill takes; an older stamp is refused since its marker may be gone
+    private static final Duration INVALIDATION_WINDOW = Duration.ofMinutes(1);
+    private static final Duration MISS_WINDOW = Duration.ofMinutes(10);
+
+    private final SlabArena arena;
+    private final long maxEntrySize;
+    private final Cache<String, Entry> entries;
+    private final Cache<String, Long> invalidations; // Id to the stamp of its last invalidation
+    private final Cache<String, Boolean> recentMisses;
+    private final LongAdder rejected = new LongAdder();
+
+    public HotImageCache(long capacity, int chunkSize, long slabSize, long maxEntrySize) {
+        this.arena = new SlabArena(capacity, chunkSize, slabSize);
+        this.maxEntrySize = Math.min(maxEntrySize, (long) arena.totalChunks() * chunkSize);
+        // Keep one maximum-size entry of headroom so an admission can allocate
+        // before Caffeine evicts down to the bound
+        long weightBound = Math.max(0, arena.totalChunks() - arena.chunksFor(this.maxEntrySize));
+        this.entries = Caffeine.newBuilder()
+                .maximumWeight(weightBound)
+                .executor(Runnable::run)
+                .weigher((String id, Entry entry) -> entry.chunks.length)
+                .removalListener((String id, Entry entry, RemovalCause cause) -> {
+                    if (entry != null) {
+                        entry.release();
+                    }
+                })
+                .recordStats()
+                .build();
+        this.invalidations = Caffeine.newBuilder()
+                .expireAfterWrite(INVALIDATION_WINDOW)
+                .executor(Runnable::run)
+                .build();
+        // Ids only, so a few times more than the cache can hold costs little heap
+        this.recentMisses = Caffeine.newBuilder()
+                .maximumSize(Math.max(1024, 4L * arena.totalChunks()))
+                .expireAfterWrite(MISS_WINDOW)
+                .executor(Runnable::run)
+                .build();
+    }
+
+    /** Take before reading the metadata that says an image is live, and pass it to {@link #fill}. */
+    public long stamp() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Records a miss of {@code id}; true when it already missed within the last
+     * few minutes, which is when a copy into the cache is worth making.
+     */
+    public boolean admitOnMiss(String id) {
+        return recentMisses.asMap().putIfAbsent(id, Boolean.TRUE) != null;
+    }
+
+    /** Leases the cached image, or returns empty on a miss. Close the result when done. */
+    public Optional<MediaContent> get(String id) {
+        Entry entry = entries.getIfPresent(id);
+        if (entry == null || !entry.acquire()) {
+            return Optional.empty();
+        }
+        return Optional.of(entry.lease());
+    }
+
+    public boolean contains(String id) {
+        return entries.asMap().containsKey(id);
+    }
+
+    /**
+     * Copies {@code content} into the cache under {@code id} and leases it back.
+     * Returns empty, leaving {@code content} untouched, when the image is too large,
+     * has no known length, cannot be read, is not admitted, or was invalidated
+     * after {@code stamp}.
+     */
+    public Optional<MediaContent> fill(String id, MediaContent content, long stamp) {
+        long length = content.getLength();
+        if (length <= 0 || length > maxEntrySize || System.nanoTime() - stamp > INVALIDATION_WINDOW.toNanos()) {
+            return Optional.empty();
+        }
+        int[] chunks = allocate(arena.chunksFor(length));
+        if (chunks == null) {
+            rejected.increment();
+            return Optional.empty();
+        }
+        Entry entry = new Entry(chunks, (int) length, content.getContentType(), content.getEtag(),
+                content.getLastModified());
+        try {
+            copyInto(content, entry);
+        } catch (IOException | RuntimeException e) {
+            log.debug("Could not cache image {}: {}", id, e.getMessage());
+            entry.release();
+            return Optional.empty();
+        }
+        // The lease taken before publishing survives an immediate rejection by the policy
+        entry.acquire();
+        boolean[] published = new boolean[1];
+        // Checked under the entry's lock: an invalidate either sees this entry or left its marker first
+        entries.asMap().compute(id, (key, current) -> {
+            Long invalidated = invalidations.getIfPresent(key);
+            if (invalidated != null && invalidated - stamp >= 0) {
+                return current;
+            }
+            published[0] = true;
+            return entry;
+        });
+        if (!published[0]) {
+            entry.release();
+            entry.release();
+            return Optional.empty();
+        }
+        return Optional.of(entry.lease());
+    }
+
+    public void invalidate(String id) {
+        invalidations.put(id, System.nanoTime());
+        entries.invalidate(id);
+    }
+
+    public long usedBytes() {
+        return (long) arena.usedChunks() * arena.chunkSize();
+    }
+
+    public long reservedBytes() {
+        return arena.reservedBytes();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, entries, METRIC_PREFIX);
+        Gauge.builder(METRIC_PREFIX + ".hit.ratio", entries, cache -> cache.stats().hitRate())
+                .register(registry);
+        Gauge.builder(METRIC_PREFIX + ".offheap.used", this, HotImageCache::usedBytes)
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder(METRIC_PREFIX + ".offheap.reserved", this, HotImageCache::reservedBytes)
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder(METRIC_PREFIX + ".offheap.capacity", arena,
+                        a -> (double) a.totalChunks() * a.chunkSize())
+                .baseUnit("bytes")
+                .register(registry);
+        FunctionCounter.builder(METRIC_PREFIX + ".rejected", rejected, LongAdder::sum)
+                .description("Images not cached because the arena was full")
+                .register(registry);
+    }
+
+    private int[] allocate(int count) {
+        int[] chunks = arena.allocate(count);
+        if (chunks == null) {
+            // Evictions may still be pending; let Caffeine catch up once
+            entries.cleanUp();
+            chunks = arena.allocate(count);
+        }
+        return chunks;
+    }
+
+    private void copyInto(MediaContent content, Entry entry) throws IOException {
+        if (content.isFile()) {
+            try (FileChannel channel = FileChannel.open(content.getFile(), StandardOpenOption.READ)) {
+                fillChunks(channel, entry);
+            }
+        } else {
+            try (InputStream in = content.open(0, entry.length);
+                 ReadableByteChannel channel = Channels.newChannel(in)) {
+                fillChunks(channel, entry);
+            }
+        }
+    }
+
+    private void fillChunks(ReadableByteChannel channel, Entry entry) throws IOException {
+        int remaining = entry.length;
+        for (int chunk : entry.chunks) {
+            ByteBuffer buffer = arena.chunk(chunk);
+            buffer.limit(Math.min(buffer.capacity(), remaining));
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    throw new EOFException("Image shorter than its recorded size");
+                }
+            }
+            remaining -= buffer.limit();
+        }
+    }
+
+    private final class Entry {
+        private final int[] chunks;
+        private final int length;
+        private final String contentType;
+        private final String etag;
+        private final long lastModified;
+        // One reference for the cache plus one per open lease; chunks are freed at zero
+        private final AtomicInteger refs = new AtomicInteger(1);
+
+        private Entry(int[] chunks, int length, String contentType, String etag, long lastModified) {
+            this.chunks = chunks;
+            this.length = length;
+            this.contentType = contentType;
+            this.etag = etag;
+            this.lastModified = lastModified;
+        }
+
+        private boolean acquire() {
+            int current;
+            do {
+                current = refs.get();
+                if (current == 0) {
+                    return false;
+                }
+            } while (!refs.compareAndSet(current, current + 1));
+            return true;
+        }
+
+        private void release() {
+            if (refs.decrementAndGet() == 0) {
+                arena.free(chunks);
+            }
+        }
+
+        private MediaContent lease() {
+            return MediaContent.ofSource(this::open, length, contentType, etag, lastModified, this::release);
+        }
+
+        private InputStream open(long offset, long count) {
+            long end = count < 0 ? length : Math.min(length, offset + count);
+            return new ChunkInputStream(this, offset, end);
+        }
+    }
+
+    /** Reads {@code [position, end)} of an entry straight out of its chunks. */
+    private final class ChunkInputStream extends InputStream {
+        private final Entry entry;
+        private final long end;
+        private long position;
+
+        private ChunkInputStream(Entry entry, long start, long end) {
+            this.entry = entry;
+            this.position = start;
+            this.end = end;
+        }
+
+        @Override
+        public int read() {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) < 0 ? -1 : one[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (position >= end) {
+                return -1;
+            }
+            int chunkSize = arena.chunkSize();
+            int inChunk = (int) (position % chunkSize);
+            int count = (int) Math.min(Math.min(len, chunkSize - inChunk), end - position);
+            arena.chunk(entry.chunks[(int) (position / chunkSize)]).get(inChunk, b, off, count);
+            position += count;
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return (int) Math.min(Integer.MAX_VALUE, end - position);
+        }
+    }
+}
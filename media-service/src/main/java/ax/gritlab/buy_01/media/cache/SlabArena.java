@@ -0,0 +1,100 @@
+package ax.gritlab.buy_01.media.cache;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Fixed-size chunks carved out of direct {@link ByteBuffer} slabs. Slabs are
+ * allocated lazily up to the capacity and never released, so the arena's
+ * footprint is bounded and lives outside the Java heap; the only heap cost is
+ * one {@code int} per chunk for the free list.
+ *
+ * <p>An entry takes as many chunks as it needs, not necessarily contiguous, so
+ * the arena never fragments. Allocation is all-or-nothing.
+ */
+class SlabArena {
+
+    private final int chunkSize;
+    private final int chunksPerSlab;
+    private final ByteBuffer[] slabs;
+    private final int totalChunks;
+
+    // Guarded by this
+    private final int[] freeChunks;
+    private int freeCount;
+    private int nextFreshChunk;
+
+    SlabArena(long capacity, int chunkSize, long slabSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive");
+        }
+        long slabBytes = Math.max(chunkSize, Math.min(slabSize, capacity));
+        this.chunkSize = chunkSize;
+        this.chunksPerSlab = (int) Math.min(Integer.MAX_VALUE / chunkSize, slabBytes / chunkSize);
+        this.totalChunks = (int) Math.min(Integer.MAX_VALUE, capacity / chunkSize);
+        this.slabs = new ByteBuffer[(totalChunks + chunksPerSlab - 1) / chunksPerSlab];
+        this.freeChunks = new int[totalChunks];
+    }
+
+    int chunkSize() {
+        return chunkSize;
+    }
+
+    int totalChunks() {
+        return totalChunks;
+    }
+
+    int chunksFor(long bytes) {
+        return (int) ((bytes + chunkSize - 1) / chunkSize);
+    }
+
+    /** Allocates {@code count} chunks, or returns null when the arena cannot supply them all. */
+    synchronized int[] allocate(int count) {
+        if (count > freeCount + (totalChunks - nextFreshChunk)) {
+            return null;
+        }
+        int[] chunks = new int[count];
+        for (int i = 0; i < count; i++) {
+            chunks[i] = freeCount > 0 ? freeChunks[--freeCount] : nextFreshChunk++;
+        }
+        return chunks;
+    }
+
+    synchronized void free(int[] chunks) {
+        for (int chunk : chunks) {
+            freeChunks[freeCount++] = chunk;
+        }
+    }
+
+    /** A buffer spanning exactly chunk {@code chunk}, independent of other callers' positions. */
+    ByteBuffer chunk(int chunk) {
+        int slab = chunk / chunksPerSlab;
+        int offset = (chunk % chunksPerSlab) * chunkSize;
+        return slab(slab).duplicate().position(offset).limit(offset + chunkSize).slice();
+    }
+
+    /** Chunks currently handed out. */
+    synchronized int usedChunks() {
+        return nextFreshChunk - freeCount;
+    }
+
+    /** Direct memory actually reserved by allocated slabs. */
+    synchronized long reservedBytes() {
+        long bytes = 0;
+        for (ByteBuffer slab : slabs) {
+            if (slab != null) {
+                bytes += slab.capacity();
+            }
+        }
+        return bytes;
+    }
+
+    private synchronized ByteBuffer slab(int index) {
+        ByteBuffer slab = slabs[index];
+        if (slab == null) {
+            int chunks = Math.min(chunksPerSlab, totalChunks - index * chunksPerSlab);
+            slab = ByteBuffer.allocateDirect(chunks * chunkSize);
+            slabs[index] = slab;
+        }
+        return slab;
+    }
+}
@@ -0,0 +1,22 @@
+package ax.gritlab.buy_01.media.config;
+
+import ax.gritlab.buy_01.media.cache.HotImageCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+@Configuration
+public class HotImageCacheConfig {
+
+    // Capacity counts against -XX:MaxDirectMemorySize, not the heap; 0 disables the cache
+    @Bean
+    public HotImageCache hotImageCache(
+            @Value("${media.hot-cache.capacity:256MB}") DataSize capacity,
+            @Value("${media.hot-cache.chunk-size:16KB}") DataSize chunkSize,
+            @Value("${media.hot-cache.slab-size:32MB}") DataSize slabSize,
+            @Value("${media.hot-cache.max-entry-size:2MB}") DataSize maxEntrySize) {
+        return new HotImageCache(capacity.toBytes(), (int) chunkSize.toBytes(), slabSize.toBytes(),
+                maxEntrySize.toBytes());
+    }
+}
@@ -2,6 +2,7 @@ package ax.gritlab.buy_01.media.config;
 
 import ax.gritlab.buy_01.media.model.User;
 import ax.gritlab.buy_01.media.service.JwtService;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -50,15 +51,19 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         try {
             final String jwt = authHeader.substring(7);
 
-            if (SecurityContextHolder.getContext().getAuthentication() == null && jwtService.isTokenValid(jwt)) {
-                String userEmail = jwtService.extractUsername(jwt);
-                String userId = jwtService.extractUserId(jwt);
-                List<GrantedAuthority> authorities = jwtService.extractAuthorities(jwt);
+            // Parse and verify the token once, then read every claim from the result
+            final Claims claims = jwtService.extractAllClaims(jwt);
+
+            if (SecurityContextHolder.getContext().getAuthentication() == null && jwtService.isTokenValid(claims)) {
+                String userEmail = claims.getSubject();
+                String userId = jwtService.extractUserId(claims);
+                List<GrantedAuthority> authorities = jwtService.extractAuthorities(claims);
 
                 // Create UserDetails object on the fly from token claims
                 User userDetails = new User();
                 userDetails.setId(userId);
                 userDetails.setEmail(userEmail);
+                userDetails.setRole(jwtService.extractRole(claims));
 
                 UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
                         userDetails,
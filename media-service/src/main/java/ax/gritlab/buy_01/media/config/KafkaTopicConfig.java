@@ -14,4 +14,20 @@ public class KafkaTopicConfig {
             .replicas(1)
             .build();
    }
+
+   @Bean
+   public NewTopic mediaDeletedTopic() {
+      return TopicBuilder.name("media.deleted")
+            .partitions(1)
+            .replicas(1)
+            .build();
+   }
+
+   @Bean
+   public NewTopic mediaLinksTopic() {
+      return TopicBuilder.name("media.links")
+            .partitions(1)
+            .replicas(1)
+            .build();
+   }
 }
@@ -0,0 +1,105 @@
+package ax.gritlab.buy_01.media.config;
+
+import ax.gritlab.buy_01.media.storage.FileSystemMediaStorage;
+import ax.gritlab.buy_01.media.storage.InMemoryMediaStorage;
+import ax.gritlab.buy_01.media.storage.MediaStorage;
+import ax.gritlab.buy_01.media.storage.MultiDiskMediaStorage;
+import ax.gritlab.buy_01.media.storage.S3MediaStorage;
+import ax.gritlab.buy_01.media.storage.VolumeMediaStorage;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.StringUtils;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.S3ClientBuilder;
+import software.amazon.awssdk.services.s3.S3Configuration;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Creates the {@link MediaStorage} selected by {@code storage.backend}.
+ */
+@Configuration
+public class MediaStorageConfig {
+
+    @Bean
+    public MediaStorage mediaStorage(StorageProperties properties) throws IOException {
+        switch (properties.getBackend()) {
+            case VOLUME:
+                return volumeMediaStorage(properties.getVolume());
+            case MEMORY:
+                return new InMemoryMediaStorage();
+            case S3:
+                return s3MediaStorage(properties.getS3());
+            case FILESYSTEM:
+            default:
+                if (!properties.getDisks().isEmpty()) {
+                    return multiDiskMediaStorage(properties);
+                }
+                return fileSystemMediaStorage(properties.getLocation(), properties.getFilesystem());
+        }
+    }
+
+    private static MultiDiskMediaStorage multiDiskMediaStorage(StorageProperties properties) throws IOException {
+        List<MultiDiskMediaStorage.Disk> disks = new ArrayList<>();
+        for (int i = 0; i < properties.getDisks().size(); i++) {
+            StorageProperties.Disk disk = properties.getDisks().get(i);
+            String name = StringUtils.hasText(disk.getName()) ? disk.getName() : "disk" + i;
+            disks.add(new MultiDiskMediaStorage.Disk(name, disk.getWeight(),
+                    fileSystemMediaStorage(disk.getPath(), properties.getFilesystem())));
+        }
+        return new MultiDiskMediaStorage(disks, properties.getDiskPlacement(),
+                properties.getDiskMinFree().toBytes(), properties.getDiskRecheckInterval());
+    }
+
+    private static FileSystemMediaStorage fileSystemMediaStorage(String location,
+            StorageProperties.Filesystem filesystem) {
+        FileSystemMediaStorage storage = new FileSystemMediaStorage(Paths.get(location), filesystem.isSharded());
+        if (filesystem.isSharded()) {
+            storage.startMigration(filesystem.getMigrationConcurrency());
+        }
+        return storage;
+    }
+
+    private static VolumeMediaStorage volumeMediaStorage(StorageProperties.Volume volume) throws IOException {
+        VolumeMediaStorage storage = new VolumeMediaStorage(Paths.get(volume.getDirectory()),
+                volume.getSegmentSize().toBytes(), volume.isFsync());
+        storage.startCompaction(volume.getCompactionInterval(), volume.getCompactionThreshold());
+        return storage;
+    }
+
+    private static S3MediaStorage s3MediaStorage(StorageProperties.S3 s3) {
+        S3MediaStorage storage = new S3MediaStorage(buildS3Client(s3), s3.getBucket(), s3.getKeyPrefix());
+        if (s3.isCreateBucket()) {
+            storage.createBucketIfMissing();
+        }
+        return storage;
+    }
+
+    static S3Client buildS3Client(StorageProperties.S3 s3) {
+        S3ClientBuilder builder = S3Client.builder()
+                .region(Region.of(s3.getRegion()))
+                .serviceConfiguration(S3Configuration.builder()
+                        .pathStyleAccessEnabled(s3.isPathStyleAccess())
+                        // aws-chunked uploads are not understood by every S3-compatible store
+                        .chunkedEncodingEnabled(false)
+                        .build());
+        if (StringUtils.hasText(s3.getEndpoint())) {
+            builder.endpointOverride(URI.create(s3.getEndpoint()));
+        }
+        if (StringUtils.hasText(s3.getAccessKey())) {
+            builder.credentialsProvider(StaticCredentialsProvider.create(
+                    AwsBasicCredentials.create(s3.getAccessKey(), s3.getSecretKey())));
+        } else {
+            builder.credentialsProvider(DefaultCredentialsProvider.create());
+        }
+        return builder.build();
+    }
+}
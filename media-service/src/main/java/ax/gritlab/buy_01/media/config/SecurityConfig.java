@@ -18,6 +18,7 @@ import org.springframework.security.web.authentication.UsernamePasswordAuthentic
 public class SecurityConfig {
 
     private final JwtAuthenticationFilter jwtAuthFilter;
+    private final AdminApiKeyFilter adminApiKeyFilter;
 
     @Bean
     public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
@@ -28,14 +29,19 @@ public class SecurityConfig {
                         .requestMatchers(HttpMethod.GET, "/media/images", "/media/images/**").permitAll()
                         .requestMatchers("/actuator/**").permitAll()
 
+                        // Operator tooling (variant regeneration) - X-Admin-Key only
+                        .requestMatchers("/media/admin/**").hasAuthority("ADMIN")
+
                         // Protected endpoints - authenticated users can upload/modify images
                         .requestMatchers(HttpMethod.POST, "/media/images/**").authenticated()
                         .requestMatchers(HttpMethod.PUT, "/media/images/**").authenticated()
                         .requestMatchers(HttpMethod.DELETE, "/media/images/**").authenticated()
+                        .requestMatchers("/media/uploads/**").authenticated()
 
                         .anyRequest().authenticated())
                 .sessionManagement(sess -> sess.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
-                .addFilterBefore(jwtAuthFilter, UsernamePasswordAuthenticationFilter.class);
+                .addFilterBefore(jwtAuthFilter, UsernamePasswordAuthenticationFilter.class)
+                .addFilterBefore(adminApiKeyFilter, UsernamePasswordAuthenticationFilter.class);
 
         return http.build();
     }
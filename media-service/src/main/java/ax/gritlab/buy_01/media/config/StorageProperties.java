@@ -1,12 +1,48 @@
 package ax.gritlab.buy_01.media.config;
 
+import ax.gritlab.buy_01.media.storage.MultiDiskMediaStorage;
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 
 @ConfigurationProperties("storage")
 public class StorageProperties {
 
+    public enum Backend {
+        FILESYSTEM, VOLUME, MEMORY, S3
+    }
+
+    private Backend backend = Backend.FILESYSTEM;
+
     private String location = "uploads";
 
+    private final Filesystem filesystem = new Filesystem();
+
+    // Several data disks for the filesystem backend; empty means the single storage.location
+    private List<Disk> disks = new ArrayList<>();
+
+    private MultiDiskMediaStorage.Placement diskPlacement = MultiDiskMediaStorage.Placement.WEIGHTED_ROUND_ROBIN;
+
+    // Disks with less free space than this take no new objects
+    private DataSize diskMinFree = DataSize.ofGigabytes(1);
+
+    private Duration diskRecheckInterval = Duration.ofSeconds(30);
+
+    private final S3 s3 = new S3();
+
+    private final Volume volume = new Volume();
+
+    public Backend getBackend() {
+        return backend;
+    }
+
+    public void setBackend(Backend backend) {
+        this.backend = backend;
+    }
+
     public String getLocation() {
         return location;
     }
@@ -15,4 +51,234 @@ public class StorageProperties {
         this.location = location;
     }
 
+    public Filesystem getFilesystem() {
+        return filesystem;
+    }
+
+    public List<Disk> getDisks() {
+        return disks;
+    }
+
+    public void setDisks(List<Disk> disks) {
+        this.disks = disks;
+    }
+
+    public MultiDiskMediaStorage.Placement getDiskPlacement() {
+        return diskPlacement;
+    }
+
+    public void setDiskPlacement(MultiDiskMediaStorage.Placement diskPlacement) {
+        this.diskPlacement = diskPlacement;
+    }
+
+    public DataSize getDiskMinFree() {
+        return diskMinFree;
+    }
+
+    public void setDiskMinFree(DataSize diskMinFree) {
+        this.diskMinFree = diskMinFree;
+    }
+
+    public Duration getDiskRecheckInterval() {
+        return diskRecheckInterval;
+    }
+
+    public void setDiskRecheckInterval(Duration diskRecheckInterval) {
+        this.diskRecheckInterval = diskRecheckInterval;
+    }
+
+    public S3 getS3() {
+        return s3;
+    }
+
+    public Volume getVolume() {
+        return volume;
+    }
+
+    /** One data disk of a striped filesystem backend. */
+    public static class Disk {
+
+        // Recorded in Media.filePath; never rename a disk that holds data
+        private String name;
+        private String path;
+        private int weight = 1;
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        public void setPath(String path) {
+            this.path = path;
+        }
+
+        public int getWeight() {
+            return weight;
+        }
+
+        public void setWeight(int weight) {
+            this.weight = weight;
+        }
+    }
+
+    /** Directory layout for {@code storage.backend=filesystem}. */
+    public static class Filesystem {
+
+        // ab/cd/<key> fan-out; flat files left over from older versions are migrated on startup
+        private boolean sharded = true;
+        private int migrationConcurrency = 4;
+
+        public boolean isSharded() {
+            return sharded;
+        }
+
+        public void setSharded(boolean sharded) {
+            this.sharded = sharded;
+        }
+
+        public int getMigrationConcurrency() {
+            return migrationConcurrency;
+        }
+
+        public void setMigrationConcurrency(int migrationConcurrency) {
+            this.migrationConcurrency = migrationConcurrency;
+        }
+    }
+
+    /** Segment and compaction settings for {@code storage.backend=volume}. */
+    public static class Volume {
+
+        private String directory = "uploads/volumes";
+        private DataSize segmentSize = DataSize.ofGigabytes(1);
+        private boolean fsync = false;
+        private Duration compactionInterval = Duration.ofMinutes(10);
+        // Share of a sealed segment that must be dead before it is rewritten
+        private double compactionThreshold = 0.5;
+
+        public String getDirectory() {
+            return directory;
+        }
+
+        public void setDirectory(String directory) {
+            this.directory = directory;
+        }
+
+        public DataSize getSegmentSize() {
+            return segmentSize;
+        }
+
+        public void setSegmentSize(DataSize segmentSize) {
+            this.segmentSize = segmentSize;
+        }
+
+        public boolean isFsync() {
+            return fsync;
+        }
+
+        public void setFsync(boolean fsync) {
+            this.fsync = fsync;
+        }
+
+        public Duration getCompactionInterval() {
+            return compactionInterval;
+        }
+
+        public void setCompactionInterval(Duration compactionInterval) {
+            this.compactionInterval = compactionInterval;
+        }
+
+        public double getCompactionThreshold() {
+            return compactionThreshold;
+        }
+
+        public void setCompactionThreshold(double compactionThreshold) {
+            this.compactionThreshold = compactionThreshold;
+        }
+    }
+
+    /** Connection settings for {@code storage.backend=s3}. */
+    public static class S3 {
+
+        private String endpoint;
+        private String region = "us-east-1";
+        private String bucket = "media";
+        private String accessKey;
+        private String secretKey;
+        private String keyPrefix = "";
+        // MinIO and most self-hosted stores only support path-style bucket addressing
+        private boolean pathStyleAccess = true;
+        private boolean createBucket = false;
+
+        public String getEndpoint() {
+            return endpoint;
+        }
+
+        public void setEndpoint(String endpoint) {
+            this.endpoint = endpoint;
+        }
+
+        public String getRegion() {
+            return region;
+        }
+
+        public void setRegion(String region) {
+            this.region = region;
+        }
+
+        public String getBucket() {
+            return bucket;
+        }
+
+        public void setBucket(String bucket) {
+            this.bucket = bucket;
+        }
+
+        public String getAccessKey() {
+            return accessKey;
+        }
+
+        public void setAccessKey(String accessKey) {
+            this.accessKey = accessKey;
+        }
+
+        public String getSecretKey() {
+            return secretKey;
+        }
+
+        public void setSecretKey(String secretKey) {
+            this.secretKey = secretKey;
+        }
+
+        public String getKeyPrefix() {
+            return keyPrefix;
+        }
+
+        public void setKeyPrefix(String keyPrefix) {
+            this.keyPrefix = keyPrefix;
+        }
+
+        public boolean isPathStyleAccess() {
+            return pathStyleAccess;
+        }
+
+        public void setPathStyleAccess(boolean pathStyleAccess) {
+            this.pathStyleAccess = pathStyleAccess;
+        }
+
+        public boolean isCreateBucket() {
+            return createBucket;
+        }
+
+        public void setCreateBucket(boolean createBucket) {
+            this.createBucket = createBucket;
+        }
+    }
+
 }
@@ -0,0 +1,80 @@
+package ax.gritlab.buy_01.media.config;
+
+import ax.gritlab.buy_01.media.exception.ErrorResponse;
+import ax.gritlab.buy_01.media.exception.UploadRejectedException;
+import ax.gritlab.buy_01.media.service.UploadAdmission;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+
+/**
+ * Puts upload requests (multipart, raw body and resumable chunks) through
+ * {@link UploadAdmission} before their body is read, so rejected uploads cost
+ * no temp files. Runs after the security chain: anonymous requests are
+ * refused there first.
+ */
+@Component
+@RequiredArgsConstructor
+public class UploadAdmissionFilter extends OncePerRequestFilter {
+
+    private final UploadAdmission uploadAdmission;
+    private final ObjectMapper objectMapper;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) throws ServletException {
+        String path = request.getRequestURI();
+        String method = request.getMethod();
+        if ("POST".equals(method)) {
+            return !path.equals("/media/images") && !path.equals("/media/images/batch");
+        }
+        if ("PUT".equals(method)) {
+            return !path.equals("/media/images"); // Raw body uploads
+        }
+        // Resumable chunks
+        return !("PATCH".equals(method) && path.startsWith("/media/uploads/"));
+    }
+
+    @Override
+    protected void doFilterInternal(
+            @NonNull HttpServletRequest request,
+            @NonNull HttpServletResponse response,
+            @NonNull FilterChain filterChain) throws ServletException, IOException {
+        UploadAdmission.Permit permit;
+        try {
+            permit = uploadAdmission.admit(request.getContentLengthLong());
+        } catch (UploadRejectedException e) {
+            reject(response, e);
+            return;
+        }
+        try (permit) {
+            filterChain.doFilter(request, response);
+        }
+    }
+
+    private void reject(HttpServletResponse response, UploadRejectedException e) throws IOException {
+        ErrorResponse error = ErrorResponse.builder()
+                .timestamp(LocalDateTime.now())
+                .status(HttpStatus.SERVICE_UNAVAILABLE.value())
+                .error("Service Unavailable")
+                .message(e.getMessage())
+                .build();
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, e.getRetryAfter().toSeconds())));
+        // The body is not read; let the client stop sending it
+        response.setHeader(HttpHeaders.CONNECTION, "close");
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), error);
+    }
+}
@@ -0,0 +1,24 @@
+package ax.gritlab.buy_01.media.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Configuration
+public class UploadExecutorConfig {
+
+    // Copies of batch uploads to storage; I/O bound, so sized independently of the CPU count
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService mediaUploadExecutor(@Value("${media.upload.workers:4}") int workers) {
+        AtomicInteger counter = new AtomicInteger();
+        return Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "media-upload-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+}
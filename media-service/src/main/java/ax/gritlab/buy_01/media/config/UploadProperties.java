@@ -0,0 +1,213 @@
+package ax.gritlab.buy_01.media.config;
+
+import ax.gritlab.buy_01.media.model.Role;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+@ConfigurationProperties("media.upload")
+public class UploadProperties {
+
+    // Largest accepted original per role; roles not listed get defaultMaxSize
+    private Map<Role, DataSize> maxSize = new EnumMap<>(Role.class);
+
+    private DataSize defaultMaxSize = DataSize.ofMegabytes(2);
+
+    private final Resumable resumable = new Resumable();
+
+    private final Admission admission = new Admission();
+
+    private final Quota quota = new Quota();
+
+    public Map<Role, DataSize> getMaxSize() {
+        return maxSize;
+    }
+
+    public void setMaxSize(Map<Role, DataSize> maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    public DataSize getDefaultMaxSize() {
+        return defaultMaxSize;
+    }
+
+    public void setDefaultMaxSize(DataSize defaultMaxSize) {
+        this.defaultMaxSize = defaultMaxSize;
+    }
+
+    public Resumable getResumable() {
+        return resumable;
+    }
+
+    public Admission getAdmission() {
+        return admission;
+    }
+
+    public Quota getQuota() {
+        return quota;
+    }
+
+    public long maxSizeFor(Role role) {
+        DataSize limit = role != null ? maxSize.get(role) : null;
+        return (limit != null ? limit : defaultMaxSize).toBytes();
+    }
+
+    public static class Resumable {
+
+        // Partial uploads; must be shared by all instances unless the gateway pins sessions
+        private String directory = "uploads/.resumable";
+
+        private DataSize chunkSize = DataSize.ofMegabytes(4);
+
+        // Sessions without a chunk for this long are dropped with their partial file
+        private Duration sessionTtl = Duration.ofHours(24);
+
+        // A completion still claimed after this long was cut off by a crash and is expired
+        private Duration completionTimeout = Duration.ofHours(1);
+
+        public String getDirectory() {
+            return directory;
+        }
+
+        public void setDirectory(String directory) {
+            this.directory = directory;
+        }
+
+        public DataSize getChunkSize() {
+            return chunkSize;
+        }
+
+        public void setChunkSize(DataSize chunkSize) {
+            this.chunkSize = chunkSize;
+        }
+
+        public Duration getSessionTtl() {
+            return sessionTtl;
+        }
+
+        public void setSessionTtl(Duration sessionTtl) {
+            this.sessionTtl = sessionTtl;
+        }
+
+        public Duration getCompletionTimeout() {
+            return completionTimeout;
+        }
+
+        public void setCompletionTimeout(Duration completionTimeout) {
+            this.completionTimeout = completionTimeout;
+        }
+    }
+
+    public static class Admission {
+
+        // Uploads in progress at once; further ones wait up to queueTimeout, then get a 503
+        private int maxConcurrent = 16;
+
+        // Sum of the Content-Length of the uploads in progress
+        private DataSize maxInFlight = DataSize.ofMegabytes(256);
+
+        // Space to keep free on the storage and multipart buffer volumes, beyond the admitted uploads
+        private DataSize minFreeDisk = DataSize.ofGigabytes(1);
+
+        private Duration queueTimeout = Duration.ofMillis(250);
+
+        private Duration retryAfter = Duration.ofSeconds(5);
+
+        public int getMaxConcurrent() {
+            return maxConcurrent;
+        }
+
+        public void setMaxConcurrent(int maxConcurrent) {
+            this.maxConcurrent = maxConcurrent;
+        }
+
+        public DataSize getMaxInFlight() {
+            return maxInFlight;
+        }
+
+        public void setMaxInFlight(DataSize maxInFlight) {
+            this.maxInFlight = maxInFlight;
+        }
+
+        public DataSize getMinFreeDisk() {
+            return minFreeDisk;
+        }
+
+        public void setMinFreeDisk(DataSize minFreeDisk) {
+            this.minFreeDisk = minFreeDisk;
+        }
+
+        public Duration getQueueTimeout() {
+            return queueTimeout;
+        }
+
+        public void setQueueTimeout(Duration queueTimeout) {
+            this.queueTimeout = queueTimeout;
+        }
+
+        public Duration getRetryAfter() {
+            return retryAfter;
+        }
+
+        public void setRetryAfter(Duration retryAfter) {
+            this.retryAfter = retryAfter;
+        }
+    }
+
+    public static class Quota {
+
+        // Total size and number of live media per user, by role; roles not listed get the defaults
+        private Map<Role, DataSize> maxBytes = new EnumMap<>(Role.class);
+
+        private Map<Role, Long> maxFiles = new EnumMap<>(Role.class);
+
+        private DataSize defaultMaxBytes = DataSize.ofMegabytes(100);
+
+        private long defaultMaxFiles = 100;
+
+        public Map<Role, DataSize> getMaxBytes() {
+            return maxBytes;
+        }
+
+        public void setMaxBytes(Map<Role, DataSize> maxBytes) {
+            this.maxBytes = maxBytes;
+        }
+
+        public Map<Role, Long> getMaxFiles() {
+            return maxFiles;
+        }
+
+        public void setMaxFiles(Map<Role, Long> maxFiles) {
+            this.maxFiles = maxFiles;
+        }
+
+        public DataSize getDefaultMaxBytes() {
+            return defaultMaxBytes;
+        }
+
+        public void setDefaultMaxBytes(DataSize defaultMaxBytes) {
+            this.defaultMaxBytes = defaultMaxBytes;
+        }
+
+        public long getDefaultMaxFiles() {
+            return defaultMaxFiles;
+        }
+
+        public void setDefaultMaxFiles(long defaultMaxFiles) {
+            this.defaultMaxFiles = defaultMaxFiles;
+        }
+
+        public long maxBytesFor(Role role) {
+            DataSize limit = role != null ? maxBytes.get(role) : null;
+            return (limit != null ? limit : defaultMaxBytes).toBytes();
+        }
+
+        public long maxFilesFor(Role role) {
+            Long limit = role != null ? maxFiles.get(role) : null;
+            return limit != null ? limit : defaultMaxFiles;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package ax.gritlab.buy_01.media.config;
+
+import ax.gritlab.buy_01.media.variant.VariantCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+@Configuration
+public class VariantCacheConfig {
+
+    // Rendered variants are derived data, so they live on local disk even when originals are remote
+    @Bean
+    public VariantCache variantCache(
+            @Value("${media.variants.directory:uploads/variants}") String directory,
+            @Value("${media.variants.cache-max-size:1GB}") DataSize maxSize) throws IOException {
+        return new VariantCache(Paths.get(directory), maxSize.toBytes());
+    }
+}
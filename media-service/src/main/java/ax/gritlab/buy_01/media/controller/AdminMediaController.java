@@ -0,0 +1,77 @@
+package ax.gritlab.buy_01.media.controller;
+
+import ax.gritlab.buy_01.media.dto.ConsistencyReport;
+import ax.gritlab.buy_01.media.dto.DiskStatus;
+import ax.gritlab.buy_01.media.dto.ScrubStatus;
+import ax.gritlab.buy_01.media.dto.StorageRebalanceSummary;
+import ax.gritlab.buy_01.media.dto.VariantRegenerationSummary;
+import ax.gritlab.buy_01.media.service.ImageVariantService;
+import ax.gritlab.buy_01.media.service.MediaScrubber;
+import ax.gritlab.buy_01.media.service.StorageConsistencyScanner;
+import ax.gritlab.buy_01.media.service.StorageRebalanceService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/media/admin")
+@RequiredArgsConstructor
+public class AdminMediaController {
+
+    private final ImageVariantService imageVariantService;
+    private final StorageRebalanceService storageRebalanceService;
+    private final StorageConsistencyScanner storageConsistencyScanner;
+    private final MediaScrubber mediaScrubber;
+
+    /** Re-renders every preset variant of every image; returns when the run is complete. */
+    @PostMapping("/variants/regenerate")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<VariantRegenerationSummary> regenerateVariants() {
+        return ResponseEntity.ok(imageVariantService.regenerateAll());
+    }
+
+    /** Free space and write health of each data disk of a striped filesystem backend. */
+    @GetMapping("/storage/disks")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<List<DiskStatus>> diskStatus() {
+        return ResponseEntity.ok(storageRebalanceService.diskStatus());
+    }
+
+    /** Moves blobs from the fullest data disks to the emptiest; returns when the run is complete. */
+    @PostMapping("/storage/rebalance")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<StorageRebalanceSummary> rebalanceStorage(
+            @RequestParam(defaultValue = "0.05") double tolerance,
+            @RequestParam(defaultValue = "10240") long maxMegabytes) {
+        return ResponseEntity.ok(storageRebalanceService.rebalance(tolerance, maxMegabytes * 1024 * 1024));
+    }
+
+    /** Compares stored files with media records; with repair, deletes orphans and media missing their bytes. */
+    @PostMapping("/storage/scan")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<ConsistencyReport> scanStorage(@RequestParam(defaultValue = "false") boolean repair) {
+        return ResponseEntity.ok(storageConsistencyScanner.scan(repair));
+    }
+
+    /** Progress of the integrity scrubber and the blobs it has flagged as corrupt. */
+    @GetMapping("/storage/scrub")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<ScrubStatus> scrubStatus() {
+        return ResponseEntity.ok(mediaScrubber.status());
+    }
+
+    /** Starts a scrub run now instead of at the next interval; returns at once. */
+    @PostMapping("/storage/scrub")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<ScrubStatus> startScrub() {
+        mediaScrubber.start();
+        return ResponseEntity.accepted().body(mediaScrubber.status());
+    }
+}
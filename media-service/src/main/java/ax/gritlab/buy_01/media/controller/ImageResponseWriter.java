@@ -0,0 +1,297 @@
+package ax.gritlab.buy_01.media.controller;
+
+import ax.gritlab.buy_01.media.service.MediaContent;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Writes image responses by hand instead of through a {@code Resource}, so that
+ * image ids can be served as the immutable content they are:
+ * <ul>
+ *   <li>{@code ETag} and {@code Last-Modified} from the media record, with 304s for
+ *       matching {@code If-None-Match} / {@code If-Modified-Since};</li>
+ *   <li>{@code Cache-Control: public, max-age=31536000, immutable};</li>
+ *   <li>single ranges as 206 and multiple ranges as {@code multipart/byteranges},
+ *       honouring {@code If-Range};</li>
+ *   <li>local files handed to Tomcat's sendfile when the connector supports it,
+ *       otherwise copied with {@code FileChannel.transferTo}.</li>
+ * </ul>
+ */
+@Component
+public class ImageResponseWriter {
+
+    static final String CACHE_CONTROL = "public, max-age=31536000, immutable";
+
+    // Request attributes of Tomcat's sendfile support (org.apache.catalina.Globals)
+    static final String SENDFILE_SUPPORTED = "org.apache.tomcat.sendfile.support";
+    static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    // More ranges than this is more likely abuse than a real client; serve the whole image
+    private static final int MAX_RANGES = 16;
+
+    private final long sendfileMinSize;
+
+    public ImageResponseWriter(@Value("${media.serving.sendfile-min-size:48KB}") DataSize sendfileMinSize) {
+        this.sendfileMinSize = sendfileMinSize.toBytes();
+    }
+
+    public void write(HttpServletRequest request, HttpServletResponse response, MediaContent content)
+            throws IOException {
+        response.setHeader(HttpHeaders.CACHE_CONTROL, CACHE_CONTROL);
+        if (content.getEtag() != null) {
+            response.setHeader(HttpHeaders.ETAG, content.getEtag());
+        }
+        if (content.getLastModified() > 0) {
+            response.setDateHeader(HttpHeaders.LAST_MODIFIED, content.getLastModified());
+        }
+        if (isNotModified(request, content)) {
+            response.setStatus(HttpStatus.NOT_MODIFIED.value());
+            return;
+        }
+
+        long length = content.getLength();
+        boolean head = "HEAD".equals(request.getMethod());
+        response.setContentType(content.getContentType());
+        if (length < 0) {
+            // Unknown length (proxied URL): no ranges, stream to the end
+            response.setStatus(HttpStatus.OK.value());
+            if (!head) {
+                try (InputStream in = content.open(0, -1)) {
+                    in.transferTo(response.getOutputStream());
+                }
+            }
+            return;
+        }
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        List<long[]> ranges = null;
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        if (rangeHeader != null && ifRangeMatches(request, content)) {
+            ranges = parseRanges(rangeHeader, length);
+        }
+
+        if (ranges == null) {
+            response.setStatus(HttpStatus.OK.value());
+            response.setContentLengthLong(length);
+            if (!head) {
+                writeBody(request, response, content, 0, length);
+            }
+        } else if (ranges.isEmpty()) {
+            response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+            response.setContentLength(0);
+        } else if (ranges.size() == 1) {
+            long[] range = ranges.get(0);
+            long count = range[1] - range[0] + 1;
+            response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+            response.setHeader(HttpHeaders.CONTENT_RANGE, contentRange(range, length));
+            response.setContentLengthLong(count);
+            if (!head) {
+                writeBody(request, response, content, range[0], count);
+            }
+        } else {
+            writeMultipart(request, response, content, ranges, head);
+        }
+    }
+
+    /**
+     * Parses a {@code Range} header against a representation of {@code length} bytes.
+     *
+     * @return null when the header is malformed or should be ignored (serve the whole
+     *         image), an empty list when no range is satisfiable (416), otherwise the
+     *         inclusive {@code [first, last]} ranges in request order
+     */
+    static List<long[]> parseRanges(String header, long length) {
+        if (!header.startsWith("bytes=")) {
+            return null;
+        }
+        String[] specs = header.substring("bytes=".length()).split(",");
+        if (specs.length > MAX_RANGES) {
+            return null;
+        }
+        List<long[]> ranges = new ArrayList<>(specs.length);
+        try {
+            for (String spec : specs) {
+                String trimmed = spec.trim();
+                int dash = trimmed.indexOf('-');
+                if (dash < 0) {
+                    return null;
+                }
+                String first = trimmed.substring(0, dash);
+                String last = trimmed.substring(dash + 1);
+                if (first.isEmpty()) {
+                    // Suffix range: the last N bytes
+                    long suffix = Long.parseLong(last);
+                    if (suffix > 0 && length > 0) {
+                        ranges.add(new long[] {Math.max(0, length - suffix), length - 1});
+                    }
+                    continue;
+                }
+                long start = Long.parseLong(first);
+                // Only an explicit last position before the first is malformed; an open range
+                // starting at or past the end is merely unsatisfiable
+                if (!last.isEmpty() && Long.parseLong(last) < start) {
+                    return null;
+                }
+                long end = last.isEmpty() ? length - 1 : Long.parseLong(last);
+                if (start < length) {
+                    ranges.add(new long[] {start, Math.min(end, length - 1)});
+                }
+            }
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        return ranges;
+    }
+
+    private static boolean isNotModified(HttpServletRequest request, MediaContent content) {
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null) {
+            // If-None-Match takes precedence over If-Modified-Since
+            return content.getEtag() != null && etagListMatches(ifNoneMatch, content.getEtag());
+        }
+        if (content.getLastModified() <= 0) {
+            return false;
+        }
+        long ifModifiedSince;
+        try {
+            ifModifiedSince = request.getDateHeader(HttpHeaders.IF_MODIFIED_SINCE);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        // HTTP dates have second precision
+        return ifModifiedSince >= 0 && content.getLastModified() / 1000 <= ifModifiedSince / 1000;
+    }
+
+    // Weak comparison, as If-None-Match requires
+    private static boolean etagListMatches(String header, String etag) {
+        String target = stripWeak(etag);
+        for (String candidate : header.split(",")) {
+            String trimmed = candidate.trim();
+            if ("*".equals(trimmed) || stripWeak(trimmed).equals(target)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String stripWeak(String etag) {
+        return etag.startsWith("W/") ? etag.substring(2) : etag;
+    }
+
+    // If-Range needs a strong match; on mismatch the whole image is sent
+    private static boolean ifRangeMatches(HttpServletRequest request, MediaContent content) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return content.getEtag() != null && !ifRange.startsWith("W/") && ifRange.equals(content.getEtag());
+        }
+        try {
+            long date = request.getDateHeader(HttpHeaders.IF_RANGE);
+            return content.getLastModified() > 0 && content.getLastModified() / 1000 == date / 1000;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private void writeBody(HttpServletRequest request, HttpServletResponse response, MediaContent content,
+            long offset, long count) throws IOException {
+        if (content.isFile()) {
+            if (count >= sendfileMinSize && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED))) {
+                // Tomcat sends the file after the servlet returns, straight from the page cache
+                request.setAttribute(SENDFILE_FILENAME, content.getFile().toAbsolutePath().toString());
+                request.setAttribute(SENDFILE_START, offset);
+                request.setAttribute(SENDFILE_END, offset + count);
+                return;
+            }
+            transferFile(content, offset, count, response.getOutputStream());
+        } else {
+            try (InputStream in = content.open(offset, count)) {
+                in.transferTo(response.getOutputStream());
+            }
+        }
+    }
+
+    private void writeMultipart(HttpServletRequest request, HttpServletResponse response, MediaContent content,
+            List<long[]> ranges, boolean head) throws IOException {
+        String boundary = "media-" + UUID.randomUUID().toString().replace("-", "");
+        long length = content.getLength();
+        List<byte[]> partHeaders = new ArrayList<>(ranges.size());
+        long contentLength = 0;
+        for (long[] range : ranges) {
+            byte[] partHeader = ("\r\n--" + boundary + "\r\n"
+                    + HttpHeaders.CONTENT_TYPE + ": " + content.getContentType() + "\r\n"
+                    + HttpHeaders.CONTENT_RANGE + ": " + contentRange(range, length) + "\r\n\r\n")
+                    .getBytes(StandardCharsets.US_ASCII);
+            partHeaders.add(partHeader);
+            contentLength += partHeader.length + range[1] - range[0] + 1;
+        }
+        byte[] closing = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+        contentLength += closing.length;
+
+        response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+        response.setContentType("multipart/byteranges; boundary=" + boundary);
+        response.setContentLengthLong(contentLength);
+        if (head) {
+            return;
+        }
+
+        ServletOutputStream out = response.getOutputStream();
+        for (int i = 0; i < ranges.size(); i++) {
+            long[] range = ranges.get(i);
+            out.write(partHeaders.get(i));
+            long count = range[1] - range[0] + 1;
+            if (content.isFile()) {
+                transferFile(content, range[0], count, out);
+            } else {
+                try (InputStream in = content.open(range[0], count)) {
+                    in.transferTo(out);
+                }
+            }
+        }
+        out.write(closing);
+    }
+
+    private static void transferFile(MediaContent content, long offset, long count, ServletOutputStream out)
+            throws IOException {
+        try (FileChannel channel = FileChannel.open(content.getFile(), StandardOpenOption.READ)) {
+            WritableByteChannel target = Channels.newChannel(out);
+            long position = offset;
+            long remaining = count;
+            while (remaining > 0) {
+                long sent = channel.transferTo(position, remaining, target);
+                if (sent <= 0 && position >= channel.size()) {
+                    throw new EOFException("File shorter than expected: " + content.getFile());
+                }
+                position += sent;
+                remaining -= sent;
+            }
+        }
+    }
+
+    private static String contentRange(long[] range, long length) {
+        return "bytes " + range[0] + "-" + range[1] + "/" + length;
+    }
+}
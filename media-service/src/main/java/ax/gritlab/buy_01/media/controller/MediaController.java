@@ -1,17 +1,34 @@
 package ax.gritlab.buy_01.media.controller;
 
+import ax.gritlab.buy_01.media.dto.MediaPage;
+import ax.gritlab.buy_01.media.dto.MediaUploadResult;
+import ax.gritlab.buy_01.media.dto.StorageUsageResponse;
+import ax.gritlab.buy_01.media.exception.UnauthorizedException;
 import ax.gritlab.buy_01.media.model.Media;
 import ax.gritlab.buy_01.media.model.User;
+import ax.gritlab.buy_01.media.service.ImageVariantService;
+import ax.gritlab.buy_01.media.service.MediaContent;
+import ax.gritlab.buy_01.media.service.MediaExportService;
+import ax.gritlab.buy_01.media.service.MediaListingService;
 import ax.gritlab.buy_01.media.service.MediaService;
+import ax.gritlab.buy_01.media.service.StorageQuotaService;
+import ax.gritlab.buy_01.media.variant.VariantSpec;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
-import org.springframework.core.io.Resource;
+import org.springframework.http.ContentDisposition;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 @RestController
@@ -20,12 +37,30 @@ import java.util.List;
 public class MediaController {
 
     private final MediaService mediaService;
+    private final MediaListingService mediaListingService;
+    private final MediaExportService mediaExportService;
+    private final StorageQuotaService storageQuotaService;
+    private final ImageVariantService imageVariantService;
+    private final ImageResponseWriter imageResponseWriter;
 
     @GetMapping("/images")
     @PreAuthorize("hasAuthority('SELLER')")
-    public ResponseEntity<List<Media>> getAllUserMedia(Authentication authentication) {
-        List<Media> mediaList = mediaService.findByUserId(((User) authentication.getPrincipal()).getId());
-        return ResponseEntity.ok(mediaList);
+    public ResponseEntity<MediaPage> getAllUserMedia(
+            @RequestParam(required = false) String productId,
+            @RequestParam(defaultValue = "false") boolean unassociated,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            Authentication authentication) {
+        String userId = ((User) authentication.getPrincipal()).getId();
+        MediaPage page = mediaListingService.findPage(userId, productId, unassociated, cursor, limit);
+        return ResponseEntity.ok(page);
+    }
+
+    /** The caller's storage used by live media, against the quota for their role. */
+    @GetMapping("/usage")
+    @PreAuthorize("hasAnyAuthority('SELLER', 'CLIENT')")
+    public ResponseEntity<StorageUsageResponse> getUsage(Authentication authentication) {
+        return ResponseEntity.ok(storageQuotaService.usage((User) authentication.getPrincipal()));
     }
 
     @PostMapping("/images")
@@ -35,17 +70,77 @@ public class MediaController {
         return ResponseEntity.ok(savedMedia);
     }
 
+    // Raw body upload: streamed straight into storage, without a multipart temp file.
+    // The filename header may be percent-encoded; the type is checked against the bytes.
+    @PutMapping(value = "/images", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    @PreAuthorize("hasAnyAuthority('SELLER', 'CLIENT')")
+    public ResponseEntity<Media> uploadRawImage(
+            @RequestHeader(value = "X-Upload-Filename", required = false) String filename,
+            @RequestHeader(value = "X-Upload-Content-Type", required = false) String contentType,
+            HttpServletRequest request,
+            Authentication authentication) throws IOException {
+        String originalFilename = filename != null ? URLDecoder.decode(filename, StandardCharsets.UTF_8) : null;
+        Media savedMedia = mediaService.saveStream(request.getInputStream(), request.getContentLengthLong(),
+                originalFilename, contentType, (User) authentication.getPrincipal());
+        return ResponseEntity.ok(savedMedia);
+    }
+
+    // Partial success: one result per file, in request order
+    @PostMapping("/images/batch")
+    @PreAuthorize("hasAnyAuthority('SELLER', 'CLIENT')")
+    public ResponseEntity<List<MediaUploadResult>> uploadImages(@RequestParam("files") List<MultipartFile> files,
+            Authentication authentication) {
+        List<MediaUploadResult> results = mediaService.saveAll(files, (User) authentication.getPrincipal());
+        return ResponseEntity.ok(results);
+    }
+
     @GetMapping("/images/{id}")
-    public ResponseEntity<Resource> serveImage(@PathVariable String id) {
+    public void serveImage(
+            @PathVariable String id,
+            @RequestParam(required = false) Integer w,
+            @RequestParam(required = false) Integer h,
+            @RequestParam(required = false) String fit,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+        // Invalid sizes are a 400, so parse them before the 404 fallback below
+        VariantSpec spec = w != null || h != null ? VariantSpec.of(w, h, fit) : null;
+        MediaContent content;
         try {
-            MediaService.MediaResource mediaResource = mediaService.getResourceById(id);
-            return ResponseEntity.ok()
-                    .header(HttpHeaders.CONTENT_TYPE, mediaResource.getContentType())
-                    .body(mediaResource.getResource());
+            // Not resizable (external or undecodable) falls through to the original
+            content = spec != null ? imageVariantService.getVariant(id, spec).orElse(null) : null;
+            if (content == null) {
+                content = mediaService.getContent(id);
+            }
         } catch (RuntimeException e) {
             // Return 404 for missing images instead of throwing exception
-            return ResponseEntity.notFound().build();
+            response.setStatus(HttpStatus.NOT_FOUND.value());
+            return;
+        }
+        try {
+            imageResponseWriter.write(request, response, content);
+        } finally {
+            content.close();
+        }
+    }
+
+    // ZIP of the caller's media, or of one of their products; streamed, so there is no Content-Length
+    @GetMapping("/export")
+    @PreAuthorize("hasAuthority('SELLER')")
+    public void exportMedia(
+            @RequestParam(required = false) String productId,
+            @RequestParam(required = false) String userId,
+            Authentication authentication,
+            HttpServletResponse response) throws IOException {
+        User user = (User) authentication.getPrincipal();
+        if (userId != null && !userId.equals(user.getId())) {
+            throw new UnauthorizedException("You can only export your own media");
         }
+        String filename = "media-" + (productId != null ? productId : user.getId()) + ".zip";
+        response.setContentType("application/zip");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                ContentDisposition.attachment().filename(filename).build().toString());
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "no-store");
+        mediaExportService.export(user.getId(), productId, response.getOutputStream());
     }
 
     @DeleteMapping("/images/{id}")
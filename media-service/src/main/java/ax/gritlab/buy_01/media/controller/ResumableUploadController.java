@@ -0,0 +1,114 @@
+package ax.gritlab.buy_01.media.controller;
+
+import ax.gritlab.buy_01.media.dto.UploadSessionRequest;
+import ax.gritlab.buy_01.media.dto.UploadSessionResponse;
+import ax.gritlab.buy_01.media.model.Media;
+import ax.gritlab.buy_01.media.model.UploadSession;
+import ax.gritlab.buy_01.media.model.User;
+import ax.gritlab.buy_01.media.service.ResumableUploadService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Resumable uploads: POST a session, PATCH each chunk with its Upload-Offset and
+ * Upload-Checksum, then POST /complete. After a dropped connection, GET (or HEAD)
+ * the session and resume from Upload-Offset or resend the missing chunks.
+ */
+@RestController
+@RequestMapping("/media/uploads")
+@RequiredArgsConstructor
+public class ResumableUploadController {
+
+    private static final String UPLOAD_OFFSET = "Upload-Offset";
+
+    private final ResumableUploadService resumableUploadService;
+
+    @PostMapping
+    @PreAuthorize("hasAnyAuthority('SELLER', 'CLIENT')")
+    public ResponseEntity<UploadSessionResponse> createUpload(@Valid @RequestBody UploadSessionRequest request,
+            Authentication authentication) {
+        UploadSession session = resumableUploadService.create(request, (User) authentication.getPrincipal());
+        URI location = ServletUriComponentsBuilder.fromCurrentRequest().path("/{id}")
+                .buildAndExpand(session.getId()).toUri();
+        return ResponseEntity.created(location).body(toResponse(session));
+    }
+
+    @GetMapping("/{id}")
+    @PreAuthorize("hasAnyAuthority('SELLER', 'CLIENT')")
+    public ResponseEntity<UploadSessionResponse> getUpload(@PathVariable String id, Authentication authentication) {
+        UploadSessionResponse response = toResponse(
+                resumableUploadService.status(id, (User) authentication.getPrincipal()));
+        return ResponseEntity.ok()
+                .header(UPLOAD_OFFSET, Long.toString(response.getOffset()))
+                .body(response);
+    }
+
+    @PatchMapping("/{id}")
+    @PreAuthorize("hasAnyAuthority('SELLER', 'CLIENT')")
+    public ResponseEntity<Void> writeChunk(
+            @PathVariable String id,
+            @RequestHeader(UPLOAD_OFFSET) long offset,
+            @RequestHeader(value = "Upload-Checksum", required = false) String checksum,
+            HttpServletRequest request,
+            Authentication authentication) throws IOException {
+        UploadSession session;
+        // Read straight from the request, so the chunk is never buffered whole
+        try (InputStream body = request.getInputStream()) {
+            session = resumableUploadService.writeChunk(id, (User) authentication.getPrincipal(), offset, checksum,
+                    body, request.getContentLengthLong());
+        }
+        return ResponseEntity.noContent()
+                .header(UPLOAD_OFFSET, Long.toString(toResponse(session).getOffset()))
+                .build();
+    }
+
+    @PostMapping("/{id}/complete")
+    @PreAuthorize("hasAnyAuthority('SELLER', 'CLIENT')")
+    public ResponseEntity<Media> completeUpload(@PathVariable String id, Authentication authentication) {
+        return ResponseEntity.ok(resumableUploadService.complete(id, (User) authentication.getPrincipal()));
+    }
+
+    @DeleteMapping("/{id}")
+    @PreAuthorize("hasAnyAuthority('SELLER', 'CLIENT')")
+    public ResponseEntity<Void> abortUpload(@PathVariable String id, Authentication authentication) {
+        resumableUploadService.abort(id, (User) authentication.getPrincipal());
+        return ResponseEntity.noContent().build();
+    }
+
+    private static UploadSessionResponse toResponse(UploadSession session) {
+        Set<Integer> received = new HashSet<>(session.getReceivedChunks());
+        List<Integer> missing = new ArrayList<>();
+        int prefix = -1;
+        for (int i = 0; i < session.getChunkCount(); i++) {
+            if (!received.contains(i)) {
+                missing.add(i);
+                if (prefix < 0) {
+                    prefix = i;
+                }
+            }
+        }
+        long offset = prefix < 0 ? session.getSize() : prefix * session.getChunkSize();
+        return UploadSessionResponse.builder()
+                .id(session.getId())
+                .size(session.getSize())
+                .chunkSize(session.getChunkSize())
+                .offset(offset)
+                .missingChunks(missing)
+                .expiresAt(session.getExpiresAt())
+                .build();
+    }
+}
@@ -0,0 +1,25 @@
+package ax.gritlab.buy_01.media.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ConsistencyReport {
+    private long storedObjects;
+    private long referencedKeys;
+    private long orphanFiles; // Stored but referenced by no media or blob record
+    private long danglingKeys; // Referenced but missing from storage
+    private List<String> orphanSamples;
+    private List<String> danglingSamples;
+    private boolean repair;
+    private long repairedOrphans;
+    private long repairedDangling;
+    private long durationMs;
+}
@@ -0,0 +1,20 @@
+package ax.gritlab.buy_01.media.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DiskStatus {
+    private String name;
+    private String root;
+    private int weight;
+    private long usableBytes;
+    private long totalBytes;
+    private double fillRatio;
+    private boolean writable; // False while read-only or below storage.disk-min-free
+}
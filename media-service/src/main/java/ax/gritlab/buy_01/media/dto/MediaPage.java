@@ -0,0 +1,18 @@
+package ax.gritlab.buy_01.media.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// Response to GET /media/images; pass nextCursor back as ?cursor= for the following page, null on the last one
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class MediaPage {
+    private List<MediaSummary> items;
+    private String nextCursor;
+}
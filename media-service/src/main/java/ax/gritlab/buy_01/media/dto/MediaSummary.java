@@ -0,0 +1,26 @@
+package ax.gritlab.buy_01.media.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// One entry of the seller media listing: only the fields a grid of thumbnails needs
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class MediaSummary {
+    private String id;
+    private String url;
+    private String originalFilename;
+    private String contentType;
+    private long size;
+    private Integer width;
+    private Integer height;
+    private String placeholder;
+    private String productId;
+    private LocalDateTime createdAt;
+}
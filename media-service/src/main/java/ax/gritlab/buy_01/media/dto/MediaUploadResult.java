@@ -0,0 +1,26 @@
+package ax.gritlab.buy_01.media.dto;
+
+import ax.gritlab.buy_01.media.model.Media;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// One file of the response to POST /media/images/batch, in request order
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class MediaUploadResult {
+
+    public enum Status {
+        CREATED,
+        FAILED
+    }
+
+    private int index;
+    private String filename;
+    private Status status;
+    private Media media;
+    private String message;
+}
@@ -0,0 +1,26 @@
+package ax.gritlab.buy_01.media.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ScrubStatus {
+    private boolean running;
+    private long blobs;
+    private long due; // Not verified within the pass interval
+    private long corrupt; // Flagged blobs, across all instances
+    private List<String> corruptSamples; // Blob ids (content hashes)
+    private long checkedSinceStart; // By this instance, since it started
+    private long bytesSinceStart;
+    private long bytesPerSecond; // The read budget; 0 when unlimited
+    private LocalDateTime lastRunStartedAt;
+    private LocalDateTime lastRunFinishedAt;
+}
@@ -0,0 +1,20 @@
+package ax.gritlab.buy_01.media.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StorageRebalanceSummary {
+    private int moved;
+    private long bytesMoved;
+    private int failed;
+    private long durationMs;
+    private List<DiskStatus> disks; // After the run
+}
@@ -0,0 +1,17 @@
+package ax.gritlab.buy_01.media.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StorageUsageResponse {
+    private long bytes;
+    private long files;
+    private long maxBytes; // Quota for the user's role
+    private long maxFiles;
+}
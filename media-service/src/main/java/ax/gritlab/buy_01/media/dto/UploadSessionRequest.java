@@ -0,0 +1,23 @@
+package ax.gritlab.buy_01.media.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Positive;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UploadSessionRequest {
+    @NotBlank
+    private String filename;
+
+    @NotBlank
+    private String contentType;
+
+    @Positive
+    private long size;
+}
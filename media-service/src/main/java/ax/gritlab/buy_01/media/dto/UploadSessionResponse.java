@@ -0,0 +1,22 @@
+package ax.gritlab.buy_01.media.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UploadSessionResponse {
+    private String id;
+    private long size;
+    private long chunkSize;
+    private long offset; // End of the contiguous prefix received so far; resume from here
+    private List<Integer> missingChunks; // Indexes still to send, for clients uploading chunks in parallel
+    private LocalDateTime expiresAt;
+}
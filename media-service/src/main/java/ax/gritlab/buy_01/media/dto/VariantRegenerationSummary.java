@@ -0,0 +1,17 @@
+package ax.gritlab.buy_01.media.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class VariantRegenerationSummary {
+    private int sources; // Distinct images rendered (shared content counts once)
+    private int rendered;
+    private int failed;
+    private long durationMs;
+}
@@ -0,0 +1,7 @@
+package ax.gritlab.buy_01.media.exception;
+
+public class InvalidUploadChunkException extends RuntimeException {
+    public InvalidUploadChunkException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package ax.gritlab.buy_01.media.exception;
+
+public class InvalidVariantException extends RuntimeException {
+    public InvalidVariantException(String message) {
+        super(message);
+    }
+}
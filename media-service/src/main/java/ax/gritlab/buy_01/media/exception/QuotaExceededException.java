@@ -0,0 +1,7 @@
+package ax.gritlab.buy_01.media.exception;
+
+public class QuotaExceededException extends RuntimeException {
+    public QuotaExceededException(String message) {
+        super(message);
+    }
+}
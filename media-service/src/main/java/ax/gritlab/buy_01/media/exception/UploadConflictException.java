@@ -0,0 +1,7 @@
+package ax.gritlab.buy_01.media.exception;
+
+public class UploadConflictException extends RuntimeException {
+    public UploadConflictException(String message) {
+        super(message);
+    }
+}
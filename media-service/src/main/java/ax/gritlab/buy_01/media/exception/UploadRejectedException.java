@@ -0,0 +1,18 @@
+package ax.gritlab.buy_01.media.exception;
+
+import java.time.Duration;
+
+// Upload refused by admission control (503); the client should retry after retryAfter
+public class UploadRejectedException extends RuntimeException {
+
+    private final Duration retryAfter;
+
+    public UploadRejectedException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
@@ -7,6 +7,8 @@ import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.LocalDateTime;
@@ -16,6 +18,8 @@ import java.time.LocalDateTime;
 @NoArgsConstructor
 @AllArgsConstructor
 @Document(collection = "media")
+// Seller listing: equality on userId, then newest first with _id breaking ties (MediaListingService)
+@CompoundIndex(name = "userId_createdAt", def = "{'userId': 1, 'createdAt': -1, '_id': -1}")
 public class Media {
 
     @Id
@@ -29,15 +33,32 @@ public class Media {
 
     private String filePath; // Path to the file on disk or key in object storage
 
+    private String contentHash; // SHA-256 of the bytes; id of the shared MediaBlob and the strong ETag
+
     private String userId; // The user (seller) who owns this media
 
+    @Indexed(sparse = true)
     private String productId; // Optional: The product this media is associated with
 
     private String url; // The public URL to access this media
 
+    // Read from the image header at upload; null for media ImageIO cannot read and for older records
+    private Integer width; // As displayed, after the EXIF rotation
+
+    private Integer height;
+
+    private String format; // ImageIO format name: jpeg, png, gif, bmp
+
+    private Integer orientation; // EXIF orientation, 1 (upright) to 8
+
+    private String placeholder; // BlurHash of the image, set in the background shortly after upload
+
     @CreatedDate
     private LocalDateTime createdAt;
 
     @LastModifiedDate
     private LocalDateTime updatedAt;
+
+    @Indexed(sparse = true)
+    private LocalDateTime deletedAt; // Tombstone: hidden from reads until MediaSweeper removes it and its bytes
 }
@@ -0,0 +1,42 @@
+package ax.gritlab.buy_01.media.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+// One stored copy of some image bytes, shared by every Media record with the same content
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "media_blobs")
+public class MediaBlob {
+
+    @Id
+    private String id; // Hex SHA-256 of the content
+
+    private String filePath; // Storage key of the single stored copy
+
+    private long size;
+
+    private String contentType;
+
+    private long refCount; // Number of Media records pointing at this blob
+
+    private LocalDateTime createdAt;
+
+    // Integrity scrubbing (MediaScrubber): when the stored bytes were last re-read and hashed
+    @Indexed
+    private LocalDateTime scrubbedAt;
+
+    @Indexed(sparse = true)
+    private LocalDateTime corruptAt; // Set while the stored bytes do not match the id
+
+    private String corruption; // What the last scrub found: checksum mismatch, missing
+}
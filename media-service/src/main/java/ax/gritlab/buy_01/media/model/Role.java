@@ -1,6 +1,26 @@
 package ax.gritlab.buy_01.media.model;
 
 public enum Role {
-    CLIENT,
-    SELLER
+    CLIENT("C"),
+    SELLER("S");
+
+    // Single-letter code carried in the compact JWT "r" claim
+    private final String code;
+
+    Role(String code) {
+        this.code = code;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    public static Role fromCode(String code) {
+        for (Role role : values()) {
+            if (role.code.equals(code)) {
+                return role;
+            }
+        }
+        throw new IllegalArgumentException("Unknown role code: " + code);
+    }
 }
@@ -0,0 +1,30 @@
+package ax.gritlab.buy_01.media.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+// Running total of one user's live media, kept with $inc on upload and delete (StorageQuotaService)
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "storage_usage")
+public class StorageUsage {
+
+    @Id
+    private String id; // The user's id
+
+    private long bytes; // Sum of Media.size, tombstoned media excluded
+
+    private long files;
+
+    private LocalDateTime updatedAt; // Last change by an upload, a delete or the reconciliation
+
+    private LocalDateTime reconciledAt; // Last time the reconciliation found a drift and corrected it
+}
@@ -0,0 +1,49 @@
+package ax.gritlab.buy_01.media.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+// A resumable upload in progress; its bytes are assembled in a preallocated file named after the id
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "upload_sessions")
+public class UploadSession {
+
+    @Id
+    private String id; // Also the id of the Media record created on completion
+
+    private String userId;
+
+    private String originalFilename;
+
+    private String contentType;
+
+    private long size;
+
+    private long chunkSize; // Every chunk but the last is exactly this long
+
+    private int chunkCount;
+
+    @Builder.Default
+    private List<Integer> receivedChunks = new ArrayList<>(); // Indexes of chunks written and verified
+
+    private boolean completing; // Set while the file is moved to storage, so completion runs once
+
+    private LocalDateTime completingAt; // When completion was claimed; an old claim means the instance died
+
+    private LocalDateTime createdAt;
+
+    @Indexed
+    private LocalDateTime expiresAt; // Pushed back by every chunk
+}
@@ -1,14 +1,42 @@
 package ax.gritlab.buy_01.media.repository;
 
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
+import org.springframework.data.mongodb.repository.Update;
 import ax.gritlab.buy_01.media.model.Media;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface MediaRepository extends MongoRepository<Media, String> {
+    // Tombstoned media are left out; the sweeper is the only reader that sees them
+    @Query("{ 'userId': ?0, 'deletedAt': { $exists: false } }")
     List<Media> findByUserId(String userId);
 
+    @Query("{ 'productId': ?0, 'deletedAt': { $exists: false } }")
     List<Media> findByProductId(String productId);
 
 	void deleteByProductId(String productId);
+
+    // Cursors for the ZIP export, oldest first; close them after use
+    @Query(value = "{ 'userId': ?0, 'deletedAt': { $exists: false } }", sort = "{ 'createdAt': 1 }")
+    Stream<Media> streamByUserId(String userId);
+
+    @Query(value = "{ 'userId': ?0, 'productId': ?1, 'deletedAt': { $exists: false } }", sort = "{ 'createdAt': 1 }")
+    Stream<Media> streamByUserIdAndProductId(String userId, String productId);
+
+    // Tombstones the live media among ids; returns how many were marked
+    @Query("{ '_id': { $in: ?0 }, 'deletedAt': { $exists: false } }")
+    @Update("{ '$set': { 'deletedAt': ?1 } }")
+    long markDeleted(Collection<String> ids, LocalDateTime deletedAt);
+
+    // Sets the BlurHash of a live media record; returns 0 if it was deleted
+    @Query("{ '_id': ?0, 'deletedAt': { $exists: false } }")
+    @Update("{ '$set': { 'placeholder': ?1 } }")
+    long setPlaceholder(String id, String placeholder);
+
+    // Cursor over the whole collection for batch jobs; close it after use
+    Stream<Media> streamAllBy();
 }
@@ -0,0 +1,179 @@
+package ax.gritlab.buy_01.media.service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+/**
+ * Sorts more strings than fit in memory. Values are buffered up to
+ * {@code runSize}, then sorted and spilled to a temporary file; {@link #sorted}
+ * merges the runs, so memory stays at one buffer plus one read buffer per run.
+ * Duplicates are dropped.
+ */
+final class ExternalSorter implements Closeable {
+
+    private static final int IO_BUFFER = 64 * 1024;
+
+    private final Path directory;
+    private final int runSize;
+    private final List<Path> runs = new ArrayList<>();
+    private final List<DataInputStream> readers = new ArrayList<>();
+    private List<String> buffer = new ArrayList<>();
+
+    ExternalSorter(Path tempDir, String name, int runSize) throws IOException {
+        Files.createDirectories(tempDir);
+        this.directory = Files.createTempDirectory(tempDir, name + "-");
+        this.runSize = Math.max(1, runSize);
+    }
+
+    /** Safe to call from several threads. */
+    synchronized void add(String value) {
+        buffer.add(value);
+        if (buffer.size() >= runSize) {
+            try {
+                spill();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Ends input and returns the values in ascending order, once each. The
+     * iterator reads the spilled runs lazily and throws {@link UncheckedIOException}
+     * if one cannot be read.
+     */
+    synchronized Iterator<String> sorted() throws IOException {
+        if (runs.isEmpty()) {
+            Collections.sort(buffer);
+            List<String> values = buffer;
+            buffer = new ArrayList<>();
+            return distinct(values.iterator());
+        }
+        spill();
+        PriorityQueue<Run> heads = new PriorityQueue<>(Comparator.comparing((Run run) -> run.head));
+        for (Path file : runs) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), IO_BUFFER));
+            readers.add(in);
+            Run run = new Run(in);
+            if (run.advance()) {
+                heads.add(run);
+            }
+        }
+        return distinct(new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return !heads.isEmpty();
+            }
+
+            @Override
+            public String next() {
+                Run run = heads.poll();
+                if (run == null) {
+                    throw new NoSuchElementException();
+                }
+                String value = run.head;
+                try {
+                    if (run.advance()) {
+                        heads.add(run);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return value;
+            }
+        });
+    }
+
+    /** Deletes the spilled runs. */
+    @Override
+    public synchronized void close() throws IOException {
+        for (DataInputStream reader : readers) {
+            reader.close();
+        }
+        for (Path run : runs) {
+            Files.deleteIfExists(run);
+        }
+        Files.deleteIfExists(directory);
+    }
+
+    private void spill() throws IOException {
+        if (buffer.isEmpty()) {
+            return;
+        }
+        Collections.sort(buffer);
+        Path file = directory.resolve("run-" + runs.size());
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(file), IO_BUFFER))) {
+            String previous = null;
+            for (String value : buffer) {
+                if (!value.equals(previous)) {
+                    out.writeUTF(value);
+                }
+                previous = value;
+            }
+        }
+        runs.add(file);
+        buffer = new ArrayList<>();
+    }
+
+    private static Iterator<String> distinct(Iterator<String> sorted) {
+        return new Iterator<>() {
+            private String next = sorted.hasNext() ? sorted.next() : null;
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public String next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                String value = next;
+                next = null;
+                while (sorted.hasNext()) {
+                    String candidate = sorted.next();
+                    if (!candidate.equals(value)) {
+                        next = candidate;
+                        break;
+                    }
+                }
+                return value;
+            }
+        };
+    }
+
+    private static final class Run {
+        private final DataInputStream in;
+        private String head;
+
+        private Run(DataInputStream in) {
+            this.in = in;
+        }
+
+        private boolean advance() throws IOException {
+            try {
+                head = in.readUTF();
+                return true;
+            } catch (EOFException e) {
+                return false;
+            }
+        }
+    }
+}
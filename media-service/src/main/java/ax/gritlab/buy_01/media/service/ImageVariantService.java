@@ -0,0 +1,251 @@
+package ax.gritlab.buy_01.media.service;
+
+import ax.gritlab.buy_01.media.dto.VariantRegenerationSummary;
+import ax.gritlab.buy_01.media.exception.ResourceNotFoundException;
+import ax.gritlab.buy_01.media.model.Media;
+import ax.gritlab.buy_01.media.repository.MediaRepository;
+import ax.gritlab.buy_01.media.storage.MediaStorage;
+import ax.gritlab.buy_01.media.variant.ImageResizer;
+import ax.gritlab.buy_01.media.variant.VariantCache;
+import ax.gritlab.buy_01.media.variant.VariantSpec;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.ImageIO;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Resized variants of uploaded images ({@code ?w=&h=&fit=}), rendered on demand
+ * and kept in the {@link VariantCache}. Variants of content-addressed media are
+ * keyed by content hash, so identical uploads share them. Variants are rendered
+ * upright: the EXIF orientation recorded at upload is applied to the pixels.
+ *
+ * <p>Preset sizes are rendered in the background right after upload on a
+ * dedicated worker pool; concurrent requests for a variant that is still being
+ * rendered wait for that render instead of starting their own.
+ */
+@Slf4j
+@Service
+public class ImageVariantService {
+
+    private final MediaRepository mediaRepository;
+    private final MediaMetadataCache mediaMetadataCache;
+    private final MediaStorage mediaStorage;
+    private final VariantCache variantCache;
+    private final ImageResizer resizer;
+    private final List<VariantSpec> presets;
+    private final int parallelism;
+    private final ExecutorService workers;
+    private final ConcurrentMap<String, CompletableFuture<Path>> inFlight = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Boolean> decodable = new ConcurrentHashMap<>();
+
+    public ImageVariantService(
+            MediaRepository mediaRepository,
+            MediaMetadataCache mediaMetadataCache,
+            MediaStorage mediaStorage,
+            VariantCache variantCache,
+            @Value("${media.variants.presets:200x200:cover,400,800}") String presets,
+            @Value("${media.variants.workers:0}") int workers,
+            @Value("${media.variants.jpeg-quality:0.85}") float jpegQuality) {
+        this.mediaRepository = mediaRepository;
+        this.mediaMetadataCache = mediaMetadataCache;
+        this.mediaStorage = mediaStorage;
+        this.variantCache = variantCache;
+        this.resizer = new ImageResizer(jpegQuality);
+        this.presets = VariantSpec.parsePresets(presets);
+        this.parallelism = workers > 0 ? workers : Runtime.getRuntime().availableProcessors();
+        this.workers = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "media-variant-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+
+    /**
+     * The variant of media {@code mediaId}, rendering it on a cache miss. Empty when
+     * the media cannot be resized (external URL, format ImageIO cannot decode,
+     * corrupt upload); callers then serve the original.
+     */
+    public Optional<MediaContent> getVariant(String mediaId, VariantSpec spec) {
+        Media media = mediaMetadataCache.find(mediaId)
+                .orElseThrow(() -> new ResourceNotFoundException("Media not found with id: " + mediaId));
+        if (!supports(media)) {
+            return Optional.empty();
+        }
+        String outputType = ImageResizer.outputType(media.getContentType());
+        String key = cacheKey(media, spec, outputType);
+        try {
+            Path file = variantCache.get(key).orElse(null);
+            if (file == null) {
+                file = render(media, spec, outputType, key);
+            }
+            return Optional.of(MediaContent.ofFile(file, Files.size(file), outputType, etag(media, spec),
+                    MediaContent.epochMillis(media.getCreatedAt())));
+        } catch (IOException e) {
+            log.warn("Could not render variant {} of media {}: {}", spec, mediaId, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /** Queues rendering of the preset sizes; returns immediately. */
+    public void pregenerate(Media media) {
+        if (!supports(media)) {
+            return;
+        }
+        String outputType = ImageResizer.outputType(media.getContentType());
+        for (VariantSpec spec : presets) {
+            workers.execute(() -> {
+                String key = cacheKey(media, spec, outputType);
+                try {
+                    if (variantCache.get(key).isEmpty()) {
+                        render(media, spec, outputType, key);
+                    }
+                } catch (IOException | RuntimeException e) {
+                    log.warn("Could not pre-generate variant {} of media {}: {}", spec, media.getId(), e.getMessage());
+                }
+            });
+        }
+    }
+
+    /**
+     * Re-renders every preset of every image, in parallel on the worker pool, and
+     * waits for completion. In-flight work is bounded so the media cursor is not
+     * drained into the queue.
+     */
+    public VariantRegenerationSummary regenerateAll() {
+        long start = System.currentTimeMillis();
+        int maxInFlight = parallelism * 2;
+        Semaphore permits = new Semaphore(maxInFlight);
+        AtomicInteger rendered = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        Set<String> sources = ConcurrentHashMap.newKeySet();
+
+        try (Stream<Media> all = mediaRepository.streamAllBy()) {
+            all.filter(media -> media.getDeletedAt() == null)
+                    .filter(this::supports)
+                    .filter(media -> sources.add(source(media)))
+                    .forEach(media -> {
+                        String outputType = ImageResizer.outputType(media.getContentType());
+                        for (VariantSpec spec : presets) {
+                            permits.acquireUninterruptibly();
+                            workers.execute(() -> {
+                                try {
+                                    render(media, spec, outputType, cacheKey(media, spec, outputType));
+                                    rendered.incrementAndGet();
+                                } catch (IOException | RuntimeException e) {
+                                    failed.incrementAndGet();
+                                    log.warn("Could not regenerate variant {} of media {}: {}",
+                                            spec, media.getId(), e.getMessage());
+                                } finally {
+                                    permits.release();
+                                }
+                            });
+                        }
+                    });
+        }
+        // Every task holds a permit until it finishes
+        permits.acquireUninterruptibly(maxInFlight);
+        permits.release(maxInFlight);
+
+        VariantRegenerationSummary summary = VariantRegenerationSummary.builder()
+                .sources(sources.size())
+                .rendered(rendered.get())
+                .failed(failed.get())
+                .durationMs(System.currentTimeMillis() - start)
+                .build();
+        log.info("Variant regeneration finished: {}", summary);
+        return summary;
+    }
+
+    /** Drops the cached variants of content that no longer exists. */
+    public void evict(Media media) {
+        variantCache.invalidateSource(source(media));
+    }
+
+    private Path render(Media media, VariantSpec spec, String outputType, String key) throws IOException {
+        CompletableFuture<Path> mine = new CompletableFuture<>();
+        CompletableFuture<Path> running = inFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            return await(running);
+        }
+        try {
+            Path file = variantCache.put(key, out -> {
+                try (InputStream in = mediaStorage.get(media.getFilePath())) {
+                    resizer.resize(in, spec, orientation(media), outputType, out);
+                }
+            });
+            mine.complete(file);
+            return file;
+        } catch (IOException | RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    private static Path await(CompletableFuture<Path> running) throws IOException {
+        try {
+            return running.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private boolean supports(Media media) {
+        String path = media.getFilePath();
+        String contentType = media.getContentType();
+        if (path == null || path.startsWith("http://") || path.startsWith("https://") || contentType == null) {
+            return false;
+        }
+        return decodable.computeIfAbsent(contentType, type -> ImageIO.getImageReadersByMIMEType(type).hasNext());
+    }
+
+    private static String source(Media media) {
+        return media.getContentHash() != null ? media.getContentHash() : "media-" + media.getId();
+    }
+
+    private static String cacheKey(Media media, VariantSpec spec, String outputType) {
+        String extension = ImageResizer.PNG.equals(outputType) ? ".png" : ".jpg";
+        return VariantCache.key(source(media), variantName(media, spec) + extension);
+    }
+
+    private static String etag(Media media, VariantSpec spec) {
+        return "\"" + source(media) + "-" + variantName(media, spec) + "\"";
+    }
+
+    // Rotated images get their own names, so variants cached before orientation was applied are not served
+    private static String variantName(Media media, VariantSpec spec) {
+        int orientation = orientation(media);
+        return orientation > 1 ? spec.key() + "-o" + orientation : spec.key();
+    }
+
+    private static int orientation(Media media) {
+        return media.getOrientation() != null ? media.getOrientation() : 1;
+    }
+}
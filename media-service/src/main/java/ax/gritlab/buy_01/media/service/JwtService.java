@@ -1,6 +1,8 @@
 package ax.gritlab.buy_01.media.service;
 
+import ax.gritlab.buy_01.media.model.Role;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
@@ -10,6 +12,7 @@ import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.stereotype.Service;
 
 import java.security.Key;
+import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
 import java.util.function.Function;
@@ -18,52 +21,119 @@ import java.util.stream.Collectors;
 @Service
 public class JwtService {
 
+    // Compact claim layout (v2) issued by user-service
+    private static final String VERSION_CLAIM = "v";
+    private static final String ROLE_CLAIM = "r";
+    private static final String USER_ID_CLAIM = "uid";
+
+    // One immutable authority list per role so compact tokens parse without allocating
+    private static final Map<Role, List<GrantedAuthority>> ROLE_AUTHORITIES = new EnumMap<>(Role.class);
+
+    static {
+        for (Role role : Role.values()) {
+            ROLE_AUTHORITIES.put(role, List.of(new SimpleGrantedAuthority(role.name())));
+        }
+    }
+
     @Value("${jwt.secret.key}")
     private String secretKey;
 
+    private volatile Key signInKey;
+    private volatile JwtParser parser;
+
     public String extractUsername(String token) {
         return extractClaim(token, Claims::getSubject);
     }
 
     public String extractUserId(String token) {
-        return extractClaim(token, claims -> claims.get("userId", String.class));
+        return extractUserId(extractAllClaims(token));
+    }
+
+    public String extractUserId(Claims claims) {
+        if (isCompact(claims)) {
+            return claims.get(USER_ID_CLAIM, String.class);
+        }
+        return claims.get("userId", String.class);
     }
 
     public List<GrantedAuthority> extractAuthorities(String token) {
-        List<Map<String, String>> authoritiesMaps = extractClaim(token, claims -> claims.get("authorities", List.class));
+        return extractAuthorities(extractAllClaims(token));
+    }
+
+    @SuppressWarnings("unchecked")
+    public List<GrantedAuthority> extractAuthorities(Claims claims) {
+        if (isCompact(claims)) {
+            Role role = extractRole(claims);
+            return role != null ? ROLE_AUTHORITIES.get(role) : List.of();
+        }
+        // Legacy layout: serialized list of SimpleGrantedAuthority maps
+        List<Map<String, String>> authoritiesMaps = claims.get("authorities", List.class);
+        if (authoritiesMaps == null) {
+            return List.of();
+        }
         return authoritiesMaps.stream()
                 .map(authorityMap -> new SimpleGrantedAuthority(authorityMap.get("authority")))
                 .collect(Collectors.toList());
     }
 
+    public Role extractRole(Claims claims) {
+        if (isCompact(claims)) {
+            String code = claims.get(ROLE_CLAIM, String.class);
+            return code != null ? Role.fromCode(code) : null;
+        }
+        for (GrantedAuthority authority : extractAuthorities(claims)) {
+            for (Role role : Role.values()) {
+                if (role.name().equals(authority.getAuthority())) {
+                    return role;
+                }
+            }
+        }
+        return null;
+    }
+
     public <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
         final Claims claims = extractAllClaims(token);
         return claimsResolver.apply(claims);
     }
 
     public boolean isTokenValid(String token) {
-        return !isTokenExpired(token);
-    }
-
-    private boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new java.util.Date());
+        return isTokenValid(extractAllClaims(token));
     }
 
-    private java.util.Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
+    public boolean isTokenValid(Claims claims) {
+        return !claims.getExpiration().before(new java.util.Date());
     }
 
-    private Claims extractAllClaims(String token) {
-        return Jwts
-                .parserBuilder()
-                .setSigningKey(getSignInKey())
-                .build()
+    /**
+     * Verifies the signature and parses the token once, so callers can read
+     * every claim they need without re-parsing.
+     */
+    public Claims extractAllClaims(String token) {
+        return getParser()
                 .parseClaimsJws(token)
                 .getBody();
     }
 
+    private boolean isCompact(Claims claims) {
+        return claims.containsKey(VERSION_CLAIM);
+    }
+
+    private JwtParser getParser() {
+        JwtParser current = parser;
+        if (current == null) {
+            current = Jwts.parserBuilder().setSigningKey(getSignInKey()).build();
+            parser = current;
+        }
+        return current;
+    }
+
     private Key getSignInKey() {
-        byte[] keyBytes = Decoders.BASE64.decode(secretKey);
-        return Keys.hmacShaKeyFor(keyBytes);
+        Key current = signInKey;
+        if (current == null) {
+            byte[] keyBytes = Decoders.BASE64.decode(secretKey);
+            current = Keys.hmacShaKeyFor(keyBytes);
+            signInKey = current;
+        }
+        return current;
     }
 }
@@ -0,0 +1,166 @@
+package ax.gritlab.buy_01.media.service;
+
+import ax.gritlab.buy_01.media.model.MediaBlob;
+import ax.gritlab.buy_01.media.storage.MediaStorage;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+/**
+ * Content-addressed, reference-counted storage of media bytes. Uploads are hashed
+ * while they stream into storage under a staging key; the first upload of some
+ * content keeps its staging copy as the blob, later uploads of the same content
+ * only bump the reference count and drop their copy.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class MediaBlobService {
+
+    private final MongoTemplate mongoTemplate;
+    private final MediaStorage mediaStorage;
+
+    /**
+     * Stores {@code content} and takes one reference on its blob.
+     *
+     * @return the blob now holding the content; its file path may differ from {@code stagingKey}
+     */
+    public MediaBlob store(String stagingKey, InputStream content, long size, String contentType) throws IOException {
+        HashingInputStream hashing = new HashingInputStream(content);
+        String storedKey = mediaStorage.put(stagingKey, hashing, size, contentType);
+        String hash = hashing.hexDigest();
+
+        MediaBlob blob;
+        try {
+            // Atomic upsert: only the first writer of this hash gets its key recorded
+            blob = mongoTemplate.findAndModify(
+                    query(where("_id").is(hash)),
+                    new Update()
+                            .inc("refCount", 1)
+                            .setOnInsert("filePath", storedKey)
+                            .setOnInsert("size", hashing.count())
+                            .setOnInsert("contentType", contentType)
+                            .setOnInsert("createdAt", LocalDateTime.now()),
+                    FindAndModifyOptions.options().upsert(true).returnNew(true),
+                    MediaBlob.class);
+        } catch (RuntimeException e) {
+            deleteQuietly(storedKey);
+            throw e;
+        }
+
+        if (!storedKey.equals(blob.getFilePath())) {
+            deleteQuietly(storedKey);
+        }
+        return blob;
+    }
+
+    /**
+     * Drops one reference; the bytes are deleted with the last one.
+     *
+     * @return true when this call removed the blob
+     */
+    public boolean release(String hash) {
+        MediaBlob blob = mongoTemplate.findAndModify(
+                query(where("_id").is(hash)),
+                new Update().inc("refCount", -1),
+                FindAndModifyOptions.options().returnNew(true),
+                MediaBlob.class);
+        if (blob == null || blob.getRefCount() > 0) {
+            return false;
+        }
+        // A concurrent store() may have re-referenced it, so only remove a blob still at zero
+        MediaBlob removed = mongoTemplate.findAndRemove(
+                query(where("_id").is(hash).and("refCount").lte(0)), MediaBlob.class);
+        if (removed == null) {
+            return false;
+        }
+        deleteQuietly(removed.getFilePath());
+        return true;
+    }
+
+    private void deleteQuietly(String key) {
+        try {
+            mediaStorage.delete(key);
+        } catch (IOException e) {
+            log.warn("Failed to delete stored media {}: {}", key, e.getMessage());
+        }
+    }
+
+    /** Computes the SHA-256 and length of everything read through it. */
+    static final class HashingInputStream extends FilterInputStream {
+
+        private final MessageDigest digest;
+        private long count;
+
+        HashingInputStream(InputStream in) {
+            super(in);
+            try {
+                this.digest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 not available", e);
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                digest.update((byte) b);
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                digest.update(b, off, n);
+                count += n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            // Skipped bytes would be missing from the hash
+            byte[] buffer = new byte[(int) Math.min(n, 8192)];
+            long skipped = 0;
+            while (skipped < n) {
+                int read = read(buffer, 0, (int) Math.min(buffer.length, n - skipped));
+                if (read < 0) {
+                    break;
+                }
+                skipped += read;
+            }
+            return skipped;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        long count() {
+            return count;
+        }
+
+        String hexDigest() {
+            return HexFormat.of().formatHex(digest.digest());
+        }
+    }
+}
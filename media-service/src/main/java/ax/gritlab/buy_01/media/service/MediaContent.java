@@ -0,0 +1,83 @@
+package ax.gritlab.buy_01.media.service;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Image bytes ready to be written to an HTTP response, with the validators the
+ * response needs. Local files are exposed as a path so they can be sent without
+ * copying through the heap; everything else as a ranged stream. Close it once
+ * the response is written so cache leases are returned.
+ */
+@Getter
+public final class MediaContent implements AutoCloseable {
+
+    /** Opens {@code length} bytes from {@code offset}; a negative length means to the end. */
+    @FunctionalInterface
+    public interface RangeSource {
+        InputStream open(long offset, long length) throws IOException;
+    }
+
+    private final Path file;
+    private final RangeSource source;
+    private final long length; // -1 when unknown, which disables range requests
+    private final String contentType;
+    private final String etag;
+    private final long lastModified; // epoch millis, 0 when unknown
+    @Getter(AccessLevel.NONE)
+    private final AtomicReference<Runnable> onClose;
+
+    private MediaContent(Path file, RangeSource source, long length, String contentType, String etag,
+            long lastModified, Runnable onClose) {
+        this.file = file;
+        this.source = source;
+        this.length = length;
+        this.contentType = contentType;
+        this.etag = etag;
+        this.lastModified = lastModified;
+        this.onClose = new AtomicReference<>(onClose);
+    }
+
+    public static MediaContent ofFile(Path file, long length, String contentType, String etag, long lastModified) {
+        return new MediaContent(file, null, length, contentType, etag, lastModified, null);
+    }
+
+    public static MediaContent ofSource(RangeSource source, long length, String contentType, String etag,
+            long lastModified) {
+        return new MediaContent(null, source, length, contentType, etag, lastModified, null);
+    }
+
+    /** Like {@link #ofSource(RangeSource, long, String, String, long)}, running {@code onClose} once on close. */
+    public static MediaContent ofSource(RangeSource source, long length, String contentType, String etag,
+            long lastModified, Runnable onClose) {
+        return new MediaContent(null, source, length, contentType, etag, lastModified, onClose);
+    }
+
+    public boolean isFile() {
+        return file != null;
+    }
+
+    public InputStream open(long offset, long count) throws IOException {
+        return source.open(offset, count);
+    }
+
+    @Override
+    public void close() {
+        Runnable action = onClose.getAndSet(null);
+        if (action != null) {
+            action.run();
+        }
+    }
+
+    // Media timestamps are stored as LocalDateTime in the server's zone
+    public static long epochMillis(LocalDateTime time) {
+        return time == null ? 0L : time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,37 @@
+package ax.gritlab.buy_01.media.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Component
+@RequiredArgsConstructor
+public class MediaDeletedKafkaConsumer {
+    private final MediaService mediaService;
+
+    private final ObjectMapper objectMapper;
+
+    // A group per instance: every instance must see every deletion to evict its own caches
+    @KafkaListener(topics = MediaEventPublisher.MEDIA_DELETED_TOPIC,
+            groupId = "media-cache-${random.uuid}",
+            properties = "auto.offset.reset=latest")
+    public void consumeMediaDeleted(String message) {
+        try {
+            JsonNode node = objectMapper.readTree(message);
+            List<String> mediaIds = new ArrayList<>();
+            if (node.has("mediaIds") && node.get("mediaIds").isArray()) {
+                for (JsonNode idNode : node.get("mediaIds")) {
+                    mediaIds.add(idNode.asText());
+                }
+            }
+            mediaService.evictDeleted(mediaIds);
+        } catch (Exception e) {
+            System.err.println("Failed to parse media.deleted message: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package ax.gritlab.buy_01.media.service;
+
+import ax.gritlab.buy_01.media.model.Media;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import lombok.RequiredArgsConstructor;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+
+/**
+ * Publishes media lifecycle events. Every media-service instance listens to
+ * {@code media.deleted} to keep its local caches coherent. Product-service keeps
+ * each product's media list in step from {@code media.links}, which carries every
+ * change to a media's product: associations, removals on delete and placeholders.
+ * Its records are keyed by media id, so the events of one media are consumed in
+ * the order they were published and a deletion cannot overtake an earlier link.
+ */
+@Component
+@RequiredArgsConstructor
+public class MediaEventPublisher {
+
+    public static final String MEDIA_DELETED_TOPIC = "media.deleted";
+    public static final String MEDIA_LINKS_TOPIC = "media.links";
+
+    private final KafkaTemplate<String, String> kafkaTemplate;
+    private final ObjectMapper objectMapper;
+
+    /** {"mediaIds": [...]} for the caches, then one "deleted" link event per media. */
+    public void publishDeleted(Collection<Media> medias) {
+        if (medias.isEmpty()) {
+            return;
+        }
+        try {
+            ObjectNode node = objectMapper.createObjectNode();
+            ArrayNode ids = node.putArray("mediaIds");
+            medias.forEach(media -> ids.add(media.getId()));
+            kafkaTemplate.send(MEDIA_DELETED_TOPIC, objectMapper.writeValueAsString(node));
+        } catch (Exception e) {
+            // Other instances fall back to the metadata cache TTL
+            System.err.println("Failed to publish media.deleted event: " + e.getMessage());
+        }
+        for (Media media : medias) {
+            // Without a product id, product-service removes the media from any product listing it
+            publishLink(linkEvent("deleted", media));
+        }
+    }
+
+    /** {"type": "associated", "mediaId": ..., "productId": ..., "previousProductId": ..., "placeholder": ...} */
+    public void publishAssociated(Media media, String previousProductId) {
+        ObjectNode node = linkEvent("associated", media);
+        if (previousProductId != null) {
+            node.put("previousProductId", previousProductId);
+        }
+        if (media.getPlaceholder() != null) {
+            node.put("placeholder", media.getPlaceholder());
+        }
+        publishLink(node);
+    }
+
+    /**
+     * {"type": "placeholder", "mediaId": ..., "productId": ..., "placeholder": ...}; only
+     * updates a product that still lists the media, so it never links it again.
+     */
+    public void publishPlaceholder(Media media) {
+        ObjectNode node = linkEvent("placeholder", media);
+        node.put("placeholder", media.getPlaceholder());
+        publishLink(node);
+    }
+
+    private ObjectNode linkEvent(String type, Media media) {
+        ObjectNode node = objectMapper.createObjectNode();
+        node.put("type", type);
+        node.put("mediaId", media.getId());
+        node.put("productId", media.getProductId());
+        return node;
+    }
+
+    private void publishLink(ObjectNode node) {
+        try {
+            kafkaTemplate.send(MEDIA_LINKS_TOPIC, node.get("mediaId").asText(), objectMapper.writeValueAsString(node));
+        } catch (Exception e) {
+            System.err.println("Failed to publish media.links event: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package ax.gritlab.buy_01.media.service;
+
+import ax.gritlab.buy_01.media.exception.ResourceNotFoundException;
+import ax.gritlab.buy_01.media.model.Media;
+import ax.gritlab.buy_01.media.repository.MediaRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Streams a seller's media, or the media of one of their products, as a ZIP
+ * archive built while it is sent. Images are already compressed, so entries are
+ * STORED and their bodies are copied to the response unchanged, through a
+ * buffer: the servlet stream offers no zero-copy path. Records come from a
+ * Mongo cursor and the central directory is spooled to disk, so memory use
+ * does not grow with the number of images.
+ *
+ * <p>STORED entries carry their CRC ahead of the bytes, so every image is read
+ * twice: once for the checksum, once to send it. Images that cannot be read
+ * (deleted meanwhile, or external seed URLs) are left out rather than failing
+ * the whole archive.
+ */
+@Slf4j
+@Service
+public class MediaExportService {
+
+    private static final int CRC_BUFFER = 64 * 1024;
+
+    private final MediaRepository mediaRepository;
+    private final MediaService mediaService;
+    private final Path tempDir;
+
+    public MediaExportService(
+            MediaRepository mediaRepository,
+            MediaService mediaService,
+            @Value("${media.export.temp-dir:${java.io.tmpdir}}") String tempDir) {
+        this.mediaRepository = mediaRepository;
+        this.mediaService = mediaService;
+        this.tempDir = Paths.get(tempDir);
+    }
+
+    /**
+     * Writes the archive of {@code userId}'s live media to {@code out}, restricted
+     * to {@code productId} when it is not null. Returns the number of entries.
+     */
+    public long export(String userId, String productId, OutputStream out) throws IOException {
+        try (ZipStreamWriter zip = new ZipStreamWriter(out, tempDir);
+             Stream<Media> records = productId != null
+                     ? mediaRepository.streamByUserIdAndProductId(userId, productId)
+                     : mediaRepository.streamByUserId(userId)) {
+            Iterator<Media> media = records.iterator();
+            while (media.hasNext()) {
+                addEntry(zip, media.next());
+            }
+            zip.finish();
+            return zip.entries();
+        }
+    }
+
+    private void addEntry(ZipStreamWriter zip, Media media) throws IOException {
+        String filePath = media.getFilePath();
+        if (filePath == null || filePath.startsWith("http://") || filePath.startsWith("https://")) {
+            return;
+        }
+        MediaContent content;
+        long crc;
+        try {
+            content = mediaService.loadContent(media);
+            crc = checksum(content);
+        } catch (ResourceNotFoundException | NoSuchFileException e) {
+            log.warn("Export skips media {}: {}", media.getId(), e.getMessage());
+            return;
+        }
+
+        // From here on the entry is committed: a failure aborts the archive
+        zip.putEntry(entryName(media), content.getLength(), crc, media.getCreatedAt());
+        if (content.isFile()) {
+            try (FileChannel file = FileChannel.open(content.getFile(), StandardOpenOption.READ)) {
+                zip.write(file, 0, content.getLength());
+            }
+        } else {
+            try (InputStream in = content.open(0, -1)) {
+                zip.write(in);
+            }
+        }
+    }
+
+    private static long checksum(MediaContent content) throws IOException {
+        CRC32 crc = new CRC32();
+        if (content.isFile()) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(CRC_BUFFER);
+            try (FileChannel file = FileChannel.open(content.getFile(), StandardOpenOption.READ)) {
+                long remaining = content.getLength();
+                while (remaining > 0) {
+                    buffer.clear().limit((int) Math.min(buffer.capacity(), remaining));
+                    int read = file.read(buffer);
+                    if (read < 0) {
+                        throw new NoSuchFileException(content.getFile().toString(), null, "Shorter than recorded");
+                    }
+                    buffer.flip();
+                    crc.update(buffer);
+                    remaining -= read;
+                }
+            }
+        } else {
+            byte[] buffer = new byte[CRC_BUFFER];
+            try (InputStream in = content.open(0, -1)) {
+                int read;
+                while ((read = in.read(buffer)) > 0) {
+                    crc.update(buffer, 0, read);
+                }
+            }
+        }
+        return crc.getValue();
+    }
+
+    // Ids keep names unique when a seller uploaded several files with the same name
+    static String entryName(Media media) {
+        String original = media.getOriginalFilename();
+        if (original == null || original.isBlank()) {
+            return media.getId();
+        }
+        String base = original.substring(Math.max(original.lastIndexOf('/'), original.lastIndexOf('\\')) + 1);
+        String safe = base.replaceAll("[\\p{Cntrl}:*?\"<>|]", "_").trim();
+        return safe.isEmpty() || safe.equals(".") || safe.equals("..")
+                ? media.getId()
+                : media.getId() + "-" + safe;
+    }
+}
@@ -0,0 +1,131 @@
+package ax.gritlab.buy_01.media.service;
+
+import ax.gritlab.buy_01.media.dto.MediaPage;
+import ax.gritlab.buy_01.media.dto.MediaSummary;
+import ax.gritlab.buy_01.media.model.Media;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.List;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Pages through a seller's media, newest first, for the media manager. Paging is
+ * by keyset rather than offset: the cursor carries the (createdAt, id) of the
+ * last entry returned and the next page starts strictly after it, so every page
+ * is one range scan of the (userId, createdAt, _id) index however deep the seller
+ * scrolls, and uploads arriving meanwhile neither shift nor repeat entries.
+ *
+ * <p>Only the listing fields are read from MongoDB; storage paths, hashes and
+ * the other internals stay out of the response.
+ */
+@Service
+public class MediaListingService {
+
+    private static final String[] LISTING_FIELDS = {
+            "url", "originalFilename", "contentType", "size", "width", "height", "placeholder", "productId",
+            "createdAt"
+    };
+
+    private final MongoTemplate mongoTemplate;
+    private final int defaultLimit;
+    private final int maxLimit;
+
+    public MediaListingService(
+            MongoTemplate mongoTemplate,
+            @Value("${media.listing.default-limit:50}") int defaultLimit,
+            @Value("${media.listing.max-limit:200}") int maxLimit) {
+        this.mongoTemplate = mongoTemplate;
+        this.maxLimit = Math.max(1, maxLimit);
+        this.defaultLimit = Math.min(Math.max(1, defaultLimit), this.maxLimit);
+    }
+
+    /**
+     * One page of {@code userId}'s live media. {@code productId} keeps only the
+     * media of that product, {@code unassociated} only those on no product;
+     * {@code cursor} is the {@code nextCursor} of the previous page, or null for
+     * the first one.
+     */
+    public MediaPage findPage(String userId, String productId, boolean unassociated, String cursor, Integer limit) {
+        if (productId != null && unassociated) {
+            throw new IllegalArgumentException("productId and unassociated cannot be combined");
+        }
+        int pageSize = limit == null ? defaultLimit : Math.min(Math.max(1, limit), maxLimit);
+
+        Criteria criteria = where("userId").is(userId).and("deletedAt").exists(false);
+        if (productId != null) {
+            criteria.and("productId").is(productId);
+        } else if (unassociated) {
+            criteria.and("productId").is(null); // Missing or null
+        }
+        if (cursor != null) {
+            Cursor after = Cursor.decode(cursor);
+            criteria.orOperator(
+                    where("createdAt").lt(after.createdAt()),
+                    where("createdAt").is(after.createdAt()).and("_id").lt(after.id()));
+        }
+        Query query = new Query(criteria)
+                .with(Sort.by(Sort.Direction.DESC, "createdAt", "_id"))
+                .limit(pageSize + 1); // One extra tells whether another page follows
+        query.fields().include(LISTING_FIELDS);
+
+        List<Media> found = mongoTemplate.find(query, Media.class);
+        boolean more = found.size() > pageSize;
+        List<Media> page = more ? found.subList(0, pageSize) : found;
+        String nextCursor = null;
+        if (more) {
+            Media last = page.get(page.size() - 1);
+            nextCursor = new Cursor(last.getCreatedAt(), last.getId()).encode();
+        }
+        return MediaPage.builder()
+                .items(page.stream().map(MediaListingService::summary).toList())
+                .nextCursor(nextCursor)
+                .build();
+    }
+
+    private static MediaSummary summary(Media media) {
+        return MediaSummary.builder()
+                .id(media.getId())
+                .url(media.getUrl())
+                .originalFilename(media.getOriginalFilename())
+                .contentType(media.getContentType())
+                .size(media.getSize())
+                .width(media.getWidth())
+                .height(media.getHeight())
+                .placeholder(media.getPlaceholder())
+                .productId(media.getProductId())
+                .createdAt(media.getCreatedAt())
+                .build();
+    }
+
+    // Position after the last entry of a page; opaque base64url of "<createdAt>|<id>" to clients
+    record Cursor(LocalDateTime createdAt, String id) {
+
+        String encode() {
+            String value = createdAt + "|" + id;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+        }
+
+        static Cursor decode(String cursor) {
+            try {
+                String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int separator = value.indexOf('|');
+                if (separator < 0 || separator == value.length() - 1) {
+                    throw new IllegalArgumentException("Invalid cursor");
+                }
+                return new Cursor(LocalDateTime.parse(value.substring(0, separator)), value.substring(separator + 1));
+            } catch (DateTimeParseException e) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+        }
+    }
+}
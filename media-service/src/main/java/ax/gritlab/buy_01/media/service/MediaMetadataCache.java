@@ -0,0 +1,90 @@
+package ax.gritlab.buy_01.media.service;
+
+import ax.gritlab.buy_01.media.model.Media;
+import ax.gritlab.buy_01.media.repository.MediaRepository;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Optional;
+
+/**
+ * Local cache of what image serving needs from a media record (path, content
+ * type, size, content hash, creation time), so a request for a known image
+ * does not wait on Mongo. Unknown ids are cached as missing for a short TTL.
+ *
+ * <p>Those fields never change after upload, so the only way an entry goes
+ * stale is deletion: deletes on this instance mark the id missing directly,
+ * and other instances do the same when the {@code media.deleted} event arrives.
+ * The positive TTL only bounds the damage of a lost event.
+ */
+@Component
+public class MediaMetadataCache {
+
+    // Negative entry; never handed out
+    private static final Media MISSING = new Media();
+
+    private final LoadingCache<String, Media> cache;
+
+    public MediaMetadataCache(
+            MediaRepository mediaRepository,
+            @Value("${media.metadata-cache.max-size:100000}") long maxSize,
+            @Value("${media.metadata-cache.ttl:1h}") Duration ttl,
+            @Value("${media.metadata-cache.negative-ttl:30s}") Duration negativeTtl) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new Expiry<String, Media>() {
+                    @Override
+                    public long expireAfterCreate(String id, Media media, long currentTime) {
+                        return (media == MISSING ? negativeTtl : ttl).toNanos();
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String id, Media media, long currentTime, long currentDuration) {
+                        return expireAfterCreate(id, media, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String id, Media media, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build(id -> mediaRepository.findById(id)
+                        .filter(media -> media.getDeletedAt() == null)
+                        .map(MediaMetadataCache::snapshot)
+                        .orElse(MISSING));
+    }
+
+    /** The serving fields of media {@code id}, loading them on a miss; empty if it does not exist. */
+    public Optional<Media> find(String id) {
+        Media media = cache.get(id);
+        return media == MISSING ? Optional.empty() : Optional.of(media);
+    }
+
+    public void put(Media media) {
+        cache.put(media.getId(), snapshot(media));
+    }
+
+    public void markMissing(Collection<String> ids) {
+        for (String id : ids) {
+            cache.put(id, MISSING);
+        }
+    }
+
+    // A detached copy, so callers mutating their Media cannot change what is served
+    private static Media snapshot(Media media) {
+        return Media.builder()
+                .id(media.getId())
+                .contentType(media.getContentType())
+                .size(media.getSize())
+                .filePath(media.getFilePath())
+                .contentHash(media.getContentHash())
+                .orientation(media.getOrientation()) // Variants are rendered upright
+                .createdAt(media.getCreatedAt())
+                .build();
+    }
+}
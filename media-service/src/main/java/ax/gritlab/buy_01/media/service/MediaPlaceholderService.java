@@ -0,0 +1,103 @@
+package ax.gritlab.buy_01.media.service;
+
+import ax.gritlab.buy_01.media.model.Media;
+import ax.gritlab.buy_01.media.repository.MediaRepository;
+import ax.gritlab.buy_01.media.storage.MediaStorage;
+import ax.gritlab.buy_01.media.variant.BlurHash;
+import ax.gritlab.buy_01.media.variant.ImageResizer;
+import ax.gritlab.buy_01.media.variant.VariantSpec;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Computes the BlurHash placeholder of each upload in the background and stores
+ * it on the media record, so listings can paint a blurred preview from the JSON
+ * alone while the real images load. The image is decoded subsampled to a few
+ * dozen pixels, which keeps the cost flat regardless of the upload's size.
+ *
+ * <p>For media already attached to a product when its placeholder is ready, the
+ * placeholder is announced on {@code media.links}, so product-service picks it up.
+ */
+@Slf4j
+@Service
+public class MediaPlaceholderService {
+
+    // Long side of the decoded sample; BlurHash keeps only a few components of it
+    private static final int SAMPLE_SIZE = 32;
+
+    private final MediaRepository mediaRepository;
+    private final MediaStorage mediaStorage;
+    private final MediaEventPublisher mediaEventPublisher;
+    private final int componentsX;
+    private final int componentsY;
+    private final ExecutorService workers;
+
+    public MediaPlaceholderService(
+            MediaRepository mediaRepository,
+            MediaStorage mediaStorage,
+            MediaEventPublisher mediaEventPublisher,
+            @Value("${media.placeholder.components-x:4}") int componentsX,
+            @Value("${media.placeholder.components-y:3}") int componentsY,
+            @Value("${media.placeholder.workers:2}") int workers) {
+        this.mediaRepository = mediaRepository;
+        this.mediaStorage = mediaStorage;
+        this.mediaEventPublisher = mediaEventPublisher;
+        this.componentsX = componentsX;
+        this.componentsY = componentsY;
+        this.workers = Executors.newFixedThreadPool(Math.max(1, workers), runnable -> {
+            Thread thread = new Thread(runnable, "media-placeholder-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+
+    /** Queues the placeholder of a new upload; returns immediately. */
+    public void generate(Media media) {
+        String path = media.getFilePath();
+        if (path == null || path.startsWith("http://") || path.startsWith("https://")) {
+            return;
+        }
+        workers.execute(() -> compute(media).ifPresent(placeholder -> store(media.getId(), placeholder)));
+    }
+
+    /** The BlurHash of {@code media}, or empty when it cannot be decoded. */
+    Optional<String> compute(Media media) {
+        try (InputStream in = mediaStorage.get(media.getFilePath())) {
+            BufferedImage sample = ImageResizer.thumbnail(in, VariantSpec.of(SAMPLE_SIZE, SAMPLE_SIZE, null));
+            if (media.getOrientation() != null) {
+                sample = ImageResizer.applyOrientation(sample, media.getOrientation());
+            }
+            return Optional.of(BlurHash.encode(sample, componentsX, componentsY));
+        } catch (IOException | RuntimeException e) {
+            log.debug("No placeholder for media {}: {}", media.getId(), e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    private void store(String id, String placeholder) {
+        try {
+            if (mediaRepository.setPlaceholder(id, placeholder) == 0) {
+                return; // Deleted in the meantime
+            }
+            mediaRepository.findById(id)
+                    .filter(media -> media.getDeletedAt() == null && media.getProductId() != null)
+                    .ifPresent(mediaEventPublisher::publishPlaceholder);
+        } catch (RuntimeException e) {
+            log.warn("Could not store placeholder of media {}: {}", id, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,260 @@
+package ax.gritlab.buy_01.media.service;
+
+import ax.gritlab.buy_01.media.dto.ScrubStatus;
+import ax.gritlab.buy_01.media.model.MediaBlob;
+import ax.gritlab.buy_01.media.storage.MediaStorage;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.NoSuchFileException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+/**
+ * Re-reads stored media in the background and checks each blob's bytes against
+ * its id, the SHA-256 taken when it was uploaded, so silent corruption on disk
+ * is found before a customer finds it. Every blob is verified once per
+ * {@code pass-interval}; a blob whose bytes are missing or do not match is
+ * flagged with {@code corruptAt} and counted, and the flag is cleared if a later
+ * scrub finds it intact again (restored from backup).
+ *
+ * <p>Reads are paced to {@code media.scrub.rate} bytes per second on a single
+ * low-priority thread of their own, and bypass the image caches, so serving
+ * keeps the disks and the scheduler. Blobs are claimed one at a time by setting
+ * {@code scrubbedAt}, so several instances share a pass instead of repeating
+ * it, and a restart resumes where the pass stood.
+ */
+@Slf4j
+@Service
+public class MediaScrubber {
+
+    private static final String METRIC_PREFIX = "media.scrub";
+    private static final int READ_BUFFER = 64 * 1024;
+    // The due-count behind the progress gauge is refreshed every this many blobs
+    private static final int DUE_REFRESH = 100;
+
+    private final MongoTemplate mongoTemplate;
+    private final MediaStorage mediaStorage;
+    private final boolean enabled;
+    private final long bytesPerSecond; // 0 when unlimited
+    private final Duration passInterval;
+    private final ExecutorService worker;
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicBoolean stopping = new AtomicBoolean();
+    private final AtomicLong due = new AtomicLong();
+    private final Counter verified;
+    private final Counter corrupt;
+    private final Counter missing;
+    private final Counter failed;
+    private final Counter bytesRead;
+    private volatile LocalDateTime lastRunStartedAt;
+    private volatile LocalDateTime lastRunFinishedAt;
+    private long nextSlot = System.nanoTime();
+
+    public MediaScrubber(
+            MongoTemplate mongoTemplate,
+            MediaStorage mediaStorage,
+            MeterRegistry meterRegistry,
+            @Value("${media.scrub.enabled:true}") boolean enabled,
+            @Value("${media.scrub.rate:8MB}") DataSize rate,
+            @Value("${media.scrub.pass-interval:7d}") Duration passInterval) {
+        this.mongoTemplate = mongoTemplate;
+        this.mediaStorage = mediaStorage;
+        this.enabled = enabled;
+        this.bytesPerSecond = Math.max(0, rate.toBytes());
+        this.passInterval = passInterval;
+        this.worker = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "media-scrubber");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        Gauge.builder(METRIC_PREFIX + ".due", due, AtomicLong::get)
+                .description("Blobs not verified within the pass interval")
+                .register(meterRegistry);
+        this.verified = Counter.builder(METRIC_PREFIX + ".verified")
+                .description("Blobs whose bytes matched their checksum")
+                .register(meterRegistry);
+        this.corrupt = Counter.builder(METRIC_PREFIX + ".corrupt")
+                .description("Blobs whose bytes did not match their checksum")
+                .register(meterRegistry);
+        this.missing = Counter.builder(METRIC_PREFIX + ".missing")
+                .description("Blobs whose bytes are gone from storage")
+                .register(meterRegistry);
+        this.failed = Counter.builder(METRIC_PREFIX + ".failed")
+                .description("Blobs that could not be read this time; retried next pass")
+                .register(meterRegistry);
+        this.bytesRead = Counter.builder(METRIC_PREFIX + ".read")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /** Starts a run on the scrubber's own thread unless one is going; never blocks the scheduler. */
+    @Scheduled(fixedDelayString = "${media.scrub.interval:10m}", initialDelayString = "${media.scrub.interval:10m}")
+    public boolean start() {
+        if (!enabled || !running.compareAndSet(false, true)) {
+            return false;
+        }
+        worker.execute(() -> {
+            try {
+                scrub();
+            } catch (RuntimeException e) {
+                log.warn("Media scrub aborted: {}", e.getMessage());
+            } finally {
+                running.set(false);
+            }
+        });
+        return true;
+    }
+
+    /** Verifies due blobs until none is left; returns how many were checked. */
+    int scrub() {
+        lastRunStartedAt = LocalDateTime.now();
+        int checked = 0;
+        refreshDue();
+        MediaBlob blob;
+        while (!stopping.get() && (blob = claimNext()) != null) {
+            verify(blob);
+            checked++;
+            if (checked % DUE_REFRESH == 0) {
+                refreshDue();
+            }
+        }
+        refreshDue();
+        lastRunFinishedAt = LocalDateTime.now();
+        if (checked > 0) {
+            log.info("Scrubbed {} media blobs, {} due", checked, due.get());
+        }
+        return checked;
+    }
+
+    public ScrubStatus status() {
+        return ScrubStatus.builder()
+                .running(running.get())
+                .blobs(mongoTemplate.count(new Query(), MediaBlob.class))
+                .due(mongoTemplate.count(dueBlobs(), MediaBlob.class))
+                .corrupt(mongoTemplate.count(flaggedBlobs(), MediaBlob.class))
+                .corruptSamples(mongoTemplate.find(flaggedBlobs().limit(100), MediaBlob.class).stream()
+                        .map(MediaBlob::getId)
+                        .toList())
+                .checkedSinceStart((long) (verified.count() + corrupt.count() + missing.count()))
+                .bytesSinceStart((long) bytesRead.count())
+                .bytesPerSecond(bytesPerSecond)
+                .lastRunStartedAt(lastRunStartedAt)
+                .lastRunFinishedAt(lastRunFinishedAt)
+                .build();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        stopping.set(true);
+        worker.shutdownNow();
+    }
+
+    // Oldest-verified first; never-verified blobs sort before all others
+    private MediaBlob claimNext() {
+        return mongoTemplate.findAndModify(
+                dueBlobs().with(Sort.by("scrubbedAt")),
+                new Update().set("scrubbedAt", LocalDateTime.now()),
+                MediaBlob.class);
+    }
+
+    private Query dueBlobs() {
+        return query(where("scrubbedAt").not().gte(LocalDateTime.now().minus(passInterval)));
+    }
+
+    private static Query flaggedBlobs() {
+        return query(where("corruptAt").exists(true));
+    }
+
+    private void verify(MediaBlob blob) {
+        String found;
+        try {
+            found = hash(blob.getFilePath());
+        } catch (NoSuchFileException e) {
+            missing.increment();
+            flag(blob, "missing");
+            return;
+        } catch (IOException | RuntimeException e) {
+            failed.increment();
+            log.warn("Could not scrub media blob {}: {}", blob.getId(), e.getMessage());
+            return;
+        }
+        if (!found.equals(blob.getId())) {
+            corrupt.increment();
+            flag(blob, "checksum mismatch");
+            return;
+        }
+        verified.increment();
+        if (blob.getCorruptAt() != null) {
+            mongoTemplate.updateFirst(query(where("_id").is(blob.getId())),
+                    new Update().unset("corruptAt").unset("corruption"), MediaBlob.class);
+            log.info("Media blob {} is intact again", blob.getId());
+        }
+    }
+
+    private void flag(MediaBlob blob, String corruption) {
+        log.error("Media blob {} at {} is corrupt: {}", blob.getId(), blob.getFilePath(), corruption);
+        mongoTemplate.updateFirst(query(where("_id").is(blob.getId())),
+                new Update().set("corruptAt", LocalDateTime.now()).set("corruption", corruption), MediaBlob.class);
+    }
+
+    private String hash(String filePath) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+        byte[] buffer = new byte[READ_BUFFER];
+        try (InputStream in = mediaStorage.get(filePath)) {
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                digest.update(buffer, 0, read);
+                bytesRead.increment(read);
+                pace(read);
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    // Spaces reads to the byte budget; only the scrubber thread calls this
+    private void pace(int bytes) {
+        if (bytesPerSecond == 0) {
+            return;
+        }
+        long now = System.nanoTime();
+        if (nextSlot - now > 0) {
+            LockSupport.parkNanos(nextSlot - now);
+        }
+        nextSlot = Math.max(now, nextSlot) + bytes * 1_000_000_000L / bytesPerSecond;
+    }
+
+    private void refreshDue() {
+        due.set(mongoTemplate.count(dueBlobs(), MediaBlob.class));
+    }
+}
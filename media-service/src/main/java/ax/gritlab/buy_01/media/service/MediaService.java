@@ -1,33 +1,46 @@
 package ax.gritlab.buy_01.media.service;
 
-import ax.gritlab.buy_01.media.config.StorageProperties;
+import ax.gritlab.buy_01.media.cache.HotImageCache;
+import ax.gritlab.buy_01.media.config.UploadProperties;
+import ax.gritlab.buy_01.media.dto.MediaUploadResult;
 import ax.gritlab.buy_01.media.exception.InvalidFileTypeException;
 import ax.gritlab.buy_01.media.exception.ResourceNotFoundException;
 import ax.gritlab.buy_01.media.exception.UnauthorizedException;
 import ax.gritlab.buy_01.media.model.Media;
+import ax.gritlab.buy_01.media.model.MediaBlob;
 import ax.gritlab.buy_01.media.model.User;
 import ax.gritlab.buy_01.media.repository.MediaRepository;
-import jakarta.annotation.PostConstruct;
-import lombok.Getter;
+import ax.gritlab.buy_01.media.storage.MediaStorage;
+import ax.gritlab.buy_01.media.storage.StoredObject;
+import ax.gritlab.buy_01.media.variant.ImageProbe;
 import lombok.RequiredArgsConstructor;
-import org.springframework.core.io.Resource;
+import org.bson.types.ObjectId;
+import org.springframework.core.io.InputStreamSource;
 import org.springframework.core.io.UrlResource;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.net.MalformedURLException;
+import java.io.SequenceInputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
-import java.util.UUID;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -39,28 +52,24 @@ public class MediaService {
 
     // Associate media with a product
     public Media associateWithProduct(String mediaId, String productId, String userId) {
-        Media media = mediaRepository.findById(mediaId)
-                .orElseThrow(() -> new ResourceNotFoundException("Media not found with id: " + mediaId));
+        long stamp = hotImageCache.stamp();
+        Media media = findLive(mediaId);
         if (!media.getUserId().equals(userId)) {
             throw new UnauthorizedException("You do not have permission to associate this media");
         }
+        String previousProductId = media.getProductId();
         media.setProductId(productId);
         media.setUpdatedAt(LocalDateTime.now());
         Media updatedMedia = mediaRepository.save(media);
+        mediaEventPublisher.publishAssociated(updatedMedia, previousProductId);
+        // Product images are about to be listed; load them before the first request
+        warmHotCache(updatedMedia, stamp);
         return updatedMedia;
     }
 
     // Delete all media associated with a product
     public void deleteMediaByProductId(String productId) {
-        List<Media> medias = mediaRepository.findByProductId(productId);
-        for (Media media : medias) {
-            deletePhysicalFile(media.getFilePath());
-        }
-
-        // Remove records from DB
-        if (!medias.isEmpty()) {
-            mediaRepository.deleteAll(medias);
-        }
+        tombstone(mediaRepository.findByProductId(productId));
     }
 
     // Delete media by explicit list of media IDs (used when producer includes
@@ -69,14 +78,13 @@ public class MediaService {
         if (ids == null || ids.isEmpty())
             return;
 
-        List<Media> medias = mediaRepository.findAllById(ids);
-        for (Media media : medias) {
-            deletePhysicalFile(media.getFilePath());
-        }
-
-        if (!medias.isEmpty()) {
-            mediaRepository.deleteAll(medias);
+        List<Media> medias = new ArrayList<>();
+        for (Media media : mediaRepository.findAllById(ids)) {
+            if (media.getDeletedAt() == null) {
+                medias.add(media);
+            }
         }
+        tombstone(medias);
     }
 
     // Delete all media owned by a user (used when user.deleted events are received)
@@ -84,43 +92,73 @@ public class MediaService {
         if (userId == null)
             return;
 
-        List<Media> medias = mediaRepository.findByUserId(userId);
-        for (Media media : medias) {
-            deletePhysicalFile(media.getFilePath());
-        }
-
-        if (!medias.isEmpty()) {
-            mediaRepository.deleteAll(medias);
-        }
+        tombstone(mediaRepository.findByUserId(userId));
     }
 
-    private static final long MAX_FILE_SIZE = 2 * 1024 * 1024; // 2MB
-
     private final MediaRepository mediaRepository;
-    private final StorageProperties storageProperties;
-    private final RestTemplate restTemplate; // ADD THIS for inter-service communication
-    private Path rootLocation;
+    private final MediaStorage mediaStorage;
+    private final MediaBlobService mediaBlobService;
+    private final ImageVariantService imageVariantService;
+    private final HotImageCache hotImageCache;
+    private final MediaMetadataCache mediaMetadataCache;
+    private final MediaEventPublisher mediaEventPublisher;
+    private final MediaPlaceholderService mediaPlaceholderService;
+    private final StorageQuotaService storageQuotaService;
+    private final Executor mediaUploadExecutor;
+    private final UploadProperties uploadProperties;
 
     @Value("${api.gateway.url:http://localhost:8080/api/media}")
     private String apiGatewayUrl;
 
-    @Value("${product.service.url:http://localhost:8082}")
-    private String productServiceUrl; // ADD THIS
+    @Value("${media.upload.max-batch-files:20}")
+    private int maxBatchFiles;
 
-    @Getter
-    @RequiredArgsConstructor
-    public static class MediaResource {
-        private final Resource resource;
-        private final String contentType;
+    /**
+     * Hides the records at once, on this and (through media.deleted and media.links)
+     * every other instance and product-service. Their bytes are left to {@link MediaSweeper}, so deleting thousands
+     * of images costs one update here instead of one storage call per file.
+     */
+    private void tombstone(List<Media> medias) {
+        if (medias.isEmpty()) {
+            return;
+        }
+        List<String> ids = medias.stream().map(Media::getId).collect(Collectors.toList());
+        long marked = mediaRepository.markDeleted(ids, LocalDateTime.now());
+        if (marked == medias.size()) {
+            releaseQuota(medias);
+        }
+        // Otherwise a concurrent delete took some of them; the quota reconciliation settles the counters
+        evictDeleted(ids);
+        // Product-service drops the ids from its products when it consumes this
+        mediaEventPublisher.publishDeleted(medias);
     }
 
-    @PostConstruct
-    public void init() {
-        this.rootLocation = Paths.get(storageProperties.getLocation());
-        try {
-            Files.createDirectories(rootLocation);
-        } catch (IOException e) {
-            throw new RuntimeException("Could not initialize storage", e);
+    // Drops the record's reference to its blob; media stored before deduplication own their file
+    void releaseContent(Media media) {
+        evictDeleted(List.of(media.getId()));
+        boolean contentGone;
+        if (media.getContentHash() != null) {
+            contentGone = mediaBlobService.release(media.getContentHash());
+        } else {
+            deletePhysicalFile(media.getFilePath());
+            contentGone = true;
+        }
+        if (contentGone) {
+            imageVariantService.evict(media);
+        }
+    }
+
+    private void releaseQuota(List<Media> medias) {
+        Map<String, List<Media>> byUser = medias.stream().collect(Collectors.groupingBy(Media::getUserId));
+        byUser.forEach((userId, owned) -> storageQuotaService.release(userId,
+                owned.stream().mapToLong(Media::getSize).sum(), owned.size()));
+    }
+
+    /** Drops cached copies of media deleted on this or another instance. */
+    public void evictDeleted(Collection<String> ids) {
+        mediaMetadataCache.markMissing(ids);
+        for (String id : ids) {
+            hotImageCache.invalidate(id);
         }
     }
 
@@ -128,127 +166,394 @@ public class MediaService {
     private void deletePhysicalFile(String filePath) {
         if (filePath != null && !filePath.startsWith("http://") && !filePath.startsWith("https://")) {
             try {
-                Path file = rootLocation.resolve(filePath);
-                Files.deleteIfExists(file);
-            } catch (IOException e) {
+                mediaStorage.delete(filePath);
+            } catch (IOException | IllegalArgumentException e) {
                 System.err.println("Failed to delete file: " + filePath);
             }
         }
     }
 
     public Media save(MultipartFile file, User user) {
-        if (file.isEmpty()) {
-            throw new InvalidFileTypeException("Failed to store empty file.");
+        validateUpload(file, user);
+        storageQuotaService.reserve(user, file.getSize());
+        Media storedMedia;
+        long stamp;
+        MediaBlob blob = null;
+        try {
+            // The id is assigned up front so the record, URL included, is written once
+            String id = new ObjectId().toHexString();
+            blob = storeBlob(id, file);
+            Media media = withImageInfo(newMedia(id, file, blob, user, LocalDateTime.now()), file);
+            stamp = hotImageCache.stamp();
+            storedMedia = mediaRepository.insert(media);
+        } catch (RuntimeException e) {
+            // No record owns the blob reference taken above
+            if (blob != null) {
+                mediaBlobService.release(blob.getId());
+            }
+            storageQuotaService.release(user.getId(), file.getSize(), 1);
+            throw e;
         }
+        afterStore(storedMedia, stamp);
+        return storedMedia;
+    }
 
-        if (file.getSize() > MAX_FILE_SIZE) {
-            throw new InvalidFileTypeException("File exceeds maximum size of 2MB.");
+    /**
+     * Stores an upload that was assembled on local disk by {@link ResumableUploadService},
+     * under the id its session was given. Type and size were checked when the session was created;
+     * the quota is charged now, since other uploads may have used it up meanwhile.
+     */
+    public Media saveUpload(String id, String originalFilename, String contentType, Path file, User user) {
+        long size;
+        try {
+            size = Files.size(file);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to store file.", e);
         }
+        storageQuotaService.reserve(user, size);
+        Media storedMedia;
+        long stamp;
+        MediaBlob blob = null;
+        try {
+            try (InputStream inputStream = Files.newInputStream(file)) {
+                blob = mediaBlobService.store(id + extensionOf(originalFilename), inputStream, size, contentType);
+            } catch (IllegalArgumentException e) {
+                throw new InvalidFileTypeException("Cannot store file outside current directory.");
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to store file.", e);
+            }
+            Media media = withImageInfo(newMedia(id, originalFilename, contentType, size, blob, user.getId(),
+                    LocalDateTime.now()), () -> Files.newInputStream(file));
+            stamp = hotImageCache.stamp();
+            storedMedia = mediaRepository.insert(media);
+        } catch (RuntimeException e) {
+            // No record owns the blob reference taken above
+            if (blob != null) {
+                mediaBlobService.release(blob.getId());
+            }
+            storageQuotaService.release(user.getId(), size, 1);
+            throw e;
+        }
+        afterStore(storedMedia, stamp);
+        return storedMedia;
+    }
 
-        String contentType = file.getContentType();
-        if (contentType == null || !contentType.startsWith("image/")) {
-            throw new InvalidFileTypeException("Invalid file type. Only images are allowed.");
+    /**
+     * Stores a raw request body as it arrives: the type is sniffed from the first bytes,
+     * and the rest streams into storage while it is hashed, so the upload is written once
+     * with no multipart temp file. {@code size} is the declared Content-Length.
+     */
+    public Media saveStream(InputStream content, long size, String originalFilename, String declaredType, User user) {
+        if (size < 0) {
+            throw new InvalidFileTypeException("Content-Length is required.");
         }
+        validateUpload(declaredType != null ? declaredType : "image/*", size, user);
+        storageQuotaService.reserve(user, size);
+        Media storedMedia;
+        long stamp;
+        Media media = null;
+        try {
+            media = storeStream(content, size, originalFilename, user);
+            stamp = hotImageCache.stamp();
+            storedMedia = mediaRepository.insert(media);
+        } catch (RuntimeException e) {
+            // No record owns the blob reference taken by storeStream
+            if (media != null) {
+                mediaBlobService.release(media.getContentHash());
+            }
+            storageQuotaService.release(user.getId(), size, 1);
+            throw e;
+        }
+        afterStore(storedMedia, stamp);
+        return storedMedia;
+    }
 
+    // Stores the body as a blob and returns the record to insert for it, which owns the blob reference
+    private Media storeStream(InputStream content, long size, String originalFilename, User user) {
+        String id = new ObjectId().toHexString();
+        String filename = originalFilename != null && !originalFilename.isBlank() ? originalFilename : id;
+        MediaBlob blob;
+        String contentType;
+        try {
+            byte[] head = content.readNBytes(ImageProbe.SNIFF_LENGTH);
+            // The bytes decide, not the header: a mislabelled or disguised file is caught here
+            contentType = ImageProbe.sniffContentType(head)
+                    .orElseThrow(() -> new InvalidFileTypeException("Invalid file type. Only images are allowed."));
+            blob = mediaBlobService.store(id + extensionOf(filename),
+                    new SequenceInputStream(new ByteArrayInputStream(head), content), size, contentType);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidFileTypeException("Cannot store file outside current directory.");
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to store file.", e);
+        }
+        if (blob.getSize() != size) {
+            // Same bytes, same size: a mismatch means the body did not match its Content-Length
+            mediaBlobService.release(blob.getId());
+            throw new InvalidFileTypeException("Upload ended after " + blob.getSize() + " of " + size + " bytes.");
+        }
         try {
-            String originalFilename = Objects.requireNonNull(file.getOriginalFilename());
-            String extension = originalFilename.substring(originalFilename.lastIndexOf("."));
-            String uniqueFilename = UUID.randomUUID() + extension;
+            return withImageInfo(newMedia(id, filename, contentType, size, blob, user.getId(),
+                    LocalDateTime.now()), () -> mediaStorage.get(blob.getFilePath()));
+        } catch (RuntimeException e) {
+            mediaBlobService.release(blob.getId());
+            throw e;
+        }
+    }
 
-            Path destinationFile = this.rootLocation.resolve(Paths.get(uniqueFilename)).normalize().toAbsolutePath();
-            if (!destinationFile.getParent().equals(this.rootLocation.toAbsolutePath())) {
-                throw new InvalidFileTypeException("Cannot store file outside current directory.");
+    /**
+     * Stores several uploads at once: files are copied to storage concurrently, then
+     * every successful one is persisted with a single insertMany. One result per
+     * file, in request order; a failed file does not fail the others.
+     */
+    public List<MediaUploadResult> saveAll(List<MultipartFile> files, User user) {
+        if (files.size() > maxBatchFiles) {
+            throw new InvalidFileTypeException("At most " + maxBatchFiles + " files per batch upload.");
+        }
+        LocalDateTime now = LocalDateTime.now();
+        List<CompletableFuture<Media>> copies = new ArrayList<>(files.size());
+        for (MultipartFile file : files) {
+            copies.add(CompletableFuture.supplyAsync(() -> {
+                validateUpload(file, user);
+                storageQuotaService.reserve(user, file.getSize());
+                try {
+                    String id = new ObjectId().toHexString();
+                    return withImageInfo(newMedia(id, file, storeBlob(id, file), user, now), file);
+                } catch (RuntimeException e) {
+                    storageQuotaService.release(user.getId(), file.getSize(), 1);
+                    throw e;
+                }
+            }, mediaUploadExecutor));
+        }
+
+        MediaUploadResult[] results = new MediaUploadResult[files.size()];
+        List<Media> stored = new ArrayList<>(files.size());
+        List<Integer> storedIndexes = new ArrayList<>(files.size());
+        for (int i = 0; i < files.size(); i++) {
+            try {
+                stored.add(copies.get(i).join());
+                storedIndexes.add(i);
+            } catch (CompletionException e) {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                results[i] = uploadResult(i, files.get(i), MediaUploadResult.Status.FAILED, null, cause.getMessage());
             }
+        }
 
-            try (InputStream inputStream = file.getInputStream()) {
-                Files.copy(inputStream, destinationFile, StandardCopyOption.REPLACE_EXISTING);
+        if (stored.isEmpty()) {
+            return List.of(results);
+        }
+        Set<String> persisted;
+        long stamp = hotImageCache.stamp();
+        try {
+            mediaRepository.insert(stored);
+            persisted = null;
+        } catch (RuntimeException e) {
+            // An ordered insertMany keeps the documents before the failing one
+            persisted = new HashSet<>();
+            for (Media media : mediaRepository.findAllById(
+                    stored.stream().map(Media::getId).collect(Collectors.toList()))) {
+                persisted.add(media.getId());
+            }
+        }
+        for (int j = 0; j < stored.size(); j++) {
+            Media media = stored.get(j);
+            int index = storedIndexes.get(j);
+            if (persisted == null || persisted.contains(media.getId())) {
+                afterStore(media, stamp);
+                results[index] = uploadResult(index, files.get(index), MediaUploadResult.Status.CREATED, media, null);
+            } else {
+                // Nothing references the copied bytes without their record
+                releaseContent(media);
+                storageQuotaService.release(user.getId(), media.getSize(), 1);
+                results[index] = uploadResult(index, files.get(index), MediaUploadResult.Status.FAILED, null,
+                        "Failed to save media record.");
             }
+        }
+        return List.of(results);
+    }
 
-            LocalDateTime now = LocalDateTime.now();
+    /** Fails early, before any bytes are sent, when one more file of {@code size} would exceed the quota. */
+    public void checkQuota(User user, long size) {
+        storageQuotaService.check(user, size);
+    }
 
-            Media media = Media.builder()
-                    .originalFilename(originalFilename)
-                    .contentType(file.getContentType())
-                    .size(file.getSize())
-                    .filePath(uniqueFilename)
-                    .userId(user.getId())
-                    .createdAt(now)
-                    .updatedAt(now)
-                    .build();
+    private void validateUpload(MultipartFile file, User user) {
+        validateUpload(file.getContentType(), file.getSize(), user);
+    }
 
-            Media savedMedia = mediaRepository.save(media);
+    /** Checks an upload's declared type and size against the limit for the uploader's role. */
+    public void validateUpload(String contentType, long size, User user) {
+        if (size <= 0) {
+            throw new InvalidFileTypeException("Failed to store empty file.");
+        }
 
-            // Set the URL after saving to get the ID
-            savedMedia.setUrl(apiGatewayUrl + "/images/" + savedMedia.getId());
-            return mediaRepository.save(savedMedia);
+        long maxSize = uploadProperties.maxSizeFor(user.getRole());
+        if (size > maxSize) {
+            throw new InvalidFileTypeException("File exceeds maximum size of " + DataSize.ofBytes(maxSize).toMegabytes()
+                    + "MB.");
+        }
 
+        if (contentType == null || !contentType.startsWith("image/")) {
+            throw new InvalidFileTypeException("Invalid file type. Only images are allowed.");
+        }
+    }
+
+    private MediaBlob storeBlob(String id, MultipartFile file) {
+        String originalFilename = Objects.requireNonNull(file.getOriginalFilename());
+        try (InputStream inputStream = file.getInputStream()) {
+            return mediaBlobService.store(id + extensionOf(originalFilename), inputStream, file.getSize(), file.getContentType());
+        } catch (IllegalArgumentException e) {
+            throw new InvalidFileTypeException("Cannot store file outside current directory.");
         } catch (IOException e) {
             throw new RuntimeException("Failed to store file.", e);
         }
     }
 
-    public MediaResource getResourceById(String id) {
-        Media media = mediaRepository.findById(id)
-                .orElseThrow(() -> new ResourceNotFoundException("Media not found with id: " + id));
+    private static String extensionOf(String originalFilename) {
+        int dot = originalFilename.lastIndexOf('.');
+        return dot >= 0 ? originalFilename.substring(dot) : "";
+    }
 
-        Resource resource = loadAsResource(media.getFilePath());
-        return new MediaResource(resource, media.getContentType());
+    private Media newMedia(String id, MultipartFile file, MediaBlob blob, User user, LocalDateTime now) {
+        return newMedia(id, file.getOriginalFilename(), file.getContentType(), file.getSize(), blob, user.getId(), now);
     }
 
-    public Resource loadAsResource(String filename) {
-        try {
-            // Check if it's an external URL (starts with http:// or https://)
-            if (filename.startsWith("http://") || filename.startsWith("https://")) {
-                // Return external URL as resource
-                return new UrlResource(filename);
-            }
+    private Media newMedia(String id, String originalFilename, String contentType, long size, MediaBlob blob,
+            String userId, LocalDateTime now) {
+        return Media.builder()
+                .id(id)
+                .originalFilename(originalFilename)
+                .contentType(contentType)
+                .size(size)
+                .filePath(blob.getFilePath())
+                .contentHash(blob.getId())
+                .userId(userId)
+                .url(apiGatewayUrl + "/images/" + id)
+                .createdAt(now)
+                .updatedAt(now)
+                .build();
+    }
 
-            // Otherwise, load from local filesystem
-            Path file = rootLocation.resolve(filename);
-            Resource resource = new UrlResource(file.toUri());
-            if (resource.exists() || resource.isReadable()) {
-                return resource;
-            } else {
-                throw new ResourceNotFoundException("Could not read file: " + filename);
-            }
-        } catch (MalformedURLException e) {
-            throw new ResourceNotFoundException("Could not read file: " + filename);
+    // Dimensions, format and orientation from the header only, so clients can lay out and pick a size
+    private static Media withImageInfo(Media media, InputStreamSource source) {
+        try (InputStream inputStream = source.getInputStream()) {
+            ImageProbe.probe(inputStream).ifPresent(info -> {
+                media.setWidth(info.getWidth());
+                media.setHeight(info.getHeight());
+                media.setFormat(info.getFormat());
+                media.setOrientation(info.getOrientation());
+            });
+        } catch (IOException e) {
+            System.err.println("Failed to read image header of media " + media.getId() + ": " + e.getMessage());
         }
+        return media;
     }
 
-    public void delete(String id, User user) {
-        Media media = mediaRepository.findById(id)
+    // stamp: taken before the record was inserted, so a delete right after the insert is not undone
+    private void afterStore(Media media, long stamp) {
+        mediaMetadataCache.put(media);
+        // Thumbnails and grid sizes are rendered in the background, off the upload request
+        imageVariantService.pregenerate(media);
+        mediaPlaceholderService.generate(media);
+        warmHotCache(media, stamp);
+    }
+
+    private static MediaUploadResult uploadResult(int index, MultipartFile file, MediaUploadResult.Status status,
+            Media media, String message) {
+        return MediaUploadResult.builder()
+                .index(index)
+                .filename(file.getOriginalFilename())
+                .status(status)
+                .media(media)
+                .message(message)
+                .build();
+    }
+
+    /** Image bytes for {@code id}; hot images come from memory without touching Mongo or storage. */
+    public MediaContent getContent(String id) {
+        Optional<MediaContent> cached = hotImageCache.get(id);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+        // Taken first: a delete after this point keeps the copy below out of the cache
+        long stamp = hotImageCache.stamp();
+        Media media = mediaMetadataCache.find(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Media not found with id: " + id));
+        MediaContent content = loadContent(media);
+        // A first miss is served as is; only an image asked for again is worth the copy
+        if (!hotImageCache.admitOnMiss(id)) {
+            return content;
+        }
+        Optional<MediaContent> filled = hotImageCache.fill(id, content, stamp);
+        if (filled.isPresent() && content.isFile()) {
+            // This response can still go out with sendfile; later hits come from memory
+            filled.get().close();
+            return content;
+        }
+        return filled.orElse(content);
+    }
 
-        if (!media.getUserId().equals(user.getId())) {
-            throw new UnauthorizedException("You do not have permission to delete this media");
+    private void warmHotCache(Media media, long stamp) {
+        if (media.getId() == null || hotImageCache.contains(media.getId())) {
+            return;
+        }
+        try {
+            hotImageCache.fill(media.getId(), loadContent(media), stamp).ifPresent(MediaContent::close);
+        } catch (RuntimeException e) {
+            System.err.println("Failed to warm image cache for media " + media.getId() + ": " + e.getMessage());
         }
+    }
 
-        // If media is associated with a product, notify product service to remove it
-        if (media.getProductId() != null) {
-            try {
-                String url = productServiceUrl + "/products/" + media.getProductId() +
-                        "/remove-media/" + media.getId();
+    MediaContent loadContent(Media media) {
+        String etag = etagOf(media);
+        long lastModified = MediaContent.epochMillis(media.getCreatedAt());
+        String filePath = media.getFilePath();
+
+        // External URLs (seed data) are proxied whole
+        if (filePath.startsWith("http://") || filePath.startsWith("https://")) {
+            return MediaContent.ofSource((offset, length) -> new UrlResource(filePath).getInputStream(),
+                    -1, media.getContentType(), etag, lastModified);
+        }
+
+        try {
+            // Local files are sent by the container straight from the page cache
+            Optional<Path> localFile = mediaStorage.localPath(filePath);
+            if (localFile.isPresent()) {
+                long length = media.getSize() > 0 ? media.getSize() : Files.size(localFile.get());
+                return MediaContent.ofFile(localFile.get(), length, media.getContentType(), etag, lastModified);
+            }
 
-                System.out.println("Calling Product Service to remove media: " + url); // DEBUG LOG
+            StoredObject stored = mediaStorage.stat(filePath)
+                    .orElseThrow(() -> new ResourceNotFoundException("Could not read file: " + filePath));
+            return MediaContent.ofSource(
+                    (offset, length) -> mediaStorage.getRange(filePath, offset,
+                            length < 0 ? stored.getSize() - offset : length),
+                    stored.getSize(), media.getContentType(), etag, lastModified);
+        } catch (IllegalArgumentException e) {
+            throw new ResourceNotFoundException("Could not read file: " + filePath);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read file: " + filePath, e);
+        }
+    }
 
-                restTemplate.delete(url);
+    // Strong validator: the content hash, or the immutable id for media stored before hashing
+    static String etagOf(Media media) {
+        return "\"" + (media.getContentHash() != null ? media.getContentHash() : "m-" + media.getId()) + "\"";
+    }
 
-                System.out.println("Successfully removed media from product"); // DEBUG LOG
-            } catch (Exception e) {
-                // Log the full error
-                System.err.println("Failed to update product after media deletion: " + e.getMessage());
-                e.printStackTrace(); // Print full stack trace
+    public void delete(String id, User user) {
+        Media media = findLive(id);
 
-                // DON'T throw exception - still proceed with media deletion
-            }
+        if (!media.getUserId().equals(user.getId())) {
+            throw new UnauthorizedException("You do not have permission to delete this media");
         }
 
-        // Delete physical file
-        deletePhysicalFile(media.getFilePath());
+        tombstone(List.of(media));
+    }
 
-        // Delete database record
-        mediaRepository.delete(media);
+    private Media findLive(String id) {
+        return mediaRepository.findById(id)
+                .filter(media -> media.getDeletedAt() == null)
+                .orElseThrow(() -> new ResourceNotFoundException("Media not found with id: " + id));
     }
 
 }
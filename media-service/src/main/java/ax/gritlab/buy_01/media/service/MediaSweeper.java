@@ -0,0 +1,171 @@
+package ax.gritlab.buy_01.media.service;
+
+import ax.gritlab.buy_01.media.model.Media;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+/**
+ * Deletes the bytes of tombstoned media in the background. Each run takes the
+ * oldest tombstones in batches, removes every record and releases its content
+ * on a small worker pool, paced to at most {@code max-deletes-per-second} so a
+ * large account deletion does not saturate storage. A run lasts until the
+ * backlog is empty, so it holds one scheduler thread meanwhile;
+ * {@code spring.task.scheduling.pool.size} leaves the other jobs room.
+ *
+ * <p>A record is removed before its content is released, and only by the
+ * instance whose findAndRemove wins, so concurrent sweepers never release a blob
+ * twice. A crash between the two steps leaks one blob reference, which is the
+ * safe way to fail.
+ */
+@Slf4j
+@Component
+public class MediaSweeper {
+
+    private static final String METRIC_PREFIX = "media.sweeper";
+
+    private final MongoTemplate mongoTemplate;
+    private final MediaService mediaService;
+    private final int batchSize;
+    private final long nanosPerDelete; // 0 when unlimited
+    private final ExecutorService workers;
+    private final AtomicLong backlog = new AtomicLong();
+    private final Timer latency;
+    private final Counter swept;
+    private final Counter failed;
+    private long nextSlot = System.nanoTime();
+
+    public MediaSweeper(
+            MongoTemplate mongoTemplate,
+            MediaService mediaService,
+            MeterRegistry meterRegistry,
+            @Value("${media.sweeper.batch-size:200}") int batchSize,
+            @Value("${media.sweeper.workers:4}") int workers,
+            @Value("${media.sweeper.max-deletes-per-second:100}") int maxDeletesPerSecond) {
+        this.mongoTemplate = mongoTemplate;
+        this.mediaService = mediaService;
+        this.batchSize = Math.max(1, batchSize);
+        this.nanosPerDelete = maxDeletesPerSecond > 0 ? 1_000_000_000L / maxDeletesPerSecond : 0;
+        this.workers = Executors.newFixedThreadPool(Math.max(1, workers), runnable -> {
+            Thread thread = new Thread(runnable, "media-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Gauge.builder(METRIC_PREFIX + ".backlog", backlog, AtomicLong::get)
+                .description("Tombstoned media whose bytes are not deleted yet")
+                .register(meterRegistry);
+        this.latency = Timer.builder(METRIC_PREFIX + ".latency")
+                .description("Time from tombstone to bytes deleted")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        this.swept = Counter.builder(METRIC_PREFIX + ".swept").register(meterRegistry);
+        this.failed = Counter.builder(METRIC_PREFIX + ".failed").register(meterRegistry);
+    }
+
+    /** Sweeps until no tombstones are left; returns how many media were removed. */
+    @Scheduled(fixedDelayString = "${media.sweeper.interval:10s}", initialDelayString = "${media.sweeper.interval:10s}")
+    public int sweep() {
+        int removed = 0;
+        try {
+            while (true) {
+                List<Media> batch = mongoTemplate.find(tombstones().limit(batchSize), Media.class);
+                if (batch.isEmpty()) {
+                    break;
+                }
+                int done = sweepBatch(batch);
+                removed += done;
+                // Nothing removed means the rest failed or another instance has them
+                if (done == 0 || batch.size() < batchSize) {
+                    break;
+                }
+            }
+            backlog.set(mongoTemplate.count(tombstones(), Media.class));
+        } catch (RuntimeException e) {
+            log.warn("Media sweep aborted: {}", e.getMessage());
+        }
+        if (removed > 0) {
+            log.info("Swept {} deleted media, {} left", removed, backlog.get());
+        }
+        return removed;
+    }
+
+    long backlog() {
+        return backlog.get();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        workers.shutdown();
+    }
+
+    private int sweepBatch(List<Media> batch) {
+        List<CompletableFuture<Boolean>> tasks = new ArrayList<>(batch.size());
+        for (Media media : batch) {
+            pace();
+            tasks.add(CompletableFuture.supplyAsync(() -> sweepOne(media), workers));
+        }
+        int done = 0;
+        for (CompletableFuture<Boolean> task : tasks) {
+            if (task.join()) {
+                done++;
+            }
+        }
+        return done;
+    }
+
+    private boolean sweepOne(Media media) {
+        try {
+            Media removed = mongoTemplate.findAndRemove(
+                    query(where("_id").is(media.getId()).and("deletedAt").exists(true)), Media.class);
+            if (removed == null) {
+                return false;
+            }
+            mediaService.releaseContent(removed);
+            swept.increment();
+            latency.record(Duration.between(removed.getDeletedAt(), LocalDateTime.now()));
+            return true;
+        } catch (RuntimeException e) {
+            failed.increment();
+            log.warn("Could not sweep media {}: {}", media.getId(), e.getMessage());
+            return false;
+        }
+    }
+
+    // Spaces deletes evenly; only the scheduler thread calls this
+    private void pace() {
+        if (nanosPerDelete == 0) {
+            return;
+        }
+        long now = System.nanoTime();
+        if (nextSlot - now > 0) {
+            LockSupport.parkNanos(nextSlot - now);
+        }
+        nextSlot = Math.max(now, nextSlot) + nanosPerDelete;
+    }
+
+    private static Query tombstones() {
+        return query(where("deletedAt").exists(true)).with(Sort.by("deletedAt"));
+    }
+}
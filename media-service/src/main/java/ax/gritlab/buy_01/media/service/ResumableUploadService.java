@@ -0,0 +1,402 @@
+package ax.gritlab.buy_01.media.service;
+
+import ax.gritlab.buy_01.media.config.UploadProperties;
+import ax.gritlab.buy_01.media.dto.UploadSessionRequest;
+import ax.gritlab.buy_01.media.exception.InvalidUploadChunkException;
+import ax.gritlab.buy_01.media.exception.ResourceNotFoundException;
+import ax.gritlab.buy_01.media.exception.UnauthorizedException;
+import ax.gritlab.buy_01.media.exception.UploadConflictException;
+import ax.gritlab.buy_01.media.model.Media;
+import ax.gritlab.buy_01.media.model.UploadSession;
+import ax.gritlab.buy_01.media.model.User;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Resumable uploads: a session is created with the final size, then the client
+ * sends fixed-size chunks in any order, each with its offset and a SHA-256 of
+ * its bytes. A chunk is hashed into a staging file as it arrives and copied to
+ * its place in a file preallocated at the final size only once its checksum
+ * matched, so a bad retry racing a good copy of the same chunk can never
+ * overwrite verified bytes. Nothing is held in memory, and a dropped connection
+ * costs only the chunk in flight. Completing the session hands the file to
+ * {@link MediaService} like any other upload.
+ *
+ * <p>Sessions live in Mongo and partial files in a directory shared by every
+ * instance, so consecutive chunks may reach different instances. Sessions that
+ * receive nothing for {@code session-ttl} are removed with their file, and so are
+ * sessions whose completion was claimed {@code completion-timeout} ago by an
+ * instance that never finished it.
+ */
+@Slf4j
+@Service
+public class ResumableUploadService {
+
+    private static final String CHECKSUM_ALGORITHM = "sha256";
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final String STAGING_SUFFIX = ".chunk";
+
+    private final MongoTemplate mongoTemplate;
+    private final MediaService mediaService;
+    private final Path directory;
+    private final long chunkSize;
+    private final Duration sessionTtl;
+    private final Duration completionTimeout;
+
+    public ResumableUploadService(MongoTemplate mongoTemplate, MediaService mediaService,
+            UploadProperties uploadProperties) {
+        this.mongoTemplate = mongoTemplate;
+        this.mediaService = mediaService;
+        UploadProperties.Resumable resumable = uploadProperties.getResumable();
+        this.directory = Paths.get(resumable.getDirectory()).toAbsolutePath().normalize();
+        this.chunkSize = resumable.getChunkSize().toBytes();
+        this.sessionTtl = resumable.getSessionTtl();
+        this.completionTimeout = resumable.getCompletionTimeout();
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("media.upload.resumable.chunk-size must be positive");
+        }
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not create upload directory " + directory, e);
+        }
+    }
+
+    public UploadSession create(UploadSessionRequest request, User user) {
+        mediaService.validateUpload(request.getContentType(), request.getSize(), user);
+        mediaService.checkQuota(user, request.getSize());
+        String id = new ObjectId().toHexString();
+        // Sized now so chunks can land at any offset. On most filesystems this is a sparse file
+        // that reserves no blocks, so a full disk still fails a chunk write; the free-space check
+        // of upload admission, which also covers chunks, is what keeps that rare
+        try (RandomAccessFile file = new RandomAccessFile(partFile(id).toFile(), "rw")) {
+            file.setLength(request.getSize());
+        } catch (IOException e) {
+            deleteQuietly(id);
+            throw new RuntimeException("Failed to allocate upload.", e);
+        }
+        LocalDateTime now = LocalDateTime.now();
+        UploadSession session = UploadSession.builder()
+                .id(id)
+                .userId(user.getId())
+                .originalFilename(request.getFilename())
+                .contentType(request.getContentType())
+                .size(request.getSize())
+                .chunkSize(chunkSize)
+                .chunkCount((int) ((request.getSize() + chunkSize - 1) / chunkSize))
+                .createdAt(now)
+                .expiresAt(now.plus(sessionTtl))
+                .build();
+        return mongoTemplate.insert(session);
+    }
+
+    public UploadSession status(String id, User user) {
+        return find(id, user);
+    }
+
+    /**
+     * Writes the chunk starting at {@code offset}. The body must be exactly that
+     * chunk and match {@code checksum} ({@code sha256 <base64 digest>}); a chunk
+     * that fails either check is not recorded and may simply be sent again.
+     */
+    public UploadSession writeChunk(String id, User user, long offset, String checksum, InputStream body,
+            long contentLength) {
+        UploadSession session = find(id, user);
+        if (session.isCompleting()) {
+            throw new UploadConflictException("Upload is being completed.");
+        }
+        if (offset < 0 || offset >= session.getSize() || offset % session.getChunkSize() != 0) {
+            throw new InvalidUploadChunkException("Upload-Offset must be a multiple of " + session.getChunkSize()
+                    + " below " + session.getSize() + ".");
+        }
+        int index = (int) (offset / session.getChunkSize());
+        long expected = Math.min(session.getChunkSize(), session.getSize() - offset);
+        if (contentLength >= 0 && contentLength != expected) {
+            throw new InvalidUploadChunkException("Chunk " + index + " must be " + expected + " bytes.");
+        }
+        byte[] expectedDigest = parseChecksum(checksum);
+        if (session.getReceivedChunks().contains(index)) {
+            // A retry after a lost response; rewriting could only damage verified bytes
+            return session;
+        }
+
+        Path staging = stage(id, index, expectedDigest, body, expected);
+        try {
+            // Re-checked now that the bytes are verified: a concurrent copy may have been recorded meanwhile
+            UploadSession current = find(id, user);
+            if (current.isCompleting()) {
+                throw new UploadConflictException("Upload is being completed.");
+            }
+            if (current.getReceivedChunks().contains(index)) {
+                return current;
+            }
+            copyInto(id, staging, offset, expected);
+        } finally {
+            deleteStaging(staging);
+        }
+
+        UploadSession updated = mongoTemplate.findAndModify(
+                Query.query(where("_id").is(id).and("completing").is(false)),
+                new Update().addToSet("receivedChunks", index).set("expiresAt", LocalDateTime.now().plus(sessionTtl)),
+                FindAndModifyOptions.options().returnNew(true),
+                UploadSession.class);
+        if (updated == null) {
+            throw new UploadConflictException("Upload is being completed.");
+        }
+        return updated;
+    }
+
+    // Writes the chunk to its own file while hashing it; throws unless it has the expected length and digest
+    private Path stage(String id, int index, byte[] expectedDigest, InputStream body, long expected) {
+        MessageDigest digest = sha256();
+        Path staging;
+        try {
+            staging = Files.createTempFile(directory, id + "-" + index + "-", STAGING_SUFFIX);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to write upload chunk.", e);
+        }
+        boolean verified = false;
+        try (FileChannel channel = FileChannel.open(staging, StandardOpenOption.WRITE)) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            long remaining = expected;
+            while (remaining > 0) {
+                int read = body.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                if (read < 0) {
+                    break;
+                }
+                digest.update(buffer, 0, read);
+                ByteBuffer bytes = ByteBuffer.wrap(buffer, 0, read);
+                while (bytes.hasRemaining()) {
+                    channel.write(bytes);
+                }
+                remaining -= read;
+            }
+            if (remaining > 0 || body.read() >= 0) {
+                throw new InvalidUploadChunkException("Chunk " + index + " must be " + expected + " bytes.");
+            }
+            if (!MessageDigest.isEqual(expectedDigest, digest.digest())) {
+                throw new InvalidUploadChunkException("Checksum mismatch for chunk " + index + ".");
+            }
+            verified = true;
+            return staging;
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to write upload chunk.", e);
+        } finally {
+            if (!verified) {
+                deleteStaging(staging);
+            }
+        }
+    }
+
+    private void copyInto(String id, Path staging, long offset, long count) {
+        try (FileChannel source = FileChannel.open(staging, StandardOpenOption.READ);
+                FileChannel part = FileChannel.open(partFile(id), StandardOpenOption.WRITE)) {
+            long copied = 0;
+            while (copied < count) {
+                long sent = part.transferFrom(source, offset + copied, count - copied);
+                if (sent <= 0) {
+                    throw new IOException("Staged chunk ended after " + copied + " of " + count + " bytes");
+                }
+                copied += sent;
+            }
+            part.force(false);
+        } catch (NoSuchFileException e) {
+            throw new ResourceNotFoundException("Upload not found with id: " + id);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to write upload chunk.", e);
+        }
+    }
+
+    /** Turns a fully received session into media; the session and its file are removed. */
+    public Media complete(String id, User user) {
+        UploadSession session = find(id, user);
+        int missing = session.getChunkCount() - new HashSet<>(session.getReceivedChunks()).size();
+        if (missing > 0) {
+            throw new UploadConflictException("Upload is incomplete: " + missing + " chunks missing.");
+        }
+        // Claimed, so a retried request or a late chunk cannot race the copy to storage
+        UploadSession claimed = mongoTemplate.findAndModify(
+                Query.query(where("_id").is(id).and("completing").is(false)),
+                new Update().set("completing", true).set("completingAt", LocalDateTime.now()),
+                UploadSession.class);
+        if (claimed == null) {
+            throw new UploadConflictException("Upload is already being completed.");
+        }
+        Media media;
+        try {
+            media = mediaService.saveUpload(id, session.getOriginalFilename(), session.getContentType(),
+                    partFile(id), user);
+        } catch (RuntimeException e) {
+            mongoTemplate.updateFirst(Query.query(where("_id").is(id)),
+                    new Update().set("completing", false).unset("completingAt"), UploadSession.class);
+            throw e;
+        }
+        mongoTemplate.remove(Query.query(where("_id").is(id)), UploadSession.class);
+        deleteQuietly(id);
+        return media;
+    }
+
+    public void abort(String id, User user) {
+        find(id, user);
+        UploadSession removed = mongoTemplate.findAndRemove(
+                Query.query(where("_id").is(id).and("completing").is(false)), UploadSession.class);
+        if (removed == null) {
+            throw new UploadConflictException("Upload is being completed.");
+        }
+        deleteQuietly(id);
+    }
+
+    /**
+     * Removes abandoned sessions and completions a crash cut off, then partial files
+     * left without a session.
+     */
+    @Scheduled(fixedDelayString = "${media.upload.resumable.expiry-interval:15m}")
+    public int expireSessions() {
+        int expired = 0;
+        LocalDateTime now = LocalDateTime.now();
+        List<UploadSession> stale = mongoTemplate.find(Query.query(expirable(now)), UploadSession.class);
+        for (UploadSession session : stale) {
+            // Re-checked on removal: a chunk or a completion may have arrived since the query
+            UploadSession removed = mongoTemplate.findAndRemove(
+                    Query.query(where("_id").is(session.getId()).andOperator(expirable(now))), UploadSession.class);
+            if (removed != null) {
+                if (removed.isCompleting()) {
+                    log.warn("Expiring upload {}: completion claimed at {} never finished", removed.getId(),
+                            removed.getCompletingAt());
+                }
+                deleteQuietly(session.getId());
+                expired++;
+            }
+        }
+
+        Instant cutoff = Instant.now().minus(sessionTtl);
+        Set<String> orphans = new HashSet<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.part")) {
+            for (Path file : files) {
+                if (Files.getLastModifiedTime(file).toInstant().isBefore(cutoff)) {
+                    String name = file.getFileName().toString();
+                    orphans.add(name.substring(0, name.length() - ".part".length()));
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Could not list upload directory {}: {}", directory, e.getMessage());
+        }
+        for (String id : orphans) {
+            if (!mongoTemplate.exists(Query.query(where("_id").is(id)), UploadSession.class)) {
+                deleteQuietly(id);
+                expired++;
+            }
+        }
+        // Staged chunks live for one request; old ones were left by a crash mid-chunk
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + STAGING_SUFFIX)) {
+            for (Path file : files) {
+                if (Files.getLastModifiedTime(file).toInstant().isBefore(cutoff)) {
+                    deleteStaging(file);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Could not list upload directory {}: {}", directory, e.getMessage());
+        }
+        if (expired > 0) {
+            log.info("Expired {} abandoned uploads", expired);
+        }
+        return expired;
+    }
+
+    // Idle past its TTL, or claimed for completion so long ago that the claiming instance must have died
+    private Criteria expirable(LocalDateTime now) {
+        return new Criteria().orOperator(
+                where("expiresAt").lt(now).and("completing").is(false),
+                where("completing").is(true).and("completingAt").not().gte(now.minus(completionTimeout)));
+    }
+
+    private UploadSession find(String id, User user) {
+        UploadSession session = mongoTemplate.findById(id, UploadSession.class);
+        if (session == null) {
+            throw new ResourceNotFoundException("Upload not found with id: " + id);
+        }
+        if (!session.getUserId().equals(user.getId())) {
+            throw new UnauthorizedException("You do not have permission to access this upload");
+        }
+        return session;
+    }
+
+    private Path partFile(String id) {
+        if (!ObjectId.isValid(id)) {
+            throw new ResourceNotFoundException("Upload not found with id: " + id);
+        }
+        return directory.resolve(id + ".part");
+    }
+
+    private void deleteQuietly(String id) {
+        try {
+            Files.deleteIfExists(partFile(id));
+        } catch (IOException e) {
+            log.warn("Could not delete partial upload {}: {}", id, e.getMessage());
+        }
+    }
+
+    private void deleteStaging(Path staging) {
+        try {
+            Files.deleteIfExists(staging);
+        } catch (IOException e) {
+            log.warn("Could not delete staged chunk {}: {}", staging, e.getMessage());
+        }
+    }
+
+    private static byte[] parseChecksum(String checksum) {
+        if (checksum != null) {
+            String[] parts = checksum.trim().split(" ", 2);
+            if (parts.length == 2 && parts[0].equalsIgnoreCase(CHECKSUM_ALGORITHM)) {
+                try {
+                    byte[] digest = Base64.getDecoder().decode(parts[1].trim());
+                    if (digest.length == 32) {
+                        return digest;
+                    }
+                } catch (IllegalArgumentException e) {
+                    // Reported below
+                }
+            }
+        }
+        throw new InvalidUploadChunkException("Upload-Checksum must be \"sha256 <base64 digest>\".");
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
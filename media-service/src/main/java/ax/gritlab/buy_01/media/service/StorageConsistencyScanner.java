@@ -0,0 +1,267 @@
+package ax.gritlab.buy_01.media.service;
+
+import ax.gritlab.buy_01.media.dto.ConsistencyReport;
+import ax.gritlab.buy_01.media.model.Media;
+import ax.gritlab.buy_01.media.model.MediaBlob;
+import ax.gritlab.buy_01.media.storage.ListableMediaStorage;
+import ax.gritlab.buy_01.media.storage.MediaStorage;
+import ax.gritlab.buy_01.media.storage.StoredObject;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+/**
+ * Finds differences between what storage holds and what the database refers
+ * to: orphan files no media or blob record points at (a crash between storing
+ * the bytes and inserting the record, a failed delete) and dangling keys whose
+ * bytes are gone.
+ *
+ * <p>Both sides are sorted externally and merge-joined, so a scan over tens of
+ * millions of objects holds only a sort buffer in memory. Both sides go through
+ * the same sort rather than relying on a Mongo sort, whose string order need not
+ * match Java's. Objects and records younger than {@code grace} are ignored, as an
+ * upload in progress legitimately has one without the other; every repair
+ * re-checks its finding first.
+ */
+@Slf4j
+@Service
+public class StorageConsistencyScanner {
+
+    private static final int SAMPLE_SIZE = 100;
+    // Separates an object name from its full key when the two differ
+    private static final char KEY_SEPARATOR = '\0';
+
+    private final MediaStorage mediaStorage;
+    private final MongoTemplate mongoTemplate;
+    private final MediaService mediaService;
+    private final int runSize;
+    private final int parallelism;
+    private final Duration grace;
+    private final Path tempDir;
+    private final boolean scheduledRepair;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public StorageConsistencyScanner(
+            MediaStorage mediaStorage,
+            MongoTemplate mongoTemplate,
+            MediaService mediaService,
+            @Value("${media.consistency.run-size:500000}") int runSize,
+            @Value("${media.consistency.parallelism:4}") int parallelism,
+            @Value("${media.consistency.grace:1h}") Duration grace,
+            @Value("${media.consistency.temp-dir:${java.io.tmpdir}}") String tempDir,
+            @Value("${media.consistency.scheduled-repair:false}") boolean scheduledRepair) {
+        this.mediaStorage = mediaStorage;
+        this.mongoTemplate = mongoTemplate;
+        this.mediaService = mediaService;
+        this.runSize = runSize;
+        this.parallelism = Math.max(1, parallelism);
+        this.grace = grace;
+        this.tempDir = Paths.get(tempDir);
+        this.scheduledRepair = scheduledRepair;
+    }
+
+    @Scheduled(cron = "${media.consistency.cron:-}")
+    public void scheduledScan() {
+        try {
+            scan(scheduledRepair);
+        } catch (RuntimeException e) {
+            log.warn("Scheduled consistency scan failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Compares storage with the database. With {@code repair}, orphan files are
+     * deleted and media whose bytes are missing are deleted like any other media.
+     */
+    public ConsistencyReport scan(boolean repair) {
+        if (!(mediaStorage instanceof ListableMediaStorage)) {
+            throw new IllegalStateException("Consistency scans need a filesystem storage backend");
+        }
+        ListableMediaStorage storage = (ListableMediaStorage) mediaStorage;
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("A consistency scan is already running");
+        }
+        long start = System.currentTimeMillis();
+        Instant cutoff = Instant.now().minus(grace);
+        try (ExternalSorter stored = new ExternalSorter(tempDir, "media-scan-storage", runSize);
+             ExternalSorter referenced = new ExternalSorter(tempDir, "media-scan-db", runSize)) {
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                storage.forEachKey(pool, key -> stored.add(entry(storage, key)));
+            } finally {
+                pool.shutdown();
+            }
+            addReferencedKeys(storage, referenced, LocalDateTime.now().minus(grace));
+
+            ConsistencyReport report = mergeJoin(storage, stored.sorted(), referenced.sorted(), cutoff, repair);
+            report.setDurationMs(System.currentTimeMillis() - start);
+            log.info("Consistency scan finished: {} stored, {} referenced, {} orphan, {} dangling in {} ms",
+                    report.getStoredObjects(), report.getReferencedKeys(), report.getOrphanFiles(),
+                    report.getDanglingKeys(), report.getDurationMs());
+            return report;
+        } catch (IOException e) {
+            throw new RuntimeException("Consistency scan failed: " + e.getMessage(), e);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    // Every key a media record or blob points at, tombstoned media included until swept
+    private void addReferencedKeys(ListableMediaStorage storage, ExternalSorter referenced, LocalDateTime cutoff) {
+        for (Class<?> type : List.of(Media.class, MediaBlob.class)) {
+            // Records without a creation time predate auditing and are always old enough
+            Query settled = query(where("createdAt").not().gte(cutoff));
+            settled.fields().include("filePath");
+            try (Stream<?> records = mongoTemplate.stream(settled, type)) {
+                records.map(StorageConsistencyScanner::filePathOf)
+                        .filter(StorageConsistencyScanner::isStorageKey)
+                        .forEach(key -> referenced.add(entry(storage, key)));
+            }
+        }
+    }
+
+    private ConsistencyReport mergeJoin(ListableMediaStorage storage, Iterator<String> stored,
+                                        Iterator<String> referenced, Instant cutoff, boolean repair) {
+        ConsistencyReport report = ConsistencyReport.builder()
+                .orphanSamples(new ArrayList<>())
+                .danglingSamples(new ArrayList<>())
+                .repair(repair)
+                .build();
+        String storedEntry = next(stored);
+        String referencedEntry = next(referenced);
+        while (storedEntry != null || referencedEntry != null) {
+            int order;
+            if (storedEntry == null) {
+                order = 1;
+            } else if (referencedEntry == null) {
+                order = -1;
+            } else {
+                order = nameOf(storedEntry).compareTo(nameOf(referencedEntry));
+            }
+
+            if (order == 0) {
+                // The same object under another disk's key still counts as present
+                String name = nameOf(storedEntry);
+                while (storedEntry != null && nameOf(storedEntry).equals(name)) {
+                    report.setStoredObjects(report.getStoredObjects() + 1);
+                    storedEntry = next(stored);
+                }
+                while (referencedEntry != null && nameOf(referencedEntry).equals(name)) {
+                    report.setReferencedKeys(report.getReferencedKeys() + 1);
+                    referencedEntry = next(referenced);
+                }
+            } else if (order < 0) {
+                report.setStoredObjects(report.getStoredObjects() + 1);
+                orphan(storage, keyOf(storedEntry), nameOf(storedEntry), cutoff, report);
+                storedEntry = next(stored);
+            } else {
+                report.setReferencedKeys(report.getReferencedKeys() + 1);
+                dangling(keyOf(referencedEntry), report);
+                referencedEntry = next(referenced);
+            }
+        }
+        return report;
+    }
+
+    private void orphan(ListableMediaStorage storage, String key, String name, Instant cutoff,
+                        ConsistencyReport report) {
+        try {
+            // Too young to tell from an upload whose record is not written yet
+            Optional<StoredObject> object = storage.stat(key);
+            if (object.isEmpty() || object.get().getLastModified().isAfter(cutoff)) {
+                return;
+            }
+            report.setOrphanFiles(report.getOrphanFiles() + 1);
+            sample(report.getOrphanSamples(), key);
+            if (report.isRepair() && !isReferenced(key, name)) {
+                storage.delete(key);
+                report.setRepairedOrphans(report.getRepairedOrphans() + 1);
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not check orphan {}: {}", key, e.getMessage());
+        }
+    }
+
+    private void dangling(String key, ConsistencyReport report) {
+        report.setDanglingKeys(report.getDanglingKeys() + 1);
+        sample(report.getDanglingSamples(), key);
+        if (!report.isRepair()) {
+            return;
+        }
+        try {
+            if (mediaStorage.exists(key)) {
+                return;
+            }
+            List<String> ids = mongoTemplate.find(
+                            query(where("filePath").is(key).and("deletedAt").exists(false)), Media.class)
+                    .stream()
+                    .map(Media::getId)
+                    .collect(Collectors.toList());
+            // Deleting the media releases the blob, which drops the blob record with its last reference
+            mediaService.deleteMediaByIds(ids);
+            report.setRepairedDangling(report.getRepairedDangling() + ids.size());
+        } catch (RuntimeException e) {
+            log.warn("Could not repair dangling key {}: {}", key, e.getMessage());
+        }
+    }
+
+    private boolean isReferenced(String key, String name) {
+        Query byKey = query(where("filePath").in(key, name));
+        return mongoTemplate.exists(byKey, Media.class) || mongoTemplate.exists(byKey, MediaBlob.class);
+    }
+
+    private static String entry(ListableMediaStorage storage, String key) {
+        String name = storage.objectName(key);
+        return name.equals(key) ? key : name + KEY_SEPARATOR + key;
+    }
+
+    private static String nameOf(String entry) {
+        int separator = entry.indexOf(KEY_SEPARATOR);
+        return separator < 0 ? entry : entry.substring(0, separator);
+    }
+
+    private static String keyOf(String entry) {
+        int separator = entry.indexOf(KEY_SEPARATOR);
+        return separator < 0 ? entry : entry.substring(separator + 1);
+    }
+
+    private static String filePathOf(Object record) {
+        return record instanceof Media ? ((Media) record).getFilePath() : ((MediaBlob) record).getFilePath();
+    }
+
+    // Seed data points at external URLs, which storage does not hold
+    private static boolean isStorageKey(String filePath) {
+        return filePath != null && !filePath.startsWith("http://") && !filePath.startsWith("https://");
+    }
+
+    private static void sample(List<String> samples, String key) {
+        if (samples.size() < SAMPLE_SIZE) {
+            samples.add(key);
+        }
+    }
+
+    private static String next(Iterator<String> iterator) {
+        return iterator.hasNext() ? iterator.next() : null;
+    }
+}
@@ -0,0 +1,184 @@
+package ax.gritlab.buy_01.media.service;
+
+import ax.gritlab.buy_01.media.config.UploadProperties;
+import ax.gritlab.buy_01.media.dto.StorageUsageResponse;
+import ax.gritlab.buy_01.media.exception.QuotaExceededException;
+import ax.gritlab.buy_01.media.model.Media;
+import ax.gritlab.buy_01.media.model.StorageUsage;
+import ax.gritlab.buy_01.media.model.User;
+import com.mongodb.client.result.UpdateResult;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.group;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.match;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+/**
+ * Per-user storage quotas. Each user's live media are totalled in one
+ * {@link StorageUsage} document that uploads and deletes move with {@code $inc},
+ * so checking an upload costs one conditional update instead of summing the
+ * user's media. The check and the increment are the same update, so concurrent
+ * uploads cannot both squeeze under the quota.
+ *
+ * <p>Counters can drift: a crash between reserving and inserting the media, or a
+ * delete racing another. A periodic reconciliation recomputes the totals from
+ * the media collection and corrects users whose counters differ, skipping any
+ * that changed while it ran; those are checked again next time.
+ */
+@Slf4j
+@Service
+public class StorageQuotaService {
+
+    private final MongoTemplate mongoTemplate;
+    private final UploadProperties.Quota quota;
+
+    public StorageQuotaService(MongoTemplate mongoTemplate, UploadProperties uploadProperties) {
+        this.mongoTemplate = mongoTemplate;
+        this.quota = uploadProperties.getQuota();
+    }
+
+    /**
+     * Counts one file of {@code bytes} against the user's quota, or throws
+     * {@link QuotaExceededException} and counts nothing. Undo with {@link #release}
+     * if the upload then fails.
+     */
+    public void reserve(User user, long bytes) {
+        long maxBytes = quota.maxBytesFor(user.getRole());
+        long maxFiles = quota.maxFilesFor(user.getRole());
+        if (bytes > maxBytes || maxFiles < 1) {
+            throw exceeded(maxBytes, maxFiles);
+        }
+        Query fits = query(where("_id").is(user.getId())
+                .and("bytes").lte(maxBytes - bytes)
+                .and("files").lte(maxFiles - 1));
+        Update charge = new Update()
+                .inc("bytes", bytes)
+                .inc("files", 1)
+                .set("updatedAt", LocalDateTime.now());
+        try {
+            // The first upload of a user creates the document; over quota, the upsert hits its _id
+            mongoTemplate.upsert(fits, charge, StorageUsage.class);
+        } catch (DuplicateKeyException e) {
+            // Either over quota or a concurrent first upload won the insert; the document exists now
+            if (mongoTemplate.updateFirst(fits, charge, StorageUsage.class).getModifiedCount() == 0) {
+                throw exceeded(maxBytes, maxFiles);
+            }
+        }
+    }
+
+    /** Fails early when one more file of {@code bytes} would not fit, without counting it. */
+    public void check(User user, long bytes) {
+        long maxBytes = quota.maxBytesFor(user.getRole());
+        long maxFiles = quota.maxFilesFor(user.getRole());
+        StorageUsage usage = find(user.getId());
+        if (usage.getBytes() + bytes > maxBytes || usage.getFiles() + 1 > maxFiles) {
+            throw exceeded(maxBytes, maxFiles);
+        }
+    }
+
+    /** Gives back {@code bytes} in {@code files} media of a user, after a delete or a failed upload. */
+    public void release(String userId, long bytes, long files) {
+        mongoTemplate.updateFirst(query(where("_id").is(userId)),
+                new Update()
+                        .inc("bytes", -bytes)
+                        .inc("files", -files)
+                        .set("updatedAt", LocalDateTime.now()),
+                StorageUsage.class);
+    }
+
+    public StorageUsageResponse usage(User user) {
+        StorageUsage usage = find(user.getId());
+        return StorageUsageResponse.builder()
+                .bytes(usage.getBytes())
+                .files(usage.getFiles())
+                .maxBytes(quota.maxBytesFor(user.getRole()))
+                .maxFiles(quota.maxFilesFor(user.getRole()))
+                .build();
+    }
+
+    /** Recomputes every user's totals from the media collection; returns how many users were corrected. */
+    // First run soon after startup, so media stored before usage was counted are charged early
+    @Scheduled(fixedDelayString = "${media.upload.quota.reconcile-interval:6h}", initialDelayString = "1m")
+    public int reconcile() {
+        LocalDateTime started = LocalDateTime.now();
+        Aggregation totals = Aggregation.newAggregation(
+                match(where("deletedAt").exists(false)),
+                group("userId").sum("size").as("bytes").count().as("files"));
+        Map<String, long[]> actual = new HashMap<>();
+        for (Document row : mongoTemplate.aggregate(totals, Media.class, Document.class)) {
+            Object userId = row.get("_id");
+            if (userId != null) {
+                actual.put(userId.toString(), new long[] {
+                        ((Number) row.get("bytes")).longValue(), ((Number) row.get("files")).longValue() });
+            }
+        }
+
+        int corrected = 0;
+        try (Stream<StorageUsage> counters = mongoTemplate.stream(new Query(), StorageUsage.class)) {
+            for (StorageUsage counter : (Iterable<StorageUsage>) counters::iterator) {
+                long[] total = Optional.ofNullable(actual.remove(counter.getId())).orElse(new long[2]);
+                if ((counter.getBytes() != total[0] || counter.getFiles() != total[1])
+                        && correct(counter.getId(), total, started)) {
+                    log.info("Corrected storage usage of user {}: {} bytes in {} files, counted {} in {}",
+                            counter.getId(), total[0], total[1], counter.getBytes(), counter.getFiles());
+                    corrected++;
+                }
+            }
+        }
+        // Media stored before usage was counted
+        for (Map.Entry<String, long[]> missing : actual.entrySet()) {
+            if (correct(missing.getKey(), missing.getValue(), started)) {
+                corrected++;
+            }
+        }
+        if (corrected > 0) {
+            log.info("Storage usage reconciliation corrected {} users", corrected);
+        }
+        return corrected;
+    }
+
+    // Sets the totals unless an upload or delete changed the counter after the aggregation started
+    private boolean correct(String userId, long[] total, LocalDateTime started) {
+        Query unchanged = query(where("_id").is(userId).orOperator(
+                where("updatedAt").lt(started), where("updatedAt").exists(false)));
+        LocalDateTime now = LocalDateTime.now();
+        try {
+            UpdateResult result = mongoTemplate.upsert(unchanged,
+                    new Update()
+                            .set("bytes", total[0])
+                            .set("files", total[1])
+                            .set("updatedAt", now)
+                            .set("reconciledAt", now),
+                    StorageUsage.class);
+            return result.getModifiedCount() > 0 || result.getUpsertedId() != null;
+        } catch (DuplicateKeyException e) {
+            return false; // Changed meanwhile; checked again next run
+        }
+    }
+
+    private StorageUsage find(String userId) {
+        StorageUsage usage = mongoTemplate.findById(userId, StorageUsage.class);
+        return usage != null ? usage : StorageUsage.builder().id(userId).build();
+    }
+
+    private static QuotaExceededException exceeded(long maxBytes, long maxFiles) {
+        return new QuotaExceededException("Storage quota exceeded: at most " + maxFiles + " files and "
+                + DataSize.ofBytes(maxBytes).toMegabytes() + "MB per account.");
+    }
+}
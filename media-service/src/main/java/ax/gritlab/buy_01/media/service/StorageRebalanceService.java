@@ -0,0 +1,150 @@
+package ax.gritlab.buy_01.media.service;
+
+import ax.gritlab.buy_01.media.dto.DiskStatus;
+import ax.gritlab.buy_01.media.dto.StorageRebalanceSummary;
+import ax.gritlab.buy_01.media.model.Media;
+import ax.gritlab.buy_01.media.model.MediaBlob;
+import ax.gritlab.buy_01.media.storage.MediaStorage;
+import ax.gritlab.buy_01.media.storage.MultiDiskMediaStorage;
+import com.mongodb.client.result.UpdateResult;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+/**
+ * Evens out disk usage of a striped filesystem backend by moving blobs from
+ * the fullest disks to the emptiest. Each move copies the bytes, repoints the
+ * blob and every media record sharing it, then deletes the old copy; readers
+ * holding the old key in a cache still find the object on its new disk.
+ * Media stored before content hashing are left where they are.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class StorageRebalanceService {
+
+    private final MediaStorage mediaStorage;
+    private final MongoTemplate mongoTemplate;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public List<DiskStatus> diskStatus() {
+        return striped().getDisks().stream().map(StorageRebalanceService::status).collect(Collectors.toList());
+    }
+
+    /**
+     * Moves blobs off disks filled more than {@code tolerance} above the average
+     * until they are within half of it, or {@code maxBytes} have been moved.
+     */
+    public StorageRebalanceSummary rebalance(double tolerance, long maxBytes) {
+        MultiDiskMediaStorage storage = striped();
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("A rebalance is already running");
+        }
+        long start = System.currentTimeMillis();
+        int moved = 0;
+        int failed = 0;
+        long bytesMoved = 0;
+        try {
+            List<MultiDiskMediaStorage.Disk> disks = storage.getDisks();
+            double average = disks.stream().mapToDouble(MultiDiskMediaStorage.Disk::fillRatio).average().orElse(0);
+            List<MultiDiskMediaStorage.Disk> sources = disks.stream()
+                    .filter(disk -> disk.fillRatio() > average + tolerance)
+                    .sorted(Comparator.comparingDouble(MultiDiskMediaStorage.Disk::fillRatio).reversed())
+                    .collect(Collectors.toList());
+
+            for (MultiDiskMediaStorage.Disk source : sources) {
+                try (Stream<MediaBlob> blobs = mongoTemplate.stream(
+                        query(where("filePath").regex("^" + Pattern.quote(source.getName() + "/"))),
+                        MediaBlob.class)) {
+                    for (MediaBlob blob : (Iterable<MediaBlob>) blobs::iterator) {
+                        if (bytesMoved >= maxBytes || source.fillRatio() <= average + tolerance / 2) {
+                            break;
+                        }
+                        Optional<MultiDiskMediaStorage.Disk> target = disks.stream()
+                                .filter(disk -> disk != source && disk.isWritable() && disk.fillRatio() < average)
+                                .min(Comparator.comparingDouble(MultiDiskMediaStorage.Disk::fillRatio));
+                        if (target.isEmpty()) {
+                            break;
+                        }
+                        try {
+                            if (move(storage, blob, target.get())) {
+                                moved++;
+                                bytesMoved += blob.getSize();
+                            }
+                        } catch (IOException | RuntimeException e) {
+                            failed++;
+                            log.warn("Could not move blob {} off disk {}: {}",
+                                    blob.getId(), source.getName(), e.getMessage());
+                        }
+                    }
+                }
+            }
+        } finally {
+            running.set(false);
+        }
+
+        StorageRebalanceSummary summary = StorageRebalanceSummary.builder()
+                .moved(moved)
+                .bytesMoved(bytesMoved)
+                .failed(failed)
+                .durationMs(System.currentTimeMillis() - start)
+                .disks(diskStatus())
+                .build();
+        log.info("Storage rebalance finished: {}", summary);
+        return summary;
+    }
+
+    private boolean move(MultiDiskMediaStorage storage, MediaBlob blob, MultiDiskMediaStorage.Disk target)
+            throws IOException {
+        String oldKey = blob.getFilePath();
+        String newKey = storage.move(oldKey, target);
+        // Only repoint a blob that still exists and still lives at the old key
+        UpdateResult result = mongoTemplate.updateFirst(
+                query(where("_id").is(blob.getId()).and("filePath").is(oldKey)),
+                new Update().set("filePath", newKey),
+                MediaBlob.class);
+        if (result.getMatchedCount() == 0) {
+            storage.delete(newKey);
+            return false;
+        }
+        mongoTemplate.updateMulti(
+                query(where("contentHash").is(blob.getId())),
+                new Update().set("filePath", newKey),
+                Media.class);
+        storage.delete(oldKey);
+        return true;
+    }
+
+    private MultiDiskMediaStorage striped() {
+        if (!(mediaStorage instanceof MultiDiskMediaStorage)) {
+            throw new IllegalStateException("Rebalancing needs the filesystem backend with storage.disks configured");
+        }
+        return (MultiDiskMediaStorage) mediaStorage;
+    }
+
+    private static DiskStatus status(MultiDiskMediaStorage.Disk disk) {
+        return DiskStatus.builder()
+                .name(disk.getName())
+                .root(disk.getRoot().toString())
+                .weight(disk.getWeight())
+                .usableBytes(disk.usableSpace())
+                .totalBytes(disk.totalSpace())
+                .fillRatio(disk.fillRatio())
+                .writable(disk.isWritable())
+                .build();
+    }
+}
@@ -0,0 +1,214 @@
+package ax.gritlab.buy_01.media.service;
+
+import ax.gritlab.buy_01.media.config.UploadProperties;
+import ax.gritlab.buy_01.media.exception.UploadRejectedException;
+import ax.gritlab.buy_01.media.storage.MediaStorage;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Admission control for uploads. Each upload declares its size up front and is
+ * admitted only while the uploads in progress stay under
+ * {@code media.upload.admission.max-concurrent} and {@code max-in-flight} bytes,
+ * and while the storage and multipart buffer volumes keep {@code min-free-disk}
+ * free after every admitted upload lands. Over budget, an upload waits up to
+ * {@code queue-timeout} for room and is then rejected, so a burst is turned away
+ * with a 503 before its bytes are buffered instead of failing half-way through.
+ *
+ * <p>An upload larger than the whole byte budget is admitted when nothing else
+ * is in flight, so it is slowed down rather than refused forever.
+ */
+@Service
+public class UploadAdmission {
+
+    private static final String METRIC_PREFIX = "media.upload.admission";
+
+    enum Reason {
+        CONCURRENCY("concurrency"), BYTES("bytes"), DISK("disk");
+
+        private final String tag;
+
+        Reason(String tag) {
+            this.tag = tag;
+        }
+    }
+
+    private final MediaStorage mediaStorage;
+    private final Path bufferDirectory;
+    private final int maxConcurrent;
+    private final long maxInFlight;
+    private final long minFreeDisk;
+    private final long queueTimeoutNanos;
+    private final Duration retryAfter;
+    private final long unknownSize;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition released = lock.newCondition();
+    private volatile int active;
+    private volatile long inFlight;
+    private volatile int queued;
+
+    private final Timer waits;
+    private final Map<Reason, Counter> rejected = new EnumMap<>(Reason.class);
+
+    public UploadAdmission(
+            MediaStorage mediaStorage,
+            UploadProperties uploadProperties,
+            MeterRegistry meterRegistry,
+            @Value("${spring.servlet.multipart.location:${java.io.tmpdir}}") String bufferDirectory,
+            @Value("${spring.servlet.multipart.max-request-size:40MB}") DataSize maxRequestSize) {
+        UploadProperties.Admission admission = uploadProperties.getAdmission();
+        this.mediaStorage = mediaStorage;
+        this.bufferDirectory = Paths.get(bufferDirectory.isBlank() ? System.getProperty("java.io.tmpdir")
+                : bufferDirectory);
+        this.maxConcurrent = Math.max(1, admission.getMaxConcurrent());
+        this.maxInFlight = admission.getMaxInFlight().toBytes();
+        this.minFreeDisk = admission.getMinFreeDisk().toBytes();
+        this.queueTimeoutNanos = admission.getQueueTimeout().toNanos();
+        this.retryAfter = admission.getRetryAfter();
+        this.unknownSize = maxRequestSize.toBytes();
+
+        Gauge.builder(METRIC_PREFIX + ".active", this, UploadAdmission::active)
+                .description("Uploads in progress")
+                .register(meterRegistry);
+        Gauge.builder(METRIC_PREFIX + ".in-flight", this, UploadAdmission::inFlight)
+                .description("Declared bytes of the uploads in progress")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder(METRIC_PREFIX + ".queued", this, UploadAdmission::queued)
+                .description("Uploads waiting for admission")
+                .register(meterRegistry);
+        this.waits = Timer.builder(METRIC_PREFIX + ".wait")
+                .description("Time admitted uploads spent waiting for room")
+                .register(meterRegistry);
+        for (Reason reason : Reason.values()) {
+            rejected.put(reason, Counter.builder(METRIC_PREFIX + ".rejected")
+                    .description("Uploads turned away with a 503")
+                    .tag("reason", reason.tag)
+                    .register(meterRegistry));
+        }
+    }
+
+    /**
+     * Admits an upload of {@code bytes} (-1 when the client did not say, which
+     * counts as the largest request allowed) or throws
+     * {@link UploadRejectedException}. Close the permit once the upload is done.
+     */
+    public Permit admit(long bytes) {
+        long size = bytes < 0 ? unknownSize : bytes;
+        if (!hasDiskRoom(size)) {
+            throw reject(Reason.DISK);
+        }
+        long start = System.nanoTime();
+        lock.lock();
+        try {
+            if (!fits(size)) {
+                long remaining = queueTimeoutNanos;
+                queued++;
+                try {
+                    while (!fits(size)) {
+                        if (remaining <= 0) {
+                            throw reject(active >= maxConcurrent ? Reason.CONCURRENCY : Reason.BYTES);
+                        }
+                        remaining = released.awaitNanos(remaining);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw reject(Reason.CONCURRENCY);
+                } finally {
+                    queued--;
+                }
+                waits.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+            active++;
+            inFlight += size;
+            return new Permit(size);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int active() {
+        return active;
+    }
+
+    long inFlight() {
+        return inFlight;
+    }
+
+    int queued() {
+        return queued;
+    }
+
+    private boolean fits(long size) {
+        return active < maxConcurrent && (inFlight + size <= maxInFlight || active == 0);
+    }
+
+    // Admitted uploads have not necessarily written their bytes yet, so they are counted as used
+    private boolean hasDiskRoom(long size) {
+        long needed = minFreeDisk + inFlight + size;
+        long storage = mediaStorage.usableSpace();
+        if (storage >= 0 && storage < needed) {
+            return false;
+        }
+        try {
+            return Files.getFileStore(bufferDirectory).getUsableSpace() >= needed;
+        } catch (IOException e) {
+            return true; // Not created yet: the container makes it on first use
+        }
+    }
+
+    private UploadRejectedException reject(Reason reason) {
+        rejected.get(reason).increment();
+        String message = reason == Reason.DISK
+                ? "Not enough storage space for new uploads right now"
+                : "Too many uploads in progress";
+        return new UploadRejectedException(message, retryAfter);
+    }
+
+    private void release(long size) {
+        lock.lock();
+        try {
+            active--;
+            inFlight -= size;
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Room held by one admitted upload; closing it twice releases it once. */
+    public final class Permit implements AutoCloseable {
+
+        private final long size;
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private Permit(long size) {
+            this.size = size;
+        }
+
+        @Override
+        public void close() {
+            if (closed.compareAndSet(false, true)) {
+                release(size);
+            }
+        }
+    }
+}
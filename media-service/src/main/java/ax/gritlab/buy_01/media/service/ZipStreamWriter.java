@@ -0,0 +1,246 @@
+package ax.gritlab.buy_01.media.service;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+
+/**
+ * Writes a ZIP archive of STORED (uncompressed) entries straight to a stream.
+ * Unlike {@link java.util.zip.ZipOutputStream}, nothing is deflated: entry bodies,
+ * given as a stream or as a region of a file, are copied to the target as they are.
+ * The target is a plain {@link OutputStream} (the servlet response), so the copy
+ * goes through a user-space buffer; {@code FileChannel.transferTo} only avoids
+ * that when writing to a file or socket channel, which the servlet API does not expose.
+ *
+ * <p>STORED entries need their CRC and size in the local header, so callers pass
+ * them to {@link #putEntry}. The central directory is spooled to a temporary
+ * file as entries are added and appended by {@link #finish}, which keeps memory
+ * flat however many entries there are. ZIP64 records are written once the
+ * archive passes 4 GB or 65535 entries; a single entry must stay below 4 GB.
+ */
+final class ZipStreamWriter implements Closeable {
+
+    private static final int LOCAL_HEADER = 0x04034b50;
+    private static final int CENTRAL_HEADER = 0x02014b50;
+    private static final int END_OF_CENTRAL_DIRECTORY = 0x06054b50;
+    private static final int ZIP64_END_OF_CENTRAL_DIRECTORY = 0x06064b50;
+    private static final int ZIP64_LOCATOR = 0x07064b50;
+    private static final int ZIP64_EXTRA = 0x0001;
+    private static final int VERSION_STORED = 10;
+    private static final int VERSION_ZIP64 = 45;
+    private static final int FLAG_UTF8 = 0x0800;
+    private static final long MAX_32 = 0xFFFFFFFFL;
+    private static final int MAX_16 = 0xFFFF;
+    private static final int COPY_BUFFER = 64 * 1024;
+
+    private final OutputStream out;
+    private final Path centralFile;
+    private final DataOutputStream central;
+    private long written;
+    private long entries;
+    private long entryRemaining = -1; // Bytes still owed to the open entry, -1 when none is open
+    private boolean finished;
+
+    ZipStreamWriter(OutputStream out, Path tempDir) throws IOException {
+        this.out = out;
+        Files.createDirectories(tempDir);
+        this.centralFile = Files.createTempFile(tempDir, "media-export-", ".cd");
+        this.central = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(centralFile)));
+    }
+
+    /** Starts an entry of {@code size} bytes; its body must follow through the write methods. */
+    void putEntry(String name, long size, long crc, LocalDateTime modified) throws IOException {
+        if (entryRemaining > 0) {
+            throw new IllegalStateException("Previous entry is incomplete");
+        }
+        if (size >= MAX_32) {
+            throw new IllegalArgumentException("Entry too large for a ZIP archive: " + name);
+        }
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        long dosTime = dosTime(modified);
+        long offset = written;
+
+        DataOutputStream header = new DataOutputStream(out);
+        intLE(header, LOCAL_HEADER);
+        shortLE(header, VERSION_STORED);
+        shortLE(header, FLAG_UTF8);
+        shortLE(header, 0); // STORED
+        intLE(header, dosTime);
+        intLE(header, crc);
+        intLE(header, size); // Compressed size
+        intLE(header, size);
+        shortLE(header, nameBytes.length);
+        shortLE(header, 0); // Extra field length
+        header.write(nameBytes);
+        written += 30 + nameBytes.length;
+
+        boolean zip64 = offset >= MAX_32;
+        intLE(central, CENTRAL_HEADER);
+        shortLE(central, VERSION_ZIP64); // Made by
+        shortLE(central, zip64 ? VERSION_ZIP64 : VERSION_STORED);
+        shortLE(central, FLAG_UTF8);
+        shortLE(central, 0);
+        intLE(central, dosTime);
+        intLE(central, crc);
+        intLE(central, size);
+        intLE(central, size);
+        shortLE(central, nameBytes.length);
+        shortLE(central, zip64 ? 12 : 0);
+        shortLE(central, 0); // Comment length
+        shortLE(central, 0); // Disk number
+        shortLE(central, 0); // Internal attributes
+        intLE(central, 0); // External attributes
+        intLE(central, zip64 ? MAX_32 : offset);
+        central.write(nameBytes);
+        if (zip64) {
+            shortLE(central, ZIP64_EXTRA);
+            shortLE(central, 8);
+            longLE(central, offset);
+        }
+
+        entries++;
+        entryRemaining = size;
+    }
+
+    /** Copies {@code count} bytes of {@code file} from {@code position} into the open entry. */
+    void write(FileChannel file, long position, long count) throws IOException {
+        claim(count);
+        transfer(file, position, count);
+    }
+
+    /** Copies all of {@code in}, which must hold exactly the rest of the open entry. */
+    void write(InputStream in) throws IOException {
+        long copied = in.transferTo(out);
+        claim(copied);
+        written += copied;
+        if (entryRemaining != 0) {
+            throw new IOException("Entry content is " + entryRemaining + " bytes shorter than announced");
+        }
+    }
+
+    /** Writes the central directory and end records; the archive is complete afterwards. */
+    void finish() throws IOException {
+        if (entryRemaining > 0) {
+            throw new IllegalStateException("Last entry is incomplete");
+        }
+        central.close();
+        long centralOffset = written;
+        long centralSize = Files.size(centralFile);
+        try (FileChannel directory = FileChannel.open(centralFile, StandardOpenOption.READ)) {
+            transfer(directory, 0, centralSize);
+        }
+
+        DataOutputStream end = new DataOutputStream(out);
+        if (entries >= MAX_16 || centralOffset >= MAX_32 || centralSize >= MAX_32) {
+            long zip64End = written;
+            intLE(end, ZIP64_END_OF_CENTRAL_DIRECTORY);
+            longLE(end, 44); // Size of the rest of this record
+            shortLE(end, VERSION_ZIP64);
+            shortLE(end, VERSION_ZIP64);
+            intLE(end, 0); // This disk
+            intLE(end, 0); // Disk with the central directory
+            longLE(end, entries);
+            longLE(end, entries);
+            longLE(end, centralSize);
+            longLE(end, centralOffset);
+            intLE(end, ZIP64_LOCATOR);
+            intLE(end, 0);
+            longLE(end, zip64End);
+            intLE(end, 1); // Total disks
+            written += 56 + 20;
+        }
+        intLE(end, END_OF_CENTRAL_DIRECTORY);
+        shortLE(end, 0);
+        shortLE(end, 0);
+        shortLE(end, Math.min(entries, MAX_16));
+        shortLE(end, Math.min(entries, MAX_16));
+        intLE(end, Math.min(centralSize, MAX_32));
+        intLE(end, Math.min(centralOffset, MAX_32));
+        shortLE(end, 0); // Comment length
+        written += 22;
+        out.flush();
+        finished = true;
+    }
+
+    long entries() {
+        return entries;
+    }
+
+    boolean isFinished() {
+        return finished;
+    }
+
+    /** Removes the spooled central directory; does not close the target stream. */
+    @Override
+    public void close() throws IOException {
+        try {
+            central.close();
+        } finally {
+            Files.deleteIfExists(centralFile);
+        }
+    }
+
+    // Positional reads into one buffer that is written out as is
+    private void transfer(FileChannel file, long position, long count) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(COPY_BUFFER, Math.max(count, 1)));
+        long end = position + count;
+        while (position < end) {
+            buffer.clear().limit((int) Math.min(buffer.capacity(), end - position));
+            int read = file.read(buffer, position);
+            if (read <= 0) {
+                throw new IOException("File ended before the entry was complete");
+            }
+            out.write(buffer.array(), 0, read);
+            position += read;
+        }
+        written += count;
+    }
+
+    private void claim(long count) throws IOException {
+        if (entryRemaining < 0) {
+            throw new IllegalStateException("No open entry");
+        }
+        if (count > entryRemaining) {
+            throw new IOException("Entry content is longer than announced");
+        }
+        entryRemaining -= count;
+    }
+
+    // MS-DOS date and time, in local time with two-second precision; 1980 is the earliest it can hold
+    private static long dosTime(LocalDateTime time) {
+        if (time == null || time.getYear() < 1980) {
+            return (1 << 21) | (1 << 16);
+        }
+        return ((long) (time.getYear() - 1980) << 25)
+                | ((long) time.getMonthValue() << 21)
+                | ((long) time.getDayOfMonth() << 16)
+                | ((long) time.getHour() << 11)
+                | ((long) time.getMinute() << 5)
+                | (time.getSecond() >> 1);
+    }
+
+    private static void shortLE(DataOutputStream out, long value) throws IOException {
+        out.write((int) value & 0xFF);
+        out.write((int) (value >>> 8) & 0xFF);
+    }
+
+    private static void intLE(DataOutputStream out, long value) throws IOException {
+        shortLE(out, value);
+        shortLE(out, value >>> 16);
+    }
+
+    private static void longLE(DataOutputStream out, long value) throws IOException {
+        intLE(out, value);
+        intLE(out, value >>> 32);
+    }
+}
@@ -0,0 +1,100 @@
+package ax.gritlab.buy_01.media.storage;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Moves the flat-layout files of a {@link FileSystemMediaStorage} into their
+ * shards while the service keeps running. The root is listed as a stream, never
+ * loaded whole, and at most {@code concurrency} moves run at once so migration
+ * does not starve request I/O. The layout marker is only written after a pass
+ * with no failures; otherwise the next start retries what is left.
+ */
+@Slf4j
+class FileSystemLayoutMigrator {
+
+    private static final int PROGRESS_INTERVAL = 10_000;
+
+    private final FileSystemMediaStorage storage;
+    private final int concurrency;
+    private final ExecutorService workers;
+    private final AtomicInteger moved = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private volatile boolean stopped;
+
+    FileSystemLayoutMigrator(FileSystemMediaStorage storage, int concurrency) {
+        this.storage = storage;
+        this.concurrency = Math.max(1, concurrency);
+        this.workers = Executors.newFixedThreadPool(this.concurrency + 1, runnable -> {
+            Thread thread = new Thread(runnable, "media-layout-migrator");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    void start() {
+        workers.execute(this::run);
+    }
+
+    void stop() {
+        stopped = true;
+        workers.shutdown();
+    }
+
+    int moved() {
+        return moved.get();
+    }
+
+    void run() {
+        long start = System.currentTimeMillis();
+        log.info("Migrating {} to the sharded layout", storage.getRoot());
+        Semaphore permits = new Semaphore(concurrency);
+        try (DirectoryStream<Path> files = storage.legacyFiles()) {
+            for (Path file : files) {
+                if (stopped) {
+                    break;
+                }
+                permits.acquireUninterruptibly();
+                workers.execute(() -> {
+                    try {
+                        storage.migrate(file);
+                        if (moved.incrementAndGet() % PROGRESS_INTERVAL == 0) {
+                            log.info("Layout migration: {} files moved", moved.get());
+                        }
+                    } catch (IOException | RuntimeException e) {
+                        failed.incrementAndGet();
+                        log.warn("Could not migrate {}: {}", file, e.getMessage());
+                    } finally {
+                        permits.release();
+                    }
+                });
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("Layout migration of {} aborted: {}", storage.getRoot(), e.getMessage());
+            return;
+        }
+        // Every move holds a permit until it finishes
+        permits.acquireUninterruptibly(concurrency);
+        permits.release(concurrency);
+
+        if (stopped || failed.get() > 0) {
+            log.warn("Layout migration incomplete: {} moved, {} failed; flat files stay readable",
+                    moved.get(), failed.get());
+            return;
+        }
+        try {
+            storage.completeMigration();
+            log.info("Layout migration finished: {} files moved in {} ms",
+                    moved.get(), System.currentTimeMillis() - start);
+        } catch (IOException e) {
+            log.warn("Could not record layout migration: {}", e.getMessage());
+        }
+    }
+}
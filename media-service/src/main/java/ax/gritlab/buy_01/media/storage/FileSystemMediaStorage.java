@@ -0,0 +1,394 @@
+package ax.gritlab.buy_01.media.storage;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Stores each object as a file under a root directory.
+ *
+ * <p>The flat layout keeps an object at {@code <root>/<key>}, which is how
+ * media-service originally stored uploads. The sharded layout fans objects out
+ * to {@code <root>/ab/cd/<key>}, where {@code abcd} comes from a hash of the key,
+ * so no directory grows past a few thousand entries. Keys are the same in both
+ * layouts; only the location on disk differs.
+ *
+ * <p>A sharded store over a root that still has flat files reads through to the
+ * flat location until {@link #startMigration} has moved every file and written
+ * the {@value #LAYOUT_MARKER} marker.
+ */
+public class FileSystemMediaStorage implements ListableMediaStorage, AutoCloseable {
+
+    static final String LAYOUT_MARKER = ".layout-sharded";
+    private static final Pattern SHARD_NAME = Pattern.compile("[0-9a-f]{2}");
+    private static final int COPY_BUFFER = 64 * 1024;
+
+    private final Path root;
+    private final boolean sharded;
+    // True while flat-layout files may still exist in a sharded store
+    private volatile boolean legacyFallback;
+    // Serialises the final rename of put, delete and migration per key
+    private final ReentrantLock[] keyLocks = new ReentrantLock[64];
+    private FileSystemLayoutMigrator migrator;
+
+    public FileSystemMediaStorage(Path root) {
+        this(root, false);
+    }
+
+    public FileSystemMediaStorage(Path root, boolean sharded) {
+        this.root = root.toAbsolutePath().normalize();
+        this.sharded = sharded;
+        try {
+            Files.createDirectories(this.root);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not initialize storage at " + this.root, e);
+        }
+        this.legacyFallback = sharded && !Files.exists(this.root.resolve(LAYOUT_MARKER));
+        for (int i = 0; i < keyLocks.length; i++) {
+            keyLocks[i] = new ReentrantLock();
+        }
+    }
+
+    public Path getRoot() {
+        return root;
+    }
+
+    @Override
+    public long usableSpace() {
+        try {
+            return Files.getFileStore(root).getUsableSpace();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    /** Whether reads may still fall back to the flat layout. */
+    public boolean isMigrating() {
+        return legacyFallback;
+    }
+
+    @Override
+    public String put(String key, InputStream content, long size, String contentType) throws IOException {
+        Path target = resolve(key);
+        Files.createDirectories(target.getParent());
+        // Write next to the target and rename so readers never see a partial file
+        Path temp = target.resolveSibling(".tmp-" + UUID.randomUUID());
+        try {
+            copy(content, temp);
+            ReentrantLock lock = lockFor(key);
+            lock.lock();
+            try {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                if (legacyFallback) {
+                    // An older flat copy must not be migrated over the new content
+                    Files.deleteIfExists(legacyPath(key));
+                }
+            } finally {
+                lock.unlock();
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        return key;
+    }
+
+    // Larger writes than Files.copy's 8 KB; the channel hands heap buffers to the JDK's cached direct buffers
+    private static void copy(InputStream content, Path target) throws IOException {
+        byte[] chunk = new byte[COPY_BUFFER];
+        ByteBuffer buffer = ByteBuffer.wrap(chunk);
+        try (FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            int read;
+            while ((read = content.read(chunk)) >= 0) {
+                buffer.clear().limit(read);
+                while (buffer.hasRemaining()) {
+                    out.write(buffer);
+                }
+            }
+        }
+    }
+
+    @Override
+    public InputStream get(String key) throws IOException {
+        return read(key, Files::newInputStream);
+    }
+
+    @Override
+    public InputStream getRange(String key, long offset, long length) throws IOException {
+        SeekableByteChannel channel = read(key, file -> Files.newByteChannel(file, StandardOpenOption.READ));
+        try {
+            channel.position(offset);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        return new BoundedInputStream(Channels.newInputStream(channel), length);
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        Path file = resolve(key);
+        ReentrantLock lock = lockFor(key);
+        lock.lock();
+        try {
+            Files.deleteIfExists(file);
+            if (legacyFallback) {
+                Files.deleteIfExists(legacyPath(key));
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean exists(String key) {
+        return localPath(key).isPresent();
+    }
+
+    @Override
+    public Optional<StoredObject> stat(String key) throws IOException {
+        try {
+            BasicFileAttributes attributes = read(key,
+                    file -> Files.readAttributes(file, BasicFileAttributes.class));
+            return Optional.of(new StoredObject(key, attributes.size(),
+                    attributes.lastModifiedTime().toInstant(), null));
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public Optional<Path> localPath(String key) {
+        Path file = resolve(key);
+        if (Files.isRegularFile(file)) {
+            return Optional.of(file);
+        }
+        if (legacyFallback) {
+            Path legacy = legacyPath(key);
+            if (Files.isRegularFile(legacy)) {
+                return Optional.of(legacy);
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Walks the shard directories in parallel on {@code pool}. Flat-layout files
+     * directly under the root are reported too; temporaries, markers and
+     * directories outside the layout (such as a variants cache) are skipped.
+     */
+    @Override
+    public void forEachKey(ForkJoinPool pool, Consumer<String> visitor) throws IOException {
+        List<Path> shards = new ArrayList<>();
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(root)) {
+            for (Path entry : entries) {
+                String name = entry.getFileName().toString();
+                if (name.startsWith(".")) {
+                    continue;
+                }
+                if (Files.isRegularFile(entry)) {
+                    visitor.accept(name);
+                } else if (sharded && SHARD_NAME.matcher(name).matches() && Files.isDirectory(entry)) {
+                    shards.add(entry);
+                }
+            }
+        }
+        try {
+            pool.submit(() -> shards.parallelStream().forEach(shard -> walkShard(shard, visitor))).join();
+        } catch (UncheckedIOException e) {
+            throw new IOException("Could not list " + root + ": " + e.getMessage(), e);
+        }
+    }
+
+    private static void walkShard(Path shard, Consumer<String> visitor) {
+        try (Stream<Path> files = Files.walk(shard)) {
+            files.forEach(file -> {
+                Path relative = shard.relativize(file);
+                // <shard>/<shard>/<key>; the key itself may contain directories
+                if (relative.getNameCount() < 2 || relative.getFileName().toString().startsWith(".")
+                        || !Files.isRegularFile(file)) {
+                    return;
+                }
+                visitor.accept(relative.subpath(1, relative.getNameCount()).toString());
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Starts moving flat-layout files into their shards in the background, with at
+     * most {@code concurrency} moves in flight. Does nothing when there is nothing
+     * left to migrate.
+     */
+    public synchronized void startMigration(int concurrency) {
+        if (!legacyFallback || migrator != null) {
+            return;
+        }
+        migrator = new FileSystemLayoutMigrator(this, concurrency);
+        migrator.start();
+    }
+
+    @Override
+    public synchronized void close() {
+        if (migrator != null) {
+            migrator.stop();
+        }
+    }
+
+    /** The flat-layout files directly under the root, excluding temporaries and markers. */
+    DirectoryStream<Path> legacyFiles() throws IOException {
+        return Files.newDirectoryStream(root,
+                file -> Files.isRegularFile(file) && !file.getFileName().toString().startsWith("."));
+    }
+
+    /** Moves one flat-layout file into its shard, unless a newer sharded copy already exists. */
+    void migrate(Path legacyFile) throws IOException {
+        String key = legacyFile.getFileName().toString();
+        Path target = resolve(key);
+        Files.createDirectories(target.getParent());
+        ReentrantLock lock = lockFor(key);
+        lock.lock();
+        try {
+            if (Files.exists(target)) {
+                Files.deleteIfExists(legacyFile);
+            } else {
+                Files.move(legacyFile, target, StandardCopyOption.ATOMIC_MOVE);
+            }
+        } catch (NoSuchFileException e) {
+            // Deleted since it was listed
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Records that no flat-layout file is left, so reads stop looking for them. */
+    void completeMigration() throws IOException {
+        Files.write(root.resolve(LAYOUT_MARKER), new byte[0]);
+        legacyFallback = false;
+    }
+
+    private <T> T read(String key, PathReader<T> reader) throws IOException {
+        Path file = resolve(key);
+        try {
+            return reader.read(file);
+        } catch (NoSuchFileException e) {
+            if (!legacyFallback) {
+                throw e;
+            }
+        }
+        try {
+            return reader.read(legacyPath(key));
+        } catch (NoSuchFileException e) {
+            // Migrated between the two attempts
+            return reader.read(file);
+        }
+    }
+
+    private Path resolve(String key) {
+        Path legacy = legacyPath(key);
+        if (!sharded) {
+            return legacy;
+        }
+        String shard = String.format("%08x", shardHash(root.relativize(legacy).toString()));
+        return root.resolve(shard.substring(0, 2)).resolve(shard.substring(2, 4)).resolve(root.relativize(legacy));
+    }
+
+    private Path legacyPath(String key) {
+        Path file = root.resolve(key).normalize();
+        if (!file.startsWith(root) || file.equals(root)) {
+            throw new IllegalArgumentException("Storage key escapes the storage root: " + key);
+        }
+        return file;
+    }
+
+    private ReentrantLock lockFor(String key) {
+        return keyLocks[Math.floorMod(key.hashCode(), keyLocks.length)];
+    }
+
+    // Spreads keys evenly even when they share a prefix, as ObjectId-based names do
+    static int shardHash(String key) {
+        CRC32C crc = new CRC32C();
+        crc.update(key.getBytes(StandardCharsets.UTF_8));
+        return (int) crc.getValue();
+    }
+
+    @FunctionalInterface
+    private interface PathReader<T> {
+        T read(Path file) throws IOException;
+    }
+
+    /** Stops after {@code remaining} bytes; closing it closes the underlying channel. */
+    static final class BoundedInputStream extends FilterInputStream {
+
+        private long remaining;
+
+        BoundedInputStream(InputStream in, long limit) {
+            super(in);
+            this.remaining = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int b = super.read();
+            if (b >= 0) {
+                remaining--;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int n = super.read(b, off, (int) Math.min(len, remaining));
+            if (n > 0) {
+                remaining -= n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(Math.min(n, remaining));
+            remaining -= skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return (int) Math.min(super.available(), remaining);
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package ax.gritlab.buy_01.media.storage;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.NoSuchFileException;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Heap-backed storage for tests and local runs. Contents are lost on restart and
+ * are not shared between instances.
+ */
+public class InMemoryMediaStorage implements MediaStorage {
+
+    private final Map<String, Blob> blobs = new ConcurrentHashMap<>();
+
+    @Override
+    public String put(String key, InputStream content, long size, String contentType) throws IOException {
+        blobs.put(key, new Blob(content.readAllBytes(), contentType, Instant.now()));
+        return key;
+    }
+
+    @Override
+    public InputStream get(String key) throws IOException {
+        return new ByteArrayInputStream(require(key).bytes);
+    }
+
+    @Override
+    public InputStream getRange(String key, long offset, long length) throws IOException {
+        byte[] bytes = require(key).bytes;
+        int from = (int) Math.min(offset, bytes.length);
+        int count = (int) Math.min(length, bytes.length - from);
+        return new ByteArrayInputStream(bytes, from, count);
+    }
+
+    @Override
+    public void delete(String key) {
+        blobs.remove(key);
+    }
+
+    @Override
+    public boolean exists(String key) {
+        return blobs.containsKey(key);
+    }
+
+    @Override
+    public Optional<StoredObject> stat(String key) {
+        Blob blob = blobs.get(key);
+        if (blob == null) {
+            return Optional.empty();
+        }
+        return Optional.of(new StoredObject(key, blob.bytes.length, blob.lastModified, blob.contentType));
+    }
+
+    private Blob require(String key) throws NoSuchFileException {
+        Blob blob = blobs.get(key);
+        if (blob == null) {
+            throw new NoSuchFileException(key);
+        }
+        return blob;
+    }
+
+    private static final class Blob {
+        private final byte[] bytes;
+        private final String contentType;
+        private final Instant lastModified;
+
+        private Blob(byte[] bytes, String contentType, Instant lastModified) {
+            this.bytes = bytes;
+            this.contentType = contentType;
+            this.lastModified = lastModified;
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package ax.gritlab.buy_01.media.storage;
+
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+
+/**
+ * A {@link MediaStorage} that can enumerate the keys it holds, for consistency
+ * scans. Listing is a full walk of the backend and is not a snapshot: objects
+ * written or deleted while it runs may or may not be reported.
+ */
+public interface ListableMediaStorage extends MediaStorage {
+
+    /**
+     * Calls {@code visitor} with the key of every stored object, possibly from
+     * several threads of {@code pool} at once. Keys are reported in no particular order.
+     */
+    void forEachKey(ForkJoinPool pool, Consumer<String> visitor) throws IOException;
+
+    /**
+     * The part of {@code key} naming the object regardless of where the backend
+     * placed it; two keys for the same object have the same name.
+     */
+    default String objectName(String key) {
+        return key;
+    }
+}
@@ -0,0 +1,47 @@
+package ax.gritlab.buy_01.media.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Optional;
+
+/**
+ * Byte storage behind media-service. Implementations hold the image bytes only;
+ * metadata lives in the {@code Media} documents, which persist the key returned
+ * by {@link #put}.
+ *
+ * <p>Reads of a missing key throw {@link java.nio.file.NoSuchFileException}.
+ * Implementations must be safe for concurrent use.
+ */
+public interface MediaStorage {
+
+    /**
+     * Stores {@code content} under {@code key}, replacing any existing object.
+     *
+     * @param size the content length, or -1 if unknown
+     * @return the key to persist; backends may qualify the requested key
+     */
+    String put(String key, InputStream content, long size, String contentType) throws IOException;
+
+    InputStream get(String key) throws IOException;
+
+    /** Streams {@code length} bytes starting at {@code offset}. */
+    InputStream getRange(String key, long offset, long length) throws IOException;
+
+    /** Removes the object; deleting a missing key is not an error. */
+    void delete(String key) throws IOException;
+
+    boolean exists(String key);
+
+    Optional<StoredObject> stat(String key) throws IOException;
+
+    /** The object as a local file, for backends that keep one; enables file-based serving. */
+    default Optional<Path> localPath(String key) {
+        return Optional.empty();
+    }
+
+    /** Bytes that can still be written, or -1 when the backend cannot tell (remote stores). */
+    default long usableSpace() {
+        return -1;
+    }
+}
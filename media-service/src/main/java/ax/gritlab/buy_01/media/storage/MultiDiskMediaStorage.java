@@ -0,0 +1,360 @@
+package ax.gritlab.buy_01.media.storage;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.FileStore;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+
+/**
+ * Stripes objects over several local disks, each a {@link FileSystemMediaStorage}.
+ * {@link #put} returns {@code <disk>/<key>}, so the disk an object lives on is
+ * recorded in {@code Media.filePath}; keys without a known disk prefix (files
+ * stored before striping) are looked up on every disk.
+ *
+ * <p>New objects go to a writable disk with enough free space, chosen by smooth
+ * weighted round-robin or by most free space. A disk that turns read-only or
+ * full is skipped for writes until {@code recheckInterval} has passed; its
+ * objects stay readable. Reads of a prefixed key that is not on its disk fall
+ * back to the other disks, which keeps stale cached keys working while
+ * {@link #move} rebalances.
+ */
+@Slf4j
+public class MultiDiskMediaStorage implements ListableMediaStorage, AutoCloseable {
+
+    public enum Placement {
+        WEIGHTED_ROUND_ROBIN, MOST_FREE
+    }
+
+    private final Map<String, Disk> disks;
+    private final Placement placement;
+    private final long minFreeBytes;
+    private final long recheckNanos;
+
+    public MultiDiskMediaStorage(List<Disk> disks, Placement placement, long minFreeBytes, Duration recheckInterval) {
+        if (disks.isEmpty()) {
+            throw new IllegalArgumentException("At least one disk is required");
+        }
+        Map<String, Disk> byName = new LinkedHashMap<>();
+        for (Disk disk : disks) {
+            if (byName.put(disk.name, disk) != null) {
+                throw new IllegalArgumentException("Duplicate disk name: " + disk.name);
+            }
+        }
+        this.disks = Collections.unmodifiableMap(byName);
+        this.placement = placement;
+        this.minFreeBytes = minFreeBytes;
+        this.recheckNanos = recheckInterval.toNanos();
+    }
+
+    public List<Disk> getDisks() {
+        return new ArrayList<>(disks.values());
+    }
+
+    // An upload lands on one disk, so the roomiest writable disk is what counts
+    @Override
+    public long usableSpace() {
+        long best = 0;
+        for (Disk disk : disks.values()) {
+            if (disk.isWritable()) {
+                best = Math.max(best, disk.usableSpace() - minFreeBytes);
+            }
+        }
+        return best;
+    }
+
+    @Override
+    public String put(String key, InputStream content, long size, String contentType) throws IOException {
+        Disk disk = choose(size, null);
+        try {
+            disk.storage.put(key, content, size, contentType);
+        } catch (IOException e) {
+            // The stream is consumed, so the upload fails; the next one avoids this disk
+            disk.checkWritable(minFreeBytes, recheckNanos);
+            throw e;
+        }
+        return qualify(disk, key);
+    }
+
+    @Override
+    public InputStream get(String key) throws IOException {
+        return read(key, (storage, inner) -> storage.get(inner));
+    }
+
+    @Override
+    public InputStream getRange(String key, long offset, long length) throws IOException {
+        return read(key, (storage, inner) -> storage.getRange(inner, offset, length));
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        Disk disk = diskOf(key);
+        if (disk != null) {
+            disk.storage.delete(innerKey(key));
+        } else {
+            for (Disk candidate : disks.values()) {
+                candidate.storage.delete(key);
+            }
+        }
+    }
+
+    @Override
+    public boolean exists(String key) {
+        return localPath(key).isPresent();
+    }
+
+    @Override
+    public Optional<StoredObject> stat(String key) throws IOException {
+        try {
+            return Optional.of(read(key, (storage, inner) -> storage.stat(inner)
+                    .orElseThrow(() -> new NoSuchFileException(inner))));
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public Optional<Path> localPath(String key) {
+        for (Disk disk : lookupOrder(key)) {
+            Optional<Path> file = disk.storage.localPath(innerKey(key));
+            if (file.isPresent()) {
+                return file;
+            }
+        }
+        return Optional.empty();
+    }
+
+    /** The disk holding {@code key}, or empty if it is on none. */
+    public Optional<Disk> locate(String key) {
+        for (Disk disk : lookupOrder(key)) {
+            if (disk.storage.exists(innerKey(key))) {
+                return Optional.of(disk);
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Copies {@code key} to disk {@code target} and returns the new key. The
+     * source copy is left in place; delete it once nothing refers to the old key.
+     */
+    public String move(String key, Disk target) throws IOException {
+        String inner = innerKey(key);
+        Disk source = locate(key).orElseThrow(() -> new NoSuchFileException(key));
+        if (source == target) {
+            return qualify(target, inner);
+        }
+        long size = source.storage.stat(inner).map(StoredObject::getSize).orElse(-1L);
+        try (InputStream in = source.storage.get(inner)) {
+            target.storage.put(inner, in, size, null);
+        }
+        return qualify(target, inner);
+    }
+
+    /** Lists every disk in turn; keys are qualified with the disk they were found on. */
+    @Override
+    public void forEachKey(ForkJoinPool pool, Consumer<String> visitor) throws IOException {
+        for (Disk disk : disks.values()) {
+            disk.storage.forEachKey(pool, key -> visitor.accept(qualify(disk, key)));
+        }
+    }
+
+    /** The key without its disk, so an unqualified key and any disk's copy of it match. */
+    @Override
+    public String objectName(String key) {
+        return innerKey(key);
+    }
+
+    @Override
+    public void close() {
+        for (Disk disk : disks.values()) {
+            disk.storage.close();
+        }
+    }
+
+    /** Picks the disk for an object of {@code size} bytes, never {@code excluded}. */
+    synchronized Disk choose(long size, Disk excluded) throws IOException {
+        long needed = Math.max(0, size) + minFreeBytes;
+        List<Disk> candidates = new ArrayList<>(disks.size());
+        for (Disk disk : disks.values()) {
+            if (disk != excluded && disk.acceptsWrites(needed, minFreeBytes, recheckNanos)) {
+                candidates.add(disk);
+            }
+        }
+        if (candidates.isEmpty()) {
+            throw new IOException("No writable disk with " + needed + " bytes free");
+        }
+        if (placement == Placement.MOST_FREE) {
+            Disk best = candidates.get(0);
+            for (Disk disk : candidates) {
+                if ((double) disk.usableSpace() * disk.weight > (double) best.usableSpace() * best.weight) {
+                    best = disk;
+                }
+            }
+            return best;
+        }
+        // Smooth weighted round-robin: even interleaving, proportional to weight
+        int total = 0;
+        Disk best = null;
+        for (Disk disk : candidates) {
+            disk.currentWeight += disk.weight;
+            total += disk.weight;
+            if (best == null || disk.currentWeight > best.currentWeight) {
+                best = disk;
+            }
+        }
+        best.currentWeight -= total;
+        return best;
+    }
+
+    Disk disk(String name) {
+        return disks.get(name);
+    }
+
+    private <T> T read(String key, DiskReader<T> reader) throws IOException {
+        String inner = innerKey(key);
+        NoSuchFileException missing = null;
+        for (Disk disk : lookupOrder(key)) {
+            try {
+                return reader.read(disk.storage, inner);
+            } catch (NoSuchFileException e) {
+                missing = e;
+            }
+        }
+        throw missing != null ? missing : new NoSuchFileException(key);
+    }
+
+    // The recorded disk first, then the others
+    private List<Disk> lookupOrder(String key) {
+        Disk recorded = diskOf(key);
+        List<Disk> order = new ArrayList<>(disks.size());
+        if (recorded != null) {
+            order.add(recorded);
+        }
+        for (Disk disk : disks.values()) {
+            if (disk != recorded) {
+                order.add(disk);
+            }
+        }
+        return order;
+    }
+
+    private Disk diskOf(String key) {
+        int slash = key.indexOf('/');
+        return slash > 0 ? disks.get(key.substring(0, slash)) : null;
+    }
+
+    private String innerKey(String key) {
+        return diskOf(key) != null ? key.substring(key.indexOf('/') + 1) : key;
+    }
+
+    private static String qualify(Disk disk, String key) {
+        return disk.name + "/" + key;
+    }
+
+    @FunctionalInterface
+    private interface DiskReader<T> {
+        T read(FileSystemMediaStorage storage, String innerKey) throws IOException;
+    }
+
+    /** One data disk: a storage root, its placement weight and its write health. */
+    public static final class Disk {
+        private final String name;
+        private final int weight;
+        private final FileSystemMediaStorage storage;
+        private final FileStore store;
+        private int currentWeight; // guarded by the owning storage
+        private volatile boolean unavailable;
+        private volatile long recheckAt; // System.nanoTime() after which an unavailable disk is probed again
+
+        public Disk(String name, int weight, FileSystemMediaStorage storage) throws IOException {
+            if (weight <= 0) {
+                throw new IllegalArgumentException("Disk weight must be positive: " + name);
+            }
+            this.name = name;
+            this.weight = weight;
+            this.storage = storage;
+            this.store = Files.getFileStore(storage.getRoot());
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getWeight() {
+            return weight;
+        }
+
+        public Path getRoot() {
+            return storage.getRoot();
+        }
+
+        public boolean isWritable() {
+            return !backingOff() && Files.isWritable(storage.getRoot());
+        }
+
+        public long usableSpace() {
+            try {
+                return store.getUsableSpace();
+            } catch (IOException e) {
+                return 0;
+            }
+        }
+
+        public long totalSpace() {
+            try {
+                return store.getTotalSpace();
+            } catch (IOException e) {
+                return 0;
+            }
+        }
+
+        /** Share of the disk in use, 0 to 1. */
+        public double fillRatio() {
+            long total = totalSpace();
+            return total <= 0 ? 1.0 : 1.0 - (double) usableSpace() / total;
+        }
+
+        FileSystemMediaStorage storage() {
+            return storage;
+        }
+
+        private boolean acceptsWrites(long needed, long minFreeBytes, long recheckNanos) {
+            if (backingOff()) {
+                return false;
+            }
+            if (!Files.isWritable(storage.getRoot()) || usableSpace() < needed) {
+                // Re-probing a full or read-only disk on every upload would only add latency
+                checkWritable(minFreeBytes, recheckNanos);
+                return false;
+            }
+            return true;
+        }
+
+        private void checkWritable(long minFreeBytes, long recheckNanos) {
+            if (!Files.isWritable(storage.getRoot()) || usableSpace() < minFreeBytes) {
+                recheckAt = System.nanoTime() + recheckNanos;
+                unavailable = true;
+                log.warn("Disk {} at {} is read-only or full; skipping it for writes", name, storage.getRoot());
+            } else {
+                unavailable = false;
+            }
+        }
+
+        private boolean backingOff() {
+            return unavailable && System.nanoTime() - recheckAt < 0;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package ax.gritlab.buy_01.media.storage;
+
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.CreateBucketRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadBucketRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.NoSuchFileException;
+import java.util.Optional;
+
+/**
+ * Stores objects in an S3-compatible bucket (AWS S3, MinIO, Ceph RGW), so every
+ * media-service instance sees the same bytes.
+ */
+public class S3MediaStorage implements MediaStorage, AutoCloseable {
+
+    private static final int NOT_FOUND = 404;
+
+    private final S3Client s3;
+    private final String bucket;
+    private final String keyPrefix;
+
+    public S3MediaStorage(S3Client s3, String bucket, String keyPrefix) {
+        this.s3 = s3;
+        this.bucket = bucket;
+        this.keyPrefix = keyPrefix == null ? "" : keyPrefix;
+    }
+
+    /** Creates the bucket when it does not exist yet; meant for local MinIO setups. */
+    public void createBucketIfMissing() {
+        try {
+            s3.headBucket(HeadBucketRequest.builder().bucket(bucket).build());
+        } catch (S3Exception e) {
+            if (e.statusCode() != NOT_FOUND) {
+                throw e;
+            }
+            s3.createBucket(CreateBucketRequest.builder().bucket(bucket).build());
+        }
+    }
+
+    @Override
+    public String put(String key, InputStream content, long size, String contentType) throws IOException {
+        PutObjectRequest request = PutObjectRequest.builder()
+                .bucket(bucket)
+                .key(objectKey(key))
+                .contentType(contentType)
+                .build();
+        // S3 needs the length up front; unknown sizes are bounded by the upload limit, so buffer them
+        RequestBody body = size >= 0
+                ? RequestBody.fromInputStream(content, size)
+                : RequestBody.fromBytes(content.readAllBytes());
+        try {
+            s3.putObject(request, body);
+        } catch (S3Exception e) {
+            throw new IOException("Failed to store " + key + " in bucket " + bucket, e);
+        }
+        return key;
+    }
+
+    @Override
+    public InputStream get(String key) throws IOException {
+        return fetch(key, GetObjectRequest.builder().bucket(bucket).key(objectKey(key)).build());
+    }
+
+    @Override
+    public InputStream getRange(String key, long offset, long length) throws IOException {
+        if (length <= 0) {
+            return InputStream.nullInputStream();
+        }
+        return fetch(key, GetObjectRequest.builder()
+                .bucket(bucket)
+                .key(objectKey(key))
+                .range("bytes=" + offset + "-" + (offset + length - 1))
+                .build());
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        try {
+            s3.deleteObject(DeleteObjectRequest.builder().bucket(bucket).key(objectKey(key)).build());
+        } catch (S3Exception e) {
+            if (e.statusCode() != NOT_FOUND) {
+                throw new IOException("Failed to delete " + key + " from bucket " + bucket, e);
+            }
+        }
+    }
+
+    @Override
+    public boolean exists(String key) {
+        try {
+            return stat(key).isPresent();
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public Optional<StoredObject> stat(String key) throws IOException {
+        try {
+            HeadObjectResponse head = s3.headObject(
+                    HeadObjectRequest.builder().bucket(bucket).key(objectKey(key)).build());
+            return Optional.of(new StoredObject(key, head.contentLength(), head.lastModified(), head.contentType()));
+        } catch (S3Exception e) {
+            if (e.statusCode() == NOT_FOUND) {
+                return Optional.empty();
+            }
+            throw new IOException("Failed to stat " + key + " in bucket " + bucket, e);
+        }
+    }
+
+    private InputStream fetch(String key, GetObjectRequest request) throws IOException {
+        try {
+            return s3.getObject(request);
+        } catch (S3Exception e) {
+            if (e.statusCode() == NOT_FOUND) {
+                throw new NoSuchFileException(key);
+            }
+            throw new IOException("Failed to read " + key + " from bucket " + bucket, e);
+        }
+    }
+
+    @Override
+    public void close() {
+        s3.close();
+    }
+
+    private String objectKey(String key) {
+        return keyPrefix + key;
+    }
+}
@@ -0,0 +1,15 @@
+package ax.gritlab.buy_01.media.storage;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.Instant;
+
+@Data
+@AllArgsConstructor
+public class StoredObject {
+    private String key;
+    private long size;
+    private Instant lastModified;
+    private String contentType; // null when the backend does not keep it
+}
@@ -0,0 +1,434 @@
+package ax.gritlab.buy_01.media.storage;
+
+import ax.gritlab.buy_01.media.storage.VolumeSegment.Needle;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Haystack-style volume store: images are appended as needles to large segment
+ * files instead of one file each, so millions of small images cost a handful of
+ * inodes. An in-memory index maps each key to its needle, so a read is one index
+ * lookup plus one positioned read.
+ *
+ * <p>The index is snapshotted to {@code index.snapshot} on shutdown and after each
+ * compaction; on startup the snapshot is loaded and only the segment tail written
+ * after it is replayed. Without a usable snapshot the index is rebuilt by scanning
+ * every segment. Deletes append a tombstone; sealed segments whose dead-byte ratio
+ * crosses the compaction threshold have their live needles copied forward and are
+ * then removed.
+ */
+@Slf4j
+public class VolumeMediaStorage implements MediaStorage, AutoCloseable {
+
+    private static final Pattern SEGMENT_NAME = Pattern.compile("volume-(\\d+)\\.dat");
+    private static final String SNAPSHOT_FILE = "index.snapshot";
+    private static final int SNAPSHOT_MAGIC = 0x56494458; // "VIDX"
+    private static final int SNAPSHOT_VERSION = 1;
+
+    private final Path directory;
+    private final long segmentSize;
+    private final boolean fsync;
+
+    private final ConcurrentMap<String, Needle> index = new ConcurrentHashMap<>();
+    private final ConcurrentNavigableMap<Integer, VolumeSegment> segments = new ConcurrentSkipListMap<>();
+    // Serializes appends, tombstones and compaction copies; reads never take it
+    private final ReentrantLock appendLock = new ReentrantLock();
+    // Read-held around every positioned read, write-held only while a compacted segment is dropped
+    private final ReentrantReadWriteLock segmentLock = new ReentrantReadWriteLock();
+    private volatile VolumeSegment active;
+    private ScheduledExecutorService compactor;
+
+    public VolumeMediaStorage(Path directory, long segmentSize, boolean fsync) throws IOException {
+        this.directory = directory.toAbsolutePath().normalize();
+        this.segmentSize = segmentSize;
+        this.fsync = fsync;
+        Files.createDirectories(this.directory);
+        openSegments();
+        if (!loadSnapshot()) {
+            rebuildIndex();
+        }
+        log.info("Opened media volume {}: {} segments, {} needles", this.directory, segments.size(), index.size());
+    }
+
+    @Override
+    public long usableSpace() {
+        try {
+            return Files.getFileStore(directory).getUsableSpace();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    /** Starts background compaction of sealed segments with at least {@code deadRatio} reclaimable bytes. */
+    public void startCompaction(Duration interval, double deadRatio) {
+        compactor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "media-volume-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        compactor.scheduleWithFixedDelay(() -> {
+            try {
+                compact(deadRatio);
+            } catch (Exception e) {
+                log.error("Media volume compaction failed", e);
+            }
+        }, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public String put(String key, InputStream content, long size, String contentType) throws IOException {
+        // Needles are small images bounded by the upload limit, so they are encoded in one buffer
+        byte[] data = content.readAllBytes();
+        long createdAt = System.currentTimeMillis();
+        ByteBuffer needle = VolumeSegment.encode(VolumeSegment.PUT, key, contentType, createdAt, data);
+        appendLock.lock();
+        try {
+            append(needle, key, contentType, createdAt, data.length);
+        } finally {
+            appendLock.unlock();
+        }
+        return key;
+    }
+
+    @Override
+    public InputStream get(String key) throws IOException {
+        return new ByteArrayInputStream(read(key, 0, Long.MAX_VALUE));
+    }
+
+    @Override
+    public InputStream getRange(String key, long offset, long length) throws IOException {
+        return new ByteArrayInputStream(read(key, offset, length));
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        appendLock.lock();
+        try {
+            Needle previous = index.get(key);
+            if (previous == null) {
+                return;
+            }
+            ByteBuffer tombstone = VolumeSegment.encode(VolumeSegment.TOMBSTONE, key, null,
+                    System.currentTimeMillis(), null);
+            segmentFor(tombstone.remaining()).append(tombstone, fsync);
+            index.remove(key);
+            release(previous);
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean exists(String key) {
+        return index.containsKey(key);
+    }
+
+    @Override
+    public Optional<StoredObject> stat(String key) {
+        Needle needle = index.get(key);
+        if (needle == null) {
+            return Optional.empty();
+        }
+        return Optional.of(new StoredObject(key, needle.dataLength,
+                Instant.ofEpochMilli(needle.createdAt), needle.contentType));
+    }
+
+    /**
+     * Compacts every sealed segment whose reclaimable share is at least {@code deadRatio}.
+     *
+     * @return the number of segments removed
+     */
+    public int compact(double deadRatio) throws IOException {
+        int compacted = 0;
+        for (VolumeSegment segment : new ArrayList<>(segments.values())) {
+            long size = segment.size();
+            if (segment == active || size == 0) {
+                continue;
+            }
+            double dead = 1.0 - (double) segment.liveBytes.get() / size;
+            if (dead >= deadRatio) {
+                compactSegment(segment);
+                compacted++;
+            }
+        }
+        if (compacted > 0) {
+            writeSnapshot();
+        }
+        return compacted;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (compactor != null) {
+            // Not shutdownNow: interrupting a thread inside FileChannel I/O closes the channel
+            compactor.shutdown();
+            try {
+                compactor.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        writeSnapshot();
+        for (VolumeSegment segment : segments.values()) {
+            segment.close();
+        }
+    }
+
+    private byte[] read(String key, long offset, long length) throws IOException {
+        segmentLock.readLock().lock();
+        try {
+            Needle needle = index.get(key);
+            if (needle == null) {
+                throw new NoSuchFileException(key);
+            }
+            long from = Math.min(offset, needle.dataLength);
+            int count = (int) Math.min(length, needle.dataLength - from);
+            ByteBuffer data = ByteBuffer.allocate(count);
+            segments.get(needle.segmentId).read(data, needle.dataOffset + from);
+            return data.array();
+        } finally {
+            segmentLock.readLock().unlock();
+        }
+    }
+
+    private void append(ByteBuffer encoded, String key, String contentType, long createdAt, long dataLength)
+            throws IOException {
+        long size = encoded.remaining();
+        VolumeSegment segment = segmentFor(size);
+        long offset = segment.append(encoded, fsync);
+        Needle needle = new Needle(VolumeSegment.PUT, key, contentType, createdAt, segment.id, offset, size,
+                offset + size - dataLength, dataLength);
+        segment.liveBytes.addAndGet(size);
+        release(index.put(key, needle));
+    }
+
+    private VolumeSegment segmentFor(long needleSize) throws IOException {
+        VolumeSegment current = active;
+        if (current.size() > 0 && current.size() + needleSize > segmentSize) {
+            current = createSegment(current.id + 1);
+            active = current;
+        }
+        return current;
+    }
+
+    private void release(Needle previous) {
+        if (previous != null) {
+            VolumeSegment segment = segments.get(previous.segmentId);
+            if (segment != null) {
+                segment.liveBytes.addAndGet(-previous.size);
+            }
+        }
+    }
+
+    private void compactSegment(VolumeSegment segment) throws IOException {
+        // Tombstones only matter while an older segment may still hold the needle they cancel
+        boolean keepTombstones = segments.firstKey() < segment.id;
+        segment.scan(0, false, needle -> {
+            appendLock.lock();
+            try {
+                Needle live = index.get(needle.key);
+                if (needle.type == VolumeSegment.PUT) {
+                    if (live != null && live.segmentId == segment.id && live.offset == needle.offset) {
+                        ByteBuffer data = ByteBuffer.allocate((int) needle.dataLength);
+                        segment.read(data, needle.dataOffset);
+                        append(VolumeSegment.encode(VolumeSegment.PUT, needle.key, needle.contentType,
+                                needle.createdAt, data.array()), needle.key, needle.contentType,
+                                needle.createdAt, needle.dataLength);
+                    }
+                } else if (keepTombstones && live == null) {
+                    segmentFor(needle.size).append(VolumeSegment.encode(VolumeSegment.TOMBSTONE, needle.key,
+                            null, needle.createdAt, null), fsync);
+                }
+            } finally {
+                appendLock.unlock();
+            }
+        });
+
+        segmentLock.writeLock().lock();
+        try {
+            segments.remove(segment.id);
+            segment.close();
+            Files.deleteIfExists(segment.path);
+        } finally {
+            segmentLock.writeLock().unlock();
+        }
+        log.info("Compacted media volume segment {}", segment.path.getFileName());
+    }
+
+    private void openSegments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Matcher matcher = SEGMENT_NAME.matcher(file.getFileName().toString());
+                if (matcher.matches()) {
+                    int id = Integer.parseInt(matcher.group(1));
+                    segments.put(id, VolumeSegment.open(id, file));
+                }
+            }
+        }
+        active = segments.isEmpty() ? createSegment(1) : segments.lastEntry().getValue();
+    }
+
+    private VolumeSegment createSegment(int id) throws IOException {
+        VolumeSegment segment = VolumeSegment.open(id, directory.resolve(String.format("volume-%05d.dat", id)));
+        segments.put(id, segment);
+        return segment;
+    }
+
+    private void rebuildIndex() throws IOException {
+        index.clear();
+        segments.values().forEach(segment -> segment.liveBytes.set(0));
+        for (VolumeSegment segment : segments.values()) {
+            replay(segment, 0);
+        }
+    }
+
+    // Applies needles in append order; only the active segment can end in a torn write
+    private void replay(VolumeSegment segment, long from) throws IOException {
+        boolean last = segment == active;
+        long end = segment.scan(from, last, needle -> {
+            if (needle.type == VolumeSegment.PUT) {
+                segment.liveBytes.addAndGet(needle.size);
+                release(index.put(needle.key, needle));
+            } else {
+                release(index.remove(needle.key));
+            }
+        });
+        if (end < segment.size()) {
+            if (last) {
+                log.warn("Truncating torn tail of {} at offset {}", segment.path.getFileName(), end);
+                segment.truncate(end);
+            } else {
+                log.error("Segment {} is corrupt after offset {}; needles past it are unreachable",
+                        segment.path.getFileName(), end);
+            }
+        }
+    }
+
+    private void writeSnapshot() throws IOException {
+        Map<String, Needle> entries;
+        int activeId;
+        long highWater;
+        appendLock.lock();
+        try {
+            entries = new HashMap<>(index);
+            activeId = active.id;
+            highWater = active.size();
+        } finally {
+            appendLock.unlock();
+        }
+
+        Path snapshot = directory.resolve(SNAPSHOT_FILE);
+        Path temp = directory.resolve(SNAPSHOT_FILE + ".tmp");
+        CRC32 checksum = new CRC32();
+        try (OutputStream file = new BufferedOutputStream(Files.newOutputStream(temp));
+                DataOutputStream out = new DataOutputStream(new CheckedOutputStream(file, checksum))) {
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(SNAPSHOT_VERSION);
+            out.writeInt(activeId);
+            out.writeLong(highWater);
+            out.writeInt(entries.size());
+            for (Needle needle : entries.values()) {
+                out.writeUTF(needle.key);
+                out.writeUTF(needle.contentType == null ? "" : needle.contentType);
+                out.writeLong(needle.createdAt);
+                out.writeInt(needle.segmentId);
+                out.writeLong(needle.offset);
+                out.writeLong(needle.size);
+                out.writeLong(needle.dataLength);
+            }
+            out.flush();
+            // Trailer sits outside the checksummed stream
+            new DataOutputStream(file).writeLong(checksum.getValue());
+        }
+        Files.move(temp, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private boolean loadSnapshot() {
+        Path snapshot = directory.resolve(SNAPSHOT_FILE);
+        if (!Files.exists(snapshot)) {
+            return false;
+        }
+        try {
+            byte[] bytes = Files.readAllBytes(snapshot);
+            CRC32 checksum = new CRC32();
+            checksum.update(bytes, 0, bytes.length - Long.BYTES);
+            if (checksum.getValue() != ByteBuffer.wrap(bytes, bytes.length - Long.BYTES, Long.BYTES).getLong()) {
+                throw new IOException("checksum mismatch");
+            }
+
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes, 0, bytes.length - Long.BYTES));
+            if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != SNAPSHOT_VERSION) {
+                throw new IOException("unknown snapshot format");
+            }
+            int activeId = in.readInt();
+            long highWater = in.readLong();
+            VolumeSegment snapshotActive = segments.get(activeId);
+            if (snapshotActive == null || highWater > snapshotActive.size()) {
+                throw new IOException("snapshot is ahead of segment " + activeId);
+            }
+
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String key = in.readUTF();
+                String contentType = in.readUTF();
+                long createdAt = in.readLong();
+                int segmentId = in.readInt();
+                long offset = in.readLong();
+                long size = in.readLong();
+                long dataLength = in.readLong();
+                VolumeSegment segment = segments.get(segmentId);
+                if (segment == null || offset + size > segment.size()) {
+                    throw new IOException("snapshot references missing data in segment " + segmentId);
+                }
+                segment.liveBytes.addAndGet(size);
+                index.put(key, new Needle(VolumeSegment.PUT, key, contentType.isEmpty() ? null : contentType,
+                        createdAt, segmentId, offset, size, offset + size - dataLength, dataLength));
+            }
+
+            // Needles appended after the snapshot was taken
+            replay(snapshotActive, highWater);
+            for (VolumeSegment segment : segments.tailMap(activeId, false).values()) {
+                replay(segment, 0);
+            }
+            return true;
+        } catch (IOException | RuntimeException e) {
+            log.warn("Ignoring media volume snapshot {} ({}); rebuilding index from segments",
+                    snapshot, e.getMessage());
+            index.clear();
+            segments.values().forEach(segment -> segment.liveBytes.set(0));
+            return false;
+        }
+    }
+}
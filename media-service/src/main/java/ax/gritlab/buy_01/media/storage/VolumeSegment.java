@@ -0,0 +1,214 @@
+package ax.gritlab.buy_01.media.storage;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+/**
+ * One append-only segment file of a {@link VolumeMediaStorage}. A segment is a
+ * sequence of needles, each a self-describing record:
+ *
+ * <pre>
+ * magic:int type:byte keyLength:u16 contentTypeLength:u16 createdAt:long
+ * dataLength:long dataCrc:int key contentType data
+ * </pre>
+ *
+ * Tombstones are needles of type {@link #TOMBSTONE} without data. Appends are
+ * serialized by the owning volume; positioned reads may run concurrently.
+ */
+final class VolumeSegment implements Closeable {
+
+    static final byte PUT = 1;
+    static final byte TOMBSTONE = 2;
+
+    private static final int MAGIC = 0x4D454449; // "MEDI"
+    static final int FIXED_HEADER = 4 + 1 + 2 + 2 + 8 + 8 + 4;
+    private static final int MAX_FIELD = 0xFFFF;
+
+    final int id;
+    final Path path;
+    private final FileChannel channel;
+    private volatile long size;
+    // Bytes of needles still referenced by the index; the rest is reclaimable
+    final AtomicLong liveBytes = new AtomicLong();
+
+    private VolumeSegment(int id, Path path, FileChannel channel) throws IOException {
+        this.id = id;
+        this.path = path;
+        this.channel = channel;
+        this.size = channel.size();
+    }
+
+    static VolumeSegment open(int id, Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        return new VolumeSegment(id, path, channel);
+    }
+
+    long size() {
+        return size;
+    }
+
+    /** Appends an encoded needle and returns its offset; callers hold the volume's append lock. */
+    long append(ByteBuffer needle, boolean fsync) throws IOException {
+        long offset = size;
+        long position = offset;
+        while (needle.hasRemaining()) {
+            position += channel.write(needle, position);
+        }
+        if (fsync) {
+            channel.force(false);
+        }
+        size = position;
+        return offset;
+    }
+
+    /** Fills {@code target} from {@code position} with positioned reads. */
+    void read(ByteBuffer target, long position) throws IOException {
+        long at = position;
+        while (target.hasRemaining()) {
+            int n = channel.read(target, at);
+            if (n < 0) {
+                throw new EOFException("Unexpected end of segment " + path + " at " + at);
+            }
+            at += n;
+        }
+        target.flip();
+    }
+
+    void truncate(long length) throws IOException {
+        channel.truncate(length);
+        channel.force(true);
+        size = length;
+    }
+
+    /**
+     * Visits needles from {@code from} until the end of the segment or the first
+     * needle that is incomplete or corrupt.
+     *
+     * @return the offset just past the last valid needle
+     */
+    long scan(long from, boolean verifyData, NeedleVisitor visitor) throws IOException {
+        long position = from;
+        long end = channel.size();
+        while (position < end) {
+            Needle needle = readNeedle(position, end, verifyData);
+            if (needle == null) {
+                break;
+            }
+            visitor.accept(needle);
+            position += needle.size;
+        }
+        return position;
+    }
+
+    private Needle readNeedle(long offset, long end, boolean verifyData) throws IOException {
+        if (end - offset < FIXED_HEADER) {
+            return null;
+        }
+        ByteBuffer header = ByteBuffer.allocate(FIXED_HEADER);
+        read(header, offset);
+        if (header.getInt() != MAGIC) {
+            return null;
+        }
+        byte type = header.get();
+        int keyLength = header.getShort() & MAX_FIELD;
+        int contentTypeLength = header.getShort() & MAX_FIELD;
+        long createdAt = header.getLong();
+        long dataLength = header.getLong();
+        int crc = header.getInt();
+        long dataOffset = offset + FIXED_HEADER + keyLength + contentTypeLength;
+        if ((type != PUT && type != TOMBSTONE) || dataLength < 0 || dataOffset + dataLength > end) {
+            return null;
+        }
+
+        ByteBuffer names = ByteBuffer.allocate(keyLength + contentTypeLength);
+        read(names, offset + FIXED_HEADER);
+        String key = new String(names.array(), 0, keyLength, StandardCharsets.UTF_8);
+        String contentType = contentTypeLength == 0 ? null
+                : new String(names.array(), keyLength, contentTypeLength, StandardCharsets.UTF_8);
+
+        if (verifyData && dataLength > 0) {
+            ByteBuffer data = ByteBuffer.allocate((int) dataLength);
+            read(data, dataOffset);
+            CRC32 checksum = new CRC32();
+            checksum.update(data);
+            if ((int) checksum.getValue() != crc) {
+                return null;
+            }
+        }
+        return new Needle(type, key, contentType, createdAt, id, offset,
+                dataOffset - offset + dataLength, dataOffset, dataLength);
+    }
+
+    static ByteBuffer encode(byte type, String key, String contentType, long createdAt, byte[] data) {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        byte[] contentTypeBytes = contentType == null ? new byte[0] : contentType.getBytes(StandardCharsets.UTF_8);
+        if (keyBytes.length > MAX_FIELD || contentTypeBytes.length > MAX_FIELD) {
+            throw new IllegalArgumentException("Key or content type too long for a volume needle: " + key);
+        }
+        int dataLength = data == null ? 0 : data.length;
+        CRC32 checksum = new CRC32();
+        if (data != null) {
+            checksum.update(data);
+        }
+
+        ByteBuffer needle = ByteBuffer.allocate(FIXED_HEADER + keyBytes.length + contentTypeBytes.length + dataLength);
+        needle.putInt(MAGIC)
+                .put(type)
+                .putShort((short) keyBytes.length)
+                .putShort((short) contentTypeBytes.length)
+                .putLong(createdAt)
+                .putLong(dataLength)
+                .putInt((int) checksum.getValue())
+                .put(keyBytes)
+                .put(contentTypeBytes);
+        if (data != null) {
+            needle.put(data);
+        }
+        return needle.flip();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    @FunctionalInterface
+    interface NeedleVisitor {
+        void accept(Needle needle) throws IOException;
+    }
+
+    /** Location and metadata of one needle; index entries are the PUT needles. */
+    static final class Needle {
+        final byte type;
+        final String key;
+        final String contentType;
+        final long createdAt;
+        final int segmentId;
+        final long offset;
+        final long size;
+        final long dataOffset;
+        final long dataLength;
+
+        Needle(byte type, String key, String contentType, long createdAt, int segmentId, long offset,
+                long size, long dataOffset, long dataLength) {
+            this.type = type;
+            this.key = key;
+            this.contentType = contentType;
+            this.createdAt = createdAt;
+            this.segmentId = segmentId;
+            this.offset = offset;
+            this.size = size;
+            this.dataOffset = dataOffset;
+            this.dataLength = dataLength;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package ax.gritlab.buy_01.media.variant;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * BlurHash encoder (https://blurha.sh): a few DCT components of an image packed
+ * into a short base-83 string that clients decode into a blurred placeholder.
+ * The cost grows with the pixel count, so callers pass an image already scaled
+ * down to a few dozen pixels a side.
+ */
+public final class BlurHash {
+
+    public static final int MAX_COMPONENTS = 9;
+
+    private static final String DIGITS =
+            "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz#$%*+,-.:;=?@[]^_{|}~";
+
+    private BlurHash() {
+    }
+
+    /** Encodes {@code image} with {@code componentsX} by {@code componentsY} components (1 to 9 each). */
+    public static String encode(BufferedImage image, int componentsX, int componentsY) {
+        if (componentsX < 1 || componentsX > MAX_COMPONENTS || componentsY < 1 || componentsY > MAX_COMPONENTS) {
+            throw new IllegalArgumentException("BlurHash components must be between 1 and " + MAX_COMPONENTS);
+        }
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int[] pixels = image.getRGB(0, 0, width, height, null, 0, width);
+        double[][] linear = new double[3][pixels.length];
+        for (int i = 0; i < pixels.length; i++) {
+            linear[0][i] = toLinear((pixels[i] >> 16) & 0xff);
+            linear[1][i] = toLinear((pixels[i] >> 8) & 0xff);
+            linear[2][i] = toLinear(pixels[i] & 0xff);
+        }
+
+        double[][] factors = new double[componentsX * componentsY][];
+        for (int j = 0; j < componentsY; j++) {
+            for (int i = 0; i < componentsX; i++) {
+                factors[j * componentsX + i] = factor(linear, width, height, i, j);
+            }
+        }
+
+        StringBuilder hash = new StringBuilder(4 + 2 * factors.length);
+        encode83(hash, (componentsX - 1) + (componentsY - 1) * 9, 1);
+        double maximum;
+        if (factors.length > 1) {
+            double actualMaximum = 0;
+            for (int k = 1; k < factors.length; k++) {
+                for (double value : factors[k]) {
+                    actualMaximum = Math.max(actualMaximum, Math.abs(value));
+                }
+            }
+            int quantisedMaximum = (int) Math.max(0, Math.min(82, Math.floor(actualMaximum * 166 - 0.5)));
+            maximum = (quantisedMaximum + 1) / 166.0;
+            encode83(hash, quantisedMaximum, 1);
+        } else {
+            maximum = 1;
+            encode83(hash, 0, 1);
+        }
+        double[] dc = factors[0];
+        encode83(hash, (toSrgb(dc[0]) << 16) + (toSrgb(dc[1]) << 8) + toSrgb(dc[2]), 4);
+        for (int k = 1; k < factors.length; k++) {
+            double[] ac = factors[k];
+            encode83(hash, quantise(ac[0], maximum) * 19 * 19 + quantise(ac[1], maximum) * 19
+                    + quantise(ac[2], maximum), 2);
+        }
+        return hash.toString();
+    }
+
+    private static double[] factor(double[][] linear, int width, int height, int i, int j) {
+        double normalisation = i == 0 && j == 0 ? 1 : 2;
+        double r = 0;
+        double g = 0;
+        double b = 0;
+        for (int y = 0; y < height; y++) {
+            double basisY = Math.cos(Math.PI * j * y / height);
+            for (int x = 0; x < width; x++) {
+                double basis = normalisation * Math.cos(Math.PI * i * x / width) * basisY;
+                int p = y * width + x;
+                r += basis * linear[0][p];
+                g += basis * linear[1][p];
+                b += basis * linear[2][p];
+            }
+        }
+        double scale = 1.0 / (width * height);
+        return new double[] {r * scale, g * scale, b * scale};
+    }
+
+    private static int quantise(double value, double maximum) {
+        double scaled = Math.copySign(Math.sqrt(Math.abs(value / maximum)), value);
+        return (int) Math.max(0, Math.min(18, Math.floor(scaled * 9 + 9.5)));
+    }
+
+    private static double toLinear(int value) {
+        double v = value / 255.0;
+        return v <= 0.04045 ? v / 12.92 : Math.pow((v + 0.055) / 1.055, 2.4);
+    }
+
+    private static int toSrgb(double value) {
+        double v = Math.max(0, Math.min(1, value));
+        return v <= 0.0031308
+                ? (int) (v * 12.92 * 255 + 0.5)
+                : (int) ((1.055 * Math.pow(v, 1 / 2.4) - 0.055) * 255 + 0.5);
+    }
+
+    private static void encode83(StringBuilder out, int value, int length) {
+        for (int i = 1; i <= length; i++) {
+            int digit = (value / (int) Math.pow(83, length - i)) % 83;
+            out.append(DIGITS.charAt(digit));
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package ax.gritlab.buy_01.media.variant;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * Reads an image's dimensions, format and EXIF orientation from its header with
+ * ImageIO. No pixels are decoded: the readers stop after the header, and the
+ * EXIF orientation of a JPEG is taken from the marker segments before the first
+ * scan, so probing a 50 MP upload costs a few kilobytes of I/O.
+ */
+public final class ImageProbe {
+
+    private static final int SOI = 0xD8;
+    private static final int APP1 = 0xE1;
+    private static final int SOS = 0xDA;
+    private static final int EOI = 0xD9;
+    private static final int ORIENTATION_TAG = 0x0112;
+
+    /** Leading bytes {@link #sniffContentType} needs to recognise every supported format. */
+    public static final int SNIFF_LENGTH = 12;
+
+    private ImageProbe() {
+    }
+
+    /** The image type announced by the magic bytes at the start of {@code head}, or empty if none is known. */
+    public static Optional<String> sniffContentType(byte[] head) {
+        if (startsWith(head, 0, 0xFF, 0xD8, 0xFF)) {
+            return Optional.of("image/jpeg");
+        }
+        if (startsWith(head, 0, 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A)) {
+            return Optional.of("image/png");
+        }
+        if (startsWith(head, 0, 'G', 'I', 'F', '8') && head.length >= 6 && (head[4] == '7' || head[4] == '9')
+                && head[5] == 'a') {
+            return Optional.of("image/gif");
+        }
+        if (startsWith(head, 0, 'R', 'I', 'F', 'F') && startsWith(head, 8, 'W', 'E', 'B', 'P')) {
+            return Optional.of("image/webp");
+        }
+        if (startsWith(head, 0, 'B', 'M')) {
+            return Optional.of("image/bmp");
+        }
+        return Optional.empty();
+    }
+
+    private static boolean startsWith(byte[] data, int offset, int... magic) {
+        if (data.length < offset + magic.length) {
+            return false;
+        }
+        for (int i = 0; i < magic.length; i++) {
+            if ((data[offset + i] & 0xFF) != magic[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** The header facts of {@code source}, or empty when no ImageIO reader understands it. */
+    public static Optional<Info> probe(InputStream source) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(source)) {
+            Iterator<ImageReader> readers = input == null ? null : ImageIO.getImageReaders(input);
+            if (readers == null || !readers.hasNext()) {
+                return Optional.empty();
+            }
+            ImageReader reader = readers.next();
+            try {
+                String format = reader.getFormatName().toLowerCase(Locale.ROOT);
+                int orientation = 1;
+                if ("jpeg".equals(format)) {
+                    // Scanned by hand: the JPEG plugin's metadata tree fails on an APP1 ahead of the JFIF APP0
+                    input.mark();
+                    orientation = Math.max(1, jpegOrientation(input));
+                    input.reset();
+                }
+                reader.setInput(input, true, true);
+                return Optional.of(new Info(reader.getWidth(0), reader.getHeight(0), format, orientation));
+            } catch (IOException | RuntimeException e) {
+                // A recognised signature followed by a corrupt header
+                return Optional.empty();
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /** The EXIF orientation of a JPEG stream, or 0 if it has none; stops at the first scan. */
+    static int jpegOrientation(ImageInputStream input) throws IOException {
+        if (input.read() != 0xFF || input.read() != SOI) {
+            return 0;
+        }
+        while (true) {
+            int marker = input.read();
+            if (marker != 0xFF) {
+                return 0;
+            }
+            while (marker == 0xFF) {
+                marker = input.read(); // Fill bytes
+            }
+            if (marker < 0 || marker == SOS || marker == EOI) {
+                return 0;
+            }
+            if (marker == 0x01 || (marker >= 0xD0 && marker <= 0xD7)) {
+                continue; // No length field
+            }
+            int length = input.readUnsignedShort() - 2;
+            if (length < 0) {
+                return 0;
+            }
+            if (marker == APP1) {
+                byte[] segment = new byte[length];
+                input.readFully(segment);
+                int orientation = exifOrientation(segment);
+                if (orientation > 0) {
+                    return orientation;
+                }
+            } else {
+                input.skipBytes(length);
+            }
+        }
+    }
+
+    /** The orientation tag (1-8) of IFD0 in an APP1 payload, or 0 if it has none. */
+    static int exifOrientation(byte[] app1) {
+        int tiff = 6; // After "Exif\0\0"
+        if (app1.length < tiff + 8 || app1[0] != 'E' || app1[1] != 'x' || app1[2] != 'i' || app1[3] != 'f') {
+            return 0;
+        }
+        boolean littleEndian;
+        if (app1[tiff] == 'I' && app1[tiff + 1] == 'I') {
+            littleEndian = true;
+        } else if (app1[tiff] == 'M' && app1[tiff + 1] == 'M') {
+            littleEndian = false;
+        } else {
+            return 0;
+        }
+        long ifd = tiff + readUnsigned(app1, tiff + 4, 4, littleEndian);
+        if (ifd + 2 > app1.length) {
+            return 0;
+        }
+        int entries = (int) readUnsigned(app1, (int) ifd, 2, littleEndian);
+        for (int i = 0; i < entries; i++) {
+            int entry = (int) ifd + 2 + i * 12;
+            if (entry + 12 > app1.length) {
+                return 0;
+            }
+            if (readUnsigned(app1, entry, 2, littleEndian) == ORIENTATION_TAG) {
+                int value = (int) readUnsigned(app1, entry + 8, 2, littleEndian);
+                return value >= 1 && value <= 8 ? value : 0;
+            }
+        }
+        return 0;
+    }
+
+    private static long readUnsigned(byte[] data, int offset, int length, boolean littleEndian) {
+        long value = 0;
+        for (int i = 0; i < length; i++) {
+            int b = data[offset + (littleEndian ? length - 1 - i : i)] & 0xff;
+            value = (value << 8) | b;
+        }
+        return value;
+    }
+
+    /** Header facts of one image. Width and height are as displayed, with the EXIF rotation applied. */
+    public static final class Info {
+        private final int width;
+        private final int height;
+        private final String format;
+        private final int orientation;
+
+        public Info(int storedWidth, int storedHeight, String format, int orientation) {
+            // Orientations 5-8 rotate by 90 degrees, so the stored axes are swapped on screen
+            boolean transposed = orientation >= 5;
+            this.width = transposed ? storedHeight : storedWidth;
+            this.height = transposed ? storedWidth : storedHeight;
+            this.format = format;
+            this.orientation = orientation;
+        }
+
+        public int getWidth() {
+            return width;
+        }
+
+        public int getHeight() {
+            return height;
+        }
+
+        public String getFormat() {
+            return format;
+        }
+
+        public int getOrientation() {
+            return orientation;
+        }
+    }
+}
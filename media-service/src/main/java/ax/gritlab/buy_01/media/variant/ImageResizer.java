@@ -0,0 +1,233 @@
+package ax.gritlab.buy_01.media.variant;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Iterator;
+
+/**
+ * Decodes, resizes and re-encodes one image with the JDK's ImageIO.
+ *
+ * <p>The decoder subsamples rows and columns while reading, so a 6000 px upload
+ * resized to a 200 px thumbnail never materializes at full resolution; the
+ * decoded raster stays around twice the target size, which leaves enough
+ * detail for a good bilinear downscale. Re-encoding drops the EXIF block, so the
+ * EXIF orientation is applied to the pixels and boxes are fitted to the upright
+ * image.
+ */
+public class ImageResizer {
+
+    public static final String JPEG = "image/jpeg";
+    public static final String PNG = "image/png";
+
+    // Upper bound on decoded pixels after subsampling (~200 MB as ARGB)
+    private static final long MAX_DECODED_PIXELS = 50_000_000L;
+
+    private final float jpegQuality;
+
+    public ImageResizer(float jpegQuality) {
+        this.jpegQuality = jpegQuality;
+    }
+
+    /** Output format for a source type: PNG keeps transparency, everything else becomes JPEG. */
+    public static String outputType(String sourceContentType) {
+        return PNG.equals(sourceContentType) || "image/gif".equals(sourceContentType) ? PNG : JPEG;
+    }
+
+    /**
+     * Writes the variant of {@code source} described by {@code spec} to {@code target},
+     * upright according to the EXIF {@code orientation} of the source (1 to 8).
+     *
+     * @throws UnsupportedImageException when no ImageIO reader understands the input
+     */
+    public void resize(InputStream source, VariantSpec spec, int orientation, String outputType,
+            OutputStream target) throws IOException {
+        BufferedImage resized = render(decode(source, spec, orientation), spec, outputType);
+        encode(resized, outputType, target);
+    }
+
+    /**
+     * The variant of {@code source} described by {@code spec} as an opaque RGB image,
+     * for callers that work on the pixels instead of serving them.
+     *
+     * @throws UnsupportedImageException when no ImageIO reader understands the input
+     */
+    public static BufferedImage thumbnail(InputStream source, VariantSpec spec) throws IOException {
+        return render(decode(source, spec, 1), spec, JPEG);
+    }
+
+    /** {@code image} turned upright according to its EXIF orientation (1 to 8). */
+    public static BufferedImage applyOrientation(BufferedImage image, int orientation) {
+        if (orientation <= 1 || orientation > 8) {
+            return image;
+        }
+        int width = image.getWidth();
+        int height = image.getHeight();
+        boolean transposed = orientation >= 5;
+        BufferedImage upright = new BufferedImage(transposed ? height : width, transposed ? width : height,
+                image.getType() == BufferedImage.TYPE_CUSTOM ? BufferedImage.TYPE_INT_ARGB : image.getType());
+        for (int y = 0; y < upright.getHeight(); y++) {
+            for (int x = 0; x < upright.getWidth(); x++) {
+                int sx;
+                int sy;
+                switch (orientation) {
+                    case 2 -> {
+                        sx = width - 1 - x;
+                        sy = y;
+                    }
+                    case 3 -> {
+                        sx = width - 1 - x;
+                        sy = height - 1 - y;
+                    }
+                    case 4 -> {
+                        sx = x;
+                        sy = height - 1 - y;
+                    }
+                    case 5 -> {
+                        sx = y;
+                        sy = x;
+                    }
+                    case 6 -> {
+                        sx = y;
+                        sy = height - 1 - x;
+                    }
+                    case 7 -> {
+                        sx = width - 1 - y;
+                        sy = height - 1 - x;
+                    }
+                    default -> {
+                        sx = width - 1 - y;
+                        sy = x;
+                    }
+                }
+                upright.setRGB(x, y, image.getRGB(sx, sy));
+            }
+        }
+        return upright;
+    }
+
+    // Subsampled to the box as displayed: orientations 5 to 8 swap the stored axes
+    private static BufferedImage decode(InputStream source, VariantSpec spec, int orientation) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(source)) {
+            Iterator<ImageReader> readers = input == null ? null : ImageIO.getImageReaders(input);
+            if (readers == null || !readers.hasNext()) {
+                throw new UnsupportedImageException("No decoder for image");
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int sourceWidth = reader.getWidth(0);
+                int sourceHeight = reader.getHeight(0);
+                boolean transposed = orientation >= 5 && orientation <= 8;
+                int displayWidth = transposed ? sourceHeight : sourceWidth;
+                int displayHeight = transposed ? sourceWidth : sourceHeight;
+                int[] scaled = scaledSize(displayWidth, displayHeight, spec);
+
+                int subsampling = Math.max(1,
+                        Math.min(displayWidth / (2 * scaled[0]), displayHeight / (2 * scaled[1])));
+                long decodedPixels = (long) (sourceWidth / subsampling) * (sourceHeight / subsampling);
+                if (decodedPixels > MAX_DECODED_PIXELS) {
+                    throw new UnsupportedImageException("Image too large to decode: " + sourceWidth + "x" + sourceHeight);
+                }
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                return applyOrientation(reader.read(0, param), orientation);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /** Size the whole image is scaled to before any cover crop, never above the source. */
+    static int[] scaledSize(int sourceWidth, int sourceHeight, VariantSpec spec) {
+        int boxWidth = spec.getWidth();
+        int boxHeight = spec.getHeight();
+        if (spec.getFit() == VariantSpec.Fit.FILL) {
+            return new int[] {Math.min(boxWidth, sourceWidth), Math.min(boxHeight, sourceHeight)};
+        }
+        double scaleX = boxWidth == 0 ? Double.NaN : (double) boxWidth / sourceWidth;
+        double scaleY = boxHeight == 0 ? Double.NaN : (double) boxHeight / sourceHeight;
+        double scale;
+        if (Double.isNaN(scaleX)) {
+            scale = scaleY;
+        } else if (Double.isNaN(scaleY)) {
+            scale = scaleX;
+        } else if (spec.getFit() == VariantSpec.Fit.COVER) {
+            scale = Math.max(scaleX, scaleY);
+        } else {
+            scale = Math.min(scaleX, scaleY);
+        }
+        scale = Math.min(1.0, scale);
+        return new int[] {
+                Math.max(1, (int) Math.round(sourceWidth * scale)),
+                Math.max(1, (int) Math.round(sourceHeight * scale))};
+    }
+
+    private static BufferedImage render(BufferedImage source, VariantSpec spec, String outputType) {
+        int[] scaled = scaledSize(source.getWidth(), source.getHeight(), spec);
+        int width = scaled[0];
+        int height = scaled[1];
+        int offsetX = 0;
+        int offsetY = 0;
+        if (spec.getFit() == VariantSpec.Fit.COVER) {
+            int cropWidth = Math.min(width, spec.getWidth());
+            int cropHeight = Math.min(height, spec.getHeight());
+            offsetX = (width - cropWidth) / 2;
+            offsetY = (height - cropHeight) / 2;
+            width = cropWidth;
+            height = cropHeight;
+        }
+
+        boolean alpha = PNG.equals(outputType);
+        BufferedImage target = new BufferedImage(width, height,
+                alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = target.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            if (!alpha) {
+                // JPEG has no alpha channel; flatten transparency onto white
+                g.setColor(Color.WHITE);
+                g.fillRect(0, 0, width, height);
+            }
+            g.drawImage(source, -offsetX, -offsetY, scaled[0], scaled[1], null);
+        } finally {
+            g.dispose();
+        }
+        return target;
+    }
+
+    private void encode(BufferedImage image, String outputType, OutputStream target) throws IOException {
+        String format = PNG.equals(outputType) ? "png" : "jpeg";
+        ImageWriter writer = ImageIO.getImageWritersByFormatName(format).next();
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(target)) {
+            writer.setOutput(output);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            if (JPEG.equals(outputType)) {
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                param.setCompressionQuality(jpegQuality);
+            }
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    public static class UnsupportedImageException extends IOException {
+        public UnsupportedImageException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package ax.gritlab.buy_01.media.variant;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Size-bounded disk cache of rendered variants, laid out as
+ * {@code <directory>/<source>/<variant>}. Caffeine tracks the files and their
+ * sizes; evicting an entry deletes its file. Existing files are re-registered on
+ * startup, oldest first, so a restart keeps the cache warm.
+ */
+@Slf4j
+public class VariantCache {
+
+    private final Path directory;
+    private final Cache<String, Long> entries;
+
+    public VariantCache(Path directory, long maxBytes) throws IOException {
+        this.directory = directory.toAbsolutePath().normalize();
+        Files.createDirectories(this.directory);
+        this.entries = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                // Delete evicted files on the evicting thread, not later on the common pool
+                .executor(Runnable::run)
+                .weigher((String key, Long size) -> (int) Math.min(Integer.MAX_VALUE, size))
+                .removalListener((String key, Long size, RemovalCause cause) -> {
+                    // A replaced entry was rewritten in place; the file is still current
+                    if (cause != RemovalCause.REPLACED && key != null) {
+                        deleteQuietly(resolve(key));
+                    }
+                })
+                .build();
+        load();
+    }
+
+    /** Cache key of the variant {@code variant} of source {@code source}. */
+    public static String key(String source, String variant) {
+        return source + "/" + variant;
+    }
+
+    public Optional<Path> get(String key) {
+        if (entries.getIfPresent(key) == null) {
+            return Optional.empty();
+        }
+        Path file = resolve(key);
+        if (!Files.isRegularFile(file)) {
+            entries.invalidate(key);
+            return Optional.empty();
+        }
+        return Optional.of(file);
+    }
+
+    /** Renders into a temporary file and publishes it atomically under {@code key}. */
+    public Path put(String key, Writer writer) throws IOException {
+        Path file = resolve(key);
+        Files.createDirectories(file.getParent());
+        Path temp = file.resolveSibling(".tmp-" + UUID.randomUUID());
+        try {
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                writer.write(out);
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        entries.put(key, Files.size(file));
+        return file;
+    }
+
+    /** Drops every variant of {@code source}. */
+    public void invalidateSource(String source) {
+        String prefix = source + "/";
+        entries.asMap().keySet().removeIf(key -> key.startsWith(prefix));
+    }
+
+    public long size() {
+        return entries.estimatedSize();
+    }
+
+    private void load() throws IOException {
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(directory, 2)) {
+            files = walk.filter(Files::isRegularFile)
+                    .filter(file -> !file.getFileName().toString().startsWith(".tmp-"))
+                    .sorted(Comparator.comparing(VariantCache::lastModified))
+                    .collect(Collectors.toList());
+        }
+        for (Path file : files) {
+            entries.put(directory.relativize(file).toString().replace('\\', '/'), file.toFile().length());
+        }
+        log.info("Variant cache {}: {} files registered", directory, files.size());
+    }
+
+    private Path resolve(String key) {
+        Path file = directory.resolve(key).normalize();
+        if (!file.startsWith(directory)) {
+            throw new IllegalArgumentException("Variant key escapes the cache directory: " + key);
+        }
+        return file;
+    }
+
+    private static long lastModified(Path file) {
+        return file.toFile().lastModified();
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Failed to delete cached variant {}: {}", file, e.getMessage());
+        }
+    }
+
+    @FunctionalInterface
+    public interface Writer {
+        void write(OutputStream out) throws IOException;
+    }
+}
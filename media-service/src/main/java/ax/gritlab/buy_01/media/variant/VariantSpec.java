@@ -0,0 +1,115 @@
+package ax.gritlab.buy_01.media.variant;
+
+import ax.gritlab.buy_01.media.exception.InvalidVariantException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * Requested variant of an image: a target box and how the image fits into it.
+ * Either dimension may be omitted, in which case the other one scales the image
+ * proportionally. Images are never upscaled.
+ */
+public final class VariantSpec {
+
+    public static final int MAX_DIMENSION = 4096;
+
+    public enum Fit {
+        /** Scale to fit inside the box, keeping the aspect ratio. */
+        CONTAIN,
+        /** Scale to cover the box and centre-crop the overflow. */
+        COVER,
+        /** Stretch to the box exactly. */
+        FILL
+    }
+
+    private final int width;
+    private final int height;
+    private final Fit fit;
+
+    private VariantSpec(int width, int height, Fit fit) {
+        this.width = width;
+        this.height = height;
+        this.fit = fit;
+    }
+
+    /** Builds a spec from request parameters; a missing dimension is 0. */
+    public static VariantSpec of(Integer width, Integer height, String fit) {
+        int w = width == null ? 0 : width;
+        int h = height == null ? 0 : height;
+        if (w == 0 && h == 0) {
+            throw new InvalidVariantException("At least one of w and h is required");
+        }
+        if (w < 0 || h < 0 || w > MAX_DIMENSION || h > MAX_DIMENSION) {
+            throw new InvalidVariantException("w and h must be between 1 and " + MAX_DIMENSION);
+        }
+        Fit parsedFit;
+        try {
+            parsedFit = fit == null || fit.isBlank() ? Fit.CONTAIN : Fit.valueOf(fit.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidVariantException("fit must be one of contain, cover, fill");
+        }
+        // With a single dimension there is nothing to crop or stretch
+        if (w == 0 || h == 0) {
+            parsedFit = Fit.CONTAIN;
+        }
+        return new VariantSpec(w, h, parsedFit);
+    }
+
+    /** Parses a preset list such as {@code 200x200:cover,400,800}; a bare number is a width. */
+    public static List<VariantSpec> parsePresets(String presets) {
+        List<VariantSpec> specs = new ArrayList<>();
+        if (presets == null || presets.isBlank()) {
+            return specs;
+        }
+        for (String preset : presets.split(",")) {
+            String[] sizeAndFit = preset.trim().split(":", 2);
+            String[] size = sizeAndFit[0].split("x", 2);
+            Integer w = size[0].isEmpty() ? null : Integer.valueOf(size[0]);
+            Integer h = size.length > 1 && !size[1].isEmpty() ? Integer.valueOf(size[1]) : null;
+            specs.add(of(w, h, sizeAndFit.length > 1 ? sizeAndFit[1] : null));
+        }
+        return specs;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public Fit getFit() {
+        return fit;
+    }
+
+    /** Stable, file-name safe identifier, e.g. {@code w200-h200-cover}. */
+    public String key() {
+        return "w" + width + "-h" + height + "-" + fit.name().toLowerCase(Locale.ROOT);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof VariantSpec)) {
+            return false;
+        }
+        VariantSpec other = (VariantSpec) o;
+        return width == other.width && height == other.height && fit == other.fit;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(width, height, fit);
+    }
+
+    @Override
+    public String toString() {
+        return key();
+    }
+}
@@ -0,0 +1,164 @@
+package ax.gritlab.buy_01.media.cache;
+
+import ax.gritlab.buy_01.media.service.MediaContent;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("HotImageCache Unit Tests")
+class HotImageCacheTest {
+
+    private static final int CHUNK = 1024;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("Should return cached bytes and metadata across chunk boundaries")
+    void testFillAndGet() throws IOException {
+        // Arrange
+        HotImageCache cache = new HotImageCache(64 * CHUNK, CHUNK, 16 * CHUNK, 8 * CHUNK);
+        byte[] image = randomBytes(3 * CHUNK + 17);
+
+        // Act
+        cache.fill("media1", source(image), cache.stamp()).ifPresent(MediaContent::close);
+
+        // Assert
+        try (MediaContent content = cache.get("media1").orElseThrow()) {
+            assertEquals(image.length, content.getLength());
+            assertEquals("image/jpeg", content.getContentType());
+            assertEquals("\"hash\"", content.getEtag());
+            assertArrayEquals(image, readAll(content, 0, -1));
+            byte[] range = readAll(content, CHUNK - 5, 10);
+            for (int i = 0; i < 10; i++) {
+                assertEquals(image[CHUNK - 5 + i], range[i]);
+            }
+        }
+        assertEquals(4L * CHUNK, cache.usedBytes());
+    }
+
+    @Test
+    @DisplayName("Should copy local files into the cache")
+    void testFillFromFile() throws IOException {
+        // Arrange
+        HotImageCache cache = new HotImageCache(64 * CHUNK, CHUNK, 16 * CHUNK, 8 * CHUNK);
+        byte[] image = randomBytes(2 * CHUNK);
+        Path file = Files.write(tempDir.resolve("image.jpg"), image);
+
+        // Act
+        Optional<MediaContent> leased = cache.fill("media1",
+                MediaContent.ofFile(file, image.length, "image/jpeg", "\"hash\"", 0L), cache.stamp());
+
+        // Assert
+        try (MediaContent content = leased.orElseThrow()) {
+            assertFalse(content.isFile());
+            assertArrayEquals(image, readAll(content, 0, -1));
+        }
+    }
+
+    @Test
+    @DisplayName("Should keep leased bytes valid until the lease is closed")
+    void testInvalidateWhileLeased() throws IOException {
+        // Arrange
+        HotImageCache cache = new HotImageCache(64 * CHUNK, CHUNK, 16 * CHUNK, 8 * CHUNK);
+        byte[] image = randomBytes(2 * CHUNK);
+        cache.fill("media1", source(image), cache.stamp()).ifPresent(MediaContent::close);
+        MediaContent lease = cache.get("media1").orElseThrow();
+
+        // Act
+        cache.invalidate("media1");
+        cache.fill("media2", source(randomBytes(2 * CHUNK)), cache.stamp()).ifPresent(MediaContent::close);
+
+        // Assert
+        assertTrue(cache.get("media1").isEmpty());
+        assertArrayEquals(image, readAll(lease, 0, -1));
+        assertEquals(4L * CHUNK, cache.usedBytes());
+        lease.close();
+        assertEquals(2L * CHUNK, cache.usedBytes());
+    }
+
+    @Test
+    @DisplayName("Should not publish a copy of an image invalidated while it was being filled")
+    void testFillAfterInvalidate() {
+        // Arrange
+        HotImageCache cache = new HotImageCache(64 * CHUNK, CHUNK, 16 * CHUNK, 8 * CHUNK);
+        long stamp = cache.stamp();
+        cache.invalidate("media1"); // Deleted after the caller saw it live
+
+        // Act
+        Optional<MediaContent> leased = cache.fill("media1", source(randomBytes(2 * CHUNK)), stamp);
+
+        // Assert
+        assertTrue(leased.isEmpty());
+        assertTrue(cache.get("media1").isEmpty());
+        assertEquals(0L, cache.usedBytes());
+    }
+
+    @Test
+    @DisplayName("Should admit a miss only when the image missed recently too")
+    void testAdmitOnSecondMiss() {
+        // Arrange
+        HotImageCache cache = new HotImageCache(64 * CHUNK, CHUNK, 16 * CHUNK, 8 * CHUNK);
+
+        // Act & Assert
+        assertFalse(cache.admitOnMiss("media1"));
+        assertTrue(cache.admitOnMiss("media1"));
+        assertFalse(cache.admitOnMiss("media2"));
+    }
+
+    @Test
+    @DisplayName("Should skip images larger than the entry limit or of unknown length")
+    void testRejectsUncacheable() {
+        // Arrange
+        HotImageCache cache = new HotImageCache(64 * CHUNK, CHUNK, 16 * CHUNK, 8 * CHUNK);
+
+        // Act & Assert
+        assertTrue(cache.fill("big", source(randomBytes(8 * CHUNK + 1)), cache.stamp()).isEmpty());
+        assertTrue(cache.fill("unknown", MediaContent.ofSource(
+                (offset, length) -> InputStream.nullInputStream(), -1, "image/jpeg", null, 0L), cache.stamp()).isEmpty());
+        assertEquals(0L, cache.usedBytes());
+    }
+
+    @Test
+    @DisplayName("Should stay within its off-heap capacity under churn")
+    void testBoundedUnderChurn() {
+        // Arrange
+        HotImageCache cache = new HotImageCache(32 * CHUNK, CHUNK, 8 * CHUNK, 4 * CHUNK);
+
+        // Act
+        for (int i = 0; i < 500; i++) {
+            cache.fill("media" + i, source(randomBytes(1 + (i % 4) * CHUNK)), cache.stamp()).ifPresent(MediaContent::close);
+        }
+
+        // Assert
+        assertTrue(cache.usedBytes() <= 32L * CHUNK);
+        assertTrue(cache.reservedBytes() <= 32L * CHUNK);
+    }
+
+    private static MediaContent source(byte[] image) {
+        return MediaContent.ofSource((offset, length) -> new ByteArrayInputStream(image, (int) offset,
+                length < 0 ? image.length - (int) offset : (int) length), image.length, "image/jpeg", "\"hash\"", 0L);
+    }
+
+    private static byte[] readAll(MediaContent content, long offset, long count) throws IOException {
+        try (InputStream in = content.open(offset, count)) {
+            return in.readAllBytes();
+        }
+    }
+
+    private static byte[] randomBytes(int size) {
+        byte[] bytes = new byte[size];
+        new Random(size).nextBytes(bytes);
+        return bytes;
+    }
+}
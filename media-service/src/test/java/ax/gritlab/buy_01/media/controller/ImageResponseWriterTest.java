@@ -0,0 +1,183 @@
+package ax.gritlab.buy_01.media.controller;
+
+import ax.gritlab.buy_01.media.service.MediaContent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("ImageResponseWriter Unit Tests")
+class ImageResponseWriterTest {
+
+    private static final String ETAG = "\"abc123\"";
+    private static final long LAST_MODIFIED = 1_700_000_000_000L;
+
+    @TempDir
+    Path tempDir;
+
+    private ImageResponseWriter writer;
+    private MediaContent content;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        writer = new ImageResponseWriter(DataSize.ofBytes(4));
+        Path file = Files.write(tempDir.resolve("image.jpg"), "0123456789".getBytes(StandardCharsets.US_ASCII));
+        content = MediaContent.ofFile(file, 10, "image/jpeg", ETAG, LAST_MODIFIED);
+    }
+
+    @Test
+    @DisplayName("Should send the whole image with immutable caching headers")
+    void testFullResponse() throws IOException {
+        // Arrange
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/media/images/1");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // Act
+        writer.write(request, response, content);
+
+        // Assert
+        assertEquals(200, response.getStatus());
+        assertEquals(ImageResponseWriter.CACHE_CONTROL, response.getHeader("Cache-Control"));
+        assertEquals(ETAG, response.getHeader("ETag"));
+        assertEquals("bytes", response.getHeader("Accept-Ranges"));
+        assertEquals(10, response.getContentLengthLong());
+        assertEquals("0123456789", response.getContentAsString());
+    }
+
+    @Test
+    @DisplayName("Should answer 304 without a body when the ETag matches")
+    void testNotModified() throws IOException {
+        // Arrange
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/media/images/1");
+        request.addHeader("If-None-Match", "\"other\", W/" + ETAG);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // Act
+        writer.write(request, response, content);
+
+        // Assert
+        assertEquals(304, response.getStatus());
+        assertEquals(ETAG, response.getHeader("ETag"));
+        assertEquals(0, response.getContentAsByteArray().length);
+    }
+
+    @Test
+    @DisplayName("Should send a single range as 206 with Content-Range")
+    void testSingleRange() throws IOException {
+        // Arrange
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/media/images/1");
+        request.addHeader("Range", "bytes=2-5");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // Act
+        writer.write(request, response, content);
+
+        // Assert
+        assertEquals(206, response.getStatus());
+        assertEquals("bytes 2-5/10", response.getHeader("Content-Range"));
+        assertEquals("2345", response.getContentAsString());
+    }
+
+    @Test
+    @DisplayName("Should send multiple ranges as multipart/byteranges with an exact length")
+    void testMultipleRanges() throws IOException {
+        // Arrange
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/media/images/1");
+        request.addHeader("Range", "bytes=0-1,-2");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // Act
+        writer.write(request, response, content);
+
+        // Assert
+        assertEquals(206, response.getStatus());
+        assertTrue(response.getContentType().startsWith("multipart/byteranges; boundary="));
+        String body = response.getContentAsString();
+        assertEquals(response.getContentLengthLong(), response.getContentAsByteArray().length);
+        assertTrue(body.contains("Content-Range: bytes 0-1/10\r\n\r\n01"));
+        assertTrue(body.contains("Content-Range: bytes 8-9/10\r\n\r\n89"));
+    }
+
+    @Test
+    @DisplayName("Should answer 416 when no range is satisfiable")
+    void testUnsatisfiableRange() throws IOException {
+        // Arrange
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/media/images/1");
+        request.addHeader("Range", "bytes=20-30");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // Act
+        writer.write(request, response, content);
+
+        // Assert
+        assertEquals(416, response.getStatus());
+        assertEquals("bytes */10", response.getHeader("Content-Range"));
+    }
+
+    @Test
+    @DisplayName("Should ignore the range when If-Range does not match")
+    void testIfRangeMismatch() throws IOException {
+        // Arrange
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/media/images/1");
+        request.addHeader("Range", "bytes=2-5");
+        request.addHeader("If-Range", "\"stale\"");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // Act
+        writer.write(request, response, content);
+
+        // Assert
+        assertEquals(200, response.getStatus());
+        assertEquals("0123456789", response.getContentAsString());
+    }
+
+    @Test
+    @DisplayName("Should hand large files to the container's sendfile when supported")
+    void testSendfile() throws IOException {
+        // Arrange
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/media/images/1");
+        request.setAttribute(ImageResponseWriter.SENDFILE_SUPPORTED, Boolean.TRUE);
+        request.addHeader("Range", "bytes=3-");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // Act
+        writer.write(request, response, content);
+
+        // Assert
+        assertEquals(206, response.getStatus());
+        assertEquals(content.getFile().toAbsolutePath().toString(),
+                request.getAttribute(ImageResponseWriter.SENDFILE_FILENAME));
+        assertEquals(3L, request.getAttribute(ImageResponseWriter.SENDFILE_START));
+        assertEquals(10L, request.getAttribute(ImageResponseWriter.SENDFILE_END));
+        assertEquals(0, response.getContentAsByteArray().length);
+    }
+
+    @Test
+    @DisplayName("Should parse suffix, open-ended and malformed range headers")
+    void testParseRanges() {
+        List<long[]> suffix = ImageResponseWriter.parseRanges("bytes=-3", 10);
+        assertArrayEquals(new long[] {7, 9}, suffix.get(0));
+
+        List<long[]> openEnded = ImageResponseWriter.parseRanges("bytes=4-", 10);
+        assertArrayEquals(new long[] {4, 9}, openEnded.get(0));
+
+        List<long[]> clamped = ImageResponseWriter.parseRanges("bytes=8-100", 10);
+        assertArrayEquals(new long[] {8, 9}, clamped.get(0));
+
+        assertNull(ImageResponseWriter.parseRanges("items=0-1", 10));
+        assertNull(ImageResponseWriter.parseRanges("bytes=5-2", 10));
+        assertNull(ImageResponseWriter.parseRanges("bytes=a-b", 10));
+        assertTrue(ImageResponseWriter.parseRanges("bytes=10-", 10).isEmpty());
+    }
+}
@@ -0,0 +1,211 @@
+package ax.gritlab.buy_01.media.service;
+
+import ax.gritlab.buy_01.media.dto.VariantRegenerationSummary;
+import ax.gritlab.buy_01.media.exception.InvalidVariantException;
+import ax.gritlab.buy_01.media.model.Media;
+import ax.gritlab.buy_01.media.repository.MediaRepository;
+import ax.gritlab.buy_01.media.storage.InMemoryMediaStorage;
+import ax.gritlab.buy_01.media.variant.VariantCache;
+import ax.gritlab.buy_01.media.variant.VariantSpec;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("ImageVariantService Unit Tests")
+class ImageVariantServiceTest {
+
+    @Mock
+    private MediaRepository mediaRepository;
+
+    @TempDir
+    Path tempDir;
+
+    private InMemoryMediaStorage storage;
+    private ImageVariantService imageVariantService;
+    private Media photo;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        storage = new InMemoryMediaStorage();
+        MediaMetadataCache metadataCache = new MediaMetadataCache(mediaRepository, 100,
+                Duration.ofHours(1), Duration.ofSeconds(30));
+        imageVariantService = new ImageVariantService(mediaRepository, metadataCache, storage,
+                new VariantCache(tempDir, 10 * 1024 * 1024), "200x200:cover,400", 2, 0.85f);
+
+        byte[] jpeg = image(1600, 1200, "jpeg");
+        storage.put("photo.jpg", new ByteArrayInputStream(jpeg), jpeg.length, "image/jpeg");
+        photo = Media.builder()
+                .id("media123")
+                .contentType("image/jpeg")
+                .filePath("photo.jpg")
+                .contentHash("abc123")
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        imageVariantService.shutdown();
+    }
+
+    @Test
+    @DisplayName("Should fit the image inside the box keeping its aspect ratio")
+    void testContainVariant() throws IOException {
+        // Arrange
+        when(mediaRepository.findById("media123")).thenReturn(Optional.of(photo));
+
+        // Act
+        MediaContent variant = imageVariantService
+                .getVariant("media123", VariantSpec.of(400, 400, null)).orElseThrow();
+
+        // Assert
+        BufferedImage rendered = ImageIO.read(variant.getFile().toFile());
+        assertEquals(400, rendered.getWidth());
+        assertEquals(300, rendered.getHeight());
+        assertEquals("image/jpeg", variant.getContentType());
+        assertEquals("\"abc123-w400-h400-contain\"", variant.getEtag());
+    }
+
+    @Test
+    @DisplayName("Should crop to the exact box for cover and serve later requests from the cache")
+    void testCoverVariantCached() throws IOException {
+        // Arrange
+        when(mediaRepository.findById("media123")).thenReturn(Optional.of(photo));
+        VariantSpec spec = VariantSpec.of(200, 200, "cover");
+        Path first = imageVariantService.getVariant("media123", spec).orElseThrow().getFile();
+
+        // Act - the original is gone, so a second render would fail
+        storage.delete("photo.jpg");
+        Path second = imageVariantService.getVariant("media123", spec).orElseThrow().getFile();
+
+        // Assert
+        assertEquals(first, second);
+        BufferedImage rendered = ImageIO.read(second.toFile());
+        assertEquals(200, rendered.getWidth());
+        assertEquals(200, rendered.getHeight());
+    }
+
+    @Test
+    @DisplayName("Should never upscale")
+    void testNoUpscale() throws IOException {
+        // Arrange
+        when(mediaRepository.findById("media123")).thenReturn(Optional.of(photo));
+
+        // Act
+        Path file = imageVariantService.getVariant("media123", VariantSpec.of(3000, null, null))
+                .orElseThrow().getFile();
+
+        // Assert
+        assertEquals(1600, ImageIO.read(file.toFile()).getWidth());
+    }
+
+    @Test
+    @DisplayName("Should render an EXIF-rotated photo upright and fit the box to its displayed axes")
+    void testOrientedVariant() throws IOException {
+        // Arrange - stored landscape, red left and blue right; orientation 6 displays it turned clockwise
+        BufferedImage stored = new BufferedImage(1600, 1200, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = stored.createGraphics();
+        g.setColor(Color.RED);
+        g.fillRect(0, 0, 800, 1200);
+        g.setColor(Color.BLUE);
+        g.fillRect(800, 0, 800, 1200);
+        g.dispose();
+        ByteArrayOutputStream jpeg = new ByteArrayOutputStream();
+        ImageIO.write(stored, "jpeg", jpeg);
+        storage.put("portrait.jpg", new ByteArrayInputStream(jpeg.toByteArray()), jpeg.size(), "image/jpeg");
+        Media portrait = Media.builder()
+                .id("media789")
+                .contentType("image/jpeg")
+                .filePath("portrait.jpg")
+                .contentHash("def456")
+                .orientation(6)
+                .build();
+        when(mediaRepository.findById("media789")).thenReturn(Optional.of(portrait));
+
+        // Act
+        MediaContent variant = imageVariantService
+                .getVariant("media789", VariantSpec.of(300, null, null)).orElseThrow();
+
+        // Assert
+        BufferedImage rendered = ImageIO.read(variant.getFile().toFile());
+        assertEquals(300, rendered.getWidth());
+        assertEquals(400, rendered.getHeight());
+        assertTrue(new Color(rendered.getRGB(150, 50)).getRed() > 200); // Stored left is now on top
+        assertTrue(new Color(rendered.getRGB(150, 350)).getBlue() > 200);
+        assertEquals("\"def456-w300-h0-contain-o6\"", variant.getEtag());
+    }
+
+    @Test
+    @DisplayName("Should fall back to the original for formats ImageIO cannot decode")
+    void testUnsupportedFormat() {
+        // Arrange
+        photo.setContentType("image/webp");
+        when(mediaRepository.findById("media123")).thenReturn(Optional.of(photo));
+
+        // Act & Assert
+        assertTrue(imageVariantService.getVariant("media123", VariantSpec.of(200, null, null)).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should reject invalid variant parameters")
+    void testInvalidSpec() {
+        assertThrows(InvalidVariantException.class, () -> VariantSpec.of(null, null, null));
+        assertThrows(InvalidVariantException.class, () -> VariantSpec.of(10_000, null, null));
+        assertThrows(InvalidVariantException.class, () -> VariantSpec.of(200, 200, "stretch"));
+    }
+
+    @Test
+    @DisplayName("Should regenerate every preset once per distinct content")
+    void testRegenerateAll() throws IOException {
+        // Arrange - two records share the same content
+        Media duplicate = Media.builder()
+                .id("media456")
+                .contentType("image/jpeg")
+                .filePath("photo.jpg")
+                .contentHash("abc123")
+                .build();
+        when(mediaRepository.streamAllBy()).thenReturn(Stream.of(photo, duplicate));
+
+        // Act
+        VariantRegenerationSummary summary = imageVariantService.regenerateAll();
+
+        // Assert
+        assertEquals(1, summary.getSources());
+        assertEquals(2, summary.getRendered());
+        assertEquals(0, summary.getFailed());
+        assertTrue(Files.exists(tempDir.resolve("abc123/w200-h200-cover.jpg")));
+        assertTrue(Files.exists(tempDir.resolve("abc123/w400-h0-contain.jpg")));
+    }
+
+    private static byte[] image(int width, int height, String format) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        g.setColor(Color.ORANGE);
+        g.fillRect(0, 0, width, height);
+        g.dispose();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, format, out);
+        return out.toByteArray();
+    }
+}
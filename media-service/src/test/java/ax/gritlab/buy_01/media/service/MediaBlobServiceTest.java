@@ -0,0 +1,122 @@
+package ax.gritlab.buy_01.media.service;
+
+import ax.gritlab.buy_01.media.model.MediaBlob;
+import ax.gritlab.buy_01.media.storage.InMemoryMediaStorage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("MediaBlobService Unit Tests")
+class MediaBlobServiceTest {
+
+    // SHA-256 of "hello"
+    private static final String HELLO_HASH = "2cf24dba5fb0a30e26e83b2ac5b9e29e1b161e5c1fa7425e73043362938b9824";
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    private InMemoryMediaStorage storage;
+    private MediaBlobService mediaBlobService;
+
+    @BeforeEach
+    void setUp() {
+        storage = new InMemoryMediaStorage();
+        mediaBlobService = new MediaBlobService(mongoTemplate, storage);
+    }
+
+    @Test
+    @DisplayName("Should keep the staging copy as the blob for new content")
+    void testStoreNewContent() throws IOException {
+        // Arrange
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(MediaBlob.class)))
+                .thenReturn(MediaBlob.builder().id(HELLO_HASH).filePath("staging.jpg").refCount(1).build());
+
+        // Act
+        MediaBlob blob = mediaBlobService.store("staging.jpg", stream("hello"), 5, "image/jpeg");
+
+        // Assert
+        assertEquals(HELLO_HASH, blob.getId());
+        assertTrue(storage.exists("staging.jpg"));
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).findAndModify(query.capture(), any(Update.class), any(FindAndModifyOptions.class),
+                eq(MediaBlob.class));
+        assertEquals(HELLO_HASH, query.getValue().getQueryObject().get("_id"));
+    }
+
+    @Test
+    @DisplayName("Should drop the staging copy when the content is already stored")
+    void testStoreDuplicateContent() throws IOException {
+        // Arrange
+        storage.put("existing.jpg", stream("hello"), 5, "image/jpeg");
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(MediaBlob.class)))
+                .thenReturn(MediaBlob.builder().id(HELLO_HASH).filePath("existing.jpg").refCount(2).build());
+
+        // Act
+        MediaBlob blob = mediaBlobService.store("staging.jpg", stream("hello"), 5, "image/jpeg");
+
+        // Assert
+        assertEquals("existing.jpg", blob.getFilePath());
+        assertFalse(storage.exists("staging.jpg"));
+        assertTrue(storage.exists("existing.jpg"));
+    }
+
+    @Test
+    @DisplayName("Should keep the bytes while other references remain")
+    void testReleaseWithRemainingReferences() throws IOException {
+        // Arrange
+        storage.put("existing.jpg", stream("hello"), 5, "image/jpeg");
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(MediaBlob.class)))
+                .thenReturn(MediaBlob.builder().id(HELLO_HASH).filePath("existing.jpg").refCount(1).build());
+
+        // Act
+        boolean removed = mediaBlobService.release(HELLO_HASH);
+
+        // Assert
+        assertFalse(removed);
+        assertTrue(storage.exists("existing.jpg"));
+        verify(mongoTemplate, never()).findAndRemove(any(Query.class), eq(MediaBlob.class));
+    }
+
+    @Test
+    @DisplayName("Should delete the bytes with the last reference")
+    void testReleaseLastReference() throws IOException {
+        // Arrange
+        storage.put("existing.jpg", stream("hello"), 5, "image/jpeg");
+        MediaBlob released = MediaBlob.builder().id(HELLO_HASH).filePath("existing.jpg").refCount(0).build();
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(MediaBlob.class))).thenReturn(released);
+        when(mongoTemplate.findAndRemove(any(Query.class), eq(MediaBlob.class))).thenReturn(released);
+
+        // Act
+        boolean removed = mediaBlobService.release(HELLO_HASH);
+
+        // Assert
+        assertTrue(removed);
+        assertFalse(storage.exists("existing.jpg"));
+    }
+
+    private static ByteArrayInputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
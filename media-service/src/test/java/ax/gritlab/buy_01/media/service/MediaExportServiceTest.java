@@ -0,0 +1,141 @@
+package ax.gritlab.buy_01.media.service;
+
+import ax.gritlab.buy_01.media.exception.ResourceNotFoundException;
+import ax.gritlab.buy_01.media.model.Media;
+import ax.gritlab.buy_01.media.repository.MediaRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("MediaExportService Unit Tests")
+class MediaExportServiceTest {
+
+    @Mock
+    private MediaRepository mediaRepository;
+
+    @Mock
+    private MediaService mediaService;
+
+    @TempDir
+    Path tempDir;
+
+    private MediaExportService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new MediaExportService(mediaRepository, mediaService, tempDir.resolve("spool").toString());
+    }
+
+    @Test
+    @DisplayName("Should stream STORED entries from local files and other backends")
+    void testExportUserMedia() throws IOException {
+        // Arrange
+        byte[] first = "first image bytes".getBytes();
+        byte[] second = "second image".getBytes();
+        Path file = Files.write(tempDir.resolve("first.jpg"), first);
+        Media onDisk = media("m1", "photo.jpg");
+        Media remote = media("m2", "photo.jpg");
+        when(mediaRepository.streamByUserId("user123")).thenReturn(Stream.of(onDisk, remote));
+        when(mediaService.loadContent(onDisk))
+                .thenReturn(MediaContent.ofFile(file, first.length, "image/jpeg", "\"h1\"", 0));
+        when(mediaService.loadContent(remote)).thenReturn(MediaContent.ofSource(
+                (offset, length) -> new ByteArrayInputStream(second), second.length, "image/jpeg", "\"h2\"", 0));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // Act
+        long entries = service.export("user123", null, out);
+
+        // Assert
+        assertEquals(2, entries);
+        Map<String, byte[]> unzipped = unzip(out.toByteArray());
+        assertEquals(2, unzipped.size());
+        assertArrayEquals(first, unzipped.get("m1-photo.jpg"));
+        assertArrayEquals(second, unzipped.get("m2-photo.jpg"));
+        // The central directory agrees with the local headers
+        Path archive = Files.write(tempDir.resolve("export.zip"), out.toByteArray());
+        try (ZipFile zip = new ZipFile(archive.toFile())) {
+            assertEquals(2, zip.size());
+            assertEquals(ZipEntry.STORED, zip.getEntry("m1-photo.jpg").getMethod());
+        }
+        // The spooled central directory is removed
+        try (Stream<Path> spool = Files.list(tempDir.resolve("spool"))) {
+            assertEquals(0, spool.count());
+        }
+    }
+
+    @Test
+    @DisplayName("Should export one product and leave out media that cannot be read")
+    void testExportProductSkipsUnreadable() throws IOException {
+        // Arrange
+        Media missing = media("m1", "gone.jpg");
+        Media external = media("m2", "seed.jpg");
+        external.setFilePath("https://example.com/seed.jpg");
+        when(mediaRepository.streamByUserIdAndProductId("user123", "prod123"))
+                .thenReturn(Stream.of(missing, external));
+        when(mediaService.loadContent(missing)).thenThrow(new ResourceNotFoundException("Could not read file"));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // Act
+        long entries = service.export("user123", "prod123", out);
+
+        // Assert
+        assertEquals(0, entries);
+        assertTrue(unzip(out.toByteArray()).isEmpty());
+        verify(mediaService, never()).loadContent(external);
+        verify(mediaRepository, never()).streamByUserId(anyString());
+    }
+
+    @Test
+    @DisplayName("Should keep entry names flat and safe")
+    void testEntryName() {
+        // Act & Assert
+        assertEquals("m1-photo.jpg", MediaExportService.entryName(media("m1", "photo.jpg")));
+        assertEquals("m1-evil.jpg", MediaExportService.entryName(media("m1", "../../evil.jpg")));
+        assertEquals("m1-a_b.jpg", MediaExportService.entryName(media("m1", "a:b.jpg")));
+        assertEquals("m1", MediaExportService.entryName(media("m1", null)));
+        assertEquals("m1", MediaExportService.entryName(media("m1", "..")));
+    }
+
+    private static Media media(String id, String originalFilename) {
+        return Media.builder()
+                .id(id)
+                .originalFilename(originalFilename)
+                .contentType("image/jpeg")
+                .filePath(id + ".jpg")
+                .userId("user123")
+                .createdAt(LocalDateTime.of(2026, 10, 19, 12, 0))
+                .build();
+    }
+
+    private static Map<String, byte[]> unzip(byte[] archive) throws IOException {
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        try (ZipInputStream in = new ZipInputStream(new ByteArrayInputStream(archive))) {
+            ZipEntry entry;
+            while ((entry = in.getNextEntry()) != null) {
+                entries.put(entry.getName(), in.readAllBytes());
+            }
+        }
+        return entries;
+    }
+}
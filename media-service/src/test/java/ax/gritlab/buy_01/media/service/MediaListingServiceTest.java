@@ -0,0 +1,130 @@
+package ax.gritlab.buy_01.media.service;
+
+import ax.gritlab.buy_01.media.dto.MediaPage;
+import ax.gritlab.buy_01.media.model.Media;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("MediaListingService Unit Tests")
+class MediaListingServiceTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2026, 10, 19, 12, 0, 0);
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    private MediaListingService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new MediaListingService(mongoTemplate, 2, 3);
+    }
+
+    @Test
+    @DisplayName("Should return a page newest first with a cursor when more media follow")
+    void testFirstPage() {
+        // Arrange
+        when(mongoTemplate.find(any(Query.class), eq(Media.class)))
+                .thenReturn(List.of(media("m3", NOW), media("m2", NOW.minusMinutes(1)), media("m1", NOW.minusMinutes(2))));
+
+        // Act
+        MediaPage page = service.findPage("user123", null, false, null, null);
+
+        // Assert
+        assertEquals(List.of("m3", "m2"), page.getItems().stream().map(item -> item.getId()).toList());
+        assertNotNull(page.getNextCursor());
+        Query query = capturedQuery();
+        assertEquals(3, query.getLimit()); // Default limit plus one
+        assertEquals(new Document("createdAt", -1).append("_id", -1), query.getSortObject());
+        assertEquals("user123", query.getQueryObject().get("userId"));
+        assertFalse(query.getFieldsObject().containsKey("filePath"));
+        assertTrue(query.getFieldsObject().containsKey("placeholder"));
+    }
+
+    @Test
+    @DisplayName("Should continue strictly after the cursor of the previous page")
+    void testNextPage() {
+        // Arrange
+        when(mongoTemplate.find(any(Query.class), eq(Media.class)))
+                .thenReturn(List.of(media("m3", NOW), media("m2", NOW.minusMinutes(1)), media("m1", NOW.minusMinutes(2))))
+                .thenReturn(List.of(media("m1", NOW.minusMinutes(2))));
+        String cursor = service.findPage("user123", null, false, null, null).getNextCursor();
+
+        // Act
+        MediaPage page = service.findPage("user123", null, false, cursor, null);
+
+        // Assert
+        assertEquals(List.of("m1"), page.getItems().stream().map(item -> item.getId()).toList());
+        assertNull(page.getNextCursor());
+        ArgumentCaptor<Query> captor = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate, times(2)).find(captor.capture(), eq(Media.class));
+        Document after = captor.getValue().getQueryObject();
+        assertEquals(List.of(
+                new Document("createdAt", new Document("$lt", NOW.minusMinutes(1))),
+                new Document("createdAt", NOW.minusMinutes(1)).append("_id", new Document("$lt", "m2"))),
+                after.get("$or"));
+    }
+
+    @Test
+    @DisplayName("Should filter by product or by no product")
+    void testProductFilters() {
+        // Arrange
+        when(mongoTemplate.find(any(Query.class), eq(Media.class))).thenReturn(List.of());
+
+        // Act
+        service.findPage("user123", "prod123", false, null, 10);
+        service.findPage("user123", null, true, null, 10);
+
+        // Assert
+        ArgumentCaptor<Query> captor = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate, times(2)).find(captor.capture(), eq(Media.class));
+        assertEquals("prod123", captor.getAllValues().get(0).getQueryObject().get("productId"));
+        assertTrue(captor.getAllValues().get(1).getQueryObject().containsKey("productId"));
+        assertNull(captor.getAllValues().get(1).getQueryObject().get("productId"));
+        assertEquals(4, captor.getAllValues().get(0).getLimit()); // Capped at the maximum plus one
+    }
+
+    @Test
+    @DisplayName("Should reject a malformed cursor and contradictory filters")
+    void testInvalidRequests() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class,
+                () -> service.findPage("user123", null, false, "not a cursor", null));
+        assertThrows(IllegalArgumentException.class,
+                () -> service.findPage("user123", "prod123", true, null, null));
+        verifyNoInteractions(mongoTemplate);
+    }
+
+    private Query capturedQuery() {
+        ArgumentCaptor<Query> captor = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).find(captor.capture(), eq(Media.class));
+        return captor.getValue();
+    }
+
+    private static Media media(String id, LocalDateTime createdAt) {
+        return Media.builder()
+                .id(id)
+                .url("http://localhost:8080/api/media/images/" + id)
+                .originalFilename(id + ".jpg")
+                .contentType("image/jpeg")
+                .createdAt(createdAt)
+                .build();
+    }
+}
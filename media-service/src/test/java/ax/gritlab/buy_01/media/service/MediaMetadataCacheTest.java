@@ -0,0 +1,87 @@
+package ax.gritlab.buy_01.media.service;
+
+import ax.gritlab.buy_01.media.model.Media;
+import ax.gritlab.buy_01.media.repository.MediaRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("MediaMetadataCache Unit Tests")
+class MediaMetadataCacheTest {
+
+    @Mock
+    private MediaRepository mediaRepository;
+
+    private MediaMetadataCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new MediaMetadataCache(mediaRepository, 100, Duration.ofHours(1), Duration.ofSeconds(30));
+    }
+
+    @Test
+    @DisplayName("Should load serving fields once and answer repeats from memory")
+    void testFindCachesHits() {
+        // Arrange
+        Media media = Media.builder()
+                .id("media123")
+                .filePath("abc.jpg")
+                .contentType("image/jpeg")
+                .contentHash("abc")
+                .userId("user123")
+                .build();
+        when(mediaRepository.findById("media123")).thenReturn(Optional.of(media));
+
+        // Act
+        Media first = cache.find("media123").orElseThrow();
+        media.setFilePath("changed.jpg");
+        Media second = cache.find("media123").orElseThrow();
+
+        // Assert
+        assertEquals("abc.jpg", first.getFilePath());
+        assertSame(first, second);
+        assertNull(first.getUserId());
+        verify(mediaRepository, times(1)).findById("media123");
+    }
+
+    @Test
+    @DisplayName("Should cache unknown ids as missing")
+    void testFindCachesMisses() {
+        // Arrange
+        when(mediaRepository.findById("nonexistent")).thenReturn(Optional.empty());
+
+        // Act
+        boolean firstMissing = cache.find("nonexistent").isEmpty();
+        boolean secondMissing = cache.find("nonexistent").isEmpty();
+
+        // Assert
+        assertTrue(firstMissing);
+        assertTrue(secondMissing);
+        verify(mediaRepository, times(1)).findById("nonexistent");
+    }
+
+    @Test
+    @DisplayName("Should serve deleted media as missing without asking the database")
+    void testMarkMissing() {
+        // Arrange
+        cache.put(Media.builder().id("media123").filePath("abc.jpg").build());
+
+        // Act
+        cache.markMissing(List.of("media123"));
+
+        // Assert
+        assertTrue(cache.find("media123").isEmpty());
+        verifyNoInteractions(mediaRepository);
+    }
+}
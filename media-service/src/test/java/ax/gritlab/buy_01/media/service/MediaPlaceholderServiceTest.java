@@ -0,0 +1,150 @@
+package ax.gritlab.buy_01.media.service;
+
+import ax.gritlab.buy_01.media.model.Media;
+import ax.gritlab.buy_01.media.repository.MediaRepository;
+import ax.gritlab.buy_01.media.storage.InMemoryMediaStorage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("MediaPlaceholderService Unit Tests")
+class MediaPlaceholderServiceTest {
+
+    @Mock
+    private MediaRepository mediaRepository;
+
+    @Mock
+    private MediaEventPublisher mediaEventPublisher;
+
+    private InMemoryMediaStorage storage;
+    private MediaPlaceholderService service;
+
+    @BeforeEach
+    void setUp() {
+        storage = new InMemoryMediaStorage();
+        service = new MediaPlaceholderService(mediaRepository, storage, mediaEventPublisher, 4, 3, 1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    @DisplayName("Should encode a 4x3 BlurHash that follows the image content")
+    void testComputeBlurHash() throws IOException {
+        // Arrange
+        Media uniform = stored("uniform.png", image(1200, 600, Color.RED, Color.RED));
+        Media split = stored("split.png", image(1200, 600, Color.RED, Color.BLUE));
+
+        // Act
+        String uniformHash = service.compute(uniform).orElseThrow();
+        String splitHash = service.compute(split).orElseThrow();
+
+        // Assert
+        assertEquals(28, uniformHash.length()); // size flag, maximum, 4 DC digits, 11 x 2 AC digits
+        assertTrue(uniformHash.startsWith("L"));
+        assertEquals("TI:j", uniformHash.substring(2, 6)); // Pure red
+        assertNotEquals(uniformHash, splitHash);
+    }
+
+    @Test
+    @DisplayName("Should apply the EXIF orientation before encoding")
+    void testComputeAppliesOrientation() throws IOException {
+        // Arrange
+        Media upright = stored("upright.png", image(600, 1200, Color.RED, Color.BLUE));
+        Media rotated = stored("rotated.png", image(1200, 600, Color.RED, Color.BLUE));
+        rotated.setOrientation(6);
+
+        // Act & Assert
+        assertEquals(service.compute(upright), service.compute(rotated));
+    }
+
+    @Test
+    @DisplayName("Should skip images that cannot be decoded")
+    void testComputeUndecodable() throws IOException {
+        // Arrange
+        Media broken = stored("broken.jpg", "not an image".getBytes());
+
+        // Act & Assert
+        assertTrue(service.compute(broken).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should store the placeholder and re-announce media already on a product")
+    void testGenerateStoresAndPublishes() throws IOException {
+        // Arrange
+        Media media = stored("photo.png", image(400, 300, Color.RED, Color.BLUE));
+        Media linked = Media.builder().id(media.getId()).productId("prod123").build();
+        when(mediaRepository.setPlaceholder(eq("media-photo.png"), anyString())).thenReturn(1L);
+        when(mediaRepository.findById("media-photo.png")).thenReturn(Optional.of(linked));
+
+        // Act
+        service.generate(media);
+
+        // Assert
+        verify(mediaEventPublisher, timeout(5000)).publishPlaceholder(linked);
+    }
+
+    @Test
+    @DisplayName("Should not announce media deleted before the placeholder was ready")
+    void testGenerateDeletedMedia() throws IOException {
+        // Arrange
+        Media media = stored("photo.png", image(400, 300, Color.RED, Color.BLUE));
+        when(mediaRepository.setPlaceholder(eq("media-photo.png"), anyString())).thenReturn(0L);
+
+        // Act
+        service.generate(media);
+
+        // Assert
+        verify(mediaRepository, timeout(5000)).setPlaceholder(eq("media-photo.png"), anyString());
+        verify(mediaRepository, never()).findById(anyString());
+        verifyNoInteractions(mediaEventPublisher);
+    }
+
+    private Media stored(String key, byte[] bytes) throws IOException {
+        storage.put(key, new ByteArrayInputStream(bytes), bytes.length, "image/png");
+        return Media.builder()
+                .id("media-" + key)
+                .contentType("image/png")
+                .filePath(key)
+                .build();
+    }
+
+    // Left half one colour, right half (or bottom half, for portrait images) the other
+    private static byte[] image(int width, int height, Color first, Color second) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        g.setColor(first);
+        g.fillRect(0, 0, width, height);
+        g.setColor(second);
+        if (width >= height) {
+            g.fillRect(width / 2, 0, width - width / 2, height);
+        } else {
+            g.fillRect(0, height / 2, width, height - height / 2);
+        }
+        g.dispose();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,151 @@
+package ax.gritlab.buy_01.media.service;
+
+import ax.gritlab.buy_01.media.model.MediaBlob;
+import ax.gritlab.buy_01.media.storage.InMemoryMediaStorage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("MediaScrubber Unit Tests")
+class MediaScrubberTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    private InMemoryMediaStorage storage;
+    private SimpleMeterRegistry meterRegistry;
+    private MediaScrubber scrubber;
+
+    @BeforeEach
+    void setUp() {
+        storage = new InMemoryMediaStorage();
+        meterRegistry = new SimpleMeterRegistry();
+        scrubber = new MediaScrubber(mongoTemplate, storage, meterRegistry, true, DataSize.ofBytes(0),
+                Duration.ofDays(7));
+        lenient().when(mongoTemplate.count(any(Query.class), eq(MediaBlob.class))).thenReturn(0L);
+    }
+
+    @Test
+    @DisplayName("Should verify intact blobs without touching their records")
+    void testIntactBlob() throws Exception {
+        // Arrange
+        MediaBlob blob = store("a.jpg", "image bytes".getBytes());
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), eq(MediaBlob.class)))
+                .thenReturn(blob, (MediaBlob) null);
+
+        // Act
+        int checked = scrubber.scrub();
+
+        // Assert
+        assertEquals(1, checked);
+        assertEquals(1.0, counter("verified"));
+        assertEquals("image bytes".length(), counter("read"));
+        verify(mongoTemplate, never()).updateFirst(any(Query.class), any(Update.class), eq(MediaBlob.class));
+    }
+
+    @Test
+    @DisplayName("Should flag blobs whose bytes changed or disappeared")
+    void testCorruptAndMissingBlobs() throws Exception {
+        // Arrange
+        MediaBlob tampered = store("a.jpg", "image bytes".getBytes());
+        storage.put("a.jpg", new ByteArrayInputStream("image bytez".getBytes()), 11, "image/jpeg");
+        MediaBlob gone = store("b.jpg", "other bytes".getBytes());
+        storage.delete("b.jpg");
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), eq(MediaBlob.class)))
+                .thenReturn(tampered, gone, null);
+        ArgumentCaptor<Update> updates = ArgumentCaptor.forClass(Update.class);
+
+        // Act
+        int checked = scrubber.scrub();
+
+        // Assert
+        assertEquals(2, checked);
+        assertEquals(1.0, counter("corrupt"));
+        assertEquals(1.0, counter("missing"));
+        assertEquals(0.0, counter("verified"));
+        verify(mongoTemplate, times(2)).updateFirst(any(Query.class), updates.capture(), eq(MediaBlob.class));
+        assertEquals("checksum mismatch", updates.getAllValues().get(0).getUpdateObject()
+                .get("$set", Document.class).get("corruption"));
+        assertEquals("missing", updates.getAllValues().get(1).getUpdateObject()
+                .get("$set", Document.class).get("corruption"));
+    }
+
+    @Test
+    @DisplayName("Should clear the flag of a blob that verifies again")
+    void testRestoredBlob() throws Exception {
+        // Arrange
+        MediaBlob restored = store("a.jpg", "image bytes".getBytes());
+        restored.setCorruptAt(LocalDateTime.now().minusDays(1));
+        restored.setCorruption("missing");
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), eq(MediaBlob.class)))
+                .thenReturn(restored, (MediaBlob) null);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+
+        // Act
+        scrubber.scrub();
+
+        // Assert
+        verify(mongoTemplate).updateFirst(any(Query.class), update.capture(), eq(MediaBlob.class));
+        assertTrue(update.getValue().getUpdateObject().containsKey("$unset"));
+        assertEquals(1.0, counter("verified"));
+    }
+
+    @Test
+    @DisplayName("Should not start when disabled")
+    void testDisabled() {
+        // Arrange
+        MediaScrubber disabled = new MediaScrubber(mongoTemplate, storage, new SimpleMeterRegistry(), false,
+                DataSize.ofMegabytes(8), Duration.ofDays(7));
+
+        // Act & Assert
+        assertFalse(disabled.start());
+        assertFalse(disabled.status().isRunning());
+    }
+
+    private MediaBlob store(String key, byte[] bytes) throws IOException {
+        storage.put(key, new ByteArrayInputStream(bytes), bytes.length, "image/jpeg");
+        return MediaBlob.builder()
+                .id(sha256(bytes))
+                .filePath(key)
+                .size(bytes.length)
+                .contentType("image/jpeg")
+                .refCount(1)
+                .build();
+    }
+
+    private double counter(String name) {
+        return meterRegistry.get("media.scrub." + name).counter().count();
+    }
+
+    private static String sha256(byte[] bytes) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
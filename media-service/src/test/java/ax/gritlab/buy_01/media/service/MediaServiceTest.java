@@ -1,26 +1,55 @@
 package ax.gritlab.buy_01.media.service;
 
+import ax.gritlab.buy_01.media.cache.HotImageCache;
+import ax.gritlab.buy_01.media.config.UploadProperties;
+import ax.gritlab.buy_01.media.dto.MediaUploadResult;
 import ax.gritlab.buy_01.media.exception.ResourceNotFoundException;
 import ax.gritlab.buy_01.media.exception.UnauthorizedException;
 import ax.gritlab.buy_01.media.model.Media;
+import ax.gritlab.buy_01.media.model.MediaBlob;
+import ax.gritlab.buy_01.media.model.Role;
 import ax.gritlab.buy_01.media.repository.MediaRepository;
-import ax.gritlab.buy_01.media.config.StorageProperties;
+import ax.gritlab.buy_01.media.exception.InvalidFileTypeException;
+import ax.gritlab.buy_01.media.exception.QuotaExceededException;
+import ax.gritlab.buy_01.media.model.User;
+import ax.gritlab.buy_01.media.storage.MediaStorage;
+import ax.gritlab.buy_01.media.storage.StoredObject;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.web.client.RestTemplate;
-
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.multipart.MultipartFile;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.Executor;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -31,10 +60,34 @@ public class MediaServiceTest {
     private MediaRepository mediaRepository;
 
     @Mock
-    private RestTemplate restTemplate;
+    private MediaStorage mediaStorage;
+
+    @Mock
+    private MediaBlobService mediaBlobService;
+
+    @Mock
+    private ImageVariantService imageVariantService;
+
+    @Mock
+    private HotImageCache hotImageCache;
+
+    @Mock
+    private MediaMetadataCache mediaMetadataCache;
 
     @Mock
-    private StorageProperties storageProperties;
+    private MediaEventPublisher mediaEventPublisher;
+
+    @Mock
+    private MediaPlaceholderService mediaPlaceholderService;
+
+    @Mock
+    private StorageQuotaService storageQuotaService;
+
+    @Mock
+    private Executor mediaUploadExecutor;
+
+    @Spy
+    private UploadProperties uploadProperties = new UploadProperties();
 
     @InjectMocks
     private MediaService mediaService;
@@ -88,6 +141,7 @@ public class MediaServiceTest {
         assertEquals("prod123", result.getProductId());
         verify(mediaRepository, times(1)).findById("media123");
         verify(mediaRepository, times(1)).save(any(Media.class));
+        verify(mediaEventPublisher).publishAssociated(testMedia, null);
     }
 
     @Test
@@ -117,7 +171,7 @@ public class MediaServiceTest {
     @Test
     @DisplayName("Should delete all media for a user")
     void testDeleteMediaByUserId() {
-        // Arrange - Use empty list - the service only calls deleteAll if list is not empty
+        // Arrange - Use empty list - the service only tombstones a non-empty list
         List<Media> emptyMedia = new ArrayList<>();
         when(mediaRepository.findByUserId("user123")).thenReturn(emptyMedia);
 
@@ -126,13 +180,13 @@ public class MediaServiceTest {
 
         // Assert
         verify(mediaRepository, times(1)).findByUserId("user123");
-        // deleteAll is only called if media list is not empty
+        // markDeleted is only called if media list is not empty
     }
 
     @Test
     @DisplayName("Should delete media by product ID with empty list")
     void testDeleteMediaByProductId() {
-        // Arrange - Use empty list - the service only calls deleteAll if list is not empty
+        // Arrange - Use empty list - the service only tombstones a non-empty list
         List<Media> emptyMedia = new ArrayList<>();
         when(mediaRepository.findByProductId("prod123")).thenReturn(emptyMedia);
 
@@ -141,13 +195,13 @@ public class MediaServiceTest {
 
         // Assert
         verify(mediaRepository, times(1)).findByProductId("prod123");
-        // deleteAll is only called if media list is not empty
+        // markDeleted is only called if media list is not empty
     }
 
     @Test
     @DisplayName("Should delete media by IDs list with empty result")
     void testDeleteMediaByIds() {
-        // Arrange - Use empty list - the service only calls deleteAll if list is not empty
+        // Arrange - Use empty list - the service only tombstones a non-empty list
         List<String> mediaIds = new ArrayList<>();
         mediaIds.add("media123");
         List<Media> emptyMedias = new ArrayList<>();
@@ -158,7 +212,7 @@ public class MediaServiceTest {
 
         // Assert
         verify(mediaRepository, times(1)).findAllById(mediaIds);
-        // deleteAll is only called if media list is not empty
+        // markDeleted is only called if media list is not empty
     }
 
     @Test
@@ -173,6 +227,457 @@ public class MediaServiceTest {
         // Assert
         verify(mediaRepository, never()).findAllById(any());
         verify(mediaRepository, never()).deleteAll(any());
+        verify(mediaRepository, never()).markDeleted(anyList(), any(LocalDateTime.class));
     }
-}
 
+    @Test
+    @DisplayName("Should store uploads as a shared blob and persist its key and hash")
+    void testSaveUsesBlobStorage() throws IOException {
+        // Arrange
+        MockMultipartFile file = new MockMultipartFile("file", "photo.png", "image/png", new byte[] {1, 2, 3});
+        User user = new User();
+        user.setId("user123");
+        when(mediaBlobService.store(anyString(), any(InputStream.class), eq(3L), eq("image/png")))
+                .thenReturn(MediaBlob.builder().id("abc123").filePath("stored-key.png").refCount(1).build());
+        when(mediaRepository.insert(any(Media.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // Act
+        Media result = mediaService.save(file, user);
+
+        // Assert
+        assertEquals("stored-key.png", result.getFilePath());
+        assertEquals("abc123", result.getContentHash());
+        assertNotNull(result.getId());
+        assertTrue(result.getUrl().endsWith("/images/" + result.getId()));
+        // Written once, with the URL already set
+        verify(mediaRepository, times(1)).insert(any(Media.class));
+        verify(mediaRepository, never()).save(any(Media.class));
+        verify(imageVariantService).pregenerate(result);
+        verify(mediaPlaceholderService).generate(result);
+    }
+
+    @Test
+    @DisplayName("Should persist a batch with one insert and report each file")
+    @SuppressWarnings("unchecked")
+    void testSaveAllPartialSuccess() throws IOException {
+        // Arrange
+        ReflectionTestUtils.setField(mediaService, "maxBatchFiles", 20);
+        doAnswer(invocation -> {
+            ((Runnable) invocation.getArgument(0)).run();
+            return null;
+        }).when(mediaUploadExecutor).execute(any(Runnable.class));
+        List<MultipartFile> files = List.of(
+                new MockMultipartFile("files", "a.png", "image/png", new byte[] {1}),
+                new MockMultipartFile("files", "notes.txt", "text/plain", new byte[] {2}),
+                new MockMultipartFile("files", "b.jpg", "image/jpeg", new byte[] {3}));
+        User user = new User();
+        user.setId("user123");
+        when(mediaBlobService.store(anyString(), any(InputStream.class), eq(1L), anyString()))
+                .thenReturn(MediaBlob.builder().id("hash-a").filePath("a-key.png").refCount(1).build())
+                .thenReturn(MediaBlob.builder().id("hash-b").filePath("b-key.jpg").refCount(1).build());
+        when(mediaRepository.insert(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // Act
+        List<MediaUploadResult> results = mediaService.saveAll(files, user);
+
+        // Assert
+        assertEquals(3, results.size());
+        assertEquals(MediaUploadResult.Status.CREATED, results.get(0).getStatus());
+        assertEquals(MediaUploadResult.Status.FAILED, results.get(1).getStatus());
+        assertEquals("Invalid file type. Only images are allowed.", results.get(1).getMessage());
+        assertEquals(MediaUploadResult.Status.CREATED, results.get(2).getStatus());
+        Media first = results.get(0).getMedia();
+        assertTrue(first.getUrl().endsWith("/images/" + first.getId()));
+
+        ArgumentCaptor<List<Media>> inserted = ArgumentCaptor.forClass(List.class);
+        verify(mediaRepository, times(1)).insert(inserted.capture());
+        assertEquals(2, inserted.getValue().size());
+        verify(mediaRepository, never()).save(any(Media.class));
+    }
+
+    @Test
+    @DisplayName("Should record the image's dimensions and format from its header")
+    void testSaveRecordsImageInfo() throws IOException {
+        // Arrange
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(30, 12, BufferedImage.TYPE_INT_RGB), "png", png);
+        MockMultipartFile file = new MockMultipartFile("file", "photo.png", "image/png", png.toByteArray());
+        User user = new User();
+        user.setId("user123");
+        when(mediaBlobService.store(anyString(), any(InputStream.class), anyLong(), eq("image/png")))
+                .thenReturn(MediaBlob.builder().id("abc123").filePath("stored-key.png").refCount(1).build());
+        when(mediaRepository.insert(any(Media.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // Act
+        Media result = mediaService.save(file, user);
+
+        // Assert
+        assertEquals(30, result.getWidth());
+        assertEquals(12, result.getHeight());
+        assertEquals("png", result.getFormat());
+        assertEquals(1, result.getOrientation());
+    }
+
+    @Test
+    @DisplayName("Should apply the upload size limit of the uploader's role")
+    void testSaveAppliesRoleSizeLimit() throws IOException {
+        // Arrange
+        uploadProperties.getMaxSize().put(Role.SELLER, DataSize.ofMegabytes(20));
+        byte[] large = new byte[3 * 1024 * 1024];
+        User client = User.builder().id("client1").role(Role.CLIENT).build();
+        User seller = User.builder().id("seller1").role(Role.SELLER).build();
+        when(mediaBlobService.store(anyString(), any(InputStream.class), eq((long) large.length), eq("image/jpeg")))
+                .thenReturn(MediaBlob.builder().id("hash").filePath("big.jpg").refCount(1).build());
+        when(mediaRepository.insert(any(Media.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // Act & Assert
+        InvalidFileTypeException rejected = assertThrows(InvalidFileTypeException.class, () -> mediaService.save(
+                new MockMultipartFile("file", "big.jpg", "image/jpeg", large), client));
+        assertEquals("File exceeds maximum size of 2MB.", rejected.getMessage());
+        Media stored = mediaService.save(new MockMultipartFile("file", "big.jpg", "image/jpeg", large), seller);
+        assertEquals(large.length, stored.getSize());
+        assertEquals("seller1", stored.getUserId());
+    }
+
+    @Test
+    @DisplayName("Should reject keys the storage backend refuses to place")
+    void testSaveRejectsEscapingKey() throws IOException {
+        // Arrange
+        MockMultipartFile file = new MockMultipartFile("file", "x.jpg/../../etc", "image/jpeg", new byte[] {1});
+        User user = new User();
+        user.setId("user123");
+        when(mediaBlobService.store(anyString(), any(InputStream.class), anyLong(), anyString()))
+                .thenThrow(new IllegalArgumentException("escapes root"));
+
+        // Act & Assert
+        assertThrows(InvalidFileTypeException.class, () -> mediaService.save(file, user));
+        verify(mediaRepository, never()).insert(any(Media.class));
+        // The quota charged up front is given back
+        verify(storageQuotaService).reserve(user, 1);
+        verify(storageQuotaService).release("user123", 1, 1);
+    }
+
+    @Test
+    @DisplayName("Should release the blob reference when the record cannot be inserted")
+    void testSaveReleasesBlobWhenInsertFails() throws IOException {
+        // Arrange
+        MockMultipartFile file = new MockMultipartFile("file", "a.jpg", "image/jpeg", new byte[] {1});
+        User user = new User();
+        user.setId("user123");
+        when(mediaBlobService.store(anyString(), any(InputStream.class), anyLong(), anyString()))
+                .thenReturn(MediaBlob.builder().id("hash-a").filePath("a-key.jpg").refCount(1).build());
+        when(mediaRepository.insert(any(Media.class))).thenThrow(new RuntimeException("write failed"));
+
+        // Act & Assert
+        assertThrows(RuntimeException.class, () -> mediaService.save(file, user));
+        verify(mediaBlobService).release("hash-a");
+        verify(storageQuotaService).release("user123", 1, 1);
+        verify(mediaMetadataCache, never()).put(any(Media.class));
+    }
+
+    @Test
+    @DisplayName("Should release the blob reference when an assembled upload cannot be inserted")
+    void testSaveUploadReleasesBlobWhenInsertFails(@TempDir Path dir) throws IOException {
+        // Arrange
+        Path part = Files.write(dir.resolve("upload.part"), new byte[] {1});
+        User user = new User();
+        user.setId("user123");
+        when(mediaBlobService.store(anyString(), any(InputStream.class), anyLong(), anyString()))
+                .thenReturn(MediaBlob.builder().id("hash-a").filePath("a-key.jpg").refCount(1).build());
+        when(mediaRepository.insert(any(Media.class))).thenThrow(new RuntimeException("write failed"));
+
+        // Act & Assert
+        assertThrows(RuntimeException.class,
+                () -> mediaService.saveUpload("upload1", "a.jpg", "image/jpeg", part, user));
+        verify(mediaBlobService).release("hash-a");
+        verify(storageQuotaService).release("user123", 1, 1);
+    }
+
+    @Test
+    @DisplayName("Should store nothing when the uploader is over quota")
+    void testSaveOverQuota() throws IOException {
+        // Arrange
+        MockMultipartFile file = new MockMultipartFile("file", "a.jpg", "image/jpeg", new byte[] {1});
+        User user = new User();
+        user.setId("user123");
+        doThrow(new QuotaExceededException("Storage quota exceeded")).when(storageQuotaService).reserve(user, 1);
+
+        // Act & Assert
+        assertThrows(QuotaExceededException.class, () -> mediaService.save(file, user));
+        verify(mediaBlobService, never()).store(anyString(), any(InputStream.class), anyLong(), anyString());
+        verify(storageQuotaService, never()).release(anyString(), anyLong(), anyLong());
+    }
+
+    @Test
+    @DisplayName("Should stream a raw upload into storage with the type its bytes announce")
+    void testSaveStreamSniffsType() throws IOException {
+        // Arrange
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(30, 12, BufferedImage.TYPE_INT_RGB), "png", png);
+        byte[] bytes = png.toByteArray();
+        User user = User.builder().id("user123").role(Role.SELLER).build();
+        ByteArrayOutputStream stored = new ByteArrayOutputStream();
+        when(mediaBlobService.store(anyString(), any(InputStream.class), eq((long) bytes.length), eq("image/png")))
+                .thenAnswer(invocation -> {
+                    ((InputStream) invocation.getArgument(1)).transferTo(stored);
+                    return MediaBlob.builder().id("abc123").filePath("stored-key.png").size(bytes.length)
+                            .refCount(1).build();
+                });
+        when(mediaStorage.get("stored-key.png")).thenAnswer(invocation -> new ByteArrayInputStream(bytes));
+        when(mediaRepository.insert(any(Media.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // Act
+        Media result = mediaService.saveStream(new ByteArrayInputStream(bytes), bytes.length, "photo.jpg",
+                "image/jpeg", user);
+
+        // Assert
+        assertArrayEquals(bytes, stored.toByteArray()); // Sniffed bytes are not lost
+        assertEquals("image/png", result.getContentType());
+        assertEquals("photo.jpg", result.getOriginalFilename());
+        assertEquals(30, result.getWidth());
+        verify(mediaPlaceholderService).generate(result);
+    }
+
+    @Test
+    @DisplayName("Should release the blob reference when a raw upload cannot be inserted")
+    void testSaveStreamReleasesBlobWhenInsertFails() throws IOException {
+        // Arrange
+        byte[] jpeg = {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF, (byte) 0xE0, 0, 0, 0, 0, 0, 0, 0, 0, 1, 2};
+        User user = User.builder().id("user123").role(Role.SELLER).build();
+        when(mediaBlobService.store(anyString(), any(InputStream.class), anyLong(), eq("image/jpeg")))
+                .thenReturn(MediaBlob.builder().id("hash-a").filePath("a-key.jpg").size(jpeg.length)
+                        .refCount(1).build());
+        when(mediaStorage.get("a-key.jpg")).thenAnswer(invocation -> new ByteArrayInputStream(jpeg));
+        when(mediaRepository.insert(any(Media.class))).thenThrow(new RuntimeException("write failed"));
+
+        // Act & Assert
+        assertThrows(RuntimeException.class, () -> mediaService.saveStream(new ByteArrayInputStream(jpeg),
+                jpeg.length, "a.jpg", "image/jpeg", user));
+        verify(mediaBlobService).release("hash-a");
+        verify(storageQuotaService).release("user123", jpeg.length, 1);
+    }
+
+    @Test
+    @DisplayName("Should reject raw uploads that are not images or shorter than declared")
+    void testSaveStreamRejectsBadBodies() throws IOException {
+        // Arrange
+        byte[] jpeg = {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF, (byte) 0xE0, 0, 0, 0, 0, 0, 0, 0, 0, 1, 2};
+        User user = User.builder().id("user123").role(Role.SELLER).build();
+        when(mediaBlobService.store(anyString(), any(InputStream.class), eq(100L), eq("image/jpeg")))
+                .thenReturn(MediaBlob.builder().id("short").filePath("short.jpg").size(jpeg.length)
+                        .refCount(1).build());
+
+        // Act & Assert
+        assertThrows(InvalidFileTypeException.class, () -> mediaService.saveStream(
+                new ByteArrayInputStream("<svg onload=alert(1)>".getBytes()), 21, "x.png", "image/png", user));
+        assertThrows(InvalidFileTypeException.class, () -> mediaService.saveStream(
+                new ByteArrayInputStream(jpeg), -1, "x.jpg", "image/jpeg", user));
+        assertThrows(InvalidFileTypeException.class, () -> mediaService.saveStream(
+                new ByteArrayInputStream(jpeg), 100, "x.jpg", "image/jpeg", user));
+        verify(mediaBlobService).release("short");
+        verify(mediaRepository, never()).insert(any(Media.class));
+    }
+
+    @Test
+    @DisplayName("Should serve remote objects as ranged streams with a strong ETag")
+    void testGetContentFromRemoteStorage() throws IOException {
+        // Arrange
+        testMedia.setFilePath("remote.jpg");
+        testMedia.setContentHash("abc123");
+        when(mediaMetadataCache.find("media123")).thenReturn(Optional.of(testMedia));
+        when(mediaStorage.localPath("remote.jpg")).thenReturn(Optional.empty());
+        when(mediaStorage.stat("remote.jpg"))
+                .thenReturn(Optional.of(new StoredObject("remote.jpg", 3, Instant.now(), "image/jpeg")));
+        when(mediaStorage.getRange("remote.jpg", 1, 2)).thenReturn(new ByteArrayInputStream(new byte[] {8, 9}));
+
+        // Act
+        MediaContent content = mediaService.getContent("media123");
+
+        // Assert
+        assertFalse(content.isFile());
+        assertEquals(3, content.getLength());
+        assertEquals("\"abc123\"", content.getEtag());
+        assertEquals(MediaContent.epochMillis(testMedia.getCreatedAt()), content.getLastModified());
+        try (InputStream in = content.open(1, 2)) {
+            assertArrayEquals(new byte[] {8, 9}, in.readAllBytes());
+        }
+    }
+
+    @Test
+    @DisplayName("Should serve local files by path with the recorded size")
+    void testGetContentLocalFile() {
+        // Arrange
+        Path file = Path.of("uploads", "test_image.jpg");
+        when(mediaMetadataCache.find("media123")).thenReturn(Optional.of(testMedia));
+        when(mediaStorage.localPath("/uploads/test_image.jpg")).thenReturn(Optional.of(file));
+
+        // Act
+        MediaContent content = mediaService.getContent("media123");
+
+        // Assert
+        assertTrue(content.isFile());
+        assertEquals(file, content.getFile());
+        assertEquals(1024L, content.getLength());
+        assertEquals("\"m-media123\"", content.getEtag());
+    }
+
+    @Test
+    @DisplayName("Should serve hot images from the cache without a database lookup")
+    void testGetContentFromHotCache() {
+        // Arrange
+        MediaContent cached = MediaContent.ofSource((offset, length) -> InputStream.nullInputStream(),
+                3, "image/jpeg", "\"abc123\"", 0L);
+        when(hotImageCache.get("media123")).thenReturn(Optional.of(cached));
+
+        // Act
+        MediaContent content = mediaService.getContent("media123");
+
+        // Assert
+        assertSame(cached, content);
+        verifyNoInteractions(mediaMetadataCache);
+        verifyNoInteractions(mediaStorage);
+    }
+
+    @Test
+    @DisplayName("Should fill the hot cache on a repeated miss but still send this response from the file")
+    void testGetContentFillsHotCache() {
+        // Arrange
+        Path file = Path.of("uploads", "test_image.jpg");
+        boolean[] leaseClosed = new boolean[1];
+        MediaContent cached = MediaContent.ofSource((offset, length) -> InputStream.nullInputStream(),
+                1024, "image/jpeg", "\"m-media123\"", 0L, () -> leaseClosed[0] = true);
+        when(hotImageCache.stamp()).thenReturn(42L);
+        when(mediaMetadataCache.find("media123")).thenReturn(Optional.of(testMedia));
+        when(mediaStorage.localPath("/uploads/test_image.jpg")).thenReturn(Optional.of(file));
+        when(hotImageCache.admitOnMiss("media123")).thenReturn(true);
+        when(hotImageCache.fill(eq("media123"), any(MediaContent.class), eq(42L))).thenReturn(Optional.of(cached));
+
+        // Act
+        MediaContent content = mediaService.getContent("media123");
+
+        // Assert
+        assertTrue(content.isFile());
+        assertEquals(file, content.getFile());
+        assertTrue(leaseClosed[0]);
+    }
+
+    @Test
+    @DisplayName("Should not copy an image into the hot cache on its first miss")
+    void testGetContentFirstMissNotCached() {
+        // Arrange
+        Path file = Path.of("uploads", "test_image.jpg");
+        when(mediaMetadataCache.find("media123")).thenReturn(Optional.of(testMedia));
+        when(mediaStorage.localPath("/uploads/test_image.jpg")).thenReturn(Optional.of(file));
+        when(hotImageCache.admitOnMiss("media123")).thenReturn(false);
+
+        // Act
+        MediaContent content = mediaService.getContent("media123");
+
+        // Assert
+        assertEquals(file, content.getFile());
+        verify(hotImageCache, never()).fill(anyString(), any(MediaContent.class), anyLong());
+    }
+
+    @Test
+    @DisplayName("Should answer not found from the metadata cache for deleted media")
+    void testGetContentKnownMissing() {
+        // Arrange
+        when(mediaMetadataCache.find("gone")).thenReturn(Optional.empty());
+
+        // Act & Assert
+        assertThrows(ResourceNotFoundException.class, () -> mediaService.getContent("gone"));
+        verifyNoInteractions(mediaRepository, mediaStorage);
+    }
+
+    @Test
+    @DisplayName("Should throw not found when the storage backend has no object")
+    void testGetContentMissing() throws IOException {
+        // Arrange
+        when(mediaMetadataCache.find("media123")).thenReturn(Optional.of(testMedia));
+        when(mediaStorage.localPath("/uploads/test_image.jpg")).thenReturn(Optional.empty());
+        when(mediaStorage.stat("/uploads/test_image.jpg")).thenReturn(Optional.empty());
+
+        // Act & Assert
+        assertThrows(ResourceNotFoundException.class, () -> mediaService.getContent("media123"));
+    }
+
+    @Test
+    @DisplayName("Should tombstone the record and leave its bytes to the sweeper")
+    void testDeleteTombstones() throws IOException {
+        // Arrange
+        testMedia.setContentHash("abc123");
+        User user = new User();
+        user.setId("user123");
+        when(mediaRepository.findById("media123")).thenReturn(Optional.of(testMedia));
+        when(mediaRepository.markDeleted(eq(List.of("media123")), any(LocalDateTime.class))).thenReturn(1L);
+
+        // Act
+        mediaService.delete("media123", user);
+
+        // Assert
+        verify(storageQuotaService).release("user123", 1024L, 1);
+        verify(mediaRepository, never()).delete(any(Media.class));
+        verify(hotImageCache).invalidate("media123");
+        verify(mediaMetadataCache).markMissing(List.of("media123"));
+        verify(mediaEventPublisher).publishDeleted(List.of(testMedia));
+        verify(mediaBlobService, never()).release(anyString());
+        verify(mediaStorage, never()).delete(anyString());
+    }
+
+    @Test
+    @DisplayName("Should treat tombstoned media as not found")
+    void testDeleteAlreadyTombstoned() {
+        // Arrange
+        testMedia.setDeletedAt(LocalDateTime.now());
+        User user = new User();
+        user.setId("user123");
+        when(mediaRepository.findById("media123")).thenReturn(Optional.of(testMedia));
+
+        // Act & Assert
+        assertThrows(ResourceNotFoundException.class, () -> mediaService.delete("media123", user));
+        verify(mediaRepository, never()).markDeleted(anyList(), any(LocalDateTime.class));
+    }
+
+    @Test
+    @DisplayName("Should tombstone only the live media of a product.deleted event")
+    void testDeleteMediaByIdsSkipsTombstoned() {
+        // Arrange
+        Media deleted = Media.builder().id("media456").deletedAt(LocalDateTime.now()).build();
+        when(mediaRepository.findAllById(List.of("media123", "media456"))).thenReturn(List.of(testMedia, deleted));
+
+        // Act
+        mediaService.deleteMediaByIds(List.of("media123", "media456"));
+
+        // Assert
+        verify(mediaRepository).markDeleted(eq(List.of("media123")), any(LocalDateTime.class));
+        verify(mediaEventPublisher).publishDeleted(List.of(testMedia));
+    }
+
+    @Test
+    @DisplayName("Should release the blob reference when the content is swept")
+    void testReleaseContentReleasesBlob() throws IOException {
+        // Arrange
+        testMedia.setContentHash("abc123");
+
+        // Act
+        mediaService.releaseContent(testMedia);
+
+        // Assert
+        verify(mediaBlobService).release("abc123");
+        verify(mediaStorage, never()).delete(anyString());
+        // Other media still reference the content, so its variants stay cached
+        verify(imageVariantService, never()).evict(any(Media.class));
+    }
+
+    @Test
+    @DisplayName("Should delete the own file of media stored before deduplication")
+    void testReleaseContentLegacyMedia() throws IOException {
+        // Act
+        mediaService.releaseContent(testMedia);
+
+        // Assert
+        verify(mediaStorage).delete("/uploads/test_image.jpg");
+        verify(mediaBlobService, never()).release(anyString());
+        verify(imageVariantService).evict(testMedia);
+    }
+}
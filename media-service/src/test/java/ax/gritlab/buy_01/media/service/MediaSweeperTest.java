@@ -0,0 +1,117 @@
+package ax.gritlab.buy_01.media.service;
+
+import ax.gritlab.buy_01.media.model.Media;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("MediaSweeper Unit Tests")
+class MediaSweeperTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private MediaService mediaService;
+
+    private SimpleMeterRegistry meterRegistry;
+    private MediaSweeper sweeper;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        sweeper = new MediaSweeper(mongoTemplate, mediaService, meterRegistry, 2, 2, 0);
+    }
+
+    @AfterEach
+    void tearDown() {
+        sweeper.shutdown();
+    }
+
+    @Test
+    @DisplayName("Should remove tombstoned records in batches and release their content")
+    void testSweepsInBatches() {
+        // Arrange
+        Media first = tombstone("media1");
+        Media second = tombstone("media2");
+        Media third = tombstone("media3");
+        when(mongoTemplate.find(any(Query.class), eq(Media.class)))
+                .thenReturn(List.of(first, second), List.of(third));
+        when(mongoTemplate.findAndRemove(any(Query.class), eq(Media.class)))
+                .thenReturn(first, second, third);
+        when(mongoTemplate.count(any(Query.class), eq(Media.class))).thenReturn(0L);
+
+        // Act
+        int removed = sweeper.sweep();
+
+        // Assert
+        assertEquals(3, removed);
+        verify(mediaService).releaseContent(first);
+        verify(mediaService).releaseContent(second);
+        verify(mediaService).releaseContent(third);
+        assertEquals(3.0, meterRegistry.get("media.sweeper.swept").counter().count());
+        assertEquals(3L, meterRegistry.get("media.sweeper.latency").timer().count());
+        assertEquals(0.0, meterRegistry.get("media.sweeper.backlog").gauge().value());
+    }
+
+    @Test
+    @DisplayName("Should not release content of a record another instance already swept")
+    void testSkipsRecordsTakenElsewhere() {
+        // Arrange
+        when(mongoTemplate.find(any(Query.class), eq(Media.class))).thenReturn(List.of(tombstone("media1")));
+        when(mongoTemplate.findAndRemove(any(Query.class), eq(Media.class))).thenReturn(null);
+        when(mongoTemplate.count(any(Query.class), eq(Media.class))).thenReturn(0L);
+
+        // Act
+        int removed = sweeper.sweep();
+
+        // Assert
+        assertEquals(0, removed);
+        verify(mediaService, never()).releaseContent(any(Media.class));
+    }
+
+    @Test
+    @DisplayName("Should count failures and report the remaining backlog")
+    void testFailureKeepsBacklog() {
+        // Arrange
+        Media media = tombstone("media1");
+        when(mongoTemplate.find(any(Query.class), eq(Media.class))).thenReturn(List.of(media, tombstone("media2")));
+        when(mongoTemplate.findAndRemove(any(Query.class), eq(Media.class)))
+                .thenThrow(new IllegalStateException("Mongo unavailable"));
+        when(mongoTemplate.count(any(Query.class), eq(Media.class))).thenReturn(2L);
+
+        // Act
+        int removed = sweeper.sweep();
+
+        // Assert
+        assertEquals(0, removed);
+        assertEquals(2.0, meterRegistry.get("media.sweeper.failed").counter().count());
+        assertEquals(2L, sweeper.backlog());
+        // A batch with no progress ends the run instead of spinning on it
+        verify(mongoTemplate, times(1)).find(any(Query.class), eq(Media.class));
+    }
+
+    private static Media tombstone(String id) {
+        return Media.builder()
+                .id(id)
+                .filePath(id + ".jpg")
+                .deletedAt(LocalDateTime.now().minusSeconds(5))
+                .build();
+    }
+}
@@ -0,0 +1,262 @@
+package ax.gritlab.buy_01.media.service;
+
+import ax.gritlab.buy_01.media.config.UploadProperties;
+import ax.gritlab.buy_01.media.dto.UploadSessionRequest;
+import ax.gritlab.buy_01.media.exception.InvalidUploadChunkException;
+import ax.gritlab.buy_01.media.exception.UnauthorizedException;
+import ax.gritlab.buy_01.media.exception.UploadConflictException;
+import ax.gritlab.buy_01.media.model.UploadSession;
+import ax.gritlab.buy_01.media.model.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("ResumableUploadService Unit Tests")
+class ResumableUploadServiceTest {
+
+    private static final int CHUNK = 4;
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private MediaService mediaService;
+
+    @TempDir
+    Path tempDir;
+
+    private ResumableUploadService service;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        UploadProperties properties = new UploadProperties();
+        properties.getResumable().setDirectory(tempDir.toString());
+        properties.getResumable().setChunkSize(DataSize.ofBytes(CHUNK));
+        service = new ResumableUploadService(mongoTemplate, mediaService, properties);
+        user = User.builder().id("user123").build();
+    }
+
+    @Test
+    @DisplayName("Should preallocate the file and record the chunk layout")
+    void testCreatePreallocates() throws Exception {
+        // Arrange
+        when(mongoTemplate.insert(any(UploadSession.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // Act
+        UploadSession session = service.create(request(10), user);
+
+        // Assert
+        verify(mediaService).validateUpload("image/jpeg", 10, user);
+        assertEquals(3, session.getChunkCount());
+        assertEquals(CHUNK, session.getChunkSize());
+        assertEquals(10, Files.size(tempDir.resolve(session.getId() + ".part")));
+        assertTrue(session.getExpiresAt().isAfter(LocalDateTime.now()));
+    }
+
+    @Test
+    @DisplayName("Should write chunks at their offsets in any order")
+    void testWriteChunksOutOfOrder() throws Exception {
+        // Arrange
+        byte[] content = "0123456789".getBytes();
+        UploadSession session = createSession(content.length);
+        when(mongoTemplate.findAndModify(any(Query.class), any(UpdateDefinition.class),
+                any(FindAndModifyOptions.class), eq(UploadSession.class))).thenReturn(session);
+
+        // Act
+        for (int offset : new int[] {8, 0, 4}) {
+            byte[] chunk = Arrays.copyOfRange(content, offset, Math.min(content.length, offset + CHUNK));
+            service.writeChunk(session.getId(), user, offset, checksum(chunk), new ByteArrayInputStream(chunk),
+                    chunk.length);
+        }
+
+        // Assert
+        assertArrayEquals(content, Files.readAllBytes(tempDir.resolve(session.getId() + ".part")));
+        verify(mongoTemplate, times(3)).findAndModify(any(Query.class), any(UpdateDefinition.class),
+                any(FindAndModifyOptions.class), eq(UploadSession.class));
+    }
+
+    @Test
+    @DisplayName("Should not record a chunk whose checksum does not match")
+    void testWriteChunkChecksumMismatch() throws Exception {
+        // Arrange
+        UploadSession session = createSession(8);
+        byte[] chunk = "abcd".getBytes();
+
+        // Act & Assert
+        assertThrows(InvalidUploadChunkException.class, () -> service.writeChunk(session.getId(), user, 0,
+                checksum("abce".getBytes()), new ByteArrayInputStream(chunk), chunk.length));
+        verify(mongoTemplate, never()).findAndModify(any(Query.class), any(UpdateDefinition.class),
+                any(FindAndModifyOptions.class), eq(UploadSession.class));
+    }
+
+    @Test
+    @DisplayName("Should leave verified bytes alone when a bad copy of the same chunk races them")
+    void testWriteChunkBadRetryKeepsVerifiedBytes() throws Exception {
+        // Arrange - the good copy is on disk, but this request read the session before it was recorded
+        UploadSession session = createSession(8);
+        byte[] good = "abcd".getBytes();
+        Path part = tempDir.resolve(session.getId() + ".part");
+        Files.write(part, "abcd\0\0\0\0".getBytes());
+
+        // Act & Assert
+        assertThrows(InvalidUploadChunkException.class, () -> service.writeChunk(session.getId(), user, 0,
+                checksum(good), new ByteArrayInputStream("abce".getBytes()), good.length));
+        assertArrayEquals("abcd\0\0\0\0".getBytes(), Files.readAllBytes(part));
+        try (Stream<Path> files = Files.list(tempDir)) {
+            assertEquals(List.of(part), files.toList()); // No staged chunk left behind
+        }
+    }
+
+    @Test
+    @DisplayName("Should reject misaligned offsets and short chunks")
+    void testWriteChunkValidatesLayout() throws Exception {
+        // Arrange
+        UploadSession session = createSession(8);
+        byte[] chunk = "abcd".getBytes();
+
+        // Act & Assert
+        assertThrows(InvalidUploadChunkException.class, () -> service.writeChunk(session.getId(), user, 2,
+                checksum(chunk), new ByteArrayInputStream(chunk), chunk.length));
+        assertThrows(InvalidUploadChunkException.class, () -> service.writeChunk(session.getId(), user, 4,
+                checksum(chunk), new ByteArrayInputStream(chunk, 0, 3), -1));
+        assertThrows(InvalidUploadChunkException.class, () -> service.writeChunk(session.getId(), user, 0,
+                "md5 abc", new ByteArrayInputStream(chunk), chunk.length));
+    }
+
+    @Test
+    @DisplayName("Should refuse uploads owned by another user")
+    void testWriteChunkUnauthorized() throws Exception {
+        // Arrange
+        UploadSession session = createSession(8);
+        User other = User.builder().id("other").build();
+        byte[] chunk = "abcd".getBytes();
+
+        // Act & Assert
+        assertThrows(UnauthorizedException.class, () -> service.writeChunk(session.getId(), other, 0,
+                checksum(chunk), new ByteArrayInputStream(chunk), chunk.length));
+    }
+
+    @Test
+    @DisplayName("Should refuse to complete while chunks are missing")
+    void testCompleteIncomplete() throws Exception {
+        // Arrange
+        UploadSession session = createSession(8);
+        session.getReceivedChunks().add(0);
+
+        // Act & Assert
+        assertThrows(UploadConflictException.class, () -> service.complete(session.getId(), user));
+        verify(mediaService, never()).saveUpload(any(), any(), any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("Should hand a complete upload to MediaService and drop the session")
+    void testComplete() throws Exception {
+        // Arrange
+        UploadSession session = createSession(8);
+        session.getReceivedChunks().addAll(List.of(1, 0));
+        when(mongoTemplate.findAndModify(any(Query.class), any(UpdateDefinition.class), eq(UploadSession.class)))
+                .thenReturn(session);
+        Path part = tempDir.resolve(session.getId() + ".part");
+
+        // Act
+        service.complete(session.getId(), user);
+
+        // Assert
+        verify(mediaService).saveUpload(session.getId(), "photo.jpg", "image/jpeg", part, user);
+        verify(mongoTemplate).remove(any(Query.class), eq(UploadSession.class));
+        assertFalse(Files.exists(part));
+    }
+
+    @Test
+    @DisplayName("Should expire abandoned sessions and orphaned partial files")
+    void testExpireSessions() throws Exception {
+        // Arrange
+        UploadSession stale = createSession(8);
+        Path orphan = Files.createFile(tempDir.resolve("0123456789abcdef01234567.part"));
+        Files.setLastModifiedTime(orphan, FileTime.fromMillis(0));
+        when(mongoTemplate.find(any(Query.class), eq(UploadSession.class))).thenReturn(List.of(stale));
+        when(mongoTemplate.findAndRemove(any(Query.class), eq(UploadSession.class))).thenReturn(stale);
+        when(mongoTemplate.exists(any(Query.class), eq(UploadSession.class))).thenReturn(false);
+
+        // Act
+        int expired = service.expireSessions();
+
+        // Assert
+        assertEquals(2, expired);
+        assertFalse(Files.exists(tempDir.resolve(stale.getId() + ".part")));
+        assertFalse(Files.exists(orphan));
+        ArgumentCaptor<Query> removed = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).findAndRemove(removed.capture(), eq(UploadSession.class));
+        assertTrue(removed.getValue().getQueryObject().toString().contains("expiresAt"));
+    }
+
+    @Test
+    @DisplayName("Should expire a session whose completion was claimed by an instance that died")
+    void testExpireStuckCompletion() throws Exception {
+        // Arrange
+        UploadSession stuck = createSession(8);
+        stuck.setCompleting(true);
+        stuck.setCompletingAt(LocalDateTime.now().minusHours(2));
+        when(mongoTemplate.find(any(Query.class), eq(UploadSession.class))).thenReturn(List.of(stuck));
+        when(mongoTemplate.findAndRemove(any(Query.class), eq(UploadSession.class))).thenReturn(stuck);
+        ArgumentCaptor<Query> removed = ArgumentCaptor.forClass(Query.class);
+
+        // Act
+        int expired = service.expireSessions();
+
+        // Assert
+        assertEquals(1, expired);
+        assertFalse(Files.exists(tempDir.resolve(stuck.getId() + ".part")));
+        verify(mongoTemplate).findAndRemove(removed.capture(), eq(UploadSession.class));
+        assertTrue(removed.getValue().getQueryObject().toString().contains("completingAt"));
+    }
+
+    private UploadSession createSession(long size) {
+        when(mongoTemplate.insert(any(UploadSession.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        UploadSession session = service.create(request(size), user);
+        session.setReceivedChunks(new ArrayList<>());
+        lenient().when(mongoTemplate.findById(session.getId(), UploadSession.class)).thenReturn(session);
+        return session;
+    }
+
+    private static UploadSessionRequest request(long size) {
+        return UploadSessionRequest.builder()
+                .filename("photo.jpg")
+                .contentType("image/jpeg")
+                .size(size)
+                .build();
+    }
+
+    private static String checksum(byte[] chunk) throws Exception {
+        return "sha256 " + Base64.getEncoder().encodeToString(MessageDigest.getInstance("SHA-256").digest(chunk));
+    }
+}
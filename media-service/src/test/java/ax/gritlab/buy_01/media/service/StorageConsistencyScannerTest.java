@@ -0,0 +1,144 @@
+package ax.gritlab.buy_01.media.service;
+
+import ax.gritlab.buy_01.media.dto.ConsistencyReport;
+import ax.gritlab.buy_01.media.model.Media;
+import ax.gritlab.buy_01.media.model.MediaBlob;
+import ax.gritlab.buy_01.media.storage.FileSystemMediaStorage;
+import ax.gritlab.buy_01.media.storage.MediaStorage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("StorageConsistencyScanner Unit Tests")
+class StorageConsistencyScannerTest {
+
+    private static final byte[] CONTENT = "image-bytes".getBytes();
+
+    @TempDir
+    Path tempDir;
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private MediaService mediaService;
+
+    private FileSystemMediaStorage storage;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        storage = new FileSystemMediaStorage(tempDir.resolve("uploads"), true);
+        for (String key : List.of("a.jpg", "b.jpg", "c.jpg", "orphan.jpg")) {
+            storage.put(key, new ByteArrayInputStream(CONTENT), CONTENT.length, "image/jpeg");
+            age(key);
+        }
+    }
+
+    @Test
+    @DisplayName("Should report orphan files and dangling keys without changing anything")
+    void testReportOnly() {
+        // Arrange: a run size of 2 spills several sorted runs to disk
+        StorageConsistencyScanner scanner = scanner(2);
+
+        // Act
+        ConsistencyReport report = scanner.scan(false);
+
+        // Assert
+        assertEquals(4, report.getStoredObjects());
+        assertEquals(4, report.getReferencedKeys());
+        assertEquals(1, report.getOrphanFiles());
+        assertEquals(List.of("orphan.jpg"), report.getOrphanSamples());
+        assertEquals(1, report.getDanglingKeys());
+        assertEquals(List.of("gone.jpg"), report.getDanglingSamples());
+        assertTrue(storage.exists("orphan.jpg"));
+        verify(mediaService, never()).deleteMediaByIds(any());
+    }
+
+    @Test
+    @DisplayName("Should delete orphan files and the media whose bytes are missing")
+    void testRepair() {
+        // Arrange
+        StorageConsistencyScanner scanner = scanner(1000);
+        when(mongoTemplate.exists(any(Query.class), eq(Media.class))).thenReturn(false);
+        when(mongoTemplate.exists(any(Query.class), eq(MediaBlob.class))).thenReturn(false);
+        when(mongoTemplate.find(any(Query.class), eq(Media.class))).thenReturn(List.of(media("m3", "gone.jpg")));
+
+        // Act
+        ConsistencyReport report = scanner.scan(true);
+
+        // Assert
+        assertFalse(storage.exists("orphan.jpg"));
+        assertTrue(storage.exists("a.jpg"));
+        assertEquals(1, report.getRepairedOrphans());
+        verify(mediaService).deleteMediaByIds(List.of("m3"));
+        assertEquals(1, report.getRepairedDangling());
+    }
+
+    @Test
+    @DisplayName("Should leave files younger than the grace period alone")
+    void testGracePeriod() throws IOException {
+        // Arrange
+        storage.put("uploading.jpg", new ByteArrayInputStream(CONTENT), CONTENT.length, "image/jpeg");
+        StorageConsistencyScanner scanner = scanner(1000);
+
+        // Act
+        ConsistencyReport report = scanner.scan(true);
+
+        // Assert
+        assertTrue(storage.exists("uploading.jpg"));
+        assertEquals(List.of("orphan.jpg"), report.getOrphanSamples());
+    }
+
+    @Test
+    @DisplayName("Should refuse backends that cannot list their objects")
+    void testUnsupportedBackend() {
+        // Arrange
+        StorageConsistencyScanner scanner = new StorageConsistencyScanner(mock(MediaStorage.class), mongoTemplate,
+                mediaService, 1000, 2, Duration.ofHours(1), tempDir.toString(), false);
+
+        // Act & Assert
+        assertThrows(IllegalStateException.class, () -> scanner.scan(false));
+    }
+
+    private StorageConsistencyScanner scanner(int runSize) {
+        // m6 shares a.jpg's blob, so a.jpg is referenced three times
+        when(mongoTemplate.stream(any(Query.class), eq(Media.class))).thenReturn(Stream.of(
+                media("m1", "a.jpg"), media("m2", "b.jpg"), media("m3", "gone.jpg"),
+                media("m4", "https://example.com/seed.jpg"), media("m5", "c.jpg"), media("m6", "a.jpg")));
+        when(mongoTemplate.stream(any(Query.class), eq(MediaBlob.class))).thenReturn(Stream.of(
+                MediaBlob.builder().id("hash-a").filePath("a.jpg").build()));
+        return new StorageConsistencyScanner(storage, mongoTemplate, mediaService, runSize, 2,
+                Duration.ofHours(1), tempDir.resolve("scan").toString(), false);
+    }
+
+    private void age(String key) throws IOException {
+        Files.setLastModifiedTime(storage.localPath(key).orElseThrow(),
+                FileTime.from(Instant.now().minus(Duration.ofHours(2))));
+    }
+
+    private static Media media(String id, String filePath) {
+        return Media.builder().id(id).filePath(filePath).build();
+    }
+}
@@ -0,0 +1,174 @@
+package ax.gritlab.buy_01.media.service;
+
+import ax.gritlab.buy_01.media.config.UploadProperties;
+import ax.gritlab.buy_01.media.dto.StorageUsageResponse;
+import ax.gritlab.buy_01.media.exception.QuotaExceededException;
+import ax.gritlab.buy_01.media.model.Media;
+import ax.gritlab.buy_01.media.model.Role;
+import ax.gritlab.buy_01.media.model.StorageUsage;
+import ax.gritlab.buy_01.media.model.User;
+import com.mongodb.client.result.UpdateResult;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationResults;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.util.unit.DataSize;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("StorageQuotaService Unit Tests")
+class StorageQuotaServiceTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    private StorageQuotaService service;
+    private User seller;
+
+    @BeforeEach
+    void setUp() {
+        UploadProperties properties = new UploadProperties();
+        properties.getQuota().getMaxBytes().put(Role.SELLER, DataSize.ofBytes(1000));
+        properties.getQuota().getMaxFiles().put(Role.SELLER, 10L);
+        service = new StorageQuotaService(mongoTemplate, properties);
+        seller = User.builder().id("seller1").role(Role.SELLER).build();
+    }
+
+    @Test
+    @DisplayName("Should charge an upload with one conditional upsert")
+    void testReserveCharges() {
+        // Arrange
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+
+        // Act
+        service.reserve(seller, 300);
+
+        // Assert
+        verify(mongoTemplate).upsert(query.capture(), update.capture(), eq(StorageUsage.class));
+        Document criteria = query.getValue().getQueryObject();
+        assertEquals("seller1", criteria.get("_id"));
+        assertEquals(700L, criteria.get("bytes", Document.class).get("$lte"));
+        assertEquals(9L, criteria.get("files", Document.class).get("$lte"));
+        Document inc = update.getValue().getUpdateObject().get("$inc", Document.class);
+        assertEquals(300L, inc.get("bytes"));
+        assertEquals(1, inc.get("files"));
+    }
+
+    @Test
+    @DisplayName("Should reject an upload that does not fit and count nothing")
+    void testReserveOverQuota() {
+        // Arrange
+        when(mongoTemplate.upsert(any(Query.class), any(Update.class), eq(StorageUsage.class)))
+                .thenThrow(new DuplicateKeyException("E11000"));
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(StorageUsage.class)))
+                .thenReturn(UpdateResult.acknowledged(0, 0L, null));
+
+        // Act & Assert
+        assertThrows(QuotaExceededException.class, () -> service.reserve(seller, 300));
+    }
+
+    @Test
+    @DisplayName("Should retry when a concurrent first upload created the counter")
+    void testReserveAfterConcurrentInsert() {
+        // Arrange
+        when(mongoTemplate.upsert(any(Query.class), any(Update.class), eq(StorageUsage.class)))
+                .thenThrow(new DuplicateKeyException("E11000"));
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(StorageUsage.class)))
+                .thenReturn(UpdateResult.acknowledged(1, 1L, null));
+
+        // Act & Assert
+        assertDoesNotThrow(() -> service.reserve(seller, 300));
+    }
+
+    @Test
+    @DisplayName("Should reject a file larger than the whole quota without a query")
+    void testReserveLargerThanQuota() {
+        // Act & Assert
+        assertThrows(QuotaExceededException.class, () -> service.reserve(seller, 1001));
+        verifyNoInteractions(mongoTemplate);
+    }
+
+    @Test
+    @DisplayName("Should report usage against the role's quota")
+    void testUsage() {
+        // Arrange
+        when(mongoTemplate.findById("seller1", StorageUsage.class))
+                .thenReturn(StorageUsage.builder().id("seller1").bytes(250).files(3).build());
+
+        // Act
+        StorageUsageResponse usage = service.usage(seller);
+
+        // Assert
+        assertEquals(250, usage.getBytes());
+        assertEquals(3, usage.getFiles());
+        assertEquals(1000, usage.getMaxBytes());
+        assertEquals(10, usage.getMaxFiles());
+        assertThrows(QuotaExceededException.class, () -> service.check(seller, 751));
+        assertDoesNotThrow(() -> service.check(seller, 750));
+    }
+
+    @Test
+    @DisplayName("Should correct drifted, stale and missing counters")
+    void testReconcile() {
+        // Arrange
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq(Media.class), eq(Document.class)))
+                .thenReturn(new AggregationResults<>(List.of(
+                        new Document("_id", "exact").append("bytes", 100L).append("files", 2),
+                        new Document("_id", "drifted").append("bytes", 300L).append("files", 3),
+                        new Document("_id", "uncounted").append("bytes", 50L).append("files", 1)),
+                        new Document()));
+        when(mongoTemplate.stream(any(Query.class), eq(StorageUsage.class))).thenReturn(Stream.of(
+                StorageUsage.builder().id("exact").bytes(100).files(2).build(),
+                StorageUsage.builder().id("drifted").bytes(900).files(4).build(),
+                StorageUsage.builder().id("emptied").bytes(40).files(1).build()));
+        when(mongoTemplate.upsert(any(Query.class), any(Update.class), eq(StorageUsage.class)))
+                .thenReturn(UpdateResult.acknowledged(1, 1L, null));
+        ArgumentCaptor<Query> queries = ArgumentCaptor.forClass(Query.class);
+
+        // Act
+        int corrected = service.reconcile();
+
+        // Assert
+        assertEquals(3, corrected);
+        verify(mongoTemplate, times(3)).upsert(queries.capture(), any(Update.class), eq(StorageUsage.class));
+        Set<Object> users = queries.getAllValues().stream()
+                .map(query -> query.getQueryObject().get("_id"))
+                .collect(Collectors.toSet());
+        assertEquals(Set.of("drifted", "emptied", "uncounted"), users);
+    }
+
+    @Test
+    @DisplayName("Should leave a counter alone when it changed during the reconciliation")
+    void testReconcileSkipsChangedCounter() {
+        // Arrange
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq(Media.class), eq(Document.class)))
+                .thenReturn(new AggregationResults<>(List.of(), new Document()));
+        when(mongoTemplate.stream(any(Query.class), eq(StorageUsage.class))).thenReturn(Stream.of(
+                StorageUsage.builder().id("busy").bytes(40).files(1).build()));
+        when(mongoTemplate.upsert(any(Query.class), any(Update.class), eq(StorageUsage.class)))
+                .thenThrow(new DuplicateKeyException("E11000"));
+
+        // Act & Assert
+        assertEquals(0, service.reconcile());
+    }
+}
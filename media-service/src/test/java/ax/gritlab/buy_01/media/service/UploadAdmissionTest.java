@@ -0,0 +1,128 @@
+package ax.gritlab.buy_01.media.service;
+
+import ax.gritlab.buy_01.media.config.UploadProperties;
+import ax.gritlab.buy_01.media.exception.UploadRejectedException;
+import ax.gritlab.buy_01.media.storage.InMemoryMediaStorage;
+import ax.gritlab.buy_01.media.storage.MediaStorage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@DisplayName("UploadAdmission Unit Tests")
+class UploadAdmissionTest {
+
+    @TempDir
+    Path bufferDirectory;
+
+    private SimpleMeterRegistry meterRegistry;
+    private UploadProperties properties;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        properties = new UploadProperties();
+        properties.getAdmission().setMaxConcurrent(2);
+        properties.getAdmission().setMaxInFlight(DataSize.ofBytes(1000));
+        properties.getAdmission().setMinFreeDisk(DataSize.ofBytes(0));
+        properties.getAdmission().setQueueTimeout(Duration.ZERO);
+        properties.getAdmission().setRetryAfter(Duration.ofSeconds(7));
+    }
+
+    @Test
+    @DisplayName("Should reject uploads beyond the concurrency limit until one finishes")
+    void testConcurrencyLimit() {
+        // Arrange
+        UploadAdmission admission = admission(new InMemoryMediaStorage());
+        UploadAdmission.Permit first = admission.admit(10);
+        admission.admit(10);
+
+        // Act
+        UploadRejectedException rejected = assertThrows(UploadRejectedException.class, () -> admission.admit(10));
+        first.close();
+        first.close(); // Released once
+
+        // Assert
+        assertEquals(Duration.ofSeconds(7), rejected.getRetryAfter());
+        assertEquals(1, admission.active());
+        assertDoesNotThrow(() -> admission.admit(10));
+        assertEquals(1.0, rejectedCount("concurrency"));
+    }
+
+    @Test
+    @DisplayName("Should limit in-flight bytes but admit an oversized upload when idle")
+    void testByteBudget() {
+        // Arrange
+        UploadAdmission admission = admission(new InMemoryMediaStorage());
+
+        // Act
+        UploadAdmission.Permit large = admission.admit(5000);
+
+        // Assert
+        assertEquals(5000, admission.inFlight());
+        assertThrows(UploadRejectedException.class, () -> admission.admit(1));
+        assertEquals(1.0, rejectedCount("bytes"));
+        large.close();
+        assertEquals(0, admission.inFlight());
+    }
+
+    @Test
+    @DisplayName("Should reject when the storage volume is short of space")
+    void testDiskRoom() {
+        // Arrange
+        MediaStorage storage = mock(MediaStorage.class);
+        when(storage.usableSpace()).thenReturn(500L);
+        UploadAdmission admission = admission(storage);
+
+        // Act & Assert
+        assertDoesNotThrow(() -> admission.admit(400).close());
+        assertThrows(UploadRejectedException.class, () -> admission.admit(600));
+        assertEquals(1.0, rejectedCount("disk"));
+    }
+
+    @Test
+    @DisplayName("Should let a queued upload in when room frees up within the queue timeout")
+    void testQueuedUploadAdmitted() throws Exception {
+        // Arrange
+        properties.getAdmission().setQueueTimeout(Duration.ofSeconds(5));
+        UploadAdmission admission = admission(new InMemoryMediaStorage());
+        UploadAdmission.Permit first = admission.admit(10);
+        UploadAdmission.Permit second = admission.admit(10);
+
+        // Act
+        CompletableFuture<UploadAdmission.Permit> queued = CompletableFuture.supplyAsync(() -> admission.admit(10));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (admission.queued() == 0 && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+        assertEquals(1.0, meterRegistry.get("media.upload.admission.queued").gauge().value());
+        first.close();
+
+        // Assert
+        assertNotNull(queued.get(5, TimeUnit.SECONDS));
+        assertEquals(2, admission.active());
+        assertEquals(0, admission.queued());
+        assertEquals(1, meterRegistry.get("media.upload.admission.wait").timer().count());
+        second.close();
+    }
+
+    private UploadAdmission admission(MediaStorage storage) {
+        return new UploadAdmission(storage, properties, meterRegistry, bufferDirectory.toString(),
+                DataSize.ofMegabytes(40));
+    }
+
+    private double rejectedCount(String reason) {
+        return meterRegistry.get("media.upload.admission.rejected").tag("reason", reason).counter().count();
+    }
+}
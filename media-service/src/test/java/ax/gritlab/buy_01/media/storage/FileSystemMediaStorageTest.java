@@ -0,0 +1,114 @@
+package ax.gritlab.buy_01.media.storage;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("FileSystemMediaStorage Layout Tests")
+class FileSystemMediaStorageTest {
+
+    private static final byte[] CONTENT = "0123456789abcdef".getBytes();
+
+    @TempDir
+    Path root;
+
+    @Test
+    @DisplayName("Should fan keys out to two levels of shard directories")
+    void testShardedLayout() throws IOException {
+        // Arrange
+        FileSystemMediaStorage storage = new FileSystemMediaStorage(root, true);
+
+        // Act
+        storage.put("65f1c2a9e4b0a1b2c3d4e5f6.jpg", new ByteArrayInputStream(CONTENT), CONTENT.length, "image/jpeg");
+
+        // Assert
+        Path file = storage.localPath("65f1c2a9e4b0a1b2c3d4e5f6.jpg").orElseThrow();
+        Path relative = root.toAbsolutePath().normalize().relativize(file);
+        assertEquals(3, relative.getNameCount());
+        assertTrue(relative.getName(0).toString().matches("[0-9a-f]{2}"));
+        assertTrue(relative.getName(1).toString().matches("[0-9a-f]{2}"));
+        assertFalse(Files.exists(root.resolve("65f1c2a9e4b0a1b2c3d4e5f6.jpg")));
+    }
+
+    @Test
+    @DisplayName("Should read flat files until they are migrated, then from their shard")
+    void testMigration() throws Exception {
+        // Arrange
+        for (int i = 0; i < 50; i++) {
+            Files.write(root.resolve("legacy-" + i + ".jpg"), CONTENT);
+        }
+        Files.createDirectories(root.resolve("variants"));
+        Files.write(root.resolve("variants").resolve("keep.jpg"), CONTENT);
+        FileSystemMediaStorage storage = new FileSystemMediaStorage(root, true);
+
+        // Assert: readable through the fallback before migration
+        assertTrue(storage.isMigrating());
+        assertArrayEquals(CONTENT, readAll(storage, "legacy-7.jpg"));
+
+        // Act
+        FileSystemLayoutMigrator migrator = new FileSystemLayoutMigrator(storage, 2);
+        migrator.run();
+        migrator.stop();
+
+        // Assert
+        assertFalse(storage.isMigrating());
+        assertEquals(50, migrator.moved());
+        try (Stream<Path> flat = Files.list(root)) {
+            assertEquals(0, flat.filter(path -> path.getFileName().toString().startsWith("legacy-")).count());
+        }
+        assertTrue(Files.exists(root.resolve("variants").resolve("keep.jpg")));
+        for (int i = 0; i < 50; i++) {
+            assertArrayEquals(CONTENT, readAll(storage, "legacy-" + i + ".jpg"));
+        }
+        // The marker keeps later starts from looking at the flat layout
+        assertFalse(new FileSystemMediaStorage(root, true).isMigrating());
+    }
+
+    @Test
+    @DisplayName("Should not migrate a stale flat copy over newer sharded content")
+    void testMigrationKeepsNewerContent() throws Exception {
+        // Arrange
+        Files.write(root.resolve("photo.jpg"), "old".getBytes());
+        FileSystemMediaStorage storage = new FileSystemMediaStorage(root, true);
+        storage.put("photo.jpg", new ByteArrayInputStream(CONTENT), CONTENT.length, "image/jpeg");
+
+        // Act
+        FileSystemLayoutMigrator migrator = new FileSystemLayoutMigrator(storage, 1);
+        migrator.run();
+        migrator.stop();
+
+        // Assert
+        assertArrayEquals(CONTENT, readAll(storage, "photo.jpg"));
+        assertFalse(Files.exists(root.resolve("photo.jpg")));
+    }
+
+    @Test
+    @DisplayName("Should delete flat copies while migration is pending")
+    void testDeleteDuringMigration() throws IOException {
+        // Arrange
+        Files.write(root.resolve("photo.jpg"), CONTENT);
+        FileSystemMediaStorage storage = new FileSystemMediaStorage(root, true);
+
+        // Act
+        storage.delete("photo.jpg");
+
+        // Assert
+        assertFalse(storage.exists("photo.jpg"));
+        assertFalse(Files.exists(root.resolve("photo.jpg")));
+    }
+
+    private static byte[] readAll(MediaStorage storage, String key) throws IOException {
+        try (InputStream in = storage.get(key)) {
+            return in.readAllBytes();
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package ax.gritlab.buy_01.media.storage;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Manual benchmark comparing upload and read throughput of the storage backends.
+ * Not picked up by Surefire; run it from the IDE or with
+ * {@code mvn -pl media-service test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=ax.gritlab.buy_01.media.storage.MediaStorageBenchmark}.
+ *
+ * <p>The S3 backend is measured against {@code -Dbenchmark.s3.endpoint=http://localhost:9000}
+ * (e.g. a local MinIO with test/test credentials) when set, otherwise against the
+ * in-process stand-in, which only shows client-side overhead.
+ */
+public class MediaStorageBenchmark {
+
+    private static final int OBJECT_SIZE = 256 * 1024;
+    private static final int OBJECTS = 400;
+    private static final int THREADS = 8;
+
+    public static void main(String[] args) throws Exception {
+        byte[] payload = new byte[OBJECT_SIZE];
+        new Random(42).nextBytes(payload);
+
+        Path dir = Files.createTempDirectory("media-storage-benchmark");
+        String s3Endpoint = System.getProperty("benchmark.s3.endpoint");
+        S3StandIn standIn = s3Endpoint == null ? new S3StandIn() : null;
+
+        Map<String, MediaStorage> backends = new LinkedHashMap<>();
+        backends.put("filesystem", new FileSystemMediaStorage(dir.resolve("files")));
+        backends.put("volume", new VolumeMediaStorage(dir.resolve("volumes"), 1024L * 1024 * 1024, false));
+        backends.put("memory", new InMemoryMediaStorage());
+        backends.put(s3Endpoint == null ? "s3 (stand-in)" : "s3",
+                MediaStorageTest.s3Storage(s3Endpoint != null ? s3Endpoint : standIn.endpoint()));
+
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            for (Map.Entry<String, MediaStorage> backend : backends.entrySet()) {
+                run(backend.getKey(), backend.getValue(), payload, pool);
+            }
+        } finally {
+            pool.shutdownNow();
+            if (standIn != null) {
+                standIn.close();
+            }
+        }
+    }
+
+    private static void run(String label, MediaStorage storage, byte[] payload, ExecutorService pool)
+            throws Exception {
+        // Warm up connections and JIT on a small batch first
+        measure(storage, payload, pool, OBJECTS / 10, "warmup-");
+
+        long[] nanos = measure(storage, payload, pool, OBJECTS, "bench-");
+        double megabytes = (double) OBJECTS * payload.length / (1024 * 1024);
+        System.out.printf("%-14s upload %8.1f MB/s   read %8.1f MB/s%n", label,
+                megabytes / (nanos[0] / 1e9), megabytes / (nanos[1] / 1e9));
+    }
+
+    private static long[] measure(MediaStorage storage, byte[] payload, ExecutorService pool, int count,
+            String prefix) throws Exception {
+        long start = System.nanoTime();
+        await(submit(pool, count, i -> storage.put(prefix + i + ".jpg", new ByteArrayInputStream(payload),
+                payload.length, "image/jpeg")));
+        long uploaded = System.nanoTime();
+        await(submit(pool, count, i -> {
+            try (InputStream in = storage.get(prefix + i + ".jpg")) {
+                return in.readAllBytes().length;
+            }
+        }));
+        long read = System.nanoTime();
+        await(submit(pool, count, i -> {
+            storage.delete(prefix + i + ".jpg");
+            return null;
+        }));
+        return new long[] {uploaded - start, read - uploaded};
+    }
+
+    private static List<Future<?>> submit(ExecutorService pool, int count, IoTask task) {
+        List<Future<?>> futures = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int index = i;
+            futures.add(pool.submit(() -> task.run(index)));
+        }
+        return futures;
+    }
+
+    private static void await(List<Future<?>> futures) throws Exception {
+        for (Future<?> future : futures) {
+            future.get();
+        }
+    }
+
+    @FunctionalInterface
+    private interface IoTask {
+        Object run(int index) throws IOException;
+    }
+}
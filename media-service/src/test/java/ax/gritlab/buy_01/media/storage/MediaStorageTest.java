@@ -0,0 +1,150 @@
+package ax.gritlab.buy_01.media.storage;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Named;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.S3Configuration;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("MediaStorage Contract Tests")
+class MediaStorageTest {
+
+    private static final byte[] CONTENT = "0123456789abcdef".getBytes();
+
+    @TempDir
+    static Path tempDir;
+
+    private static S3StandIn s3StandIn;
+
+    @BeforeAll
+    static void startS3() throws IOException {
+        s3StandIn = new S3StandIn();
+    }
+
+    @AfterAll
+    static void stopS3() {
+        s3StandIn.close();
+    }
+
+    static Stream<Named<MediaStorage>> backends() throws IOException {
+        return Stream.of(
+                Named.of("filesystem", new FileSystemMediaStorage(tempDir.resolve("fs"))),
+                Named.of("filesystem-sharded", new FileSystemMediaStorage(tempDir.resolve("fs-sharded"), true)),
+                Named.of("volume", new VolumeMediaStorage(tempDir.resolve("volume"), 1024 * 1024, false)),
+                Named.of("memory", new InMemoryMediaStorage()),
+                Named.of("s3", s3Storage(s3StandIn.endpoint())));
+    }
+
+    static S3MediaStorage s3Storage(String endpoint) {
+        S3Client client = S3Client.builder()
+                .endpointOverride(URI.create(endpoint))
+                .region(Region.US_EAST_1)
+                .credentialsProvider(StaticCredentialsProvider.create(AwsBasicCredentials.create("test", "test")))
+                .serviceConfiguration(S3Configuration.builder()
+                        .pathStyleAccessEnabled(true)
+                        .chunkedEncodingEnabled(false)
+                        .build())
+                .build();
+        S3MediaStorage storage = new S3MediaStorage(client, "media-test", "");
+        storage.createBucketIfMissing();
+        return storage;
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("backends")
+    @DisplayName("Should store, stat, read and delete an object")
+    void testRoundTrip(MediaStorage storage) throws IOException {
+        // Act
+        String key = storage.put("round-trip.jpg", new ByteArrayInputStream(CONTENT), CONTENT.length, "image/jpeg");
+
+        // Assert
+        assertEquals("round-trip.jpg", key);
+        assertTrue(storage.exists(key));
+        Optional<StoredObject> stat = storage.stat(key);
+        assertTrue(stat.isPresent());
+        assertEquals(CONTENT.length, stat.get().getSize());
+        assertNotNull(stat.get().getLastModified());
+        try (InputStream in = storage.get(key)) {
+            assertArrayEquals(CONTENT, in.readAllBytes());
+        }
+
+        storage.delete(key);
+        assertFalse(storage.exists(key));
+        assertTrue(storage.stat(key).isEmpty());
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("backends")
+    @DisplayName("Should read a byte range")
+    void testGetRange(MediaStorage storage) throws IOException {
+        // Arrange
+        storage.put("range.jpg", new ByteArrayInputStream(CONTENT), CONTENT.length, "image/jpeg");
+
+        // Act
+        byte[] range;
+        try (InputStream in = storage.getRange("range.jpg", 4, 6)) {
+            range = in.readAllBytes();
+        }
+
+        // Assert
+        assertArrayEquals("456789".getBytes(), range);
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("backends")
+    @DisplayName("Should accept uploads of unknown length and replace existing objects")
+    void testPutUnknownSizeReplaces(MediaStorage storage) throws IOException {
+        // Arrange
+        storage.put("replace.jpg", new ByteArrayInputStream(CONTENT), CONTENT.length, "image/jpeg");
+
+        // Act
+        storage.put("replace.jpg", new ByteArrayInputStream("new".getBytes()), -1, "image/jpeg");
+
+        // Assert
+        try (InputStream in = storage.get("replace.jpg")) {
+            assertArrayEquals("new".getBytes(), in.readAllBytes());
+        }
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("backends")
+    @DisplayName("Should report missing objects")
+    void testMissingObject(MediaStorage storage) throws IOException {
+        // Act & Assert
+        assertFalse(storage.exists("missing.jpg"));
+        assertTrue(storage.stat("missing.jpg").isEmpty());
+        assertThrows(NoSuchFileException.class, () -> storage.get("missing.jpg").close());
+        assertDoesNotThrow(() -> storage.delete("missing.jpg"));
+    }
+
+    @Test
+    @DisplayName("Should refuse filesystem keys outside the storage root")
+    void testFileSystemRejectsEscapingKey() {
+        // Arrange
+        FileSystemMediaStorage storage = new FileSystemMediaStorage(tempDir.resolve("fs-escape"));
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> storage.put("../outside.jpg",
+                new ByteArrayInputStream(CONTENT), CONTENT.length, "image/jpeg"));
+        assertFalse(tempDir.resolve("outside.jpg").toFile().exists());
+    }
+}
@@ -0,0 +1,132 @@
+package ax.gritlab.buy_01.media.storage;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("MultiDiskMediaStorage Tests")
+class MultiDiskMediaStorageTest {
+
+    private static final byte[] CONTENT = "0123456789abcdef".getBytes();
+
+    @TempDir
+    Path root;
+
+    @Test
+    @DisplayName("Should spread writes over the disks in proportion to their weight")
+    void testWeightedPlacement() throws IOException {
+        // Arrange
+        MultiDiskMediaStorage storage = storage(MultiDiskMediaStorage.Placement.WEIGHTED_ROUND_ROBIN, 0,
+                disk("a", 1), disk("b", 2), disk("c", 1));
+        Map<String, Integer> perDisk = new HashMap<>();
+
+        // Act
+        for (int i = 0; i < 40; i++) {
+            String key = storage.put("image-" + i + ".jpg", new ByteArrayInputStream(CONTENT), CONTENT.length,
+                    "image/jpeg");
+            perDisk.merge(key.substring(0, key.indexOf('/')), 1, Integer::sum);
+        }
+
+        // Assert
+        assertEquals(10, perDisk.get("a"));
+        assertEquals(20, perDisk.get("b"));
+        assertEquals(10, perDisk.get("c"));
+    }
+
+    @Test
+    @DisplayName("Should record the disk in the key and read it back")
+    void testQualifiedKeys() throws IOException {
+        // Arrange
+        MultiDiskMediaStorage storage = storage(MultiDiskMediaStorage.Placement.MOST_FREE, 0,
+                disk("a", 1), disk("b", 1));
+
+        // Act
+        String key = storage.put("image.jpg", new ByteArrayInputStream(CONTENT), CONTENT.length, "image/jpeg");
+
+        // Assert
+        assertTrue(key.equals("a/image.jpg") || key.equals("b/image.jpg"));
+        assertTrue(storage.exists(key));
+        assertArrayEquals(CONTENT, readAll(storage, key));
+        assertEquals(CONTENT.length, storage.stat(key).orElseThrow().getSize());
+        storage.delete(key);
+        assertFalse(storage.exists(key));
+    }
+
+    @Test
+    @DisplayName("Should find unprefixed and stale keys on any disk")
+    void testFallbackReads() throws IOException {
+        // Arrange
+        MultiDiskMediaStorage storage = storage(MultiDiskMediaStorage.Placement.WEIGHTED_ROUND_ROBIN, 0,
+                disk("a", 1), disk("b", 1));
+        storage.disk("b").storage().put("legacy.jpg", new ByteArrayInputStream(CONTENT), CONTENT.length, null);
+
+        // Act & Assert
+        assertArrayEquals(CONTENT, readAll(storage, "legacy.jpg"));
+        assertArrayEquals(CONTENT, readAll(storage, "a/legacy.jpg"));
+        assertEquals("b", storage.locate("legacy.jpg").orElseThrow().getName());
+        assertFalse(storage.exists("a/missing.jpg"));
+        assertTrue(storage.stat("a/missing.jpg").isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should copy an object to another disk and keep the source until deleted")
+    void testMove() throws IOException {
+        // Arrange
+        MultiDiskMediaStorage storage = storage(MultiDiskMediaStorage.Placement.WEIGHTED_ROUND_ROBIN, 0,
+                disk("a", 1), disk("b", 1));
+        String key = storage.put("image.jpg", new ByteArrayInputStream(CONTENT), CONTENT.length, "image/jpeg");
+        MultiDiskMediaStorage.Disk target = storage.disk(key.startsWith("a/") ? "b" : "a");
+
+        // Act
+        String moved = storage.move(key, target);
+
+        // Assert
+        assertEquals(target.getName() + "/image.jpg", moved);
+        assertTrue(target.storage().exists("image.jpg"));
+        assertArrayEquals(CONTENT, readAll(storage, moved));
+        storage.delete(key);
+        assertArrayEquals(CONTENT, readAll(storage, key));
+    }
+
+    @Test
+    @DisplayName("Should refuse writes when no disk keeps the minimum free space")
+    void testMinFreeSpace() throws IOException {
+        // Arrange
+        MultiDiskMediaStorage storage = storage(MultiDiskMediaStorage.Placement.MOST_FREE, Long.MAX_VALUE / 2,
+                disk("a", 1), disk("b", 1));
+
+        // Act & Assert
+        assertThrows(IOException.class, () -> storage.put("image.jpg", new ByteArrayInputStream(CONTENT),
+                CONTENT.length, "image/jpeg"));
+        assertFalse(storage.disk("a").isWritable());
+        assertFalse(storage.disk("b").isWritable());
+    }
+
+    private MultiDiskMediaStorage.Disk disk(String name, int weight) throws IOException {
+        Path path = Files.createDirectories(root.resolve(name));
+        return new MultiDiskMediaStorage.Disk(name, weight, new FileSystemMediaStorage(path, true));
+    }
+
+    private static MultiDiskMediaStorage storage(MultiDiskMediaStorage.Placement placement, long minFree,
+                                                 MultiDiskMediaStorage.Disk... disks) {
+        return new MultiDiskMediaStorage(List.of(disks), placement, minFree, Duration.ofMinutes(1));
+    }
+
+    private static byte[] readAll(MediaStorage storage, String key) throws IOException {
+        try (InputStream in = storage.get(key)) {
+            return in.readAllBytes();
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package ax.gritlab.buy_01.media.storage;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Minimal path-style S3 endpoint (bucket HEAD/PUT, object PUT/GET/HEAD/DELETE with
+ * single ranges) standing in for MinIO in tests. Signatures are not checked.
+ */
+class S3StandIn implements AutoCloseable {
+
+    private final HttpServer server;
+    private final Map<String, StoredBlob> objects = new ConcurrentHashMap<>();
+    private final Map<String, Boolean> buckets = new ConcurrentHashMap<>();
+
+    S3StandIn() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", this::handle);
+        server.start();
+    }
+
+    String endpoint() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String path = exchange.getRequestURI().getPath().substring(1);
+            int slash = path.indexOf('/');
+            if (slash < 0) {
+                handleBucket(exchange, path);
+            } else {
+                handleObject(exchange, path);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void handleBucket(HttpExchange exchange, String bucket) throws IOException {
+        switch (exchange.getRequestMethod()) {
+            case "PUT":
+                buckets.put(bucket, Boolean.TRUE);
+                exchange.sendResponseHeaders(200, -1);
+                break;
+            case "HEAD":
+                exchange.sendResponseHeaders(buckets.containsKey(bucket) ? 200 : 404, -1);
+                break;
+            default:
+                exchange.sendResponseHeaders(405, -1);
+        }
+    }
+
+    private void handleObject(HttpExchange exchange, String path) throws IOException {
+        StoredBlob blob = objects.get(path);
+        switch (exchange.getRequestMethod()) {
+            case "PUT": {
+                byte[] body = exchange.getRequestBody().readAllBytes();
+                StoredBlob stored = new StoredBlob(body, exchange.getRequestHeaders().getFirst("Content-Type"));
+                objects.put(path, stored);
+                exchange.getResponseHeaders().add("ETag", stored.etag);
+                exchange.sendResponseHeaders(200, -1);
+                break;
+            }
+            case "HEAD":
+                if (blob == null) {
+                    exchange.sendResponseHeaders(404, -1);
+                    return;
+                }
+                writeHeaders(exchange, blob);
+                exchange.getResponseHeaders().add("Content-Length", String.valueOf(blob.bytes.length));
+                exchange.sendResponseHeaders(200, -1);
+                break;
+            case "GET":
+                if (blob == null) {
+                    sendNoSuchKey(exchange, path);
+                    return;
+                }
+                sendContent(exchange, blob);
+                break;
+            case "DELETE":
+                objects.remove(path);
+                exchange.sendResponseHeaders(204, -1);
+                break;
+            default:
+                exchange.sendResponseHeaders(405, -1);
+        }
+    }
+
+    private void sendContent(HttpExchange exchange, StoredBlob blob) throws IOException {
+        writeHeaders(exchange, blob);
+        String range = exchange.getRequestHeaders().getFirst("Range");
+        int from = 0;
+        int to = blob.bytes.length - 1;
+        int status = 200;
+        if (range != null && range.startsWith("bytes=")) {
+            String[] bounds = range.substring("bytes=".length()).split("-", 2);
+            from = Integer.parseInt(bounds[0]);
+            if (!bounds[1].isEmpty()) {
+                to = Math.min(to, Integer.parseInt(bounds[1]));
+            }
+            status = 206;
+            exchange.getResponseHeaders().add("Content-Range",
+                    "bytes " + from + "-" + to + "/" + blob.bytes.length);
+        }
+        int length = Math.max(0, to - from + 1);
+        exchange.sendResponseHeaders(status, length == 0 ? -1 : length);
+        if (length > 0) {
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(blob.bytes, from, length);
+            }
+        }
+    }
+
+    private static void writeHeaders(HttpExchange exchange, StoredBlob blob) {
+        exchange.getResponseHeaders().add("ETag", blob.etag);
+        exchange.getResponseHeaders().add("Last-Modified",
+                DateTimeFormatter.RFC_1123_DATE_TIME.format(blob.lastModified));
+        if (blob.contentType != null) {
+            exchange.getResponseHeaders().add("Content-Type", blob.contentType);
+        }
+    }
+
+    private static void sendNoSuchKey(HttpExchange exchange, String path) throws IOException {
+        byte[] body = ("<?xml version=\"1.0\" encoding=\"UTF-8\"?><Error><Code>NoSuchKey</Code>"
+                + "<Message>The specified key does not exist.</Message><Key>" + path + "</Key></Error>")
+                .getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/xml");
+        exchange.sendResponseHeaders(404, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static final class StoredBlob {
+        private final byte[] bytes;
+        private final String contentType;
+        private final String etag;
+        private final ZonedDateTime lastModified = ZonedDateTime.now(ZoneOffset.UTC).withNano(0);
+
+        private StoredBlob(byte[] bytes, String contentType) {
+            this.bytes = bytes;
+            this.contentType = contentType;
+            this.etag = "\"" + md5(bytes) + "\"";
+        }
+    }
+
+    // The SDK checks single-part uploads and full downloads against an MD5 ETag
+    private static String md5(byte[] bytes) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("MD5").digest(bytes));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
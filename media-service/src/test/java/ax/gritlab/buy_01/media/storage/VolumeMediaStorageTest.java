@@ -0,0 +1,170 @@
+package ax.gritlab.buy_01.media.storage;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("VolumeMediaStorage Unit Tests")
+class VolumeMediaStorageTest {
+
+    private static final long SEGMENT_SIZE = 1024;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    @DisplayName("Should rebuild the index from segments when no snapshot exists")
+    void testRebuildWithoutSnapshot() throws IOException {
+        // Arrange - no close(), as after a crash
+        VolumeMediaStorage crashed = new VolumeMediaStorage(dir, SEGMENT_SIZE, false);
+        put(crashed, "a.jpg", 100, (byte) 1);
+        put(crashed, "b.jpg", 100, (byte) 2);
+        crashed.delete("a.jpg");
+
+        // Act
+        VolumeMediaStorage reopened = new VolumeMediaStorage(dir, SEGMENT_SIZE, false);
+
+        // Assert
+        assertFalse(reopened.exists("a.jpg"));
+        assertArrayEquals(bytes(100, (byte) 2), read(reopened, "b.jpg"));
+        assertEquals("image/jpeg", reopened.stat("b.jpg").orElseThrow().getContentType());
+    }
+
+    @Test
+    @DisplayName("Should load the snapshot and replay needles written after it")
+    void testSnapshotPlusTail() throws IOException {
+        // Arrange
+        VolumeMediaStorage first = new VolumeMediaStorage(dir, SEGMENT_SIZE, false);
+        put(first, "a.jpg", 100, (byte) 1);
+        put(first, "b.jpg", 100, (byte) 2);
+        first.close();
+        assertTrue(Files.exists(dir.resolve("index.snapshot")));
+
+        VolumeMediaStorage second = new VolumeMediaStorage(dir, SEGMENT_SIZE, false);
+        put(second, "c.jpg", 100, (byte) 3);
+        second.delete("a.jpg");
+
+        // Act - second instance never closed
+        VolumeMediaStorage third = new VolumeMediaStorage(dir, SEGMENT_SIZE, false);
+
+        // Assert
+        assertFalse(third.exists("a.jpg"));
+        assertArrayEquals(bytes(100, (byte) 2), read(third, "b.jpg"));
+        assertArrayEquals(bytes(100, (byte) 3), read(third, "c.jpg"));
+    }
+
+    @Test
+    @DisplayName("Should truncate a torn needle at the end of the active segment")
+    void testTornTail() throws IOException {
+        // Arrange
+        VolumeMediaStorage crashed = new VolumeMediaStorage(dir, SEGMENT_SIZE, false);
+        put(crashed, "a.jpg", 100, (byte) 1);
+        Path segment = onlySegment();
+        long intact = Files.size(segment);
+        Files.write(segment, new byte[] {0x4D, 0x45, 0x44}, StandardOpenOption.APPEND);
+
+        // Act
+        VolumeMediaStorage reopened = new VolumeMediaStorage(dir, SEGMENT_SIZE, false);
+        put(reopened, "b.jpg", 50, (byte) 2);
+
+        // Assert
+        assertArrayEquals(bytes(100, (byte) 1), read(reopened, "a.jpg"));
+        assertArrayEquals(bytes(50, (byte) 2), read(new VolumeMediaStorage(dir, SEGMENT_SIZE, false), "b.jpg"));
+        assertTrue(Files.size(segment) > intact);
+    }
+
+    @Test
+    @DisplayName("Should serve byte ranges with one positioned read")
+    void testRange() throws IOException {
+        // Arrange
+        VolumeMediaStorage storage = new VolumeMediaStorage(dir, SEGMENT_SIZE, false);
+        byte[] data = new byte[200];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+        storage.put("range.jpg", new ByteArrayInputStream(data), data.length, "image/jpeg");
+
+        // Act
+        byte[] range;
+        try (InputStream in = storage.getRange("range.jpg", 10, 5)) {
+            range = in.readAllBytes();
+        }
+
+        // Assert
+        assertArrayEquals(Arrays.copyOfRange(data, 10, 15), range);
+    }
+
+    @Test
+    @DisplayName("Should compact sealed segments and keep deletes after restart")
+    void testCompaction() throws IOException {
+        // Arrange - 300 byte images, three per 1 KB segment
+        VolumeMediaStorage storage = new VolumeMediaStorage(dir, SEGMENT_SIZE, false);
+        for (int i = 0; i < 6; i++) {
+            put(storage, "img-" + i + ".jpg", 300, (byte) i);
+        }
+        storage.delete("img-0.jpg");
+        storage.delete("img-1.jpg");
+        long segmentsBefore = segmentCount();
+
+        // Act
+        int compacted = storage.compact(0.5);
+
+        // Assert
+        assertTrue(compacted >= 1);
+        assertFalse(Files.exists(dir.resolve("volume-00001.dat")));
+        assertTrue(segmentCount() <= segmentsBefore);
+        for (int i = 2; i < 6; i++) {
+            assertArrayEquals(bytes(300, (byte) i), read(storage, "img-" + i + ".jpg"));
+        }
+
+        storage.close();
+        VolumeMediaStorage reopened = new VolumeMediaStorage(dir, SEGMENT_SIZE, false);
+        assertFalse(reopened.exists("img-0.jpg"));
+        assertFalse(reopened.exists("img-1.jpg"));
+        assertArrayEquals(bytes(300, (byte) 2), read(reopened, "img-2.jpg"));
+
+        Files.delete(dir.resolve("index.snapshot"));
+        VolumeMediaStorage rebuilt = new VolumeMediaStorage(dir, SEGMENT_SIZE, false);
+        assertFalse(rebuilt.exists("img-0.jpg"));
+        assertArrayEquals(bytes(300, (byte) 5), read(rebuilt, "img-5.jpg"));
+    }
+
+    private static void put(MediaStorage storage, String key, int size, byte fill) throws IOException {
+        storage.put(key, new ByteArrayInputStream(bytes(size, fill)), size, "image/jpeg");
+    }
+
+    private static byte[] read(MediaStorage storage, String key) throws IOException {
+        try (InputStream in = storage.get(key)) {
+            return in.readAllBytes();
+        }
+    }
+
+    private static byte[] bytes(int size, byte fill) {
+        byte[] bytes = new byte[size];
+        Arrays.fill(bytes, fill);
+        return bytes;
+    }
+
+    private Path onlySegment() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(p -> p.getFileName().toString().endsWith(".dat")).findFirst().orElseThrow();
+        }
+    }
+
+    private long segmentCount() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(p -> p.getFileName().toString().endsWith(".dat")).count();
+        }
+    }
+}
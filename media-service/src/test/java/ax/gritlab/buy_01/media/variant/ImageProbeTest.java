@@ -0,0 +1,88 @@
+package ax.gritlab.buy_01.media.variant;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("ImageProbe Unit Tests")
+class ImageProbeTest {
+
+    @Test
+    @DisplayName("Should read dimensions and format from the header")
+    void testProbePng() throws IOException {
+        // Arrange
+        byte[] png = encode("png", 40, 20);
+
+        // Act
+        ImageProbe.Info info = ImageProbe.probe(new ByteArrayInputStream(png)).orElseThrow();
+
+        // Assert
+        assertEquals(40, info.getWidth());
+        assertEquals(20, info.getHeight());
+        assertEquals("png", info.getFormat());
+        assertEquals(1, info.getOrientation());
+    }
+
+    @Test
+    @DisplayName("Should apply the EXIF orientation of a JPEG to its displayed size")
+    void testProbeRotatedJpeg() throws IOException {
+        // Arrange
+        byte[] jpeg = withExifOrientation(encode("jpeg", 40, 20), 6);
+
+        // Act
+        ImageProbe.Info info = ImageProbe.probe(new ByteArrayInputStream(jpeg)).orElseThrow();
+
+        // Assert
+        assertEquals("jpeg", info.getFormat());
+        assertEquals(6, info.getOrientation());
+        assertEquals(20, info.getWidth());
+        assertEquals(40, info.getHeight());
+    }
+
+    @Test
+    @DisplayName("Should return empty for data no reader understands")
+    void testProbeUnknown() throws IOException {
+        // Act & Assert
+        assertTrue(ImageProbe.probe(new ByteArrayInputStream("not an image".getBytes())).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should tell image types from their magic bytes")
+    void testSniffContentType() throws IOException {
+        // Act & Assert
+        assertEquals("image/png", ImageProbe.sniffContentType(encode("png", 2, 2)).orElseThrow());
+        assertEquals("image/jpeg", ImageProbe.sniffContentType(encode("jpeg", 2, 2)).orElseThrow());
+        assertEquals("image/gif", ImageProbe.sniffContentType("GIF89a".getBytes()).orElseThrow());
+        assertEquals("image/webp", ImageProbe.sniffContentType("RIFF\0\0\0\0WEBPVP8 ".getBytes()).orElseThrow());
+        assertTrue(ImageProbe.sniffContentType("<html>".getBytes()).isEmpty());
+        assertTrue(ImageProbe.sniffContentType(new byte[0]).isEmpty());
+    }
+
+    private static byte[] encode(String format, int width, int height) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB), format, out);
+        return out.toByteArray();
+    }
+
+    // Inserts a big-endian EXIF APP1 segment with one IFD0 entry right after SOI
+    private static byte[] withExifOrientation(byte[] jpeg, int orientation) {
+        byte[] exif = {'E', 'x', 'i', 'f', 0, 0, 'M', 'M', 0, 42, 0, 0, 0, 8,
+                0, 1, 0x01, 0x12, 0, 3, 0, 0, 0, 1, 0, (byte) orientation, 0, 0, 0, 0, 0, 0};
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(jpeg, 0, 2);
+        out.write(0xFF);
+        out.write(0xE1);
+        out.write((exif.length + 2) >> 8);
+        out.write((exif.length + 2) & 0xFF);
+        out.write(exif, 0, exif.length);
+        out.write(jpeg, 2, jpeg.length - 2);
+        return out.toByteArray();
+    }
+}
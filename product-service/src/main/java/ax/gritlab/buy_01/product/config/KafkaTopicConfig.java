@@ -22,4 +22,12 @@ public class KafkaTopicConfig {
                 .replicas(1)
                 .build();
     }
+
+    @Bean
+    public NewTopic mediaLinksTopic() {
+        return TopicBuilder.name("media.links")
+                .partitions(1)
+                .replicas(1)
+                .build();
+    }
 }
@@ -0,0 +1,19 @@
+package ax.gritlab.buy_01.product.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// One media id gained or lost by a product, or a new placeholder for it, as carried by media.links
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MediaLinkEvent {
+    private String productId; // null: remove the media from whichever product lists it
+    private String mediaId;
+    private boolean linked;
+    private String placeholder; // BlurHash of the media, when media-service has computed it
+    private boolean placeholderOnly; // Sets the placeholder if the product still lists the media; never links it
+}
@@ -20,6 +20,7 @@ public class ProductResponse {
     private String sellerId;
     private List<String> mediaIds;
     private List<String> imageUrls;
+    private List<String> imagePlaceholders; // BlurHash per entry of imageUrls; null where not computed yet
     private String createdAt;
     private String updatedAt;
 }
@@ -13,7 +13,9 @@ import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @Data
 @Builder
@@ -43,6 +45,10 @@ public class Product {
     @Builder.Default
     private List<String> mediaIds = new ArrayList<>();
 
+    // BlurHash per media id, as announced by media-service; may lag behind mediaIds
+    @Builder.Default
+    private Map<String, String> mediaPlaceholders = new HashMap<>();
+
     @CreatedDate
     private LocalDateTime createdAt;
 
@@ -0,0 +1,76 @@
+package ax.gritlab.buy_01.product.service;
+
+import ax.gritlab.buy_01.product.dto.MediaLinkEvent;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps products' media lists in step with media-service. Events are consumed
+ * in batches so a burst of deletions becomes one bulk write instead of one
+ * update per image. All events of a media share one topic and key, so they
+ * arrive in the order media-service published them.
+ */
+@Component
+@RequiredArgsConstructor
+public class MediaEventKafkaConsumer {
+    static final String MEDIA_LINKS_TOPIC = "media.links";
+
+    private final ProductService productService;
+    private final ObjectMapper objectMapper;
+
+    @KafkaListener(topics = MEDIA_LINKS_TOPIC, groupId = "product-service-group", batch = "true")
+    public void consumeMediaEvents(List<ConsumerRecord<String, String>> records) {
+        List<MediaLinkEvent> events = new ArrayList<>();
+        for (ConsumerRecord<String, String> record : records) {
+            try {
+                addEvents(objectMapper.readTree(record.value()), events);
+            } catch (Exception e) {
+                System.err.println("Failed to parse " + record.topic() + " message: " + e.getMessage());
+            }
+        }
+        if (!events.isEmpty()) {
+            productService.applyMediaEvents(events);
+        }
+    }
+
+    private static void addEvents(JsonNode node, List<MediaLinkEvent> events) {
+        String mediaId = node.path("mediaId").asText(null);
+        String productId = node.path("productId").asText(null);
+        if (mediaId == null) {
+            return;
+        }
+        switch (node.path("type").asText("")) {
+            case "associated" -> {
+                if (productId == null) {
+                    return;
+                }
+                // Moving media to another product takes it off the old one
+                String previousProductId = node.path("previousProductId").asText(null);
+                if (previousProductId != null && !previousProductId.equals(productId)) {
+                    events.add(MediaLinkEvent.builder().productId(previousProductId).mediaId(mediaId).linked(false)
+                            .build());
+                }
+                events.add(MediaLinkEvent.builder().productId(productId).mediaId(mediaId).linked(true)
+                        .placeholder(node.path("placeholder").asText(null)).build());
+            }
+            // Without a product id, the media is taken off whichever product lists it
+            case "deleted" -> events.add(MediaLinkEvent.builder().productId(productId).mediaId(mediaId)
+                    .linked(false).build());
+            case "placeholder" -> {
+                String placeholder = node.path("placeholder").asText(null);
+                if (productId != null && placeholder != null) {
+                    events.add(MediaLinkEvent.builder().productId(productId).mediaId(mediaId).linked(true)
+                            .placeholder(placeholder).placeholderOnly(true).build());
+                }
+            }
+            default -> System.err.println("Ignoring media.links event of unknown type: " + node.path("type"));
+        }
+    }
+}
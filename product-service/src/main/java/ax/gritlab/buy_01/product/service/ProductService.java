@@ -1,5 +1,6 @@
 package ax.gritlab.buy_01.product.service;
 
+import ax.gritlab.buy_01.product.dto.MediaLinkEvent;
 import ax.gritlab.buy_01.product.dto.ProductRequest;
 import ax.gritlab.buy_01.product.dto.ProductResponse;
 import ax.gritlab.buy_01.product.exception.ResourceNotFoundException;
@@ -8,18 +9,28 @@ import ax.gritlab.buy_01.product.model.Product;
 import ax.gritlab.buy_01.product.repository.ProductRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 
 import java.time.ZonedDateTime;
 import java.time.ZoneOffset;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
 @Service
 @RequiredArgsConstructor
 public class ProductService {
@@ -43,10 +54,13 @@ public class ProductService {
         }
     }
 
+    private static final String PLACEHOLDERS = "mediaPlaceholders";
+
     private final ProductRepository productRepository;
     private final RestTemplate restTemplate;
     private final org.springframework.kafka.core.KafkaTemplate<String, String> kafkaTemplate;
     private final ObjectMapper objectMapper;
+    private final MongoTemplate mongoTemplate;
 
     @Value("${media.service.url:http://media-service:8083/media}")
     private String mediaServiceUrl;
@@ -151,6 +165,78 @@ public class ProductService {
         productRepository.save(product);
     }
 
+    /**
+     * Applies a batch of media.links events in one bulk write: per product, one
+     * $addToSet of the media linked to it and one $pull of those unlinked.
+     * Placeholders travel with the links. For the same product and media, the last
+     * event in the batch wins, except that a placeholder-only event just updates the
+     * placeholder of a link before it. Placeholder-only events on their own touch a
+     * product only while it still lists the media.
+     */
+    public void applyMediaEvents(List<MediaLinkEvent> events) {
+        Map<String, Map<String, MediaLinkEvent>> byProduct = new LinkedHashMap<>();
+        Set<String> unlinkedAnywhere = new LinkedHashSet<>();
+        for (MediaLinkEvent event : events) {
+            if (event.getProductId() != null) {
+                Map<String, MediaLinkEvent> media = byProduct.computeIfAbsent(event.getProductId(),
+                        id -> new LinkedHashMap<>());
+                MediaLinkEvent previous = media.get(event.getMediaId());
+                if (event.isPlaceholderOnly() && previous != null) {
+                    if (previous.isLinked()) {
+                        media.put(event.getMediaId(), MediaLinkEvent.builder()
+                                .productId(previous.getProductId())
+                                .mediaId(previous.getMediaId())
+                                .linked(true)
+                                .placeholder(event.getPlaceholder())
+                                .placeholderOnly(previous.isPlaceholderOnly())
+                                .build());
+                    }
+                } else {
+                    media.put(event.getMediaId(), event);
+                }
+            } else if (!event.isLinked()) {
+                unlinkedAnywhere.add(event.getMediaId());
+            }
+        }
+        if (byProduct.isEmpty() && unlinkedAnywhere.isEmpty()) {
+            return;
+        }
+
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Product.class);
+        byProduct.forEach((productId, media) -> {
+            List<String> linked = new ArrayList<>();
+            List<String> unlinked = new ArrayList<>();
+            Update link = new Update();
+            Update unlink = new Update();
+            media.forEach((mediaId, event) -> {
+                if (event.isPlaceholderOnly()) {
+                    bulk.updateOne(query(where("_id").is(productId).and("mediaIds").is(mediaId)),
+                            new Update().set(PLACEHOLDERS + "." + mediaId, event.getPlaceholder()));
+                } else if (event.isLinked()) {
+                    linked.add(mediaId);
+                    if (event.getPlaceholder() != null) {
+                        link.set(PLACEHOLDERS + "." + mediaId, event.getPlaceholder());
+                    }
+                } else {
+                    unlinked.add(mediaId);
+                    unlink.unset(PLACEHOLDERS + "." + mediaId);
+                }
+            });
+            if (!linked.isEmpty()) {
+                bulk.updateOne(query(where("_id").is(productId)), link.addToSet("mediaIds").each(linked.toArray()));
+            }
+            if (!unlinked.isEmpty()) {
+                bulk.updateOne(query(where("_id").is(productId)), unlink.pullAll("mediaIds", unlinked.toArray()));
+            }
+        });
+        if (!unlinkedAnywhere.isEmpty()) {
+            Update unlink = new Update().pullAll("mediaIds", unlinkedAnywhere.toArray());
+            unlinkedAnywhere.forEach(mediaId -> unlink.unset(PLACEHOLDERS + "." + mediaId));
+            bulk.updateMulti(query(where("mediaIds").in(unlinkedAnywhere)), unlink);
+        }
+        bulk.execute();
+    }
+
     /**
      * Clean up all orphaned media IDs from products
      * This removes media IDs that no longer exist in the media database
@@ -207,6 +293,11 @@ public class ProductService {
         List<String> imageUrls = product.getMediaIds().stream()
                 .map(mediaId -> mediaPublicUrl + "/images/" + mediaId)
                 .collect(Collectors.toList());
+        Map<String, String> placeholders = product.getMediaPlaceholders() != null
+                ? product.getMediaPlaceholders() : Map.of();
+        List<String> imagePlaceholders = product.getMediaIds().stream()
+                .map(placeholders::get)
+                .collect(Collectors.toList());
 
         return ProductResponse.builder()
                 .id(product.getId())
@@ -217,6 +308,7 @@ public class ProductService {
                 .sellerId(product.getUserId())
                 .mediaIds(product.getMediaIds())
                 .imageUrls(imageUrls)
+                .imagePlaceholders(imagePlaceholders)
                 .createdAt(product.getCreatedAt() != null ? product.getCreatedAt().atZone(ZoneOffset.UTC).toString()
                         : null)
                 .updatedAt(product.getUpdatedAt() != null ? product.getUpdatedAt().atZone(ZoneOffset.UTC).toString()
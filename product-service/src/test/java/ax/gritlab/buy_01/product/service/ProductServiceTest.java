@@ -1,5 +1,6 @@
 package ax.gritlab.buy_01.product.service;
 
+import ax.gritlab.buy_01.product.dto.MediaLinkEvent;
 import ax.gritlab.buy_01.product.dto.ProductRequest;
 import ax.gritlab.buy_01.product.dto.ProductResponse;
 import ax.gritlab.buy_01.product.exception.ResourceNotFoundException;
@@ -7,13 +8,19 @@ import ax.gritlab.buy_01.product.exception.UnauthorizedException;
 import ax.gritlab.buy_01.product.model.Product;
 import ax.gritlab.buy_01.product.repository.ProductRepository;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.bson.Document;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.test.util.ReflectionTestUtils;
@@ -21,6 +28,7 @@ import org.springframework.test.util.ReflectionTestUtils;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -43,6 +51,9 @@ public class ProductServiceTest {
     @Mock
     private ObjectMapper objectMapper;
 
+    @Mock
+    private MongoTemplate mongoTemplate;
+
     @InjectMocks
     private ProductService productService;
 
@@ -218,4 +229,106 @@ public class ProductServiceTest {
         verify(productRepository, times(1)).save(any(Product.class));
         verify(restTemplate, times(1)).put(eq("http://media-service/images/media123/product/prod123?userId=user123"), any());
     }
+
+    @Test
+    @DisplayName("Should apply a batch of media events as one bulk write per product")
+    void testApplyMediaEvents() {
+        // Arrange
+        BulkOperations bulk = mock(BulkOperations.class);
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Product.class)).thenReturn(bulk);
+        List<MediaLinkEvent> events = List.of(
+                MediaLinkEvent.builder().productId("prod1").mediaId("m1").linked(true).build(),
+                MediaLinkEvent.builder().productId("prod1").mediaId("m2").linked(true).build(),
+                MediaLinkEvent.builder().productId("prod2").mediaId("m3").linked(false).build(),
+                // Linked then deleted within the batch: only the deletion applies
+                MediaLinkEvent.builder().productId("prod1").mediaId("m2").linked(false).build(),
+                MediaLinkEvent.builder().mediaId("m4").linked(false).build());
+
+        // Act
+        productService.applyMediaEvents(events);
+
+        // Assert
+        verify(bulk, times(3)).updateOne(any(Query.class), any(Update.class));
+        verify(bulk).updateMulti(any(Query.class), any(Update.class));
+        verify(bulk).execute();
+        verify(productRepository, never()).save(any(Product.class));
+    }
+
+    @Test
+    @DisplayName("Should store placeholders with their links and drop them with the media")
+    void testApplyMediaEventsPlaceholders() {
+        // Arrange
+        BulkOperations bulk = mock(BulkOperations.class);
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Product.class)).thenReturn(bulk);
+        List<MediaLinkEvent> events = List.of(
+                MediaLinkEvent.builder().productId("prod1").mediaId("m1").linked(true).placeholder("LKO2?U").build(),
+                MediaLinkEvent.builder().mediaId("m4").linked(false).build());
+
+        // Act
+        productService.applyMediaEvents(events);
+
+        // Assert
+        ArgumentCaptor<Update> linked = ArgumentCaptor.forClass(Update.class);
+        verify(bulk).updateOne(any(Query.class), linked.capture());
+        assertEquals("LKO2?U", linked.getValue().getUpdateObject().get("$set", Document.class)
+                .get("mediaPlaceholders.m1"));
+        ArgumentCaptor<Update> unlinked = ArgumentCaptor.forClass(Update.class);
+        verify(bulk).updateMulti(any(Query.class), unlinked.capture());
+        assertTrue(unlinked.getValue().getUpdateObject().get("$unset", Document.class)
+                .containsKey("mediaPlaceholders.m4"));
+    }
+
+    @Test
+    @DisplayName("Should never link media through a placeholder update")
+    void testApplyMediaEventsPlaceholderOnly() {
+        // Arrange - m1 was deleted before its placeholder arrived; m2 is linked earlier in the batch
+        BulkOperations bulk = mock(BulkOperations.class);
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Product.class)).thenReturn(bulk);
+        List<MediaLinkEvent> events = List.of(
+                MediaLinkEvent.builder().productId("prod1").mediaId("m1").linked(true).placeholder("LKO2?U")
+                        .placeholderOnly(true).build(),
+                MediaLinkEvent.builder().productId("prod2").mediaId("m2").linked(true).build(),
+                MediaLinkEvent.builder().productId("prod2").mediaId("m2").linked(true).placeholder("L00000")
+                        .placeholderOnly(true).build());
+
+        // Act
+        productService.applyMediaEvents(events);
+
+        // Assert
+        ArgumentCaptor<Query> queries = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> updates = ArgumentCaptor.forClass(Update.class);
+        verify(bulk, times(2)).updateOne(queries.capture(), updates.capture());
+        assertEquals("m1", queries.getAllValues().get(0).getQueryObject().get("mediaIds"));
+        assertFalse(updates.getAllValues().get(0).getUpdateObject().containsKey("$addToSet"));
+        Document link = updates.getAllValues().get(1).getUpdateObject();
+        assertTrue(link.containsKey("$addToSet"));
+        assertEquals("L00000", link.get("$set", Document.class).get("mediaPlaceholders.m2"));
+    }
+
+    @Test
+    @DisplayName("Should list placeholders aligned with image URLs")
+    void testGetProductPlaceholders() {
+        // Arrange
+        testProduct.setMediaIds(new ArrayList<>(List.of("m1", "m2")));
+        testProduct.setMediaPlaceholders(Map.of("m2", "LKO2?U"));
+        when(productRepository.findById("prod123")).thenReturn(Optional.of(testProduct));
+
+        // Act
+        ProductResponse response = productService.getProductById("prod123");
+
+        // Assert
+        assertEquals(2, response.getImagePlaceholders().size());
+        assertNull(response.getImagePlaceholders().get(0));
+        assertEquals("LKO2?U", response.getImagePlaceholders().get(1));
+    }
+
+    @Test
+    @DisplayName("Should skip the bulk write when no event changes a product")
+    void testApplyMediaEventsEmpty() {
+        // Act
+        productService.applyMediaEvents(List.of());
+
+        // Assert
+        verify(mongoTemplate, never()).bulkOps(any(BulkOperations.BulkMode.class), eq(Product.class));
+    }
 }
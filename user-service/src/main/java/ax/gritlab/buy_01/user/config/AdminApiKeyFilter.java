@@ -0,0 +1,57 @@
+package ax.gritlab.buy_01.user.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.lang.NonNull;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.List;
+
+/**
+ * Grants the ADMIN authority to operator tooling that presents the configured
+ * X-Admin-Key header. There is no admin user role; with admin.api-key unset
+ * the admin endpoints are unreachable.
+ */
+@Component
+public class AdminApiKeyFilter extends OncePerRequestFilter {
+
+    public static final String HEADER = "X-Admin-Key";
+
+    private final byte[] apiKey;
+
+    public AdminApiKeyFilter(@Value("${admin.api-key:}") String apiKey) {
+        this.apiKey = apiKey.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) throws ServletException {
+        return apiKey.length == 0 || request.getHeader(HEADER) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(
+            @NonNull HttpServletRequest request,
+            @NonNull HttpServletResponse response,
+            @NonNull FilterChain filterChain) throws ServletException, IOException {
+        byte[] presented = request.getHeader(HEADER).getBytes(StandardCharsets.UTF_8);
+        if (MessageDigest.isEqual(apiKey, presented)
+                && SecurityContextHolder.getContext().getAuthentication() == null) {
+            UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
+                    "admin",
+                    null,
+                    List.of(new SimpleGrantedAuthority("ADMIN")));
+            SecurityContextHolder.getContext().setAuthentication(authToken);
+        }
+        filterChain.doFilter(request, response);
+    }
+}
@@ -19,6 +19,7 @@ import org.springframework.security.web.authentication.UsernamePasswordAuthentic
 public class SecurityConfig {
 
     private final JwtAuthenticationFilter jwtAuthFilter;
+    private final AdminApiKeyFilter adminApiKeyFilter;
     private final AuthenticationProvider authenticationProvider;
 
 @Bean
@@ -30,8 +31,11 @@ public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Excepti
                     .requestMatchers("/auth/**", "/actuator/**").permitAll()
                     
                     // Allow anyone to VIEW user profiles
-                    .requestMatchers(HttpMethod.GET, "/users/**").permitAll()  // GET WILDCARD
+                    .requestMatchers(HttpMethod.GET, "/users", "/users/**").permitAll()  // GET WILDCARD
                     
+                    // Operator tooling (bulk import) - X-Admin-Key only
+                    .requestMatchers("/admin/**").hasAuthority("ADMIN")
+
                     // Protected endpoints - require authentication
                     .requestMatchers(HttpMethod.PUT, "/users/**").authenticated()
                     .requestMatchers(HttpMethod.DELETE, "/users/**").authenticated()
@@ -40,7 +44,8 @@ public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Excepti
                     .anyRequest().authenticated())
             .sessionManagement(sess -> sess.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
             .authenticationProvider(authenticationProvider)
-            .addFilterBefore(jwtAuthFilter, UsernamePasswordAuthenticationFilter.class);
+            .addFilterBefore(jwtAuthFilter, UsernamePasswordAuthenticationFilter.class)
+            .addFilterBefore(adminApiKeyFilter, UsernamePasswordAuthenticationFilter.class);
 
     return http.build();
 }
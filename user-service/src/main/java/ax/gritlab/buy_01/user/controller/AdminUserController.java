@@ -0,0 +1,54 @@
+package ax.gritlab.buy_01.user.controller;
+
+import ax.gritlab.buy_01.user.service.UserImportService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+@RestController
+@RequestMapping("/admin/users")
+@RequiredArgsConstructor
+public class AdminUserController {
+
+    private static final String NDJSON = "application/x-ndjson";
+
+    private final UserImportService userImportService;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Bulk account import. The request body is streamed NDJSON, one register
+     * request per line; the response streams one NDJSON result per input line
+     * while the import runs, so neither side is held in memory.
+     */
+    @PostMapping(value = "/import", consumes = NDJSON, produces = NDJSON)
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public void importUsers(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType(NDJSON);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+
+        Writer writer = new BufferedWriter(new OutputStreamWriter(response.getOutputStream(), StandardCharsets.UTF_8));
+        userImportService.importUsers(request.getInputStream(), result -> {
+            try {
+                writer.write(objectMapper.writeValueAsString(result));
+                writer.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        writer.flush();
+    }
+}
@@ -1,20 +1,32 @@
 package ax.gritlab.buy_01.user.controller;
 
+import ax.gritlab.buy_01.user.dto.PublicProfileResponse;
 import ax.gritlab.buy_01.user.dto.UpdateProfileRequest;
 import ax.gritlab.buy_01.user.dto.UserProfileResponse;
 import ax.gritlab.buy_01.user.model.User;
 import ax.gritlab.buy_01.user.service.UserService;
-import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.Duration;
+import java.util.List;
+
 @RestController
 @RequestMapping("/users")
-@RequiredArgsConstructor
 public class UserController {
     
     private final UserService userService;
+    private final CacheControl profileCacheControl;
+
+    public UserController(
+            UserService userService,
+            @Value("${users.profile-cache.http-max-age:60s}") Duration httpMaxAge) {
+        this.userService = userService;
+        this.profileCacheControl = CacheControl.maxAge(httpMaxAge).cachePublic();
+    }
 
     // Get current user's profile (authenticated)
     @GetMapping("/me")
@@ -23,10 +35,26 @@ public class UserController {
         return ResponseEntity.ok(userService.getProfile(user));
     }
 
+    // Get several users' public profiles at once (public - seller cards on listing pages)
+    // e.g. GET /users?ids=a,b,c; answers If-None-Match with 304 via the ETag
+    @GetMapping(params = "ids")
+    public ResponseEntity<List<PublicProfileResponse>> getUsersByIds(@RequestParam List<String> ids) {
+        List<PublicProfileResponse> profiles = userService.getPublicProfiles(ids);
+        return ResponseEntity.ok()
+                .eTag(userService.computeETag(profiles))
+                .cacheControl(profileCacheControl)
+                .body(profiles);
+    }
+
     // Get user by ID (public - for viewing seller info)
+    // Public fields only: shared caches may store the response, so no email
     @GetMapping("/{id}")
-    public ResponseEntity<UserProfileResponse> getUserById(@PathVariable String id) {
-        return ResponseEntity.ok(userService.getUserById(id));
+    public ResponseEntity<PublicProfileResponse> getUserById(@PathVariable String id) {
+        PublicProfileResponse profile = userService.toPublicProfile(userService.getUserById(id));
+        return ResponseEntity.ok()
+                .eTag(userService.computeETag(List.of(profile)))
+                .cacheControl(profileCacheControl)
+                .body(profile);
     }
 
     // Update current user's profile
@@ -0,0 +1,19 @@
+package ax.gritlab.buy_01.user.dto;
+
+import ax.gritlab.buy_01.user.model.Role;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Seller card fields only - safe to serve to anonymous callers and shared caches
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class PublicProfileResponse {
+    private String id;
+    private String name;
+    private Role role;
+    private String avatar;
+}
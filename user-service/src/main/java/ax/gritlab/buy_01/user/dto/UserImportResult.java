@@ -0,0 +1,27 @@
+package ax.gritlab.buy_01.user.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// One line of the NDJSON report returned by POST /admin/users/import
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class UserImportResult {
+
+    public enum Status {
+        CREATED,
+        DUPLICATE,
+        INVALID,
+        FAILED
+    }
+
+    private int line;
+    private String email;
+    private Status status;
+    private String id;
+    private String message;
+}
@@ -2,9 +2,20 @@ package ax.gritlab.buy_01.user.repository;
 
 import ax.gritlab.buy_01.user.model.User;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface UserRepository extends MongoRepository<User, String> {
     Optional<User> findByEmail(String email);
-}
\ No newline at end of file
+
+    // Single $in round trip for seller cards; never loads password hashes
+    @Query(value = "{ '_id': { '$in': ?0 } }", fields = "{ 'name': 1, 'email': 1, 'role': 1, 'avatar': 1 }")
+    List<User> findProfilesByIdIn(Collection<String> ids);
+
+    // Batch uniqueness check for bulk import, answered from the unique email index
+    @Query(value = "{ 'email': { '$in': ?0 } }", fields = "{ 'email': 1 }")
+    List<User> findEmailsByEmailIn(Collection<String> emails);
+}
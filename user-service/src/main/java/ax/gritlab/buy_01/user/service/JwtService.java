@@ -1,12 +1,15 @@
 package ax.gritlab.buy_01.user.service;
 
+import ax.gritlab.buy_01.user.model.Role;
 import ax.gritlab.buy_01.user.model.User;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 
@@ -19,9 +22,29 @@ import java.util.function.Function;
 @Service
 public class JwtService {
 
+    /**
+     * Compact claim layout: {@code v} (layout version), {@code r} (single role
+     * code) and {@code uid} (user id). Consumers still accept the legacy
+     * {@code authorities}/{@code userId} claims while older tokens are in flight.
+     */
+    public static final int CLAIMS_VERSION = 2;
+    public static final String VERSION_CLAIM = "v";
+    public static final String ROLE_CLAIM = "r";
+    public static final String USER_ID_CLAIM = "uid";
+
+    private static final String LEGACY_FORMAT = "legacy";
+
     @Value("${jwt.secret.key}")
     private String secretKey;
 
+    // "compact" (default) or "legacy"; switch back to legacy only if a consumer
+    // that cannot read the compact layout is still deployed
+    @Value("${jwt.claims.format:compact}")
+    private String claimsFormat;
+
+    private volatile Key signInKey;
+    private volatile JwtParser parser;
+
     public String extractUsername(String token) {
         return extractClaim(token, Claims::getSubject);
     }
@@ -36,10 +59,19 @@ public class JwtService {
     }
 
     public String generateToken(Map<String, Object> extraClaims, UserDetails userDetails) {
-        // Add custom claims for user ID and authorities (roles)
-        extraClaims.put("authorities", userDetails.getAuthorities());
-        if (userDetails instanceof User) {
-            extraClaims.put("userId", ((User) userDetails).getId());
+        Role role = resolveRole(userDetails);
+        if (role != null && !LEGACY_FORMAT.equalsIgnoreCase(claimsFormat)) {
+            extraClaims.put(VERSION_CLAIM, CLAIMS_VERSION);
+            extraClaims.put(ROLE_CLAIM, role.getCode());
+            if (userDetails instanceof User) {
+                extraClaims.put(USER_ID_CLAIM, ((User) userDetails).getId());
+            }
+        } else {
+            // Legacy layout: serialized authorities list and long user id claim
+            extraClaims.put("authorities", userDetails.getAuthorities());
+            if (userDetails instanceof User) {
+                extraClaims.put("userId", ((User) userDetails).getId());
+            }
         }
 
         return Jwts
@@ -66,16 +98,44 @@ public class JwtService {
     }
 
     private Claims extractAllClaims(String token) {
-        return Jwts
-                .parserBuilder()
-                .setSigningKey(getSignInKey())
-                .build()
+        return getParser()
                 .parseClaimsJws(token)
                 .getBody();
     }
 
+    // Compact tokens carry a single role; anything we cannot map falls back to legacy
+    private Role resolveRole(UserDetails userDetails) {
+        if (userDetails instanceof User && ((User) userDetails).getRole() != null) {
+            return ((User) userDetails).getRole();
+        }
+        if (userDetails.getAuthorities() == null || userDetails.getAuthorities().size() != 1) {
+            return null;
+        }
+        GrantedAuthority authority = userDetails.getAuthorities().iterator().next();
+        for (Role role : Role.values()) {
+            if (role.name().equals(authority.getAuthority())) {
+                return role;
+            }
+        }
+        return null;
+    }
+
+    private JwtParser getParser() {
+        JwtParser current = parser;
+        if (current == null) {
+            current = Jwts.parserBuilder().setSigningKey(getSignInKey()).build();
+            parser = current;
+        }
+        return current;
+    }
+
     private Key getSignInKey() {
-        byte[] keyBytes = Decoders.BASE64.decode(secretKey);
-        return Keys.hmacShaKeyFor(keyBytes);
+        Key current = signInKey;
+        if (current == null) {
+            byte[] keyBytes = Decoders.BASE64.decode(secretKey);
+            current = Keys.hmacShaKeyFor(keyBytes);
+            signInKey = current;
+        }
+        return current;
     }
 }
@@ -0,0 +1,238 @@
+package ax.gritlab.buy_01.user.service;
+
+import ax.gritlab.buy_01.user.dto.RegisterRequest;
+import ax.gritlab.buy_01.user.dto.UserImportResult;
+import ax.gritlab.buy_01.user.model.User;
+import ax.gritlab.buy_01.user.repository.UserRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.bulk.BulkWriteError;
+import jakarta.annotation.PreDestroy;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Bulk account provisioning from NDJSON (one {@link RegisterRequest} per line).
+ *
+ * <p>Rows are processed in chunks: validation and in-chunk de-duplication first,
+ * then one {@code $in} query against the unique email index, then BCrypt hashing
+ * in parallel on a dedicated fork-join pool, then one unordered insertMany. Only
+ * rows that can still be inserted are hashed. Every input line gets exactly one
+ * {@link UserImportResult}, delivered to the caller's sink as soon as it is known.
+ */
+@Slf4j
+@Service
+public class UserImportService {
+
+    // Mongo duplicate key error, raised when another writer claims an email between check and insert
+    private static final int DUPLICATE_KEY = 11000;
+
+    private final UserRepository userRepository;
+    private final MongoTemplate mongoTemplate;
+    private final PasswordEncoder passwordEncoder;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final int chunkSize;
+    private final ForkJoinPool hashingPool;
+
+    public UserImportService(
+            UserRepository userRepository,
+            MongoTemplate mongoTemplate,
+            PasswordEncoder passwordEncoder,
+            ObjectMapper objectMapper,
+            Validator validator,
+            @Value("${users.import.chunk-size:1000}") int chunkSize,
+            @Value("${users.import.hash-parallelism:0}") int hashParallelism) {
+        this.userRepository = userRepository;
+        this.mongoTemplate = mongoTemplate;
+        this.passwordEncoder = passwordEncoder;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.chunkSize = chunkSize;
+        // Separate from the common pool so an import cannot starve other parallel streams
+        this.hashingPool = new ForkJoinPool(
+                hashParallelism > 0 ? hashParallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        hashingPool.shutdownNow();
+    }
+
+    public UserImportSummary importUsers(InputStream ndjson, Consumer<UserImportResult> sink) throws IOException {
+        UserImportSummary summary = new UserImportSummary();
+        Consumer<UserImportResult> reporting = result -> {
+            summary.record(result.getStatus());
+            sink.accept(result);
+        };
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(ndjson, StandardCharsets.UTF_8));
+        List<PendingRow> chunk = new ArrayList<>(chunkSize);
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            PendingRow row = parse(lineNumber, line, reporting);
+            if (row == null) {
+                continue;
+            }
+            chunk.add(row);
+            if (chunk.size() >= chunkSize) {
+                processChunk(chunk, reporting);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            processChunk(chunk, reporting);
+        }
+
+        log.info("User import finished: {}", summary);
+        return summary;
+    }
+
+    private PendingRow parse(int lineNumber, String line, Consumer<UserImportResult> sink) {
+        RegisterRequest request;
+        try {
+            request = objectMapper.readValue(line, RegisterRequest.class);
+        } catch (JsonProcessingException e) {
+            request = null;
+        }
+        if (request == null) {
+            // A literal null line parses without error but is no more a user than broken JSON
+            sink.accept(result(lineNumber, null, UserImportResult.Status.INVALID, null, "Malformed JSON"));
+            return null;
+        }
+
+        Set<ConstraintViolation<RegisterRequest>> violations = validator.validate(request);
+        if (!violations.isEmpty()) {
+            String message = violations.stream()
+                    .map(v -> v.getPropertyPath() + ": " + v.getMessage())
+                    .sorted()
+                    .collect(Collectors.joining("; "));
+            sink.accept(result(lineNumber, request.getEmail(), UserImportResult.Status.INVALID, null, message));
+            return null;
+        }
+        return new PendingRow(lineNumber, request);
+    }
+
+    private void processChunk(List<PendingRow> chunk, Consumer<UserImportResult> sink) {
+        // 1. Duplicates inside the chunk: the first occurrence wins
+        Map<String, PendingRow> byEmail = new LinkedHashMap<>();
+        for (PendingRow row : chunk) {
+            if (byEmail.putIfAbsent(row.request.getEmail(), row) != null) {
+                sink.accept(result(row.lineNumber, row.request.getEmail(), UserImportResult.Status.DUPLICATE,
+                        null, "Email appears more than once in the import"));
+            }
+        }
+
+        // 2. Emails that already exist, in one query against the unique index
+        Set<String> existing = new HashSet<>();
+        for (User user : userRepository.findEmailsByEmailIn(byEmail.keySet())) {
+            existing.add(user.getEmail());
+        }
+        List<PendingRow> candidates = new ArrayList<>(byEmail.size());
+        for (PendingRow row : byEmail.values()) {
+            if (existing.contains(row.request.getEmail())) {
+                sink.accept(result(row.lineNumber, row.request.getEmail(), UserImportResult.Status.DUPLICATE,
+                        null, "Email already exists"));
+            } else {
+                candidates.add(row);
+            }
+        }
+        if (candidates.isEmpty()) {
+            return;
+        }
+
+        // 3. BCrypt dominates the cost of an import, so spread it over every core
+        List<User> users = hashingPool.submit(() -> candidates.parallelStream()
+                .map(this::toUser)
+                .collect(Collectors.toList()))
+                .join();
+
+        // 4. One unordered insertMany; a failed row does not stop the rest of the chunk
+        Map<Integer, BulkWriteError> errors = new LinkedHashMap<>();
+        try {
+            BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, User.class);
+            bulk.insert(users);
+            bulk.execute();
+        } catch (BulkOperationException e) {
+            for (BulkWriteError error : e.getErrors()) {
+                errors.put(error.getIndex(), error);
+            }
+        }
+
+        for (int i = 0; i < candidates.size(); i++) {
+            PendingRow row = candidates.get(i);
+            BulkWriteError error = errors.get(i);
+            if (error == null) {
+                sink.accept(result(row.lineNumber, row.request.getEmail(), UserImportResult.Status.CREATED,
+                        users.get(i).getId(), null));
+            } else if (error.getCode() == DUPLICATE_KEY) {
+                sink.accept(result(row.lineNumber, row.request.getEmail(), UserImportResult.Status.DUPLICATE,
+                        null, "Email already exists"));
+            } else {
+                sink.accept(result(row.lineNumber, row.request.getEmail(), UserImportResult.Status.FAILED,
+                        null, error.getMessage()));
+            }
+        }
+    }
+
+    private User toUser(PendingRow row) {
+        RegisterRequest request = row.request;
+        return User.builder()
+                // Assigned up front so the report can return ids without reading them back
+                .id(new ObjectId().toHexString())
+                .name(request.getName())
+                .email(request.getEmail())
+                .password(passwordEncoder.encode(request.getPassword()))
+                .role(request.getRole())
+                .build();
+    }
+
+    private static UserImportResult result(int line, String email, UserImportResult.Status status,
+            String id, String message) {
+        return UserImportResult.builder()
+                .line(line)
+                .email(email)
+                .status(status)
+                .id(id)
+                .message(message)
+                .build();
+    }
+
+    private static final class PendingRow {
+        private final int lineNumber;
+        private final RegisterRequest request;
+
+        private PendingRow(int lineNumber, RegisterRequest request) {
+            this.lineNumber = lineNumber;
+            this.request = request;
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package ax.gritlab.buy_01.user.service;
+
+import ax.gritlab.buy_01.user.dto.UserImportResult;
+import lombok.Getter;
+import lombok.ToString;
+
+// Running totals of a bulk import, per row status
+@Getter
+@ToString
+public class UserImportSummary {
+
+    private int created;
+    private int duplicates;
+    private int invalid;
+    private int failed;
+
+    void record(UserImportResult.Status status) {
+        switch (status) {
+            case CREATED -> created++;
+            case DUPLICATE -> duplicates++;
+            case INVALID -> invalid++;
+            case FAILED -> failed++;
+        }
+    }
+}
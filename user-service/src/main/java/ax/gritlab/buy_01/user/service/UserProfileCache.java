@@ -0,0 +1,47 @@
+package ax.gritlab.buy_01.user.service;
+
+import ax.gritlab.buy_01.user.dto.UserProfileResponse;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Local cache of profiles served by the public user routes. Entries are
+ * evicted on profile update/delete on this instance and expire after a short
+ * TTL so other instances converge without coordination.
+ */
+@Component
+public class UserProfileCache {
+
+    private final Cache<String, UserProfileResponse> cache;
+
+    public UserProfileCache(
+            @Value("${users.profile-cache.max-size:10000}") long maxSize,
+            @Value("${users.profile-cache.ttl:5m}") Duration ttl) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    public UserProfileResponse get(String id) {
+        return cache.getIfPresent(id);
+    }
+
+    public Map<String, UserProfileResponse> getAll(Collection<String> ids) {
+        return cache.getAllPresent(ids);
+    }
+
+    public void put(UserProfileResponse profile) {
+        cache.put(profile.getId(), profile);
+    }
+
+    public void evict(String id) {
+        cache.invalidate(id);
+    }
+}
@@ -1,5 +1,6 @@
 package ax.gritlab.buy_01.user.service;
 
+import ax.gritlab.buy_01.user.dto.PublicProfileResponse;
 import ax.gritlab.buy_01.user.dto.UpdateProfileRequest;
 import ax.gritlab.buy_01.user.dto.UserProfileResponse;
 import ax.gritlab.buy_01.user.model.User;
@@ -8,6 +9,15 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @Service
 @RequiredArgsConstructor
@@ -16,6 +26,10 @@ public class UserService {
     private final KafkaTemplate<String, String> kafkaTemplate;
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
+    private final UserProfileCache profileCache;
+
+    // Upper bound for GET /users?ids=... so a single request stays one cheap $in query
+    public static final int MAX_BATCH_IDS = 100;
 
     public UserProfileResponse getProfile(User user) {
         return UserProfileResponse.builder()
@@ -29,9 +43,66 @@ public class UserService {
 
     // NEW: Get user by ID (for viewing seller profiles)
     public UserProfileResponse getUserById(String id) {
+        UserProfileResponse cached = profileCache.get(id);
+        if (cached != null) {
+            return cached;
+        }
         User user = userRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("User not found"));
-        return getProfile(user);
+        UserProfileResponse profile = getProfile(user);
+        profileCache.put(profile);
+        return profile;
+    }
+
+    // Batch lookup for seller cards: cache first, then one $in query for the misses.
+    // Unknown ids are skipped; results keep the order of the requested ids.
+    public List<PublicProfileResponse> getPublicProfiles(List<String> ids) {
+        Set<String> uniqueIds = new LinkedHashSet<>(ids);
+        if (uniqueIds.size() > MAX_BATCH_IDS) {
+            throw new IllegalArgumentException("At most " + MAX_BATCH_IDS + " ids can be requested at once");
+        }
+
+        Map<String, UserProfileResponse> profiles = new HashMap<>(profileCache.getAll(uniqueIds));
+        List<String> missing = new ArrayList<>();
+        for (String id : uniqueIds) {
+            if (!profiles.containsKey(id)) {
+                missing.add(id);
+            }
+        }
+        if (!missing.isEmpty()) {
+            for (User user : userRepository.findProfilesByIdIn(missing)) {
+                UserProfileResponse profile = getProfile(user);
+                profileCache.put(profile);
+                profiles.put(profile.getId(), profile);
+            }
+        }
+
+        List<PublicProfileResponse> result = new ArrayList<>(uniqueIds.size());
+        for (String id : uniqueIds) {
+            UserProfileResponse profile = profiles.get(id);
+            if (profile != null) {
+                result.add(toPublicProfile(profile));
+            }
+        }
+        return result;
+    }
+
+    public PublicProfileResponse toPublicProfile(UserProfileResponse profile) {
+        return PublicProfileResponse.builder()
+                .id(profile.getId())
+                .name(profile.getName())
+                .role(profile.getRole())
+                .avatar(profile.getAvatar())
+                .build();
+    }
+
+    // Strong validator derived from the served fields, so it changes exactly when the body does
+    public String computeETag(List<?> profiles) {
+        StringBuilder content = new StringBuilder();
+        for (Object profile : profiles) {
+            content.append(profile).append('\n');
+        }
+        return "\"" + DigestUtils.md5DigestAsHex(content.toString().getBytes(StandardCharsets.UTF_8)) + "\"";
     }
 
     public UserProfileResponse updateProfile(User user, UpdateProfileRequest request) {
@@ -62,11 +133,13 @@ public class UserService {
         }
 
         User updatedUser = userRepository.save(user);
+        profileCache.evict(updatedUser.getId());
         return getProfile(updatedUser);
     }
 
     public void deleteUser(User user) {
         userRepository.delete(user);
+        profileCache.evict(user.getId());
         // Publish Kafka event for user deletion
         kafkaTemplate.send("user.deleted", user.getId());
     }
@@ -0,0 +1,100 @@
+package ax.gritlab.buy_01.user.service;
+
+import ax.gritlab.buy_01.user.model.Role;
+import ax.gritlab.buy_01.user.model.User;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.security.Key;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Manual benchmark comparing the legacy and compact JWT claim layouts.
+ * Not picked up by Surefire; run it from the IDE or with
+ * {@code mvn -pl user-service test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=ax.gritlab.buy_01.user.service.JwtClaimsBenchmark}.
+ *
+ * <p>Prints the encoded token size and the consumer-side cost per request:
+ * the legacy path re-parses the token for every claim (as the old filters did)
+ * and rebuilds the authority list, the compact path parses once.
+ */
+public class JwtClaimsBenchmark {
+
+    private static final String SECRET =
+            "dGhpc2lzYXNlY3VyZXNlY3JldGtleWZvcnRoZWJ1eWFwcGxpY2F0aW9udGhhdGlzbG9uZ2Vub3VnaGZvckhTMjU2";
+    private static final int WARMUP = 20_000;
+    private static final int ITERATIONS = 100_000;
+
+    public static void main(String[] args) {
+        User user = User.builder()
+                .id("65f1c2a9e4b0a1b2c3d4e5f6")
+                .name("Benchmark Seller")
+                .email("benchmark.seller@example.com")
+                .role(Role.SELLER)
+                .build();
+
+        String legacyToken = issue("legacy", user);
+        String compactToken = issue("compact", user);
+
+        Key key = Keys.hmacShaKeyFor(Decoders.BASE64.decode(SECRET));
+        JwtParser parser = Jwts.parserBuilder().setSigningKey(key).build();
+
+        System.out.printf("legacy  token: %d bytes%n", legacyToken.length());
+        System.out.printf("compact token: %d bytes (%.1f%% smaller)%n", compactToken.length(),
+                100.0 * (legacyToken.length() - compactToken.length()) / legacyToken.length());
+
+        run("legacy  parse (4x per request)", () -> legacyRequest(parser, legacyToken));
+        run("compact parse (1x per request)", () -> compactRequest(parser, compactToken));
+    }
+
+    private static String issue(String format, User user) {
+        JwtService jwtService = new JwtService();
+        ReflectionTestUtils.setField(jwtService, "secretKey", SECRET);
+        ReflectionTestUtils.setField(jwtService, "claimsFormat", format);
+        return jwtService.generateToken(user);
+    }
+
+    // Mirrors the pre-compact filter: isTokenValid, extractUsername, extractUserId
+    // and extractAuthorities each verified and parsed the token again
+    @SuppressWarnings("unchecked")
+    private static Object legacyRequest(JwtParser parser, String token) {
+        parser.parseClaimsJws(token).getBody().getExpiration();
+        String email = parser.parseClaimsJws(token).getBody().getSubject();
+        String userId = parser.parseClaimsJws(token).getBody().get("userId", String.class);
+        List<Map<String, String>> maps = parser.parseClaimsJws(token).getBody().get("authorities", List.class);
+        List<GrantedAuthority> authorities = maps.stream()
+                .map(m -> new SimpleGrantedAuthority(m.get("authority")))
+                .collect(Collectors.toList());
+        return email.length() + userId.length() + authorities.size();
+    }
+
+    private static Object compactRequest(JwtParser parser, String token) {
+        Claims claims = parser.parseClaimsJws(token).getBody();
+        claims.getExpiration();
+        String email = claims.getSubject();
+        String userId = claims.get(JwtService.USER_ID_CLAIM, String.class);
+        Role role = Role.fromCode(claims.get(JwtService.ROLE_CLAIM, String.class));
+        return email.length() + userId.length() + role.ordinal();
+    }
+
+    private static void run(String label, java.util.function.Supplier<Object> request) {
+        long sink = 0;
+        for (int i = 0; i < WARMUP; i++) {
+            sink += request.get().hashCode();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            sink += request.get().hashCode();
+        }
+        long elapsed = System.nanoTime() - start;
+        System.out.printf("%s: %.2f us/request (sink=%d)%n", label, elapsed / 1000.0 / ITERATIONS, sink);
+    }
+}
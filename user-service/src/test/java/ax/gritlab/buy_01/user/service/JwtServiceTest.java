@@ -157,6 +157,47 @@ public class JwtServiceTest {
         assertEquals("customValue", customValue);
     }
 
+    @Test
+    @DisplayName("Should embed compact role code and user id claims")
+    void testGenerateCompactToken() {
+        // Act
+        String token = jwtService.generateToken(testUserDetails);
+        Claims claims = parseClaims(token);
+
+        // Assert
+        assertEquals(JwtService.CLAIMS_VERSION, claims.get(JwtService.VERSION_CLAIM, Integer.class));
+        assertEquals("S", claims.get(JwtService.ROLE_CLAIM, String.class));
+        assertEquals("testUser123", claims.get(JwtService.USER_ID_CLAIM, String.class));
+        assertNull(claims.get("authorities"));
+        assertNull(claims.get("userId"));
+    }
+
+    @Test
+    @DisplayName("Should produce a smaller token than the legacy claim layout")
+    void testCompactTokenIsSmallerThanLegacy() {
+        // Arrange
+        String compactToken = jwtService.generateToken(testUserDetails);
+        ReflectionTestUtils.setField(jwtService, "claimsFormat", "legacy");
+
+        // Act
+        String legacyToken = jwtService.generateToken(testUserDetails);
+
+        // Assert
+        assertTrue(compactToken.length() < legacyToken.length());
+        Claims legacyClaims = parseClaims(legacyToken);
+        assertNotNull(legacyClaims.get("authorities"));
+        assertEquals("testUser123", legacyClaims.get("userId", String.class));
+        assertNull(legacyClaims.get(JwtService.VERSION_CLAIM));
+    }
+
+    private Claims parseClaims(String token) {
+        return Jwts.parserBuilder()
+                .setSigningKey(getSignInKey(secretKey))
+                .build()
+                .parseClaimsJws(token)
+                .getBody();
+    }
+
     private Key getSignInKey(String secretKey) {
         byte[] keyBytes = Decoders.BASE64.decode(secretKey);
         return Keys.hmacShaKeyFor(keyBytes);
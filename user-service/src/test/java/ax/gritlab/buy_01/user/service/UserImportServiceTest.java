@@ -0,0 +1,165 @@
+package ax.gritlab.buy_01.user.service;
+
+import ax.gritlab.buy_01.user.dto.UserImportResult;
+import ax.gritlab.buy_01.user.model.User;
+import ax.gritlab.buy_01.user.repository.UserRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("UserImportService Unit Tests")
+class UserImportServiceTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private BulkOperations bulkOperations;
+
+    @Mock
+    private PasswordEncoder passwordEncoder;
+
+    private UserImportService userImportService;
+
+    @BeforeEach
+    void setUp() {
+        userImportService = new UserImportService(
+                userRepository,
+                mongoTemplate,
+                passwordEncoder,
+                new ObjectMapper(),
+                Validation.buildDefaultValidatorFactory().getValidator(),
+                2,
+                2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        userImportService.shutdown();
+    }
+
+    @Test
+    @DisplayName("Should report one result per line and insert only new, valid rows")
+    void testImportUsers() throws IOException {
+        // Arrange
+        String ndjson = String.join("\n",
+                row("Alice Seller", "alice@example.com"),
+                row("Bob Seller", "bob@example.com"),
+                "{not json",
+                row("Alice Again", "alice@example.com"),
+                row("Carol Seller", "carol@example.com"),
+                row("X", "invalid-email"));
+
+        User existing = new User();
+        existing.setEmail("bob@example.com");
+        User importedInFirstChunk = new User();
+        importedInFirstChunk.setEmail("alice@example.com");
+        when(userRepository.findEmailsByEmailIn(anyCollection()))
+                .thenReturn(List.of(existing))
+                .thenReturn(List.of(importedInFirstChunk));
+        when(mongoTemplate.bulkOps(eq(BulkOperations.BulkMode.UNORDERED), eq(User.class))).thenReturn(bulkOperations);
+        when(passwordEncoder.encode(anyString())).thenReturn("encodedPassword");
+
+        List<UserImportResult> results = new ArrayList<>();
+
+        // Act
+        UserImportSummary summary = userImportService.importUsers(
+                new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)), results::add);
+
+        // Assert
+        results.sort(Comparator.comparingInt(UserImportResult::getLine));
+        assertEquals(6, results.size());
+        assertEquals(UserImportResult.Status.CREATED, results.get(0).getStatus());
+        assertNotNull(results.get(0).getId());
+        assertEquals(UserImportResult.Status.DUPLICATE, results.get(1).getStatus());
+        assertEquals(UserImportResult.Status.INVALID, results.get(2).getStatus());
+        assertEquals(UserImportResult.Status.DUPLICATE, results.get(3).getStatus());
+        assertEquals(UserImportResult.Status.CREATED, results.get(4).getStatus());
+        assertEquals(UserImportResult.Status.INVALID, results.get(5).getStatus());
+
+        assertEquals(2, summary.getCreated());
+        assertEquals(2, summary.getDuplicates());
+        assertEquals(2, summary.getInvalid());
+        // Duplicates are rejected before hashing
+        verify(passwordEncoder, times(2)).encode(anyString());
+        verify(bulkOperations, times(2)).insert(anyList());
+        verify(bulkOperations, times(2)).execute();
+    }
+
+    @Test
+    @DisplayName("Should skip hashing and inserting when every row already exists")
+    void testImportUsersAllExisting() throws IOException {
+        // Arrange
+        User existing = new User();
+        existing.setEmail("alice@example.com");
+        when(userRepository.findEmailsByEmailIn(anyCollection())).thenReturn(List.of(existing));
+        List<UserImportResult> results = new ArrayList<>();
+
+        // Act
+        userImportService.importUsers(new ByteArrayInputStream(
+                row("Alice Seller", "alice@example.com").getBytes(StandardCharsets.UTF_8)), results::add);
+
+        // Assert
+        assertEquals(1, results.size());
+        assertEquals(UserImportResult.Status.DUPLICATE, results.get(0).getStatus());
+        verify(passwordEncoder, never()).encode(any());
+        verify(mongoTemplate, never()).bulkOps(any(BulkOperations.BulkMode.class), any(Class.class));
+    }
+
+    @Test
+    @DisplayName("Should report a null line as invalid and import the rest")
+    void testImportUsersNullLine() throws IOException {
+        // Arrange
+        String ndjson = String.join("\n", "null", row("Alice Seller", "alice@example.com"));
+        when(userRepository.findEmailsByEmailIn(anyCollection())).thenReturn(List.of());
+        when(mongoTemplate.bulkOps(eq(BulkOperations.BulkMode.UNORDERED), eq(User.class))).thenReturn(bulkOperations);
+        when(passwordEncoder.encode(anyString())).thenReturn("encodedPassword");
+        List<UserImportResult> results = new ArrayList<>();
+
+        // Act
+        UserImportSummary summary = userImportService.importUsers(
+                new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)), results::add);
+
+        // Assert
+        results.sort(Comparator.comparingInt(UserImportResult::getLine));
+        assertEquals(2, results.size());
+        assertEquals(UserImportResult.Status.INVALID, results.get(0).getStatus());
+        assertEquals("Malformed JSON", results.get(0).getMessage());
+        assertEquals(UserImportResult.Status.CREATED, results.get(1).getStatus());
+        assertEquals(1, summary.getCreated());
+        assertEquals(1, summary.getInvalid());
+    }
+
+    private static String row(String name, String email) {
+        return "{\"name\":\"" + name + "\",\"email\":\"" + email
+                + "\",\"password\":\"password123\",\"role\":\"SELLER\"}";
+    }
+}
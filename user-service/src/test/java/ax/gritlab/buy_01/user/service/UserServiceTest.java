@@ -1,5 +1,6 @@
 package ax.gritlab.buy_01.user.service;
 
+import ax.gritlab.buy_01.user.dto.PublicProfileResponse;
 import ax.gritlab.buy_01.user.dto.UpdateProfileRequest;
 import ax.gritlab.buy_01.user.dto.UserProfileResponse;
 import ax.gritlab.buy_01.user.model.Role;
@@ -15,10 +16,14 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -34,6 +39,9 @@ public class UserServiceTest {
     @Mock
     private PasswordEncoder passwordEncoder;
 
+    @Mock
+    private UserProfileCache profileCache;
+
     @InjectMocks
     private UserService userService;
 
@@ -82,6 +90,77 @@ public class UserServiceTest {
         verify(userRepository, times(1)).findById("user123");
     }
 
+    @Test
+    @DisplayName("Should serve user by ID from the profile cache")
+    void testGetUserByIdCached() {
+        // Arrange
+        UserProfileResponse cached = userService.getProfile(testUser);
+        when(profileCache.get("user123")).thenReturn(cached);
+
+        // Act
+        UserProfileResponse response = userService.getUserById("user123");
+
+        // Assert
+        assertSame(cached, response);
+        verify(userRepository, never()).findById(any());
+    }
+
+    @Test
+    @DisplayName("Should resolve public profiles with one query for cache misses")
+    void testGetPublicProfiles() {
+        // Arrange
+        User otherUser = new User();
+        otherUser.setId("user456");
+        otherUser.setName("Jane Seller");
+        otherUser.setEmail("jane@example.com");
+        otherUser.setRole(Role.SELLER);
+        UserProfileResponse cached = userService.getProfile(testUser);
+        when(profileCache.getAll(anyCollection())).thenReturn(Map.of("user123", cached));
+        when(userRepository.findProfilesByIdIn(List.of("user456", "missing"))).thenReturn(List.of(otherUser));
+
+        // Act
+        List<PublicProfileResponse> profiles = userService.getPublicProfiles(
+                List.of("user456", "user123", "missing", "user456"));
+
+        // Assert
+        assertEquals(2, profiles.size());
+        assertEquals("user456", profiles.get(0).getId());
+        assertEquals("user123", profiles.get(1).getId());
+        assertEquals("Jane Seller", profiles.get(0).getName());
+        verify(userRepository, times(1)).findProfilesByIdIn(anyCollection());
+        verify(profileCache, times(1)).put(any(UserProfileResponse.class));
+    }
+
+    @Test
+    @DisplayName("Should reject oversized public profile batches")
+    void testGetPublicProfilesTooManyIds() {
+        // Arrange
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i <= UserService.MAX_BATCH_IDS; i++) {
+            ids.add("user" + i);
+        }
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> userService.getPublicProfiles(ids));
+        verify(userRepository, never()).findProfilesByIdIn(anyCollection());
+    }
+
+    @Test
+    @DisplayName("Should change the ETag when a profile changes")
+    void testComputeETag() {
+        // Arrange
+        PublicProfileResponse profile = userService.toPublicProfile(userService.getProfile(testUser));
+        String before = userService.computeETag(List.of(profile));
+
+        // Act
+        profile.setName("Renamed Seller");
+        String after = userService.computeETag(List.of(profile));
+
+        // Assert
+        assertNotEquals(before, after);
+        assertTrue(before.startsWith("\"") && before.endsWith("\""));
+    }
+
     @Test
     @DisplayName("Should throw exception when user not found")
     void testGetUserByIdNotFound() {
@@ -109,6 +188,7 @@ public class UserServiceTest {
         // Assert
         assertNotNull(response);
         verify(userRepository, times(1)).save(any(User.class));
+        verify(profileCache, times(1)).evict("user123");
     }
 
     @Test